@@ -19,6 +19,7 @@ import com.bc.ceres.core.ProgressMonitor;
 import com.bc.ceres.core.SubProgressMonitor;
 import com.bc.ceres.swing.progress.ProgressMonitorSwingWorker;
 import org.esa.snap.framework.dataio.ProductIO;
+import org.esa.snap.framework.dataio.ProductWriter;
 import org.esa.snap.framework.datamodel.Product;
 import org.esa.snap.framework.gpf.Operator;
 import org.esa.snap.framework.gpf.OperatorException;
@@ -36,7 +37,11 @@ import org.esa.snap.util.io.FileUtils;
 import javax.swing.AbstractButton;
 import javax.swing.JOptionPane;
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.text.MessageFormat;
+import java.util.Collections;
 import java.util.concurrent.ExecutionException;
 
 /**
@@ -47,6 +52,16 @@ import java.util.concurrent.ExecutionException;
  */
 public abstract class SingleTargetProductDialog extends ModelessDialog {
 
+    /**
+     * Preferences key for writing target products with tile rows computed in parallel.
+     */
+    public static final String PREFERENCES_KEY_PARALLEL_WRITING = "snap.gpf.ui.parallelWriting";
+
+    /**
+     * Preferences key for exporting the write metrics of target products as JSON to the application data directory.
+     */
+    public static final String PREFERENCES_KEY_EXPORT_WRITE_METRICS = "snap.gpf.ui.exportWriteMetrics";
+
     protected TargetProductSelector targetProductSelector;
     protected AppContext appContext;
 
@@ -219,13 +234,14 @@ public abstract class SingleTargetProductDialog extends ModelessDialog {
         return true;
     }
 
-    private void showSaveInfo(long saveTime) {
+    private void showSaveInfo(long saveTime, String metricsInfo) {
         File productFile = getTargetProductSelector().getModel().getProductFile();
         final String message = MessageFormat.format(
                 "<html>The target product has been successfully written to<br>{0}<br>" +
-                        "Total time spend for processing: {1}",
+                        "Total time spend for processing: {1}<br>{2}",
                 formatFile(productFile),
-                formatDuration(saveTime)
+                formatDuration(saveTime),
+                metricsInfo
         );
         showSuppressibleInformationDialog(message, "saveInfo");
     }
@@ -240,16 +256,17 @@ public abstract class SingleTargetProductDialog extends ModelessDialog {
         showSuppressibleInformationDialog(message, "openInAppInfo");
     }
 
-    private void showSaveAndOpenInAppInfo(long saveTime) {
+    private void showSaveAndOpenInAppInfo(long saveTime, String metricsInfo) {
         File productFile = getTargetProductSelector().getModel().getProductFile();
         final String message = MessageFormat.format(
                 "<html>The target product has been successfully written to<br>" +
                         "<p>{0}</p><br>" +
                         "and has been opened in {1}.<br><br>" +
-                        "Total time spend for processing: {2}<br>",
+                        "Total time spend for processing: {2}<br>{3}",
                 formatFile(productFile),
                 appContext.getApplicationName(),
-                formatDuration(saveTime)
+                formatDuration(saveTime),
+                metricsInfo
         );
         showSuppressibleInformationDialog(message, "saveAndOpenInAppInfo");
     }
@@ -283,6 +300,8 @@ public abstract class SingleTargetProductDialog extends ModelessDialog {
 
         private final Product targetProduct;
         private long saveTime;
+        private WriteMetrics writeMetrics;
+        private File metricsFile;
 
         private ProductWriterSwingWorker(Product targetProduct) {
             super(getJDialog(), "Writing Target Product");
@@ -307,18 +326,37 @@ public abstract class SingleTargetProductDialog extends ModelessDialog {
                         execOp = operator;
                     }
                 }
-                if (execOp == null) {
-                    WriteOp writeOp = new WriteOp(targetProduct, model.getProductFile(), model.getFormatName());
-                    writeOp.setDeleteOutputOnFailure(true);
-                    writeOp.setWriteEntireTileRows(true);
-                    writeOp.setClearCacheAfterRowWrite(false);
-                    execOp = writeOp;
-                }
+                final ProductWriter productWriter = ProductIO.getProductWriter(model.getFormatName());
+                if (execOp == null && productWriter != null && isParallelWritingEnabled()) {
+                    final int parallelism = Runtime.getRuntime().availableProcessors();
+                    final TileRowProductWriter writer = new TileRowProductWriter(targetProduct, model.getProductFile(),
+                                                                                 productWriter, parallelism);
+                    writeMetrics = writer.write(SubProgressMonitor.create(pm, 95));
+                } else {
+                    if (execOp == null) {
+                        WriteOp writeOp = new WriteOp(targetProduct, model.getProductFile(), model.getFormatName());
+                        writeOp.setDeleteOutputOnFailure(true);
+                        writeOp.setWriteEntireTileRows(true);
+                        writeOp.setClearCacheAfterRowWrite(false);
+                        execOp = writeOp;
+                    }
 
-                final OperatorExecutor executor = OperatorExecutor.create(execOp);
-                executor.execute(SubProgressMonitor.create(pm, 95));
+                    // the operator is not instrumented, only the totals are measured
+                    writeMetrics = new WriteMetrics(Collections.<String>emptyList());
+                    writeMetrics.start();
+                    try {
+                        final OperatorExecutor executor = OperatorExecutor.create(execOp);
+                        executor.execute(SubProgressMonitor.create(pm, 95));
+                    } finally {
+                        writeMetrics.stop();
+                    }
+                    writeMetrics.setBytesWritten(getOutputSize(model.getProductFile()));
+                }
 
                 saveTime = System.currentTimeMillis() - t0;
+                if (isWriteMetricsExportEnabled()) {
+                    metricsFile = exportWriteMetrics(writeMetrics, model.getProductName());
+                }
                 if (model.isOpenInAppSelected()) {
                     File targetFile = model.getProductFile();
                     if (!targetFile.exists())
@@ -347,9 +385,9 @@ public abstract class SingleTargetProductDialog extends ModelessDialog {
                 final Product targetProduct = get();
                 if (model.isOpenInAppSelected()) {
                     appContext.getProductManager().addProduct(targetProduct);
-                    showSaveAndOpenInAppInfo(saveTime);
+                    showSaveAndOpenInAppInfo(saveTime, formatWriteMetrics(writeMetrics, metricsFile));
                 } else {
-                    showSaveInfo(saveTime);
+                    showSaveInfo(saveTime, formatWriteMetrics(writeMetrics, metricsFile));
                 }
             } catch (InterruptedException e) {
                 // ignore
@@ -361,6 +399,58 @@ public abstract class SingleTargetProductDialog extends ModelessDialog {
         }
     }
 
+    private boolean isParallelWritingEnabled() {
+        return appContext.getPreferences().getPropertyBool(PREFERENCES_KEY_PARALLEL_WRITING, false);
+    }
+
+    private boolean isWriteMetricsExportEnabled() {
+        return appContext.getPreferences().getPropertyBool(PREFERENCES_KEY_EXPORT_WRITE_METRICS, false);
+    }
+
+    /**
+     * @return The size of the product file and, for formats like BEAM-DIMAP, of its data directory.
+     */
+    private static long getOutputSize(File productFile) {
+        long size = productFile.length();
+        final File dataDir = FileUtils.exchangeExtension(productFile, ".data");
+        final File[] files = dataDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Writes the metrics as JSON to the application data directory, so that they can be compared between runs.
+     *
+     * @return The JSON file, or {@code null} if it could not be written.
+     */
+    private static File exportWriteMetrics(WriteMetrics metrics, String productName) {
+        final File metricsDir = new File(SystemUtils.getApplicationDataDir(), "write_metrics");
+        final File metricsFile = new File(metricsDir, FileUtils.createValidFilename(productName) + ".json");
+        try {
+            Files.createDirectories(metricsDir.toPath());
+            Files.write(metricsFile.toPath(), metrics.toJson().getBytes(StandardCharsets.UTF_8));
+            return metricsFile;
+        } catch (IOException e) {
+            SystemUtils.LOG.warning("Unable to write the write metrics: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private String formatWriteMetrics(WriteMetrics metrics, File metricsFile) {
+        if (metrics == null) {
+            return "";
+        }
+        String html = "<br>" + metrics.toHtml();
+        if (metricsFile != null) {
+            html += "Metrics exported to " + formatFile(metricsFile) + "<br>";
+        }
+        return html;
+    }
+
     /**
      * Creates the desired target product.
      * Usually, this method will be implemented by invoking one of the multiple {@link org.esa.snap.framework.gpf.GPF GPF}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.framework.gpf.ui;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.dataio.ProductWriter;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.gpf.OperatorException;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes a product tile row by tile row, computing the tile rows of all bands in parallel.
+ * <p>
+ * The tile rows are computed by a pool of threads, at most two per thread ahead of the writer. The calling thread
+ * writes the computed rows in the order of the rows and bands, so the product writer is only used by a single thread.
+ */
+class TileRowProductWriter {
+
+    private final Product product;
+    private final File outputFile;
+    private final ProductWriter productWriter;
+    private final int parallelism;
+
+    TileRowProductWriter(Product product, File outputFile, ProductWriter productWriter, int parallelism) {
+        this.product = product;
+        this.outputFile = outputFile;
+        this.productWriter = productWriter;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    WriteMetrics write(ProgressMonitor pm) throws IOException {
+        final List<Band> bands = new ArrayList<>();
+        final List<String> bandNames = new ArrayList<>();
+        for (Band band : product.getBands()) {
+            if (productWriter.shouldWrite(band)) {
+                bands.add(band);
+                bandNames.add(band.getName());
+            }
+        }
+        final WriteMetrics metrics = new WriteMetrics(bandNames);
+
+        final int width = product.getSceneRasterWidth();
+        final int height = product.getSceneRasterHeight();
+        final int rowHeight = bands.isEmpty() ? height : bands.get(0).getSourceImage().getTileHeight();
+        final int rowCount = (height + rowHeight - 1) / rowHeight;
+        final int chunkCount = rowCount * bands.size();
+        final int maxQueuedChunks = 2 * parallelism;
+
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            final Thread thread = new Thread(runnable, "TileRowProductWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final ArrayDeque<Future<ProductData>> queue = new ArrayDeque<>();
+
+        pm.beginTask("Writing product '" + product.getName() + "'...", Math.max(1, chunkCount));
+        metrics.start();
+        boolean success = false;
+        try {
+            productWriter.writeProductNodes(product, outputFile);
+
+            int submittedCount = 0;
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                while (submittedCount < chunkCount && submittedCount - chunk < maxQueuedChunks) {
+                    final Band band = bands.get(submittedCount % bands.size());
+                    final Rectangle rect = getRowRectangle(submittedCount / bands.size(), rowHeight, width, height);
+                    queue.add(executor.submit(createComputeTask(band, rect, metrics)));
+                    submittedCount++;
+                }
+                metrics.sampleQueueDepth(countDone(queue));
+
+                final Band band = bands.get(chunk % bands.size());
+                final Rectangle rect = getRowRectangle(chunk / bands.size(), rowHeight, width, height);
+                final ProductData data = getComputed(queue.poll());
+
+                final long t0 = System.nanoTime();
+                productWriter.writeBandRasterData(band, rect.x, rect.y, rect.width, rect.height, data, ProgressMonitor.NULL);
+                metrics.addWrite(band.getName(), System.nanoTime() - t0, (long) data.getNumElems() * data.getElemSize());
+
+                pm.worked(1);
+                if (pm.isCanceled()) {
+                    throw new OperatorException("Writing of product '" + product.getName() + "' has been cancelled.");
+                }
+            }
+            productWriter.flush();
+            success = true;
+        } finally {
+            executor.shutdownNow();
+            productWriter.close();
+            if (!success) {
+                productWriter.deleteOutput();
+            }
+            metrics.stop();
+            pm.done();
+        }
+        return metrics;
+    }
+
+    private static Callable<ProductData> createComputeTask(final Band band, final Rectangle rect,
+                                                           final WriteMetrics metrics) {
+        return () -> {
+            final long t0 = System.nanoTime();
+            final Raster raster = band.getSourceImage().getData(rect);
+            final ProductData data = ProductData.createInstance(band.getDataType(), rect.width * rect.height);
+            raster.getDataElements(rect.x, rect.y, rect.width, rect.height, data.getElems());
+            metrics.addTile(band.getName(), System.nanoTime() - t0);
+            return data;
+        };
+    }
+
+    private static ProductData getComputed(Future<ProductData> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new OperatorException("Writing has been interrupted.", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private static int countDone(ArrayDeque<Future<ProductData>> queue) {
+        int count = 0;
+        for (Future<ProductData> future : queue) {
+            if (future.isDone()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static Rectangle getRowRectangle(int row, int rowHeight, int width, int height) {
+        final int y = row * rowHeight;
+        return new Rectangle(0, y, width, Math.min(rowHeight, height - y));
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.framework.gpf.ui;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Timings and throughput of writing a target product.
+ * <p>
+ * The compute times of the tiles are added by the compute threads, the write times by the thread writing to disk.
+ */
+class WriteMetrics {
+
+    private static final double MB = 1024.0 * 1024.0;
+
+    private final Map<String, BandMetrics> bandMetricsMap = new LinkedHashMap<>();
+
+    private long startNanos;
+    private long elapsedNanos;
+    private long bytesWritten;
+    private long tileCount;
+    private long tileNanos;
+    private long maxTileNanos;
+    private long queueDepthSum;
+    private long queueDepthSamples;
+    private int maxQueueDepth;
+
+    WriteMetrics(List<String> bandNames) {
+        for (String bandName : bandNames) {
+            bandMetricsMap.put(bandName, new BandMetrics(bandName));
+        }
+    }
+
+    synchronized void start() {
+        startNanos = System.nanoTime();
+    }
+
+    synchronized void stop() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    synchronized void addTile(String bandName, long computeNanos) {
+        final BandMetrics bandMetrics = getBandMetrics(bandName);
+        bandMetrics.tileCount++;
+        bandMetrics.computeNanos += computeNanos;
+        bandMetrics.maxTileNanos = Math.max(bandMetrics.maxTileNanos, computeNanos);
+        tileCount++;
+        tileNanos += computeNanos;
+        maxTileNanos = Math.max(maxTileNanos, computeNanos);
+    }
+
+    synchronized void addWrite(String bandName, long writeNanos, long bytes) {
+        final BandMetrics bandMetrics = getBandMetrics(bandName);
+        bandMetrics.writeNanos += writeNanos;
+        bandMetrics.bytesWritten += bytes;
+        bytesWritten += bytes;
+    }
+
+    /**
+     * Records the number of computed tiles waiting to be written.
+     */
+    synchronized void sampleQueueDepth(int queueDepth) {
+        queueDepthSum += queueDepth;
+        queueDepthSamples++;
+        maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+    }
+
+    /**
+     * Sets the bytes written if they are not counted per band, e.g. the size of the output files.
+     */
+    synchronized void setBytesWritten(long bytesWritten) {
+        this.bytesWritten = bytesWritten;
+    }
+
+    synchronized long getElapsedMillis() {
+        return elapsedNanos / 1000000L;
+    }
+
+    synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    synchronized double getBytesPerSecond() {
+        return elapsedNanos > 0 ? bytesWritten * 1.0e9 / elapsedNanos : 0.0;
+    }
+
+    synchronized double getMeanQueueDepth() {
+        return queueDepthSamples > 0 ? (double) queueDepthSum / queueDepthSamples : 0.0;
+    }
+
+    synchronized int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    synchronized List<BandMetrics> getBandMetrics() {
+        final List<BandMetrics> list = new ArrayList<>();
+        for (BandMetrics bandMetrics : bandMetricsMap.values()) {
+            list.add(bandMetrics.copy());
+        }
+        return list;
+    }
+
+    /**
+     * @return A summary for the completion dialog, as HTML without the enclosing html element.
+     */
+    synchronized String toHtml() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ENGLISH, "Bytes written: %.1f MB (%.1f MB/s)<br>",
+                                bytesWritten / MB, getBytesPerSecond() / MB));
+        if (tileCount > 0) {
+            sb.append(String.format(Locale.ENGLISH, "Tiles computed: %d (mean %.1f ms, max %.1f ms)<br>",
+                                    tileCount, tileNanos / 1.0e6 / tileCount, maxTileNanos / 1.0e6));
+            sb.append(String.format(Locale.ENGLISH, "Tiles waiting for the writer: mean %.1f, max %d<br>",
+                                    getMeanQueueDepth(), maxQueueDepth));
+            long computeNanos = 0;
+            long writeNanos = 0;
+            for (BandMetrics bandMetrics : bandMetricsMap.values()) {
+                computeNanos += bandMetrics.computeNanos;
+                writeNanos += bandMetrics.writeNanos;
+            }
+            sb.append(String.format(Locale.ENGLISH, "Time spent computing: %.1f s, writing: %.1f s<br>",
+                                    computeNanos / 1.0e9, writeNanos / 1.0e9));
+        }
+        return sb.toString();
+    }
+
+    synchronized String toJson() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  \"elapsedMillis\": ").append(getElapsedMillis()).append(",\n");
+        sb.append("  \"bytesWritten\": ").append(bytesWritten).append(",\n");
+        sb.append("  \"bytesPerSecond\": ").append(formatNumber(getBytesPerSecond())).append(",\n");
+        sb.append("  \"tileCount\": ").append(tileCount).append(",\n");
+        sb.append("  \"tileComputeMillis\": ").append(formatNumber(tileNanos / 1.0e6)).append(",\n");
+        sb.append("  \"maxTileComputeMillis\": ").append(formatNumber(maxTileNanos / 1.0e6)).append(",\n");
+        sb.append("  \"meanQueueDepth\": ").append(formatNumber(getMeanQueueDepth())).append(",\n");
+        sb.append("  \"maxQueueDepth\": ").append(maxQueueDepth).append(",\n");
+        sb.append("  \"bands\": [");
+        String separator = "\n";
+        for (BandMetrics bandMetrics : bandMetricsMap.values()) {
+            sb.append(separator);
+            sb.append("    {\"name\": \"").append(escapeJson(bandMetrics.bandName)).append('"');
+            sb.append(", \"tileCount\": ").append(bandMetrics.tileCount);
+            sb.append(", \"computeMillis\": ").append(formatNumber(bandMetrics.computeNanos / 1.0e6));
+            sb.append(", \"maxTileComputeMillis\": ").append(formatNumber(bandMetrics.maxTileNanos / 1.0e6));
+            sb.append(", \"writeMillis\": ").append(formatNumber(bandMetrics.writeNanos / 1.0e6));
+            sb.append(", \"bytesWritten\": ").append(bandMetrics.bytesWritten).append('}');
+            separator = ",\n";
+        }
+        sb.append(bandMetricsMap.isEmpty() ? "]\n" : "\n  ]\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    private BandMetrics getBandMetrics(String bandName) {
+        BandMetrics bandMetrics = bandMetricsMap.get(bandName);
+        if (bandMetrics == null) {
+            bandMetrics = new BandMetrics(bandName);
+            bandMetricsMap.put(bandName, bandMetrics);
+        }
+        return bandMetrics;
+    }
+
+    private static String formatNumber(double value) {
+        return String.format(Locale.ENGLISH, "%.3f", value);
+    }
+
+    static String escapeJson(String s) {
+        final StringBuilder sb = new StringBuilder(s.length());
+        for (char c : s.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    static class BandMetrics {
+
+        private final String bandName;
+        private long tileCount;
+        private long computeNanos;
+        private long maxTileNanos;
+        private long writeNanos;
+        private long bytesWritten;
+
+        private BandMetrics(String bandName) {
+            this.bandName = bandName;
+        }
+
+        String getBandName() {
+            return bandName;
+        }
+
+        long getTileCount() {
+            return tileCount;
+        }
+
+        long getBytesWritten() {
+            return bytesWritten;
+        }
+
+        private BandMetrics copy() {
+            final BandMetrics copy = new BandMetrics(bandName);
+            copy.tileCount = tileCount;
+            copy.computeNanos = computeNanos;
+            copy.maxTileNanos = maxTileNanos;
+            copy.writeNanos = writeNanos;
+            copy.bytesWritten = bytesWritten;
+            return copy;
+        }
+    }
+}
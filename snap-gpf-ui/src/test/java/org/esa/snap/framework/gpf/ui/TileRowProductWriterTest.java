@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.framework.gpf.ui;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.dataio.AbstractProductWriter;
+import org.esa.snap.framework.dataio.ProductWriterPlugIn;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class TileRowProductWriterTest {
+
+    private static final int WIDTH = 50;
+    private static final int HEIGHT = 37;
+
+    @Test
+    public void testWriteInRowAndBandOrder() throws Exception {
+        final Product product = new Product("test", "test", WIDTH, HEIGHT);
+        product.setPreferredTileSize(WIDTH, 10);
+        addBand(product, "a", 0);
+        addBand(product, "b", 10000);
+        product.addBand("virtual", "a + b");
+
+        final RecordingProductWriter productWriter = new RecordingProductWriter();
+        final TileRowProductWriter writer = new TileRowProductWriter(product, new File("test.dim"), productWriter, 3);
+        final WriteMetrics metrics = writer.write(ProgressMonitor.NULL);
+
+        assertEquals(8, productWriter.writtenBands.size());
+        for (int i = 0; i < productWriter.writtenBands.size(); i++) {
+            final Band band = productWriter.writtenBands.get(i);
+            final int y = productWriter.writtenOffsets.get(i);
+            assertEquals(i % 2 == 0 ? "a" : "b", band.getName());
+            assertEquals((i / 2) * 10, y);
+
+            final float[] data = productWriter.writtenData.get(i);
+            final float offset = i % 2 == 0 ? 0 : 10000;
+            assertEquals(offset + y * WIDTH, data[0], 0.0f);
+            assertEquals(offset + y * WIDTH + data.length - 1, data[data.length - 1], 0.0f);
+        }
+        assertTrue(productWriter.closed);
+
+        assertEquals(WIDTH * HEIGHT * 4L * 2, metrics.getBytesWritten());
+        assertEquals(2, metrics.getBandMetrics().size());
+        assertEquals(4, metrics.getBandMetrics().get(0).getTileCount());
+        assertTrue(metrics.toJson().contains("\"name\": \"b\""));
+    }
+
+    private static void addBand(Product product, String name, float offset) {
+        final float[] values = new float[WIDTH * HEIGHT];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = offset + i;
+        }
+        final Band band = product.addBand(name, ProductData.TYPE_FLOAT32);
+        band.setRasterData(ProductData.createInstance(values));
+    }
+
+    private static class RecordingProductWriter extends AbstractProductWriter {
+
+        private final List<Band> writtenBands = new ArrayList<>();
+        private final List<Integer> writtenOffsets = new ArrayList<>();
+        private final List<float[]> writtenData = new ArrayList<>();
+        private boolean closed;
+
+        RecordingProductWriter() {
+            super(mock(ProductWriterPlugIn.class));
+        }
+
+        @Override
+        protected void writeProductNodesImpl() throws IOException {
+        }
+
+        @Override
+        public void writeBandRasterData(Band sourceBand, int sourceOffsetX, int sourceOffsetY, int sourceWidth,
+                                        int sourceHeight, ProductData sourceBuffer, ProgressMonitor pm) throws IOException {
+            writtenBands.add(sourceBand);
+            writtenOffsets.add(sourceOffsetY);
+            writtenData.add(((float[]) sourceBuffer.getElems()).clone());
+        }
+
+        @Override
+        public void flush() throws IOException {
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+        }
+
+        @Override
+        public void deleteOutput() throws IOException {
+        }
+    }
+}
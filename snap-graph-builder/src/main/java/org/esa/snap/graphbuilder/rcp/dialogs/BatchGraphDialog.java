@@ -16,7 +16,6 @@
 package org.esa.snap.graphbuilder.rcp.dialogs;
 
 import com.bc.ceres.core.ProgressMonitor;
-import com.bc.ceres.core.SubProgressMonitor;
 import org.esa.snap.db.CommonReaders;
 import org.esa.snap.db.ProductEntry;
 import org.esa.snap.framework.datamodel.Product;
@@ -24,16 +23,21 @@ import org.esa.snap.framework.gpf.graph.GraphException;
 import org.esa.snap.framework.ui.AppContext;
 import org.esa.snap.framework.ui.ModelessDialog;
 import org.esa.snap.gpf.ProcessTimeMonitor;
+import org.esa.snap.graphbuilder.rcp.dialogs.support.BatchResultLog;
+import org.esa.snap.graphbuilder.rcp.dialogs.support.BatchScheduler;
 import org.esa.snap.graphbuilder.rcp.dialogs.support.FileTable;
 import org.esa.snap.graphbuilder.rcp.dialogs.support.GraphExecuter;
 import org.esa.snap.graphbuilder.rcp.dialogs.support.GraphNode;
 import org.esa.snap.graphbuilder.rcp.dialogs.support.ProgressBarProgressMonitor;
 import org.esa.snap.rcp.SnapApp;
+import org.esa.snap.rcp.SnapDialogs;
 import org.esa.snap.util.MemUtils;
 import org.esa.snap.util.ResourceUtils;
+import org.esa.snap.util.SystemUtils;
 import org.esa.snap.util.io.FileChooserFactory;
 import org.esa.snap.util.io.FileUtils;
 
+import javax.media.jai.JAI;
 import javax.swing.*;
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -44,8 +48,15 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
 
 /**
  * Provides the dialog for executing a graph on a list of products
@@ -67,6 +78,7 @@ public class BatchGraphDialog extends ModelessDialog {
     private ProgressBarProgressMonitor progBarMonitor = null;
 
     private Map<File, File[]> slaveFileMap = null;
+    private BatchResultLog resultLog = null;
     private final List<BatchProcessListener> listenerList = new ArrayList<>(1);
     private final boolean closeOnDone;
 
@@ -267,10 +279,21 @@ public class BatchGraphDialog extends ModelessDialog {
 
             MemUtils.freeAllMemory();
 
+            final Set<File> skippedFiles;
+            try {
+                skippedFiles = openResultLog();
+            } catch (IOException e) {
+                showErrorDialog("Unable to open the batch result log: " + e.getMessage());
+                return;
+            }
+            if (skippedFiles == null) {
+                return;
+            }
+
             progressBar.setValue(0);
             progBarMonitor = new ProgressBarProgressMonitor(progressBar, progressMsgLabel, progressPanel);
 
-            final SwingWorker processThread = new ProcessThread(progBarMonitor);
+            final SwingWorker processThread = new ProcessThread(progBarMonitor, skippedFiles);
             processThread.execute();
 
         } else {
@@ -279,6 +302,58 @@ public class BatchGraphDialog extends ModelessDialog {
         }
     }
 
+    /**
+     * Opens the result log of the target folder. If an earlier batch has already processed some of the input files
+     * into the same folder, the user may resume it with the remaining files only.
+     *
+     * @return the input files to skip, or null if the user cancelled
+     * @throws IOException if the log cannot be read or cleared
+     */
+    private Set<File> openResultLog() throws IOException {
+        resultLog = new BatchResultLog(productSetPanel.getTargetFolder());
+
+        final File[] fileList = productSetPanel.getFileList();
+        final Set<File> succeededFiles = resultLog.getSucceededFiles();
+        final Set<File> skippedFiles = new HashSet<>();
+        for (File file : fileList) {
+            if (succeededFiles.contains(file.getAbsoluteFile())) {
+                skippedFiles.add(file);
+            }
+        }
+        if (!skippedFiles.isEmpty()) {
+            final SnapDialogs.Answer answer = SnapDialogs.requestDecision("Resume Batch",
+                    skippedFiles.size() + " of " + fileList.length + " products have already been processed into the target folder.\n" +
+                            "Do you want to process the remaining products only?", true, null);
+            if (answer == SnapDialogs.Answer.CANCELLED) {
+                resultLog.close();
+                return null;
+            }
+            if (answer == SnapDialogs.Answer.NO) {
+                resultLog.clear();
+                skippedFiles.clear();
+            }
+        }
+        return skippedFiles;
+    }
+
+    /**
+     * @return the number of graphs to execute at once, either from the preferences or from the heap left next to
+     * the tile cache
+     */
+    private static int getParallelism() {
+        try {
+            final int parallelism = Integer.parseInt(getPref("batch.parallel_jobs", "0"));
+            if (parallelism > 0) {
+                return parallelism;
+            }
+        } catch (NumberFormatException e) {
+            // derive it
+        }
+        return BatchScheduler.computeParallelism(Runtime.getRuntime().maxMemory(),
+                                                 JAI.getDefaultInstance().getTileCache().getMemoryCapacity(),
+                                                 Runtime.getRuntime().availableProcessors());
+    }
+
     private void CancelProcessing() {
         if (progBarMonitor != null)
             progBarMonitor.setCanceled(true);
@@ -518,60 +593,61 @@ public class BatchGraphDialog extends ModelessDialog {
     private class ProcessThread extends SwingWorker<Boolean, Object> {
 
         private final ProgressMonitor pm;
+        private final Set<File> skippedFiles;
+        private final BatchScheduler scheduler = new BatchScheduler(getParallelism());
+        private final List<BatchJob> jobList = new ArrayList<>();
+        private final Object initLock = new Object();
+        private final Timer statusTimer;
         private ProcessTimeMonitor timeMonitor = new ProcessTimeMonitor();
         private boolean errorOccured = false;
-        final List<String> errMsgs = new ArrayList<>();
+        final List<String> errMsgs = Collections.synchronizedList(new ArrayList<String>());
 
-        public ProcessThread(final ProgressMonitor pm) {
+        public ProcessThread(final ProgressMonitor pm, final Set<File> skippedFiles) {
             this.pm = pm;
+            this.skippedFiles = skippedFiles;
+
+            final File[] fileList = productSetPanel.getFileList();
+            for (int graphIndex = 0; graphIndex < graphExecutorList.size(); ++graphIndex) {
+                jobList.add(new BatchJob(graphExecutorList.get(graphIndex), fileList[graphIndex]));
+            }
+
+            statusTimer = new Timer(1000, new ActionListener() {
+                public void actionPerformed(final ActionEvent e) {
+                    updateStatus();
+                }
+            });
+            statusTimer.start();
         }
 
         @Override
         protected Boolean doInBackground() throws Exception {
 
             pm.beginTask("Processing Graph...", 100 * graphExecutorList.size());
+            ExecutorService executor = null;
             try {
                 timeMonitor.start();
                 isProcessing = true;
 
-                final File[] fileList = productSetPanel.getFileList();
-                int graphIndex = 0;
-                for (GraphExecuter graphEx : graphExecutorList) {
-                    if (pm.isCanceled()) break;
-
-                    try {
-                        final String nOfm = String.valueOf(graphIndex + 1) + " of " + graphExecutorList.size() + ' ';
-                        final String statusText = "Processing " + nOfm + fileList[graphIndex].getName();
-                        statusLabel.setText(statusText);
-                        notifyMSG(BatchProcessListener.BatchMSG.UPDATE, statusText);
-
-                        MemUtils.freeAllMemory();
-
-                        graphEx.InitGraph();
-
-                        graphEx.executeGraph(new SubProgressMonitor(pm, 100));
-
-                        graphEx.disposeGraphContext();
-                    } catch (Exception e) {
-                        System.out.print(e.getMessage());
-                        String filename = fileList[graphIndex].getName();
-                        errMsgs.add(filename + " -> " + e.getMessage());
-                    }
-
-                    graphEx = null;
-                    ++graphIndex;
-
-                    // calculate time remaining
-                    final long duration = timeMonitor.getCurrentDuration();
-                    final double timePerGraph = duration / (double) graphIndex;
-                    final long timeLeft = (long) (timePerGraph * (graphExecutorList.size() - graphIndex));
-                    if (timeLeft > 0) {
-                        String remainingStr = "Estimated " + ProcessTimeMonitor.formatDuration(timeLeft) + " remaining";
-                        if (!errMsgs.isEmpty())
-                            remainingStr += " (Errors occurred)";
-                        bottomStatusLabel.setText(remainingStr);
+                executor = Executors.newFixedThreadPool(scheduler.getParallelism(), runnable -> {
+                    final Thread thread = new Thread(runnable, "BatchGraph");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+                final List<Future<?>> futureList = new ArrayList<>();
+                for (BatchJob job : jobList) {
+                    if (skippedFiles.contains(job.file)) {
+                        job.skipped = true;
+                        synchronized (pm) {
+                            pm.worked(100);
+                        }
+                    } else {
+                        futureList.add(executor.submit(job));
                     }
                 }
+                for (Future<?> future : futureList) {
+                    future.get();
+                }
 
                 MemUtils.freeAllMemory();
 
@@ -583,14 +659,67 @@ public class BatchGraphDialog extends ModelessDialog {
                     statusLabel.setText(e.toString());
                 errorOccured = true;
             } finally {
+                if (executor != null) {
+                    executor.shutdownNow();
+                }
+                try {
+                    resultLog.close();
+                } catch (IOException e) {
+                    SystemUtils.LOG.warning("Unable to close the batch result log: " + e.getMessage());
+                }
                 isProcessing = false;
                 pm.done();
             }
             return true;
         }
 
+        /**
+         * Shows the running jobs and the estimated time remaining, from the progress of all jobs to process.
+         */
+        private void updateStatus() {
+            int numJobs = 0;
+            int numFinished = 0;
+            int numFailed = 0;
+            double work = 0;
+            final StringBuilder runningStr = new StringBuilder();
+            for (BatchJob job : jobList) {
+                if (job.skipped) {
+                    continue;
+                }
+                ++numJobs;
+                work += job.monitor.fraction;
+                if (job.finished) {
+                    ++numFinished;
+                    if (job.failure != null) {
+                        ++numFailed;
+                    }
+                } else if (job.started) {
+                    runningStr.append(runningStr.length() == 0 ? ": " : ", ");
+                    runningStr.append(job.file.getName()).append(' ').append((int) (job.monitor.fraction * 100)).append('%');
+                }
+            }
+            if (!isProcessing || numFinished == numJobs) {
+                return;
+            }
+            final String failedStr = numFailed > 0 ? " (" + numFailed + " failed)" : "";
+            statusLabel.setText("Processed " + numFinished + " of " + numJobs + failedStr + runningStr);
+
+            // calculate time remaining
+            if (work > 0) {
+                final long duration = timeMonitor.getCurrentDuration();
+                final long timeLeft = (long) (duration * (numJobs - work) / work);
+                if (timeLeft > 0) {
+                    String remainingStr = "Estimated " + ProcessTimeMonitor.formatDuration(timeLeft) + " remaining";
+                    if (!errMsgs.isEmpty())
+                        remainingStr += " (Errors occurred)";
+                    bottomStatusLabel.setText(remainingStr);
+                }
+            }
+        }
+
         @Override
         public void done() {
+            statusTimer.stop();
             if (!errorOccured) {
                 final long duration = timeMonitor.stop();
                 statusLabel.setText("Processing completed in " + ProcessTimeMonitor.formatDuration(duration));
@@ -614,6 +743,130 @@ public class BatchGraphDialog extends ModelessDialog {
                 close();
         }
 
+        /**
+         * The execution of the graph of one input file.
+         */
+        private class BatchJob implements Runnable {
+
+            private final GraphExecuter graphEx;
+            private final File file;
+            private final JobProgressMonitor monitor = new JobProgressMonitor();
+            private volatile boolean skipped;
+            private volatile boolean started;
+            private volatile boolean finished;
+            private volatile Exception failure;
+
+            BatchJob(final GraphExecuter graphEx, final File file) {
+                this.graphEx = graphEx;
+                this.file = file;
+            }
+
+            public void run() {
+                try {
+                    if (!scheduler.admit(pm)) {
+                        writeResult(BatchResultLog.Result.CANCELLED, null);
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    writeResult(BatchResultLog.Result.CANCELLED, null);
+                    return;
+                }
+
+                started = true;
+                try {
+                    notifyMSG(BatchProcessListener.BatchMSG.UPDATE, "Processing " + file.getName());
+
+                    // the cloned graphs share the operator UIs, which assign the parameters
+                    synchronized (initLock) {
+                        graphEx.InitGraph();
+                    }
+
+                    graphEx.executeGraph(monitor);
+
+                    graphEx.disposeGraphContext();
+
+                    if (pm.isCanceled()) {
+                        writeResult(BatchResultLog.Result.CANCELLED, null);
+                    } else {
+                        writeResult(BatchResultLog.Result.SUCCEEDED, null);
+                    }
+                } catch (Exception e) {
+                    if (pm.isCanceled()) {
+                        writeResult(BatchResultLog.Result.CANCELLED, null);
+                    } else {
+                        failure = e;
+                        SystemUtils.LOG.log(Level.SEVERE, "Unable to process " + file, e);
+                        errMsgs.add(file.getName() + " -> " + e.getMessage());
+                        writeResult(BatchResultLog.Result.FAILED, e.getMessage());
+                    }
+                } finally {
+                    monitor.done();
+                    finished = true;
+                    scheduler.release();
+                }
+            }
+
+            private void writeResult(final BatchResultLog.Result result, final String message) {
+                try {
+                    resultLog.write(file, result, message);
+                } catch (IOException e) {
+                    SystemUtils.LOG.warning("Unable to write the batch result of " + file + ": " + e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * Reports the progress of one job as 100 units of the batch monitor, which is shared by the running jobs.
+         */
+        private class JobProgressMonitor implements ProgressMonitor {
+
+            private double totalWork = 1;
+            private double currentWork;
+            private volatile double fraction;
+
+            public void beginTask(final String taskName, final int totalWork) {
+                this.totalWork = Math.max(1, totalWork);
+                currentWork = 0;
+            }
+
+            public void done() {
+                setFraction(1.0);
+            }
+
+            public void internalWorked(final double work) {
+                currentWork += work;
+                setFraction(Math.min(1.0, currentWork / totalWork));
+            }
+
+            public boolean isCanceled() {
+                return pm.isCanceled();
+            }
+
+            public void setCanceled(final boolean canceled) {
+                pm.setCanceled(canceled);
+            }
+
+            public void setTaskName(final String taskName) {
+            }
+
+            public void setSubTaskName(final String subTaskName) {
+            }
+
+            public void worked(final int work) {
+                internalWorked(work);
+            }
+
+            private void setFraction(final double newFraction) {
+                final double delta = newFraction - fraction;
+                if (delta <= 0) {
+                    return;
+                }
+                fraction = newFraction;
+                synchronized (pm) {
+                    pm.internalWorked(delta * 100);
+                }
+            }
+        }
     }
 
     public interface BatchProcessListener {
@@ -55,6 +55,7 @@ import java.util.Date;
 import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Provides the User Interface for creating, loading and saving Graphs
@@ -79,6 +80,11 @@ public class GraphBuilderDialog extends ModelessDialog implements Observer {
     private JLabel progressMsgLabel = null;
     private boolean initGraphEnabled = true;
 
+    private Timer validationTimer = null;
+    private SwingWorker<Object, Object> initWorker = null;
+    private boolean validationPending = false;
+    private Runnable afterInitWorker = null;
+
     private final GraphExecuter graphEx;
     private boolean isProcessing = false;
     private boolean allowGraphBuilding = true;
@@ -144,9 +150,18 @@ public class GraphBuilderDialog extends ModelessDialog implements Observer {
         tabbedPanel.addChangeListener(new ChangeListener() {
 
             public void stateChanged(final ChangeEvent e) {
-                ValidateAllNodes();
+                scheduleValidation();
+            }
+        });
+
+        // validate once the user has stopped switching tabs for a moment
+        validationTimer = new Timer(300, new ActionListener() {
+
+            public void actionPerformed(final ActionEvent e) {
+                ValidateInBackground();
             }
         });
+        validationTimer.setRepeats(false);
 
         statusLabel = new JLabel("");
         statusLabel.setForeground(new Color(255, 0, 0));
@@ -259,6 +274,14 @@ public class GraphBuilderDialog extends ModelessDialog implements Observer {
      */
     public void DoProcessing() {
 
+        if (runAfterInitWorker(new Runnable() {
+            public void run() {
+                DoProcessing();
+            }
+        })) {
+            return;
+        }
+
         if (ValidateAllNodes()) {
             if (!checkIfOutputExists()) {
                 return;
@@ -306,10 +329,7 @@ public class GraphBuilderDialog extends ModelessDialog implements Observer {
             if (!result)
                 statusLabel.setText("Graph is incomplete");
         } catch (Exception e) {
-            if (e.getMessage() != null)
-                statusLabel.setText(e.getMessage());
-            else
-                statusLabel.setText(e.toString());
+            setStatusError(e);
             result = false;
         }
         return result;
@@ -424,7 +444,14 @@ public class GraphBuilderDialog extends ModelessDialog implements Observer {
             SourceUI ui = (SourceUI) readerNode.GetOperatorUI();
             ui.setSourceProduct(product);
 
-            ValidateAllNodes();
+            final Runnable validation = new Runnable() {
+                public void run() {
+                    ValidateAllNodes();
+                }
+            };
+            if (!runAfterInitWorker(validation)) {
+                validation.run();
+            }
         }
     }
 
@@ -451,8 +478,8 @@ public class GraphBuilderDialog extends ModelessDialog implements Observer {
     }
 
     /**
-     * lets all operatorUIs validate their parameters
-     * If parameter validation fails then a list of the failures is presented to the user
+     * lets all operatorUIs validate their parameters and then initialises the graph, if it has changed.
+     * Must not be called while the graph is initialised in the background, see {@link #runAfterInitWorker}.
      *
      * @return true if validation passes
      */
@@ -460,6 +487,87 @@ public class GraphBuilderDialog extends ModelessDialog implements Observer {
 
         if (isProcessing) return false;
 
+        validationTimer.stop();
+
+        if (!ValidateNodeParameters()) {
+            return false;
+        }
+        return InitGraph();
+    }
+
+    private void scheduleValidation() {
+        if (initGraphEnabled) {
+            validationTimer.restart();
+        }
+    }
+
+    /**
+     * Validates the parameters and initialises the graph in the background, if it has changed since it was last
+     * initialised, so that editing the graph does not wait for the operators to be initialised.
+     */
+    private void ValidateInBackground() {
+
+        if (isProcessing || !initGraphEnabled) return;
+
+        if (initWorker != null && !initWorker.isDone()) {
+            // the graph must not change while its context is created, validate again afterwards
+            validationPending = true;
+            return;
+        }
+
+        if (!ValidateNodeParameters()) {
+            return;
+        }
+
+        final GraphExecuter.GraphUpdate update;
+        try {
+            update = graphEx.prepareGraphUpdate();
+        } catch (Exception e) {
+            setStatusError(e);
+            return;
+        }
+        if (update == null) {
+            statusLabel.setText("Graph is incomplete");
+        } else if (!update.isUpToDate()) {
+            if (graphEx.canCreateGraphContextInBackground()) {
+                initWorker = new InitGraphThread(update);
+                initWorker.execute();
+            } else {
+                InitGraph();
+            }
+        }
+    }
+
+    /**
+     * Defers the given action until the graph has been initialised in the background, instead of blocking the
+     * event dispatch thread. Only the latest deferred action is run.
+     *
+     * @return true if the action has been deferred, false if no initialisation is running
+     */
+    private boolean runAfterInitWorker(final Runnable action) {
+        if (initWorker != null && !initWorker.isDone()) {
+            validationTimer.stop();
+            afterInitWorker = action;
+            return true;
+        }
+        return false;
+    }
+
+    private void setStatusError(final Exception e) {
+        if (e.getMessage() != null)
+            statusLabel.setText(e.getMessage());
+        else
+            statusLabel.setText(e.toString());
+    }
+
+    /**
+     * lets all operatorUIs validate their parameters
+     * If parameter validation fails then a list of the failures is presented to the user
+     *
+     * @return true if no parameter is invalid
+     */
+    private boolean ValidateNodeParameters() {
+
         boolean isValid = true;
         final StringBuilder errorMsg = new StringBuilder(100);
         final StringBuilder warningMsg = new StringBuilder(100);
@@ -493,8 +601,7 @@ public class GraphBuilderDialog extends ModelessDialog implements Observer {
                 statusLabel.setText("Warning: " + warningStr);
             }
         }
-
-        return InitGraph();
+        return true;
     }
 
     public void addListener(final ProcessingListener listener) {
@@ -561,6 +668,45 @@ public class GraphBuilderDialog extends ModelessDialog implements Observer {
         return node.GetOperatorUI().CreateOpTab(node.getOperatorName(), node.getParameterMap(), appContext);
     }
 
+    /**
+     * Creates the graph context off the event dispatch thread; the operator UIs are updated afterwards.
+     */
+    private class InitGraphThread extends SwingWorker<Object, Object> {
+
+        private final GraphExecuter.GraphUpdate update;
+
+        public InitGraphThread(final GraphExecuter.GraphUpdate update) {
+            this.update = update;
+        }
+
+        @Override
+        protected Object doInBackground() throws Exception {
+            graphEx.createGraphContext(update);
+            return null;
+        }
+
+        @Override
+        public void done() {
+            try {
+                get();
+                graphEx.updateGraphNodes();
+            } catch (ExecutionException e) {
+                setStatusError(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            } catch (Exception e) {
+                setStatusError(e);
+            }
+            if (afterInitWorker != null) {
+                final Runnable action = afterInitWorker;
+                afterInitWorker = null;
+                validationPending = false;
+                action.run();
+            } else if (validationPending) {
+                validationPending = false;
+                scheduleValidation();
+            }
+        }
+    }
+
     private class ProcessThread extends SwingWorker<GraphExecuter, Object> {
 
         private final ProgressMonitor pm;
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.graphbuilder.rcp.dialogs.support;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The result of each input file of a batch, written to the target folder as soon as it is known.
+ * <p>
+ * Each line holds the result, the absolute path of the input file and, for failures, the error message, separated by
+ * tabs. A later line of the same input overrides an earlier one, so a batch which is resumed appends to the log.
+ */
+public class BatchResultLog {
+
+    public static final String FILE_NAME = "batch_results.log";
+
+    public enum Result {SUCCEEDED, FAILED, CANCELLED}
+
+    private final File logFile;
+    private final Map<File, Result> results = new HashMap<>();
+    private Writer writer;
+
+    public BatchResultLog(final File targetFolder) throws IOException {
+        this.logFile = new File(targetFolder, FILE_NAME);
+        if (logFile.isFile()) {
+            read();
+        }
+    }
+
+    /**
+     * @return the input files which have been processed successfully by an earlier batch
+     */
+    public synchronized Set<File> getSucceededFiles() {
+        final Set<File> succeeded = new HashSet<>();
+        for (Map.Entry<File, Result> entry : results.entrySet()) {
+            if (entry.getValue() == Result.SUCCEEDED) {
+                succeeded.add(entry.getKey());
+            }
+        }
+        return succeeded;
+    }
+
+    /**
+     * Forgets the results of earlier batches.
+     */
+    public synchronized void clear() throws IOException {
+        close();
+        results.clear();
+        if (logFile.exists() && !logFile.delete()) {
+            throw new IOException("Unable to delete " + logFile);
+        }
+    }
+
+    public synchronized void write(final File inputFile, final Result result, final String message) throws IOException {
+        if (writer == null) {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile, true), StandardCharsets.UTF_8));
+        }
+        final File file = inputFile.getAbsoluteFile();
+        final StringBuilder line = new StringBuilder();
+        line.append(result.name()).append('\t').append(file.getPath());
+        if (message != null) {
+            line.append('\t').append(message.replaceAll("\\s+", " "));
+        }
+        writer.write(line.toString());
+        writer.write(System.lineSeparator());
+        // flush every line, the batch may be killed at any time
+        writer.flush();
+        results.put(file, result);
+    }
+
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private void read() throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(logFile), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] tokens = line.split("\t", 3);
+                if (tokens.length < 2) {
+                    continue;
+                }
+                try {
+                    results.put(new File(tokens[1]), Result.valueOf(tokens[0]));
+                } catch (IllegalArgumentException e) {
+                    // a line which has only been partly written
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.graphbuilder.rcp.dialogs.support;
+
+import com.bc.ceres.core.ProgressMonitor;
+
+/**
+ * Admits the graph executions of a batch.
+ * <p>
+ * At most a fixed number of jobs run at once. A further job is only admitted while enough heap is free for it; the
+ * first job is always admitted, so that a batch makes progress even on a small heap.
+ */
+public class BatchScheduler {
+
+    /**
+     * The heap a single graph execution is expected to need besides the shared tile cache.
+     */
+    public static final long JOB_MEMORY_BYTES = 1024L * 1024 * 1024;
+
+    private static final long WAIT_MILLIS = 500;
+
+    private final int parallelism;
+    private int runningJobs;
+
+    public BatchScheduler(final int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * @param maxHeapBytes   the maximum heap size
+     * @param tileCacheBytes the memory capacity of the tile cache
+     * @param numProcessors  the number of available processors
+     * @return the number of graph executions which fit into the heap next to the tile cache, at least one and at most
+     * one per processor
+     */
+    public static int computeParallelism(final long maxHeapBytes, final long tileCacheBytes, final int numProcessors) {
+        final long jobBytes = maxHeapBytes - tileCacheBytes;
+        final long jobsByMemory = jobBytes / JOB_MEMORY_BYTES;
+        return (int) Math.max(1, Math.min(numProcessors, jobsByMemory));
+    }
+
+    /**
+     * Blocks until a job may start.
+     *
+     * @param pm the monitor of the batch
+     * @return false if the batch has been cancelled while waiting
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public synchronized boolean admit(final ProgressMonitor pm) throws InterruptedException {
+        while (!pm.isCanceled() && !canStart()) {
+            // memory is freed without notification, so check again from time to time
+            wait(WAIT_MILLIS);
+        }
+        if (pm.isCanceled()) {
+            return false;
+        }
+        ++runningJobs;
+        return true;
+    }
+
+    public synchronized void release() {
+        --runningJobs;
+        notifyAll();
+    }
+
+    private boolean canStart() {
+        if (runningJobs == 0) {
+            return true;
+        }
+        return runningJobs < parallelism && getFreeHeapBytes() >= JOB_MEMORY_BYTES;
+    }
+
+    private static long getFreeHeapBytes() {
+        final Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+}
@@ -29,12 +29,14 @@ import org.esa.snap.framework.gpf.graph.GraphException;
 import org.esa.snap.framework.gpf.graph.GraphIO;
 import org.esa.snap.framework.gpf.graph.GraphProcessor;
 import org.esa.snap.framework.gpf.graph.Node;
+import org.esa.snap.framework.gpf.graph.NodeSource;
 import org.esa.snap.gpf.ReaderUtils;
 import org.esa.snap.gpf.operators.standard.WriteOp;
 import org.esa.snap.graphbuilder.gpf.ui.OperatorUI;
 import org.esa.snap.graphbuilder.gpf.ui.OperatorUIRegistry;
 import org.esa.snap.rcp.SnapDialogs;
 import org.esa.snap.rcp.actions.file.SaveProductAsAction;
+import org.esa.snap.util.SystemUtils;
 import org.esa.snap.util.io.FileUtils;
 import org.esa.snap.util.io.SnapFileFilter;
 
@@ -43,10 +45,15 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Observable;
 import java.util.Set;
+import java.util.logging.Level;
 
 public class GraphExecuter extends Observable {
 
@@ -59,6 +66,9 @@ public class GraphExecuter extends Observable {
 
     private final GraphNodeList graphNodeList = new GraphNodeList();
 
+    // the node signatures the current graph context has been created for
+    private final Map<String, String> contextSignatures = new HashMap<>();
+
     public enum events {ADD_EVENT, REMOVE_EVENT, SELECT_EVENT}
 
     public GraphExecuter() {
@@ -84,6 +94,7 @@ public class GraphExecuter extends Observable {
         graph = new Graph("Graph");
         lastLoadedGraphFile = null;
         graphNodeList.clear();
+        contextSignatures.clear();
     }
 
     public void setSelectedNode(GraphNode node) {
@@ -118,7 +129,7 @@ public class GraphExecuter extends Observable {
         return "";
     }
 
-    public GraphNode addOperator(final String opName) {
+    public synchronized GraphNode addOperator(final String opName) {
 
         String id = opName;
         int cnt = 1;
@@ -152,7 +163,7 @@ public class GraphExecuter extends Observable {
         return newGraphNode;
     }
 
-    public void removeOperator(final GraphNode node) {
+    public synchronized void removeOperator(final GraphNode node) {
 
         setChanged();
         notifyObservers(new GraphEvent(events.REMOVE_EVENT, node));
@@ -190,38 +201,138 @@ public class GraphExecuter extends Observable {
     }
 
     public boolean InitGraph() throws GraphException {
-        if (graphNodeList.isGraphComplete()) {
-            AssignAllParameters();
+        final GraphUpdate update = prepareGraphUpdate();
+        if (update == null) {
+            return false;
+        }
+        if (!update.isUpToDate()) {
+            createGraphContext(update);
+            updateGraphNodes();
+        }
+        return true;
+    }
+
+    /**
+     * Assigns the parameters of the operator UIs to the graph and checks whether a node changed since the graph
+     * context was created. Only changes are detected: re-initialising just the nodes downstream of a change is not
+     * supported, because a {@link GraphContext} can only be created for a whole graph, so any change initialises all
+     * operators again.
+     * <p>
+     * If the context can be created in the background, the update holds a copy of the graph, so that the graph can
+     * be edited while the context is created. Must be called on the event dispatch thread.
+     *
+     * @return the update, or null if the graph is incomplete
+     * @throws GraphException if the parameters cannot be assigned or the graph cannot be copied
+     */
+    public GraphUpdate prepareGraphUpdate() throws GraphException {
+        if (!graphNodeList.isGraphComplete()) {
+            return null;
+        }
+        AssignAllParameters();
+
+        final Map<String, String> signatures = new HashMap<>();
+        for (GraphNode n : graphNodeList.getGraphNodes()) {
+            signatures.put(n.getID(), getSignature(n.getNode()));
+        }
+
+        final boolean upToDate = graphContext != null && signatures.equals(contextSignatures);
+        final Graph contextGraph = upToDate || !canCreateGraphContextInBackground() ? graph : copyGraph(graph);
+        return new GraphUpdate(signatures, contextGraph, upToDate);
+    }
 
-            ProductSetUIHandler productSetHandler = new ProductSetUIHandler(graph, graphNodeList);
-            SubGraphHandler subGraphHandler = new SubGraphHandler(graph, graphNodeList);
+    private static Graph copyGraph(final Graph graph) throws GraphException {
+        final StringWriter writer = new StringWriter();
+        GraphIO.write(graph, writer);
+        return GraphIO.read(new StringReader(writer.toString()));
+    }
 
+    private static String getSignature(final Node node) {
+        final StringBuilder signature = new StringBuilder(node.getOperatorName());
+        for (NodeSource source : node.getSources()) {
+            signature.append('|').append(source.getSourceNodeId());
+        }
+        if (node.getConfiguration() != null) {
+            signature.append('|').append(node.getConfiguration().toXml());
+        }
+        return signature.toString();
+    }
+
+    /**
+     * The graph context can only be initialised in the background if the graph is not rewritten for product sets
+     * or sub-graphs, which add and remove nodes while the context is created.
+     *
+     * @return true if createGraphContext may be called off the event dispatch thread
+     */
+    public boolean canCreateGraphContextInBackground() {
+        for (GraphNode n : graphNodeList.getGraphNodes()) {
+            final String operatorName = n.getOperatorName();
+            if (operatorName.equalsIgnoreCase("ProductSet-Reader") || operatorName.equalsIgnoreCase("SubGraph")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates the graph context, which initialises the operators of all nodes. May be called off the event
+     * dispatch thread if the update holds a copy of the graph.
+     *
+     * @param update the update prepared before
+     * @throws GraphException if an operator cannot be initialised
+     */
+    public synchronized void createGraphContext(final GraphUpdate update) throws GraphException {
+        contextSignatures.clear();
+
+        if (update.graph != graph) {
+            // a copy without product sets or sub-graphs, nothing to rewrite
             try {
-                recreateGraphContext();
-                graphNodeList.updateGraphNodes(graphContext);
-                //todo recreateGraphContext();
+                recreateGraphContext(update.graph);
             } catch (Exception e) {
-                e.printStackTrace();
-                throw new GraphException(e.getMessage());
-            } finally {
-                subGraphHandler.restore();
-                productSetHandler.restore();
+                SystemUtils.LOG.log(Level.SEVERE, "Unable to create the graph context", e);
+                throw new GraphException(e.getMessage(), e);
             }
-            return true;
+            contextSignatures.putAll(update.signatures);
+            return;
         }
-        return false;
+
+        ProductSetUIHandler productSetHandler = new ProductSetUIHandler(graph, graphNodeList);
+        SubGraphHandler subGraphHandler = new SubGraphHandler(graph, graphNodeList);
+
+        try {
+            recreateGraphContext(graph);
+        } catch (Exception e) {
+            SystemUtils.LOG.log(Level.SEVERE, "Unable to create the graph context", e);
+            throw new GraphException(e.getMessage(), e);
+        } finally {
+            subGraphHandler.restore();
+            productSetHandler.restore();
+        }
+        contextSignatures.putAll(update.signatures);
     }
 
-    private void recreateGraphContext() throws GraphException {
+    /**
+     * Passes the source products of the graph context to the operator UIs.
+     *
+     * @throws GraphException if the parameters cannot be updated
+     */
+    public synchronized void updateGraphNodes() throws GraphException {
+        graphNodeList.updateGraphNodes(graphContext);
+    }
+
+    private void recreateGraphContext(final Graph contextGraph) throws GraphException {
         if (graphContext != null)
             graphContext.dispose();
 
         processor = new GraphProcessor();
-        graphContext = new GraphContext(graph);
+        graphContext = new GraphContext(contextGraph);
     }
 
-    public void disposeGraphContext() {
-        graphContext.dispose();
+    public synchronized void disposeGraphContext() {
+        contextSignatures.clear();
+        if (graphContext != null) {
+            graphContext.dispose();
+            graphContext = null;
+        }
     }
 
     /**
@@ -310,6 +421,7 @@ public class GraphExecuter extends Observable {
         if (graphFromFile != null) {
             graph = graphFromFile;
             graphNodeList.clear();
+            contextSignatures.clear();
 
             final XppDom presentationXML = graph.getApplicationData("Presentation");
             if (presentationXML != null) {
@@ -413,6 +525,26 @@ public class GraphExecuter extends Observable {
         }
     }
 
+    /**
+     * The changes of a graph since its context was created, together with the graph to create the new context for.
+     */
+    public static class GraphUpdate {
+
+        private final Map<String, String> signatures;
+        private final Graph graph;
+        private final boolean upToDate;
+
+        GraphUpdate(final Map<String, String> signatures, final Graph graph, final boolean upToDate) {
+            this.signatures = signatures;
+            this.graph = graph;
+            this.upToDate = upToDate;
+        }
+
+        public boolean isUpToDate() {
+            return upToDate;
+        }
+    }
+
     public static class GraphEvent {
 
         private final events eventType;
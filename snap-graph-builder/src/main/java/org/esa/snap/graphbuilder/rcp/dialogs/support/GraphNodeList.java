@@ -18,6 +18,7 @@ package org.esa.snap.graphbuilder.rcp.dialogs.support;
 import com.thoughtworks.xstream.io.xml.xppdom.XppDom;
 import org.esa.snap.framework.gpf.graph.GraphContext;
 import org.esa.snap.framework.gpf.graph.GraphException;
+import org.esa.snap.framework.gpf.graph.Node;
 import org.esa.snap.framework.gpf.graph.NodeContext;
 
 import java.util.ArrayList;
@@ -92,8 +93,11 @@ public class GraphNodeList {
     void updateGraphNodes(final GraphContext graphContext) throws GraphException {
         if (graphContext != null) {
             for (GraphNode n : nodeList) {
-                final NodeContext context = graphContext.getNodeContext(n.getNode());
-                if(context.getOperator() != null) {
+                // product set readers and sub-graphs are replaced while the context is created, and the context
+                // may have been created for a copy of the graph
+                final Node node = graphContext.getGraph().getNode(n.getID());
+                final NodeContext context = node != null ? graphContext.getNodeContext(node) : null;
+                if(context != null && context.getOperator() != null) {
                     n.setSourceProducts(context.getSourceProducts());
                 }
                 n.updateParameters();
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.graphbuilder.rcp.dialogs.support;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the BatchResultLog
+ */
+public class BatchResultLogTest {
+
+    @Rule
+    public TemporaryFolder targetFolder = new TemporaryFolder();
+
+    @Test
+    public void testResumeWithSucceededFiles() throws Exception {
+        final File file1 = new File("input1.dim").getAbsoluteFile();
+        final File file2 = new File("input2.dim").getAbsoluteFile();
+        final File file3 = new File("input3.dim").getAbsoluteFile();
+
+        final BatchResultLog log = new BatchResultLog(targetFolder.getRoot());
+        log.write(file1, BatchResultLog.Result.SUCCEEDED, null);
+        log.write(file2, BatchResultLog.Result.FAILED, "out of\tmemory\n");
+        log.write(file3, BatchResultLog.Result.CANCELLED, null);
+        log.close();
+
+        final BatchResultLog resumedLog = new BatchResultLog(targetFolder.getRoot());
+        Set<File> succeeded = resumedLog.getSucceededFiles();
+        assertEquals(1, succeeded.size());
+        assertTrue(succeeded.contains(file1));
+
+        resumedLog.write(file2, BatchResultLog.Result.SUCCEEDED, null);
+        resumedLog.close();
+
+        succeeded = new BatchResultLog(targetFolder.getRoot()).getSucceededFiles();
+        assertEquals(2, succeeded.size());
+        assertTrue(succeeded.contains(file2));
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        final BatchResultLog log = new BatchResultLog(targetFolder.getRoot());
+        log.write(new File("input1.dim"), BatchResultLog.Result.SUCCEEDED, null);
+        log.clear();
+
+        assertTrue(log.getSucceededFiles().isEmpty());
+        assertFalse(new File(targetFolder.getRoot(), BatchResultLog.FILE_NAME).exists());
+    }
+}
@@ -33,6 +33,7 @@ class CatalogTree {
 
     private final JTree jTree;
     private final HashMap<OpendapLeaf, MutableTreeNode> leafToParentNode = new HashMap<OpendapLeaf, MutableTreeNode>();
+    private final HashMap<OpendapLeaf, MutableTreeNode> leafToNode = new HashMap<OpendapLeaf, MutableTreeNode>();
     private final Set<CatalogTreeListener> catalogTreeListeners = new HashSet<CatalogTreeListener>();
     private final AppContext appContext;
     private final UIContext uiContext;
@@ -56,6 +57,7 @@ class CatalogTree {
         final DefaultTreeModel model = (DefaultTreeModel) jTree.getModel();
         final DefaultMutableTreeNode rootNode = CatalogTreeUtils.createRootNode();
         model.setRoot(rootNode);
+        leafToNode.clear();
         appendToNode(jTree, rootDatasets, rootNode, true);
         fireCatalogElementsInsertionFinished();
         expandPath(rootNode);
@@ -162,7 +164,10 @@ class CatalogTree {
     }
 
     MutableTreeNode getNode(OpendapLeaf leaf) {
-        final MutableTreeNode node = getNode(jTree.getModel(), jTree.getModel().getRoot(), leaf);
+        MutableTreeNode node = leafToNode.get(leaf);
+        if (node == null) {
+            node = getNode(jTree.getModel(), jTree.getModel().getRoot(), leaf);
+        }
         if (node == null) {
             throw new IllegalStateException("node of leaf '" + leaf.toString() + "' is null.");
         }
@@ -184,6 +189,10 @@ class CatalogTree {
         }
     }
 
+    boolean isLeafVisible(OpendapLeaf leaf) {
+        return !leafToParentNode.containsKey(leaf);
+    }
+
     void addCatalogTreeListener(CatalogTreeListener listener) {
         catalogTreeListeners.add(listener);
     }
@@ -216,6 +225,7 @@ class CatalogTree {
     private void appendDataNodeToParent(MutableTreeNode parentNode, DefaultTreeModel treeModel, OpendapLeaf leaf) {
         final DefaultMutableTreeNode leafNode = new DefaultMutableTreeNode(leaf);
         treeModel.insertNodeInto(leafNode, parentNode, parentNode.getChildCount());
+        leafToNode.put(leaf, leafNode);
     }
 
     private void expandPath(DefaultMutableTreeNode node) {
@@ -264,6 +274,7 @@ class CatalogTree {
             final MutableTreeNode node = getNode(leaf);
             final DefaultTreeModel model = (DefaultTreeModel) jTree.getModel();
             leafToParentNode.put(leaf, (MutableTreeNode) node.getParent());
+            leafToNode.remove(leaf);
             model.removeNodeFromParent(node);
         }
     }
@@ -19,6 +19,7 @@ package org.esa.snap.opendap.ui;
 import org.esa.snap.framework.ui.UIUtils;
 import org.esa.snap.opendap.datamodel.CatalogNode;
 import org.esa.snap.opendap.datamodel.OpendapLeaf;
+import org.esa.snap.opendap.utils.CatalogCrawler;
 import thredds.catalog.InvCatalogFactory;
 import thredds.catalog.InvCatalogImpl;
 import thredds.catalog.InvCatalogRef;
@@ -35,9 +36,6 @@ import javax.swing.tree.TreePath;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
-import java.net.URISyntaxException;
-import java.net.URL;
-import java.net.URLConnection;
 import java.util.Collections;
 import java.util.List;
 
@@ -141,23 +139,6 @@ class CatalogTreeUtils {
             return Collections.emptyList();
         }
         final CatalogNode catalogNode = (CatalogNode) userObject;
-        final URL catalogUrl;
-        InputStream inputStream = null;
-        try {
-            catalogUrl = new URL(catalogNode.getCatalogUri());
-            URLConnection urlConnection = catalogUrl.openConnection();
-            inputStream = urlConnection.getInputStream();
-            return getCatalogDatasets(inputStream, catalogUrl.toURI());
-        } catch (URISyntaxException e) {
-            throw new IOException(e);
-        } finally {
-            if (inputStream != null) {
-                try {
-                    inputStream.close();
-                } catch (IOException ignore) {
-                    // ok
-                }
-            }
-        }
+        return CatalogCrawler.getDefault().getCatalogDatasets(catalogNode.getCatalogUri());
     }
 }
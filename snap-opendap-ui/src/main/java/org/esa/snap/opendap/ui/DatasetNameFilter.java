@@ -79,16 +79,28 @@ class DatasetNameFilter implements FilterComponent {
 
     @Override
     public boolean accept(OpendapLeaf leaf) {
+        Pattern pattern = getPattern();
+        if (pattern == null) {
+            return true;
+        }
+
+        final Matcher matcher = pattern.matcher(leaf.getName().toLowerCase());
+        return matcher.matches();
+    }
+
+    /**
+     * @return The pattern the lower-cased dataset names have to match, or {@code null} if no expression is given.
+     * @throws java.util.regex.PatternSyntaxException if the expression is not a valid regular expression.
+     */
+    Pattern getPattern() {
         String text = expressionTextField.getText();
         if (StringUtils.isNullOrEmpty(text)) {
-            return true;
+            return null;
         }
 
         text = text.replace("*", ".*").toLowerCase();
 
-        Pattern pattern = Pattern.compile(text);
-        final Matcher matcher = pattern.matcher(leaf.getName().toLowerCase());
-        return matcher.matches();
+        return Pattern.compile(text);
     }
 
     @Override
@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.opendap.ui;
+
+import org.esa.snap.opendap.datamodel.DAPVariable;
+import org.esa.snap.opendap.datamodel.OpendapLeaf;
+import org.esa.snap.util.TimeStampExtractor;
+import thredds.catalog.ThreddsMetadata;
+import ucar.nc2.units.DateRange;
+import ucar.nc2.units.DateType;
+import ucar.unidata.geoloc.LatLonRect;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * An index of the leaves of the catalog tree, used to evaluate the filters without a pass over all leaves.
+ * <p>
+ * The leaves are indexed once when they are added: by their lower-cased name in a sorted map, by the start of
+ * their time coverage, by the cells of a 10 degree grid their bounding box overlaps and by the variables they
+ * contain. A query first collects the candidates of each active filter from the index, and then confirms the
+ * candidates with the exact filter criterion. The index may be queried from a background thread while leaves are
+ * added on the event dispatch thread.
+ */
+class LeafIndex {
+
+    private static final double CELL_SIZE = 10.0;
+    private static final int LON_CELL_COUNT = 36;
+    private static final int LAT_CELL_COUNT = 18;
+    private static final String REGEX_META_CHARS = ".[]{}()\\*+?^$|";
+
+    private final Set<OpendapLeaf> leaves = new LinkedHashSet<>();
+    private final TreeMap<String, List<OpendapLeaf>> leavesByName = new TreeMap<>();
+    private final TreeMap<Long, List<OpendapLeaf>> leavesByStartTime = new TreeMap<>();
+    private final Set<OpendapLeaf> leavesWithoutTimeCoverage = new LinkedHashSet<>();
+    private final List<List<OpendapLeaf>> leavesByCell = new ArrayList<>();
+    private final Set<OpendapLeaf> leavesWithoutGeospatialCoverage = new LinkedHashSet<>();
+    private final Map<DAPVariable, Set<OpendapLeaf>> leavesByVariable = new HashMap<>();
+
+    LeafIndex() {
+        for (int i = 0; i < LON_CELL_COUNT * LAT_CELL_COUNT; i++) {
+            leavesByCell.add(new ArrayList<>());
+        }
+    }
+
+    synchronized void add(OpendapLeaf leaf) {
+        if (!leaves.add(leaf)) {
+            return;
+        }
+        leavesByName.computeIfAbsent(leaf.getName().toLowerCase(), name -> new ArrayList<>()).add(leaf);
+
+        final Date startTime = getStartTime(leaf);
+        if (startTime != null) {
+            leavesByStartTime.computeIfAbsent(startTime.getTime(), time -> new ArrayList<>()).add(leaf);
+        } else {
+            leavesWithoutTimeCoverage.add(leaf);
+        }
+
+        final ThreddsMetadata.GeospatialCoverage geospatialCoverage = leaf.getDataset().getGeospatialCoverage();
+        final LatLonRect boundingBox = geospatialCoverage != null ? geospatialCoverage.getBoundingBox() : null;
+        if (boundingBox != null) {
+            for (int cell : getCells(boundingBox)) {
+                leavesByCell.get(cell).add(leaf);
+            }
+        } else {
+            leavesWithoutGeospatialCoverage.add(leaf);
+        }
+    }
+
+    synchronized void addVariables(OpendapLeaf leaf, DAPVariable[] variables) {
+        for (DAPVariable variable : variables) {
+            leavesByVariable.computeIfAbsent(variable, v -> new HashSet<>()).add(leaf);
+        }
+    }
+
+    synchronized boolean contains(OpendapLeaf leaf) {
+        return leaves.contains(leaf);
+    }
+
+    synchronized List<OpendapLeaf> getLeaves() {
+        return new ArrayList<>(leaves);
+    }
+
+    synchronized void clear() {
+        leaves.clear();
+        leavesByName.clear();
+        leavesByStartTime.clear();
+        leavesWithoutTimeCoverage.clear();
+        for (List<OpendapLeaf> cell : leavesByCell) {
+            cell.clear();
+        }
+        leavesWithoutGeospatialCoverage.clear();
+        leavesByVariable.clear();
+    }
+
+    /**
+     * Returns the leaves accepted by all active filters of the given query. The candidates are collected from the
+     * index while holding its lock; the exact filter criteria are evaluated outside of the lock.
+     *
+     * @param query The query.
+     *
+     * @return The accepted leaves.
+     */
+    Set<OpendapLeaf> select(Query query) {
+        Set<OpendapLeaf> result = null;
+        if (query.variables != null && !query.variables.isEmpty()) {
+            result = selectByVariables(query.variables);
+        }
+        if (query.namePattern != null) {
+            final Set<OpendapLeaf> candidates = retain(getNameCandidates(query.namePattern), result);
+            result = new HashSet<>();
+            for (OpendapLeaf leaf : candidates) {
+                if (query.namePattern.matcher(leaf.getName().toLowerCase()).matches()) {
+                    result.add(leaf);
+                }
+            }
+        }
+        if (query.timeRangeSelected) {
+            final Set<OpendapLeaf> candidates = retain(getTimeCandidates(query.startDate, query.endDate), result);
+            result = new HashSet<>();
+            for (OpendapLeaf leaf : candidates) {
+                if (TimeRangeFilter.accept(leaf, query.startDate, query.endDate, query.timeStampExtractor)) {
+                    result.add(leaf);
+                }
+            }
+        }
+        if (query.region != null) {
+            final Set<OpendapLeaf> candidates = retain(getRegionCandidates(query.region), result);
+            result = new HashSet<>();
+            for (OpendapLeaf leaf : candidates) {
+                if (RegionFilter.intersects(query.region, leaf)) {
+                    result.add(leaf);
+                }
+            }
+        }
+        if (result == null) {
+            result = new HashSet<>(getLeaves());
+        }
+        return result;
+    }
+
+    private synchronized Set<OpendapLeaf> selectByVariables(Set<DAPVariable> variables) {
+        final Set<OpendapLeaf> result = new HashSet<>();
+        for (DAPVariable variable : variables) {
+            final Set<OpendapLeaf> variableLeaves = leavesByVariable.get(variable);
+            if (variableLeaves != null) {
+                result.addAll(variableLeaves);
+            }
+        }
+        // the leaves of a previous catalog may still be reported by the variable collector
+        result.retainAll(leaves);
+        return result;
+    }
+
+    private synchronized Set<OpendapLeaf> getNameCandidates(Pattern namePattern) {
+        final String prefix = getLiteralPrefix(namePattern.pattern());
+        final Set<OpendapLeaf> candidates = new LinkedHashSet<>();
+        for (Map.Entry<String, List<OpendapLeaf>> entry : leavesByName.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            candidates.addAll(entry.getValue());
+        }
+        return candidates;
+    }
+
+    private synchronized Set<OpendapLeaf> getTimeCandidates(Date startDate, Date endDate) {
+        // a time coverage is accepted if it starts within the time range, it can only end after its start
+        final long from = startDate != null ? startDate.getTime() : Long.MIN_VALUE;
+        final long to = endDate != null ? endDate.getTime() : Long.MAX_VALUE;
+        final Set<OpendapLeaf> candidates = new LinkedHashSet<>(leavesWithoutTimeCoverage);
+        if (from <= to) {
+            final NavigableMap<Long, List<OpendapLeaf>> range = leavesByStartTime.subMap(from, true, to, true);
+            for (List<OpendapLeaf> leafList : range.values()) {
+                candidates.addAll(leafList);
+            }
+        }
+        return candidates;
+    }
+
+    private synchronized Set<OpendapLeaf> getRegionCandidates(LatLonRect region) {
+        final Set<OpendapLeaf> candidates = new LinkedHashSet<>(leavesWithoutGeospatialCoverage);
+        for (int cell : getCells(region)) {
+            candidates.addAll(leavesByCell.get(cell));
+        }
+        return candidates;
+    }
+
+    private static Set<OpendapLeaf> retain(Set<OpendapLeaf> candidates, Collection<OpendapLeaf> result) {
+        if (result != null) {
+            candidates.retainAll(result);
+        }
+        return candidates;
+    }
+
+    private static Date getStartTime(OpendapLeaf leaf) {
+        final DateRange timeCoverage = leaf.getDataset().getTimeCoverage();
+        if (timeCoverage == null) {
+            return null;
+        }
+        final DateType start = timeCoverage.getStart();
+        return start != null ? start.getDate() : null;
+    }
+
+    /**
+     * @return The indexes of the grid cells overlapped by the given bounding box. A box crossing the date line
+     * overlaps all cells of its latitudes.
+     */
+    static int[] getCells(LatLonRect boundingBox) {
+        final int minLatCell = getCell(boundingBox.getLatMin() + 90.0, LAT_CELL_COUNT);
+        final int maxLatCell = getCell(boundingBox.getLatMax() + 90.0, LAT_CELL_COUNT);
+        int minLonCell = 0;
+        int maxLonCell = LON_CELL_COUNT - 1;
+        if (!boundingBox.crossDateline() && boundingBox.getWidth() < 360.0) {
+            minLonCell = getCell(boundingBox.getLonMin() + 180.0, LON_CELL_COUNT);
+            maxLonCell = getCell(boundingBox.getLonMax() + 180.0, LON_CELL_COUNT);
+        }
+        final int[] cells = new int[(maxLatCell - minLatCell + 1) * (maxLonCell - minLonCell + 1)];
+        int index = 0;
+        for (int latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+            for (int lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                cells[index++] = latCell * LON_CELL_COUNT + lonCell;
+            }
+        }
+        return cells;
+    }
+
+    private static int getCell(double offset, int cellCount) {
+        final int cell = (int) Math.floor(offset / CELL_SIZE);
+        return Math.max(0, Math.min(cellCount - 1, cell));
+    }
+
+    /**
+     * @return The literal text every name matched by the given regular expression starts with.
+     */
+    static String getLiteralPrefix(String regex) {
+        if (regex.indexOf('|') >= 0) {
+            return "";
+        }
+        int end = 0;
+        while (end < regex.length() && REGEX_META_CHARS.indexOf(regex.charAt(end)) < 0) {
+            end++;
+        }
+        // a quantifier may make the last literal character optional
+        if (end < regex.length() && end > 0 && "?*{".indexOf(regex.charAt(end)) >= 0) {
+            end--;
+        }
+        return regex.substring(0, end);
+    }
+
+    /**
+     * A snapshot of the active filters, taken on the event dispatch thread. An inactive filter is {@code null}.
+     * The settings of the time range filter are copied, as they may change while the query is evaluated.
+     */
+    static class Query {
+
+        private final Pattern namePattern;
+        private final boolean timeRangeSelected;
+        private final Date startDate;
+        private final Date endDate;
+        private final TimeStampExtractor timeStampExtractor;
+        private final LatLonRect region;
+        private final Set<DAPVariable> variables;
+
+        Query(Pattern namePattern, TimeRangeFilter timeRangeFilter, LatLonRect region, Set<DAPVariable> variables) {
+            this.namePattern = namePattern;
+            timeRangeSelected = timeRangeFilter != null;
+            startDate = timeRangeFilter != null ? copy(timeRangeFilter.startDate) : null;
+            endDate = timeRangeFilter != null ? copy(timeRangeFilter.endDate) : null;
+            timeStampExtractor = timeRangeFilter != null ? timeRangeFilter.timeStampExtractor : null;
+            this.region = region;
+            this.variables = variables;
+        }
+
+        private static Date copy(Date date) {
+            return date != null ? new Date(date.getTime()) : null;
+        }
+    }
+}
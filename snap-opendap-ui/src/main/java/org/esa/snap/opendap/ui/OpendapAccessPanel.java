@@ -7,6 +7,7 @@ import org.esa.snap.framework.ui.AppContext;
 import org.esa.snap.framework.ui.GridBagUtils;
 import org.esa.snap.framework.ui.tool.ToolButtonFactory;
 import org.esa.snap.opendap.datamodel.OpendapLeaf;
+import org.esa.snap.opendap.utils.CatalogCrawler;
 import org.esa.snap.opendap.utils.OpendapUtils;
 import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.rcp.actions.file.OpenProductAction;
@@ -14,8 +15,6 @@ import org.esa.snap.tango.TangoIcons;
 import org.esa.snap.util.StringUtils;
 import org.openide.modules.Places;
 import org.openide.util.HelpCtx;
-import thredds.catalog.InvCatalog;
-import thredds.catalog.InvCatalogFactory;
 import thredds.catalog.InvDataset;
 
 import javax.swing.AbstractButton;
@@ -50,11 +49,15 @@ import java.awt.event.KeyEvent;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
+import java.util.regex.PatternSyntaxException;
 
 public class OpendapAccessPanel extends JPanel implements CatalogTree.UIContext {
 
@@ -71,16 +74,18 @@ public class OpendapAccessPanel extends JPanel implements CatalogTree.UIContext
     private JTabbedPane metaInfoArea;
     private JCheckBox useDatasetNameFilter;
 
-    private FilterComponent datasetNameFilter;
+    private DatasetNameFilter datasetNameFilter;
     private JCheckBox useTimeRangeFilter;
 
-    private FilterComponent timeRangeFilter;
+    private TimeRangeFilter timeRangeFilter;
     private JCheckBox useRegionFilter;
 
-    private FilterComponent regionFilter;
+    private RegionFilter regionFilter;
     private JCheckBox useVariableFilter;
 
     private VariableFilter variableFilter;
+    private final LeafIndex leafIndex = new LeafIndex();
+    private FilterWorker filterWorker;
 
     private JCheckBox openInVisat;
     private JPanel statusBar;
@@ -170,6 +175,7 @@ public class OpendapAccessPanel extends JPanel implements CatalogTree.UIContext
         regionFilter.addFilterChangeListener(filterChangeListener);
         variableFilter = new VariableFilter(useVariableFilter, catalogTree);
         variableFilter.addFilterChangeListener(filterChangeListener);
+        variableFilter.addVariablesCollectedListener(leafIndex::addVariables);
 
         catalogTree.addCatalogTreeListener(new CatalogTree.CatalogTreeListener() {
             @Override
@@ -180,6 +186,7 @@ public class OpendapAccessPanel extends JPanel implements CatalogTree.UIContext
                 if (leaf.getDataset().getGeospatialCoverage() != null) {
                     useRegionFilter.setEnabled(true);
                 }
+                leafIndex.add(leaf);
                 filterLeaf(leaf);
             }
 
@@ -413,15 +420,27 @@ public class OpendapAccessPanel extends JPanel implements CatalogTree.UIContext
             url = urlField.getSelectedItem().toString();
         }
         url = checkCatalogURLString(url);
-        final InvCatalogFactory factory = InvCatalogFactory.getDefaultFactory(true);
-        final InvCatalog catalog = factory.readXML(url);
-        final List<InvDataset> datasets = catalog.getDatasets();
+        final CatalogCrawler catalogCrawler = CatalogCrawler.getDefault();
+        // a refresh validates the catalogs against the server again
+        catalogCrawler.clearSessionCache();
+        List<InvDataset> datasets;
+        try {
+            datasets = catalogCrawler.getCatalogDatasets(url);
+        } catch (IOException e) {
+            LOG.warning("Unable to read THREDDS catalog at '" + url + "': " + e.getMessage());
+            datasets = Collections.emptyList();
+        }
 
         if (datasets.size() == 0) {
             JOptionPane.showMessageDialog(this, "Cannnot find THREDDS catalog service xml at '" + url + "'");
             return false;
         }
         urlField.setSelectedItem(url);
+        if (filterWorker != null) {
+            filterWorker.cancel(false);
+            filterWorker = null;
+        }
+        leafIndex.clear();
         catalogTree.setNewRootDatasets(datasets);
         variableFilter.stopFiltering();
         return true;
@@ -443,9 +462,72 @@ public class OpendapAccessPanel extends JPanel implements CatalogTree.UIContext
 
         @Override
         public void filterChanged() {
-            final OpendapLeaf[] leaves = catalogTree.getLeaves();
+            final LeafIndex.Query query;
+            try {
+                query = createQuery();
+            } catch (PatternSyntaxException e) {
+                LOG.warning("Invalid dataset name filter expression: " + e.getMessage());
+                return;
+            }
+            if (filterWorker != null) {
+                filterWorker.cancel(false);
+            }
+            filterWorker = new FilterWorker(query);
+            filterWorker.execute();
+        }
+
+        private LeafIndex.Query createQuery() {
+            return new LeafIndex.Query(
+                    useDatasetNameFilter.isSelected() ? datasetNameFilter.getPattern() : null,
+                    useTimeRangeFilter.isSelected() ? timeRangeFilter : null,
+                    useRegionFilter.isSelected() ? regionFilter.getRegion() : null,
+                    useVariableFilter.isSelected() ? variableFilter.getSelectedVariables() : null);
+        }
+    }
+
+    /**
+     * Evaluates the filters against the leaf index in the background and changes the visibility of those leaves
+     * whose filter result has changed.
+     */
+    private class FilterWorker extends SwingWorker<Set<OpendapLeaf>, Void> {
+
+        private final LeafIndex.Query query;
+        private List<OpendapLeaf> leaves;
+
+        private FilterWorker(LeafIndex.Query query) {
+            this.query = query;
+        }
+
+        @Override
+        protected Set<OpendapLeaf> doInBackground() throws Exception {
+            leaves = leafIndex.getLeaves();
+            return leafIndex.select(query);
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            final Set<OpendapLeaf> acceptedLeaves;
+            try {
+                acceptedLeaves = get();
+            } catch (InterruptedException | ExecutionException e) {
+                LOG.warning("Unable to filter datasets: " + e.getMessage());
+                return;
+            }
             for (OpendapLeaf leaf : leaves) {
-                filterLeaf(leaf);
+                // the leaves of a previous catalog are no longer part of the tree
+                if (!leafIndex.contains(leaf)) {
+                    continue;
+                }
+                final boolean visible = acceptedLeaves.contains(leaf);
+                if (catalogTree.isLeafVisible(leaf) != visible) {
+                    catalogTree.setLeafVisible(leaf, visible);
+                }
+            }
+            if (filterWorker == this) {
+                filterWorker = null;
             }
         }
     }
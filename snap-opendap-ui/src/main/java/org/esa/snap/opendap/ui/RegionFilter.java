@@ -85,7 +85,10 @@ public class RegionFilter implements FilterComponent {
         if (geospatialCoverage == null) {
             return true;
         }
+        return intersects(getRegion(), leaf);
+    }
 
+    LatLonRect getRegion() {
         Double eastBound = eastBoundProperty.getValue();
         Double westBound = westBoundProperty.getValue();
         Double northBound = northBoundProperty.getValue();
@@ -94,8 +97,18 @@ public class RegionFilter implements FilterComponent {
         LatLonPointImpl northWest = new LatLonPointImpl(northBound, westBound);
         LatLonPointImpl southEast = new LatLonPointImpl(southBound, eastBound);
 
-        LatLonRect latLonRect = new LatLonRect(northWest, southEast);
-        return latLonRect.intersect(geospatialCoverage.getBoundingBox()) != null;
+        return new LatLonRect(northWest, southEast);
+    }
+
+    /**
+     * @return true if the leaf has no geospatial coverage or its bounding box intersects the given region.
+     */
+    static boolean intersects(LatLonRect region, OpendapLeaf leaf) {
+        ThreddsMetadata.GeospatialCoverage geospatialCoverage = leaf.getDataset().getGeospatialCoverage();
+        if (geospatialCoverage == null) {
+            return true;
+        }
+        return region.intersect(geospatialCoverage.getBoundingBox()) != null;
     }
 
     @Override
@@ -202,33 +202,41 @@ public class TimeRangeFilter implements FilterComponent {
 
     @Override
     public boolean accept(OpendapLeaf leaf) {
+        return accept(leaf, startDate, endDate, timeStampExtractor);
+    }
+
+    /**
+     * Evaluates the time range criterion for the given settings, so that it can be applied without this filter.
+     */
+    static boolean accept(OpendapLeaf leaf, Date startDate, Date endDate, TimeStampExtractor timeStampExtractor) {
         DateRange timeCoverage = leaf.getDataset().getTimeCoverage();
         if (timeCoverage != null) {
-            return fitsToServerSpecifiedTimeRange(timeCoverage);
+            return fitsToServerSpecifiedTimeRange(timeCoverage, startDate, endDate);
         }
-        return timeStampExtractor == null || fitsToUserSpecifiedTimeRange(leaf);
+        return timeStampExtractor == null || fitsToUserSpecifiedTimeRange(leaf, startDate, endDate, timeStampExtractor);
     }
 
-    private boolean fitsToServerSpecifiedTimeRange(DateRange dateRange) {
+    private static boolean fitsToServerSpecifiedTimeRange(DateRange dateRange, Date startDate, Date endDate) {
         if (startDate == null && endDate == null) {
             return true;
         } else if (startDate == null) {
-            return endsAtOrBeforeEndDate(dateRange);
+            return endsAtOrBeforeEndDate(dateRange, endDate);
         } else if (endDate == null) {
-            return startsAtOrAfterStartDate(dateRange);
+            return startsAtOrAfterStartDate(dateRange, startDate);
         }
-        return startsAtOrAfterStartDate(dateRange) && endsAtOrBeforeEndDate(dateRange);
+        return startsAtOrAfterStartDate(dateRange, startDate) && endsAtOrBeforeEndDate(dateRange, endDate);
     }
 
-    private boolean endsAtOrBeforeEndDate(DateRange dateRange) {
+    private static boolean endsAtOrBeforeEndDate(DateRange dateRange, Date endDate) {
         return dateRange.getEnd().getCalendarDate().equals(CalendarDate.of(endDate)) || dateRange.getEnd().before(endDate);
     }
 
-    private boolean startsAtOrAfterStartDate(DateRange dateRange) {
+    private static boolean startsAtOrAfterStartDate(DateRange dateRange, Date startDate) {
         return dateRange.getStart().getCalendarDate().equals(CalendarDate.of(startDate)) || dateRange.getStart().after(startDate);
     }
 
-    private boolean fitsToUserSpecifiedTimeRange(OpendapLeaf leaf) {
+    private static boolean fitsToUserSpecifiedTimeRange(OpendapLeaf leaf, Date startDate, Date endDate,
+                                                        TimeStampExtractor timeStampExtractor) {
         try {
             final ProductData.UTC[] timeStamps = timeStampExtractor.extractTimeStamps(leaf.getName());
 
@@ -56,6 +56,7 @@ public class VariableFilter implements FilterComponent, CatalogTree.CatalogTreeL
     private FilteredListModel<DAPVariable> filteredListModel;
     private CheckBoxList checkBoxList;
     private List<FilterChangeListener> listeners;
+    private final List<VariablesCollectedListener> variablesCollectedListeners = new ArrayList<>();
     private final HashSet<VariableFilterPreparator> filterPreparators = new HashSet<>();
     private final List<VariableFilterPreparator> filterPreparatorsInWait = new ArrayList<>();
     private LabelledProgressBarPM pm;
@@ -212,6 +213,23 @@ public class VariableFilter implements FilterComponent, CatalogTree.CatalogTreeL
         }
     }
 
+    void addVariablesCollectedListener(VariablesCollectedListener listener) {
+        variablesCollectedListeners.add(listener);
+    }
+
+    /**
+     * @return The variables selected by the user; if none are selected, all leaves are accepted.
+     */
+    Set<DAPVariable> getSelectedVariables() {
+        final Set<DAPVariable> selectedVariables = new HashSet<>();
+        for (Map.Entry<DAPVariable, Boolean> entry : listModel.variableToSelected.entrySet()) {
+            if (entry.getValue()) {
+                selectedVariables.add(entry.getKey());
+            }
+        }
+        return selectedVariables;
+    }
+
     public void addVariable(DAPVariable dapVariable) {
         listModel.allVariables.add(dapVariable);
     }
@@ -306,6 +324,9 @@ public class VariableFilter implements FilterComponent, CatalogTree.CatalogTreeL
             try {
                 DAPVariable[] dapVariables = get();
                 listModel.addVariables(dapVariables);
+                for (VariablesCollectedListener listener : variablesCollectedListeners) {
+                    listener.variablesCollected(leaf, dapVariables);
+                }
             } catch (Exception e) {
                 BeamLogManager.getSystemLogger().warning(
                         "Stopping to scan for variables due to exception: " + e.getMessage());
@@ -331,6 +352,14 @@ public class VariableFilter implements FilterComponent, CatalogTree.CatalogTreeL
         }
     }
 
+    interface VariablesCollectedListener {
+
+        /**
+         * Called on the event dispatch thread when the variables of a leaf have been collected.
+         */
+        void variablesCollected(OpendapLeaf leaf, DAPVariable[] variables);
+    }
+
     private static class VariableFilterProgressBarProgressMonitor extends ProgressBarProgressMonitor implements LabelledProgressBarPM {
 
         private final JProgressBar progressBar;
@@ -0,0 +1,371 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.opendap.utils;
+
+import org.esa.snap.util.SystemUtils;
+import thredds.catalog.InvCatalogFactory;
+import thredds.catalog.InvCatalogImpl;
+import thredds.catalog.InvCatalogRef;
+import thredds.catalog.InvDataset;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches THREDDS catalogs concurrently and caches them on disk.
+ * <p>
+ * Catalogs are fetched by a bounded pool of threads. A fetched catalog is stored in the cache directory together
+ * with the {@code ETag} and {@code Last-Modified} headers of the response. In a later session the catalog is
+ * requested conditionally, so that an unchanged catalog is served from the cache. Within a session the most recently
+ * used catalogs are kept in memory, so that each of them is fetched only once.
+ * <p>
+ * If prefetching is enabled, which it is not by default, the catalogs referenced by a requested catalog are fetched
+ * in the background, so that they are available immediately when their node is expanded. Only one level is
+ * prefetched and only a few prefetches are pending at a time, further ones are dropped. Prefetched catalogs are kept
+ * apart from the requested ones, so that they never push a requested catalog out of memory.
+ */
+public class CatalogCrawler {
+
+    private static final int NUM_THREADS = 4;
+    private static final int MAX_SESSION_CATALOGS = 256;
+    private static final int MAX_PREFETCHED_CATALOGS = 64;
+    private static final int MAX_PENDING_PREFETCHES = 16;
+    private static final int TIMEOUT_MILLIS = 30000;
+    private static final String KEY_URI = "uri";
+    private static final String KEY_ETAG = "ETag";
+    private static final String KEY_LAST_MODIFIED = "Last-Modified";
+
+    private static CatalogCrawler instance;
+
+    private final File cacheDir;
+    private final ThreadPoolExecutor executor;
+    // guarded by this
+    private final Map<String, FutureTask<byte[]>> catalogs;
+    private final Map<String, FutureTask<byte[]>> prefetchedCatalogs;
+    private volatile boolean prefetchEnabled;
+
+    public CatalogCrawler(File cacheDir) {
+        this.cacheDir = cacheDir;
+        this.catalogs = createSessionCache(MAX_SESSION_CATALOGS);
+        this.prefetchedCatalogs = createSessionCache(MAX_PREFETCHED_CATALOGS);
+        this.prefetchEnabled = false;
+        executor = new ThreadPoolExecutor(NUM_THREADS, NUM_THREADS, 60L, TimeUnit.SECONDS,
+                                          new ArrayBlockingQueue<>(MAX_PENDING_PREFETCHES),
+                                          runnable -> {
+                                              final Thread thread = new Thread(runnable, "CatalogCrawler");
+                                              thread.setDaemon(true);
+                                              return thread;
+                                          });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    public static synchronized CatalogCrawler getDefault() {
+        if (instance == null) {
+            instance = new CatalogCrawler(new File(SystemUtils.getApplicationDataDir(), "opendap/catalog_cache"));
+        }
+        return instance;
+    }
+
+    public boolean isPrefetchEnabled() {
+        return prefetchEnabled;
+    }
+
+    public void setPrefetchEnabled(boolean prefetchEnabled) {
+        this.prefetchEnabled = prefetchEnabled;
+    }
+
+    /**
+     * Returns the datasets of the catalog at the given URI. If enabled, the catalogs referenced by the datasets are
+     * prefetched.
+     *
+     * @param catalogUri the URI of the catalog
+     * @return the datasets of the catalog
+     * @throws IOException if the catalog can neither be fetched nor be read from the cache
+     */
+    public List<InvDataset> getCatalogDatasets(String catalogUri) throws IOException {
+        final byte[] catalogBytes = getCatalog(catalogUri);
+        final List<InvDataset> datasets;
+        try {
+            final InvCatalogFactory factory = InvCatalogFactory.getDefaultFactory(true);
+            final InvCatalogImpl catalog = factory.readXML(new ByteArrayInputStream(catalogBytes), new URI(catalogUri));
+            datasets = catalog.getDatasets();
+        } catch (URISyntaxException e) {
+            throw new IOException(e);
+        }
+        if (prefetchEnabled) {
+            prefetch(datasets);
+        }
+        return datasets;
+    }
+
+    /**
+     * Fetches the catalogs referenced by the given datasets in the background. Catalogs which cannot be queued,
+     * because too many prefetches are pending, are not prefetched.
+     *
+     * @param datasets the datasets
+     */
+    public void prefetch(List<InvDataset> datasets) {
+        final List<String> catalogUris = new ArrayList<>();
+        collectCatalogReferences(datasets, catalogUris);
+        for (String catalogUri : catalogUris) {
+            prefetchCatalog(catalogUri);
+        }
+    }
+
+    /**
+     * Forgets the catalogs fetched in this session, so that they are validated again against the server. Pending
+     * prefetches are cancelled.
+     */
+    public synchronized void clearSessionCache() {
+        cancelAll(catalogs);
+        cancelAll(prefetchedCatalogs);
+    }
+
+    /**
+     * Stops fetching catalogs.
+     */
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    byte[] getCatalog(String catalogUri) throws IOException {
+        final FutureTask<byte[]> future = request(catalogUri);
+        // a requested catalog must not wait for prefetched ones, a task already run by the pool is not run again
+        future.run();
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (CancellationException e) {
+            throw new IOException(MessageFormat.format("Fetching catalog ''{0}'' has been cancelled", catalogUri), e);
+        } catch (ExecutionException e) {
+            // do not keep failures, the catalog may be available later
+            synchronized (this) {
+                catalogs.remove(catalogUri, future);
+            }
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private synchronized FutureTask<byte[]> request(String catalogUri) {
+        FutureTask<byte[]> future = catalogs.get(catalogUri);
+        if (future == null) {
+            future = prefetchedCatalogs.remove(catalogUri);
+            if (future == null) {
+                future = new FutureTask<>(() -> fetch(catalogUri));
+            }
+            catalogs.put(catalogUri, future);
+        }
+        return future;
+    }
+
+    private synchronized void prefetchCatalog(String catalogUri) {
+        if (catalogs.containsKey(catalogUri) || prefetchedCatalogs.containsKey(catalogUri)) {
+            return;
+        }
+        final FutureTask<byte[]> task = new FutureTask<>(() -> fetch(catalogUri));
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // too many pending prefetches, the catalog is fetched when it is requested
+            return;
+        }
+        prefetchedCatalogs.put(catalogUri, task);
+    }
+
+    /*
+     * The session caches cancel the tasks they evict; a task which is already running completes, but is not kept.
+     */
+    private static Map<String, FutureTask<byte[]>> createSessionCache(int maxSize) {
+        return new LinkedHashMap<String, FutureTask<byte[]>>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FutureTask<byte[]>> eldest) {
+                if (size() > maxSize) {
+                    eldest.getValue().cancel(false);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    private static void cancelAll(Map<String, FutureTask<byte[]>> sessionCache) {
+        for (FutureTask<byte[]> task : sessionCache.values()) {
+            task.cancel(false);
+        }
+        sessionCache.clear();
+    }
+
+    private byte[] fetch(String catalogUri) throws IOException {
+        final URLConnection connection = new URL(catalogUri).openConnection();
+        if (!(connection instanceof HttpURLConnection)) {
+            try (InputStream inputStream = connection.getInputStream()) {
+                return readFully(inputStream);
+            }
+        }
+
+        final HttpURLConnection httpConnection = (HttpURLConnection) connection;
+        httpConnection.setConnectTimeout(TIMEOUT_MILLIS);
+        httpConnection.setReadTimeout(TIMEOUT_MILLIS);
+        final File catalogFile = getCacheFile(catalogUri, ".xml");
+        final Properties cacheInfo = readCacheInfo(catalogUri);
+        final boolean cached = cacheInfo != null && catalogFile.isFile();
+        if (cached) {
+            if (cacheInfo.getProperty(KEY_ETAG) != null) {
+                httpConnection.setRequestProperty("If-None-Match", cacheInfo.getProperty(KEY_ETAG));
+            }
+            if (cacheInfo.getProperty(KEY_LAST_MODIFIED) != null) {
+                httpConnection.setRequestProperty("If-Modified-Since", cacheInfo.getProperty(KEY_LAST_MODIFIED));
+            }
+        }
+        try {
+            final int responseCode = httpConnection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cached) {
+                return Files.readAllBytes(catalogFile.toPath());
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException(MessageFormat.format("Unable to fetch catalog ''{0}'': HTTP {1} {2}",
+                                                           catalogUri, responseCode,
+                                                           httpConnection.getResponseMessage()));
+            }
+            final byte[] catalogBytes;
+            try (InputStream inputStream = httpConnection.getInputStream()) {
+                catalogBytes = readFully(inputStream);
+            }
+            writeCache(catalogUri, catalogBytes, httpConnection.getHeaderField(KEY_ETAG),
+                       httpConnection.getHeaderField(KEY_LAST_MODIFIED));
+            return catalogBytes;
+        } catch (IOException e) {
+            if (cached) {
+                SystemUtils.LOG.warning(MessageFormat.format("Unable to fetch catalog ''{0}'', using cached copy. Reason: {1}",
+                                                             catalogUri, e.getMessage()));
+                return Files.readAllBytes(catalogFile.toPath());
+            }
+            throw e;
+        } finally {
+            httpConnection.disconnect();
+        }
+    }
+
+    private Properties readCacheInfo(String catalogUri) {
+        final File infoFile = getCacheFile(catalogUri, ".properties");
+        if (!infoFile.isFile()) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try (InputStream inputStream = new FileInputStream(infoFile)) {
+            properties.load(inputStream);
+        } catch (IOException e) {
+            return null;
+        }
+        // different URIs may share the same hash code
+        return catalogUri.equals(properties.getProperty(KEY_URI)) ? properties : null;
+    }
+
+    private void writeCache(String catalogUri, byte[] catalogBytes, String eTag, String lastModified) {
+        if (eTag == null && lastModified == null) {
+            return;
+        }
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            SystemUtils.LOG.warning("Unable to create catalog cache directory " + cacheDir);
+            return;
+        }
+        final Properties properties = new Properties();
+        properties.setProperty(KEY_URI, catalogUri);
+        if (eTag != null) {
+            properties.setProperty(KEY_ETAG, eTag);
+        }
+        if (lastModified != null) {
+            properties.setProperty(KEY_LAST_MODIFIED, lastModified);
+        }
+        try {
+            // write to temporary files first, so that concurrent sessions never read a partial catalog
+            final File catalogFile = getCacheFile(catalogUri, ".xml");
+            final File infoFile = getCacheFile(catalogUri, ".properties");
+            final File tempCatalogFile = File.createTempFile("catalog", ".xml", cacheDir);
+            final File tempInfoFile = File.createTempFile("catalog", ".properties", cacheDir);
+            Files.write(tempCatalogFile.toPath(), catalogBytes);
+            try (OutputStream outputStream = new FileOutputStream(tempInfoFile)) {
+                properties.store(outputStream, null);
+            }
+            Files.move(tempCatalogFile.toPath(), catalogFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempInfoFile.toPath(), infoFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            SystemUtils.LOG.warning(MessageFormat.format("Unable to cache catalog ''{0}''. Reason: {1}",
+                                                         catalogUri, e.getMessage()));
+        }
+    }
+
+    private File getCacheFile(String catalogUri, String extension) {
+        return new File(cacheDir, Integer.toHexString(catalogUri.hashCode()) + extension);
+    }
+
+    private static void collectCatalogReferences(List<InvDataset> datasets, List<String> catalogUris) {
+        for (InvDataset dataset : datasets) {
+            if (dataset instanceof InvCatalogRef) {
+                final URI uri = ((InvCatalogRef) dataset).getURI();
+                if (uri != null) {
+                    catalogUris.add(uri.toASCIIString());
+                }
+            } else {
+                // the datasets of a catalog reference are not accessed, this would read the catalog
+                collectCatalogReferences(dataset.getDatasets(), catalogUris);
+            }
+        }
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int n;
+        while ((n = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, n);
+        }
+        return outputStream.toByteArray();
+    }
+}
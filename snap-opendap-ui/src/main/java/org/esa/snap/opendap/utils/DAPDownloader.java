@@ -3,19 +3,23 @@ package org.esa.snap.opendap.utils;
 import com.bc.io.FileDownloader;
 import org.esa.snap.opendap.ui.DownloadProgressBarPM;
 import org.esa.snap.util.StringUtils;
+import org.esa.snap.util.SystemUtils;
 import ucar.ma2.Array;
 import ucar.ma2.InvalidRangeException;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
 import ucar.nc2.Attribute;
 import ucar.nc2.Dimension;
-import ucar.nc2.FileWriter2;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.NetcdfFileWriter;
 import ucar.nc2.Variable;
 import ucar.nc2.dods.DODSNetcdfFile;
 import ucar.nc2.util.EscapeStrings;
 
+import javax.swing.SwingUtilities;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
@@ -25,15 +29,22 @@ import java.util.Arrays;
 import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class DAPDownloader {
 
     private static final int MAX_FILENAME_DISPLAY_LENGTH = 15;
+    private static final int MAX_PARALLEL_DOWNLOADS = 3;
+    static final long CHUNK_SIZE_BYTES = 8L * 1024 * 1024;
 
     final Map<String, Boolean> dapUris;
     final List<String> fileURIs;
     private final DownloadContext downloadContext;
     private final DownloadProgressBarPM pm;
+    private long pendingBytes;
 
     public DAPDownloader(Map<String, Boolean> dapUris, List<String> fileURIs, DownloadContext downloadContext,
                          DownloadProgressBarPM pm) {
@@ -45,84 +56,65 @@ public class DAPDownloader {
 
     public void saveProducts(File targetDir) throws IOException {
         if (targetDir != null && targetDir.isDirectory()) {
-            downloadFilesWithDapAccess(targetDir);
-            downloadFilesWithFileAccess(targetDir);
+            final ExecutorService executor = Executors.newFixedThreadPool(MAX_PARALLEL_DOWNLOADS, runnable -> {
+                final Thread thread = new Thread(runnable, "DAPDownloader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                final List<Future<?>> downloads = new ArrayList<>();
+                downloadFilesWithDapAccess(targetDir, executor, downloads);
+                downloadFilesWithFileAccess(targetDir, executor, downloads);
+                waitFor(downloads);
+            } finally {
+                executor.shutdownNow();
+            }
         } else {
             throw new IOException("No target directory specified.");
         }
     }
 
-    private void downloadFilesWithDapAccess(File targetDir) throws IOException {
-        for (Map.Entry<String, Boolean> entry : dapUris.entrySet()) {
+    private void downloadFilesWithDapAccess(File targetDir, ExecutorService executor, List<Future<?>> downloads) {
+        for (String dapURI : dapUris.keySet()) {
             if (pm.isCanceled()) {
                 break;
             }
-            downloadDapFile(targetDir, entry.getKey(), entry.getValue());
-        }
-    }
-
-    private void downloadDapFile(File targetDir, String dapURI, boolean isLargeFile) throws IOException {
-        String[] uriComponents = dapURI.split("\\?");
-        String constraintExpression = "";
-        String fileName = dapURI.substring(uriComponents[0].lastIndexOf("/") + 1);
-        if (uriComponents.length > 1) {
-            constraintExpression = uriComponents[1];
+            final String[] uriComponents = dapURI.split("\\?");
+            final String fileName = dapURI.substring(uriComponents[0].lastIndexOf("/") + 1);
+            final String constraintExpression = uriComponents.length > 1 ? uriComponents[1] : "";
+            final File file = new File(targetDir, fileName);
+            final DownloadJournal journal = new DownloadJournal(file, uriComponents[0] + '\t' + CHUNK_SIZE_BYTES,
+                                                                constraintExpression);
+
+            // asked here, so that the user is not asked from several threads at once
+            final boolean resume = journal.load();
+            if (!resume && file.exists() && !downloadContext.mayOverwrite(fileName)) {
+                fileDownloaded(file);
+                updateProgressBar(fileName, (int) (file.length() / 1024));
+                continue;
+            }
+            downloads.add(executor.submit(() -> {
+                updateProgressBar(fileName, 0);
+                DODSNetcdfFile netcdfFile = new DODSNetcdfFile(dapURI);
+                try {
+                    writeNetcdfFile(file, constraintExpression, netcdfFile, journal, resume);
+                } finally {
+                    journal.close();
+                    netcdfFile.close();
+                }
+                return null;
+            }));
         }
-        updateProgressBar(fileName, 0);
-        DODSNetcdfFile netcdfFile = new DODSNetcdfFile(dapURI);
-        writeNetcdfFile(targetDir, fileName, constraintExpression, netcdfFile, isLargeFile);
     }
 
-    void writeNetcdfFile(File targetDir, String fileName, String constraintExpression, final DODSNetcdfFile sourceNetcdfFile, final boolean isLargeFile) throws IOException {
-        final File file = new File(targetDir, fileName);
-
-        if (file.exists() && !downloadContext.mayOverwrite(fileName)) {
-            downloadContext.notifyFileDownloaded(file);
-            updateProgressBar(fileName, (int) (file.length() / 1024));
-            return;
-        }
-
-        if (StringUtils.isNullOrEmpty(constraintExpression)) {
-            try {
-                Thread thread = new Thread(new Runnable() {
-                    @Override
-                    public void run() {
-                        try {
-                            FileWriter2 fileWriter = new FileWriter2(sourceNetcdfFile, file.getAbsolutePath(), NetcdfFileWriter.Version.netcdf3, null);
-                            fileWriter.write();
-                        } catch (IOException e) {
-                            throw new RuntimeException(e);
-                        }
-                    }
-                });
-                thread.start();
-                int downloadedBefore = 0;
-                while (thread.isAlive()) {
-                    try {
-                        Thread.sleep(1000L);
-                    } catch (InterruptedException ignore) {
-                        // ignore
-                    }
-                    int downloaded = (int) (file.length() / 1024);
-                    int delta = downloaded - downloadedBefore;
-                    if (delta > 0) {
-                        updateProgressBar(fileName, delta);
-                        downloadedBefore = downloaded;
-                    }
-                }
-            } catch (RuntimeException e) {
-                if (e.getCause() instanceof IOException) {
-                    throw (IOException) e.getCause();
-                } else {
-                    throw e;
-                }
-            }
-
-            if (!pm.isCanceled()) {
-                downloadContext.notifyFileDownloaded(file);
-            }
-            return;
-        }
+    /**
+     * Writes the variables of the source file into the target file. The variables are read in chunks of about
+     * {@link #CHUNK_SIZE_BYTES} along their outermost dimension, each chunk is recorded in the journal once it
+     * has been written. A partial file is only resumed if its journal was started for the same variables and the
+     * file still contains all of them, otherwise it is downloaded again.
+     */
+    void writeNetcdfFile(File file, String constraintExpression, DODSNetcdfFile sourceNetcdfFile,
+                         DownloadJournal journal, boolean resume) throws IOException {
         /**
          * algorithm:
          *   - get all variableNames vN from constraintExpression
@@ -131,9 +123,10 @@ public class DAPDownloader {
          *   - in new NetcdfFileWritable: create global attributes, dimensions and variables
          *   - create();
          *   - for all variables in new file:
-         *      - get corresponding CE
-         *      - array = sourceNetcdfFile.readWithCE();
-         *      - variable.setData(array)
+         *      - get corresponding ranges from CE
+         *      - for all chunks of the ranges not yet in the journal:
+         *         - array = sourceVariable.read(chunk);
+         *         - write array, add chunk to journal
          *   - close();
          */
 
@@ -143,8 +136,56 @@ public class DAPDownloader {
             variableNames.add(variable.getFullName());
         }
         final List<String> filteredVariables = filterVariables(variableNames, constraintExpression);
-        final List<Dimension> filteredDimensions = filterDimensions(filteredVariables, sourceNetcdfFile);
 
+        NetcdfFileWriter targetNetCDF = null;
+        if (resume && journal.isForVariables(filteredVariables)) {
+            targetNetCDF = NetcdfFileWriter.openExisting(file.getAbsolutePath());
+            if (!containsVariables(targetNetCDF, filteredVariables)) {
+                targetNetCDF.close();
+                targetNetCDF = null;
+            }
+        }
+        if (targetNetCDF == null) {
+            if (resume) {
+                SystemUtils.LOG.info("Partial download of '" + file.getName() + "' does not match the selected " +
+                                     "variables, downloading it again");
+                if (!file.delete()) {
+                    throw new IOException("Unable to delete partial download '" + file + "'.");
+                }
+            }
+            journal.start(filteredVariables);
+            targetNetCDF = createTargetFile(file, filteredVariables, sourceNetcdfFile);
+        }
+        try {
+            for (String filteredVariable : filteredVariables) {
+                if (pm.isCanceled()) {
+                    return;
+                }
+                writeVariable(targetNetCDF, file.getName(), filteredVariable, constraintExpression,
+                              sourceNetcdfFile, journal);
+            }
+        } finally {
+            targetNetCDF.close();
+        }
+        if (!pm.isCanceled()) {
+            journal.delete();
+            fileDownloaded(file);
+        }
+    }
+
+    private static boolean containsVariables(NetcdfFileWriter netcdfFile, List<String> variableNames) {
+        for (String variableName : variableNames) {
+            final String varName = EscapeStrings.backslashEscape(variableName, NetcdfFile.reservedSectionSpec);
+            if (netcdfFile.findVariable(varName) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static NetcdfFileWriter createTargetFile(File file, List<String> filteredVariables,
+                                                     DODSNetcdfFile sourceNetcdfFile) throws IOException {
+        final List<Dimension> filteredDimensions = filterDimensions(filteredVariables, sourceNetcdfFile);
         NetcdfFileWriter targetNetCDF = NetcdfFileWriter.createNew(NetcdfFileWriter.Version.netcdf3, file.getAbsolutePath());
         for (Dimension filteredDimension : filteredDimensions) {
             targetNetCDF.addDimension(null, filteredDimension.getFullName(), filteredDimension.getLength(),
@@ -164,26 +205,81 @@ public class DAPDownloader {
             targetNetCDF.addGroupAttribute(null, attribute);
         }
         targetNetCDF.create();
+        return targetNetCDF;
+    }
 
-        for (String filteredVariable : filteredVariables) {
-            String varName = EscapeStrings.backslashEscape(filteredVariable, NetcdfFile.reservedSectionSpec);
-            final Variable sourceVariable = sourceNetcdfFile.findVariable(varName);
-            String ceForVariable = getConstraintExpression(filteredVariable, constraintExpression);
-            final Array values = sourceNetcdfFile.readWithCE(sourceVariable, ceForVariable);
-            final int[] origin = getOrigin(filteredVariable, constraintExpression,
-                                           sourceVariable.getDimensions().size());
-            try {
-                targetNetCDF.write(sourceVariable, origin, values);
-            } catch (InvalidRangeException e) {
-                throw new IOException(MessageFormat.format("Unable to download variable ''{0}'' into file ''{1}''.",
-                                                           filteredVariable, fileName), e);
+    private void writeVariable(NetcdfFileWriter targetNetCDF, String fileName, String variableName,
+                               String constraintExpression, DODSNetcdfFile sourceNetcdfFile,
+                               DownloadJournal journal) throws IOException {
+        String varName = EscapeStrings.backslashEscape(variableName, NetcdfFile.reservedSectionSpec);
+        final Variable sourceVariable = sourceNetcdfFile.findVariable(varName);
+        final Variable targetVariable = targetNetCDF.findVariable(varName);
+        final int[] origin = getOrigin(variableName, constraintExpression, sourceVariable.getRank());
+        try {
+            final List<Range> ranges = getRanges(variableName, constraintExpression, sourceVariable.getShape());
+            final List<Section> chunks = getChunks(ranges, sourceVariable.getElementSize(), CHUNK_SIZE_BYTES);
+            for (int i = 0; i < chunks.size(); i++) {
+                if (pm.isCanceled()) {
+                    return;
+                }
+                final Section chunk = chunks.get(i);
+                if (journal.isWritten(variableName, i)) {
+                    reportProgress(fileName, chunk.computeSize() * sourceVariable.getElementSize());
+                    continue;
+                }
+                final Array values = sourceVariable.read(chunk);
+                final int[] chunkOrigin = origin.clone();
+                if (chunkOrigin.length > 0) {
+                    final Range outerRange = ranges.get(0);
+                    chunkOrigin[0] += (chunk.getRange(0).first() - outerRange.first()) / outerRange.stride();
+                }
+                targetNetCDF.write(targetVariable, chunkOrigin, values);
+                targetNetCDF.flush();
+                journal.setWritten(variableName, i);
+                reportProgress(fileName, values.getSizeBytes());
             }
+        } catch (InvalidRangeException e) {
+            throw new IOException(MessageFormat.format("Unable to download variable ''{0}'' into file ''{1}''.",
+                                                       variableName, fileName), e);
         }
-        targetNetCDF.close();
+    }
+
+    private synchronized void reportProgress(String fileName, long byteCount) {
+        pendingBytes += byteCount;
+        final int kilobyteCount = (int) (pendingBytes / 1024);
+        pendingBytes %= 1024;
+        updateProgressBar(fileName, kilobyteCount);
+    }
+
+    private synchronized void fileDownloaded(File file) {
         downloadContext.notifyFileDownloaded(file);
     }
 
+    private void waitFor(List<Future<?>> downloads) throws IOException {
+        for (Future<?> download : downloads) {
+            try {
+                download.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Download interrupted.");
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /*
+     * Called by the download threads, the progress bar is updated on the event dispatch thread.
+     */
     private void updateProgressBar(String fileName, int work) {
+        SwingUtilities.invokeLater(() -> showProgress(fileName, work));
+    }
+
+    private void showProgress(String fileName, int work) {
         pm.worked(work);
         StringBuilder preMessageBuilder = new StringBuilder(fileName);
         int currentWork = pm.getCurrentWork();
@@ -259,6 +355,67 @@ public class DAPDownloader {
         return origin;
     }
 
+    /**
+     * Returns the index ranges of a variable as given by the constraint expression. Dimensions not constrained by
+     * the expression are covered completely.
+     */
+    static List<Range> getRanges(String variableName, String constraintExpression, int[] shape)
+            throws InvalidRangeException {
+        String[] rangeConstraints = new String[0];
+        if (!StringUtils.isNullOrEmpty(constraintExpression)) {
+            for (String variableConstraint : constraintExpression.split(",")) {
+                if (variableConstraint.startsWith(variableName + "[")) {
+                    rangeConstraints = variableConstraint.replace("]", "").split("\\[");
+                }
+            }
+        }
+        final List<Range> ranges = new ArrayList<>(shape.length);
+        for (int i = 0; i < shape.length; i++) {
+            if (i + 1 < rangeConstraints.length) {
+                // [first], [first:last] or [first:stride:last]
+                final String[] rangeComponents = rangeConstraints[i + 1].split(":");
+                final int first = Integer.parseInt(rangeComponents[0].trim());
+                final int last = Integer.parseInt(rangeComponents[rangeComponents.length - 1].trim());
+                final int stride = rangeComponents.length == 3 ? Integer.parseInt(rangeComponents[1].trim()) : 1;
+                ranges.add(new Range(first, last, stride));
+            } else if (shape[i] > 0) {
+                ranges.add(new Range(0, shape[i] - 1));
+            } else {
+                ranges.add(Range.EMPTY);
+            }
+        }
+        return ranges;
+    }
+
+    /**
+     * Splits the given ranges along the outermost dimension into sections of at most the given size.
+     * A single row of the outermost dimension is never split.
+     */
+    static List<Section> getChunks(List<Range> ranges, int elementSize, long maxChunkBytes)
+            throws InvalidRangeException {
+        final List<Section> chunks = new ArrayList<>();
+        if (ranges.isEmpty()) {
+            chunks.add(new Section(ranges));
+            return chunks;
+        }
+        long rowBytes = Math.max(1, elementSize);
+        for (int i = 1; i < ranges.size(); i++) {
+            rowBytes *= ranges.get(i).length();
+        }
+        if (rowBytes == 0) {
+            return chunks;
+        }
+        final int rowsPerChunk = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxChunkBytes / rowBytes));
+        final Range outerRange = ranges.get(0);
+        for (int row = 0; row < outerRange.length(); row += rowsPerChunk) {
+            final int lastRow = (int) Math.min((long) row + rowsPerChunk, outerRange.length()) - 1;
+            final List<Range> chunkRanges = new ArrayList<>(ranges);
+            chunkRanges.set(0, new Range(outerRange.element(row), outerRange.element(lastRow), outerRange.stride()));
+            chunks.add(new Section(chunkRanges));
+        }
+        return chunks;
+    }
+
     static List<String> filterVariables(List<String> variableNames, String constraintExpression) {
         final List<String> filteredVariables = new ArrayList<String>();
         final List<String> constrainedVariableNames = getVariableNames(constraintExpression);
@@ -307,16 +464,19 @@ public class DAPDownloader {
         return variableNames;
     }
 
-    private void downloadFilesWithFileAccess(File targetDir) throws IOException {
+    private void downloadFilesWithFileAccess(File targetDir, ExecutorService executor, List<Future<?>> downloads) {
         for (String fileURI : fileURIs) {
             if (pm.isCanceled()) {
                 break;
             }
-            try {
-                downloadFile(targetDir, fileURI);
-            } catch (Exception e) {
-                throw new IOException("Unable to download file '" + fileURI + "'.", e);
-            }
+            downloads.add(executor.submit(() -> {
+                try {
+                    downloadFile(targetDir, fileURI);
+                } catch (Exception e) {
+                    throw new IOException("Unable to download file '" + fileURI + "'.", e);
+                }
+                return null;
+            }));
         }
     }
 
@@ -324,7 +484,7 @@ public class DAPDownloader {
         final URL fileUrl = new URI(fileURI).toURL();
         updateProgressBar(fileUrl.getFile(), 0);
         final File file = FileDownloader.downloadFile(fileUrl, targetDir, null);
-        downloadContext.notifyFileDownloaded(file);
+        fileDownloaded(file);
     }
 
     public interface DownloadContext {
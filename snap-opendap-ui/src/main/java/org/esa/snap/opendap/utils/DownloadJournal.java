@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.opendap.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A sidecar file recording the chunks already written to a downloaded NetCDF file, so that an interrupted download
+ * can be resumed.
+ * <p>
+ * The first line identifies the download, the second holds the constraint expression and the third the names of the
+ * downloaded variables. Each further line holds the name of a variable and the index of a chunk. A journal is only
+ * resumed if it belongs to the same download with the same constraint expression and the target file still exists;
+ * the downloader additionally checks that the same variables are selected. The journal is deleted once the download
+ * has been completed.
+ */
+class DownloadJournal {
+
+    static final String EXTENSION = ".download";
+
+    private final File targetFile;
+    private final File journalFile;
+    private final String header;
+    private final String constraintExpression;
+    private final Set<String> writtenChunks;
+    private List<String> variableNames;
+    private BufferedWriter writer;
+
+    DownloadJournal(File targetFile, String downloadId, String constraintExpression) {
+        this.targetFile = targetFile;
+        this.journalFile = new File(targetFile.getParentFile(), targetFile.getName() + EXTENSION);
+        this.header = downloadId.replace('\n', ' ');
+        this.constraintExpression = constraintExpression.replace('\n', ' ');
+        this.writtenChunks = new HashSet<>();
+        this.variableNames = Collections.emptyList();
+    }
+
+    File getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * Reads the chunks recorded by an interrupted download.
+     *
+     * @return {@code true} if the download can be resumed
+     */
+    boolean load() {
+        writtenChunks.clear();
+        variableNames = Collections.emptyList();
+        if (!journalFile.isFile() || !targetFile.isFile()) {
+            return false;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(journalFile))) {
+            if (!header.equals(reader.readLine()) || !constraintExpression.equals(reader.readLine())) {
+                return false;
+            }
+            final String variableLine = reader.readLine();
+            if (variableLine == null) {
+                return false;
+            }
+            variableNames = variableLine.isEmpty() ? Collections.<String>emptyList()
+                                                   : Arrays.asList(variableLine.split("\t"));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                writtenChunks.add(line);
+            }
+            return true;
+        } catch (IOException e) {
+            writtenChunks.clear();
+            return false;
+        }
+    }
+
+    /**
+     * Starts a new journal, discarding a previous one.
+     *
+     * @param variableNames the names of the variables to be downloaded
+     */
+    void start(List<String> variableNames) throws IOException {
+        close();
+        writtenChunks.clear();
+        this.variableNames = variableNames;
+        writer = new BufferedWriter(new FileWriter(journalFile, false));
+        writer.write(header);
+        writer.newLine();
+        writer.write(constraintExpression);
+        writer.newLine();
+        writer.write(String.join("\t", variableNames));
+        writer.newLine();
+        writer.flush();
+    }
+
+    /**
+     * @return true if the loaded journal has been started for the given variables
+     */
+    boolean isForVariables(List<String> variableNames) {
+        return this.variableNames.equals(variableNames);
+    }
+
+    boolean isWritten(String variableName, int chunkIndex) {
+        return writtenChunks.contains(createKey(variableName, chunkIndex));
+    }
+
+    /**
+     * Records a chunk, which must have been flushed to the target file before.
+     */
+    void setWritten(String variableName, int chunkIndex) throws IOException {
+        if (writer == null) {
+            writer = new BufferedWriter(new FileWriter(journalFile, true));
+        }
+        final String key = createKey(variableName, chunkIndex);
+        writtenChunks.add(key);
+        writer.write(key);
+        writer.newLine();
+        writer.flush();
+    }
+
+    void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignore) {
+                // the chunks not recorded are downloaded again
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * Removes the journal after the download has been completed.
+     */
+    void delete() {
+        close();
+        writtenChunks.clear();
+        if (journalFile.exists() && !journalFile.delete()) {
+            journalFile.deleteOnExit();
+        }
+    }
+
+    private static String createKey(String variableName, int chunkIndex) {
+        return variableName + '\t' + chunkIndex;
+    }
+}
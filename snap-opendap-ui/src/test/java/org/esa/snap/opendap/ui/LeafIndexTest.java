@@ -0,0 +1,113 @@
+package org.esa.snap.opendap.ui;
+
+import opendap.dap.DArrayDimension;
+import org.esa.snap.opendap.datamodel.DAPVariable;
+import org.esa.snap.opendap.datamodel.OpendapLeaf;
+import org.junit.Before;
+import org.junit.Test;
+import thredds.catalog.InvDataset;
+import thredds.catalog.ThreddsMetadata;
+import ucar.unidata.geoloc.LatLonPointImpl;
+import ucar.unidata.geoloc.LatLonRect;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class LeafIndexTest {
+
+    private LeafIndex leafIndex;
+    private OpendapLeaf northSea;
+    private OpendapLeaf pacific;
+    private OpendapLeaf noCoverage;
+
+    @Before
+    public void setUp() throws Exception {
+        leafIndex = new LeafIndex();
+        northSea = createLeaf("MER_RR_NorthSea.N1", new LatLonRect(new LatLonPointImpl(60.0, 0.0), new LatLonPointImpl(50.0, 10.0)));
+        pacific = createLeaf("MER_FR_Pacific.N1", new LatLonRect(new LatLonPointImpl(10.0, 150.0), new LatLonPointImpl(-10.0, 170.0)));
+        noCoverage = createLeaf("ATS_TOA_Unknown.N1", null);
+        leafIndex.add(northSea);
+        leafIndex.add(pacific);
+        leafIndex.add(noCoverage);
+    }
+
+    @Test
+    public void testSelectWithoutActiveFilters() throws Exception {
+        final Set<OpendapLeaf> leaves = leafIndex.select(new LeafIndex.Query(null, null, null, null));
+        assertEquals(3, leaves.size());
+    }
+
+    @Test
+    public void testSelectByName() throws Exception {
+        assertEquals(asSet(northSea, pacific), leafIndex.select(createNameQuery("mer_.*")));
+        assertEquals(asSet(northSea), leafIndex.select(createNameQuery(".*northsea.*")));
+        assertEquals(asSet(pacific, noCoverage), leafIndex.select(createNameQuery("mer_fr.*|ats.*")));
+        assertEquals(Collections.emptySet(), leafIndex.select(createNameQuery("mer_rr")));
+    }
+
+    @Test
+    public void testSelectByRegion() throws Exception {
+        final LatLonRect europe = new LatLonRect(new LatLonPointImpl(70.0, -10.0), new LatLonPointImpl(35.0, 30.0));
+        assertEquals(asSet(northSea, noCoverage), leafIndex.select(new LeafIndex.Query(null, null, europe, null)));
+
+        final LatLonRect equator = new LatLonRect(new LatLonPointImpl(5.0, 100.0), new LatLonPointImpl(-5.0, 160.0));
+        assertEquals(asSet(pacific, noCoverage), leafIndex.select(new LeafIndex.Query(null, null, equator, null)));
+    }
+
+    @Test
+    public void testSelectByVariables() throws Exception {
+        final DAPVariable chl = new DAPVariable("chl", "Grid", "Float32", new DArrayDimension[]{new DArrayDimension(10, "x")});
+        final DAPVariable sst = new DAPVariable("sst", "Grid", "Float32", new DArrayDimension[]{new DArrayDimension(10, "x")});
+        leafIndex.addVariables(northSea, new DAPVariable[]{chl});
+        leafIndex.addVariables(pacific, new DAPVariable[]{chl, sst});
+
+        assertEquals(asSet(pacific), leafIndex.select(new LeafIndex.Query(null, null, null, asSet(sst))));
+        assertEquals(asSet(northSea, pacific), leafIndex.select(new LeafIndex.Query(null, null, null, asSet(chl))));
+        assertEquals(asSet(northSea), leafIndex.select(new LeafIndex.Query(Pattern.compile(".*sea.*"), null, null, asSet(chl))));
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        leafIndex.clear();
+        assertFalse(leafIndex.contains(northSea));
+        assertTrue(leafIndex.select(new LeafIndex.Query(null, null, null, null)).isEmpty());
+    }
+
+    @Test
+    public void testGetLiteralPrefix() throws Exception {
+        assertEquals("mer_rr", LeafIndex.getLiteralPrefix("mer_rr.*"));
+        assertEquals("lea", LeafIndex.getLiteralPrefix("leaf?name"));
+        assertEquals("", LeafIndex.getLiteralPrefix(".*name"));
+        assertEquals("", LeafIndex.getLiteralPrefix("mer.*|ats.*"));
+        assertEquals("leafname", LeafIndex.getLiteralPrefix("leafname"));
+    }
+
+    private static LeafIndex.Query createNameQuery(String regex) {
+        return new LeafIndex.Query(Pattern.compile(regex), null, null, null);
+    }
+
+    @SafeVarargs
+    private static <T> Set<T> asSet(T... elements) {
+        final Set<T> set = new HashSet<>();
+        Collections.addAll(set, elements);
+        return set;
+    }
+
+    private static OpendapLeaf createLeaf(String name, final LatLonRect boundingBox) {
+        return new OpendapLeaf(name, new InvDataset(null, name) {
+            @Override
+            public ThreddsMetadata.GeospatialCoverage getGeospatialCoverage() {
+                if (boundingBox == null) {
+                    return null;
+                }
+                ThreddsMetadata.GeospatialCoverage geospatialCoverage = new ThreddsMetadata.GeospatialCoverage();
+                geospatialCoverage.setBoundingBox(boundingBox);
+                return geospatialCoverage;
+            }
+        });
+    }
+}
@@ -0,0 +1,162 @@
+package org.esa.snap.opendap.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.esa.snap.util.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import thredds.catalog.InvDataset;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CatalogCrawlerTest {
+
+    private static final File CACHE_DIR = new File("target/catalog_crawler_test");
+    private static final String ETAG = "\"catalog-1\"";
+
+    private HttpServer server;
+    private String baseUrl;
+    private Map<String, String> catalogs;
+    private Map<String, AtomicInteger> fullResponses;
+    private AtomicInteger notModifiedResponses;
+
+    @Before
+    public void setUp() throws Exception {
+        catalogs = new ConcurrentHashMap<>();
+        fullResponses = new ConcurrentHashMap<>();
+        notModifiedResponses = new AtomicInteger();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+        baseUrl = "http://localhost:" + server.getAddress().getPort();
+        catalogs.put("/catalog.xml", createCatalog(
+                "<thredds:catalogRef name=\"Child\" xlink:href=\"child/catalog.xml\" xlink:title=\"Child\"" +
+                " xlink:type=\"simple\" ID=\"/opendap/hyrax/data/child/\"/>"));
+        catalogs.put("/child/catalog.xml", createCatalog(
+                "<thredds:dataset name=\"ProductName.N1.nc\" ID=\"/opendap/hyrax/data/child/ProductName.N1.nc\">" +
+                "<thredds:access serviceName=\"dap\" urlPath=\"/data/child/ProductName.N1.nc\"/>" +
+                "</thredds:dataset>"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop(0);
+        FileUtils.deleteTree(CACHE_DIR);
+    }
+
+    @Test
+    public void testThatCatalogIsFetchedOncePerSession() throws Exception {
+        final CatalogCrawler crawler = new CatalogCrawler(CACHE_DIR);
+        crawler.setPrefetchEnabled(false);
+
+        final byte[] first = crawler.getCatalog(baseUrl + "/child/catalog.xml");
+        final byte[] second = crawler.getCatalog(baseUrl + "/child/catalog.xml");
+
+        assertSame(first, second);
+        assertEquals(1, getFullResponseCount("/child/catalog.xml"));
+        assertEquals(0, notModifiedResponses.get());
+    }
+
+    @Test
+    public void testThatCachedCatalogIsValidatedConditionally() throws Exception {
+        final String catalogUri = baseUrl + "/child/catalog.xml";
+        final byte[] fetched = new CatalogCrawler(CACHE_DIR).getCatalog(catalogUri);
+
+        // a new session
+        final byte[] cached = new CatalogCrawler(CACHE_DIR).getCatalog(catalogUri);
+
+        assertArrayEquals(fetched, cached);
+        assertEquals(1, getFullResponseCount("/child/catalog.xml"));
+        assertEquals(1, notModifiedResponses.get());
+    }
+
+    @Test
+    public void testThatCachedCatalogIsUsedIfServerIsUnavailable() throws Exception {
+        final String catalogUri = baseUrl + "/child/catalog.xml";
+        final byte[] fetched = new CatalogCrawler(CACHE_DIR).getCatalog(catalogUri);
+        server.stop(0);
+
+        final byte[] cached = new CatalogCrawler(CACHE_DIR).getCatalog(catalogUri);
+
+        assertArrayEquals(fetched, cached);
+    }
+
+    @Test(expected = IOException.class)
+    public void testThatMissingCatalogFails() throws Exception {
+        new CatalogCrawler(CACHE_DIR).getCatalog(baseUrl + "/missing/catalog.xml");
+    }
+
+    @Test
+    public void testThatPrefetchingIsDisabledByDefault() throws Exception {
+        final CatalogCrawler crawler = new CatalogCrawler(CACHE_DIR);
+        assertFalse(crawler.isPrefetchEnabled());
+
+        crawler.getCatalogDatasets(baseUrl + "/catalog.xml");
+        Thread.sleep(200);
+        assertEquals(0, getFullResponseCount("/child/catalog.xml"));
+    }
+
+    @Test
+    public void testThatReferencedCatalogsArePrefetched() throws Exception {
+        final CatalogCrawler crawler = new CatalogCrawler(CACHE_DIR);
+        crawler.setPrefetchEnabled(true);
+
+        final List<InvDataset> datasets = crawler.getCatalogDatasets(baseUrl + "/catalog.xml");
+        assertEquals(1, datasets.size());
+
+        for (int i = 0; i < 100 && getFullResponseCount("/child/catalog.xml") == 0; i++) {
+            Thread.sleep(50);
+        }
+        assertEquals(1, getFullResponseCount("/child/catalog.xml"));
+
+        final List<InvDataset> childDatasets = crawler.getCatalogDatasets(baseUrl + "/child/catalog.xml");
+        assertEquals(1, childDatasets.size());
+        assertEquals("ProductName.N1.nc", childDatasets.get(0).getName());
+        assertEquals(1, getFullResponseCount("/child/catalog.xml"));
+    }
+
+    private int getFullResponseCount(String path) {
+        final AtomicInteger count = fullResponses.get(path);
+        return count != null ? count.get() : 0;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath();
+        final String catalog = catalogs.get(path);
+        if (catalog == null) {
+            exchange.sendResponseHeaders(404, -1);
+        } else if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModifiedResponses.incrementAndGet();
+            exchange.sendResponseHeaders(304, -1);
+        } else {
+            fullResponses.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            final byte[] bytes = catalog.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("ETag", ETAG);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(bytes);
+            }
+        }
+        exchange.close();
+    }
+
+    private static String createCatalog(String content) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+               "<thredds:catalog xmlns:thredds=\"http://www.unidata.ucar.edu/namespaces/thredds/InvCatalog/v1.0\"\n" +
+               "                 xmlns:xlink=\"http://www.w3.org/1999/xlink\">\n" +
+               "    <thredds:service name=\"dap\" serviceType=\"OPENDAP\" base=\"/opendap/hyrax\"/>\n" +
+               "    " + content + "\n" +
+               "</thredds:catalog>";
+    }
+}
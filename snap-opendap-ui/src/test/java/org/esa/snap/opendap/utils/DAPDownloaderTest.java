@@ -7,6 +7,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
+import ucar.ma2.Range;
+import ucar.ma2.Section;
 import ucar.nc2.Dimension;
 import ucar.nc2.NetcdfFile;
 import ucar.nc2.Variable;
@@ -15,6 +17,7 @@ import ucar.nc2.dods.DODSNetcdfFile;
 import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -195,6 +198,43 @@ public class DAPDownloaderTest {
                                                                           "flag_sst[0:1:10][0:1:10],wind[0:1:10][0:1:10],sst[0:1:10]"));
     }
 
+    @Test
+    public void testGetRanges() throws Exception {
+        List<Range> ranges = DAPDownloader.getRanges("sst", "sst[5:1:10][2:4],wind[1:1:10][0:1:10]", new int[]{20, 30, 40});
+        assertEquals(3, ranges.size());
+        assertEquals(new Range(5, 10), ranges.get(0));
+        assertEquals(new Range(2, 4), ranges.get(1));
+        assertEquals(new Range(0, 39), ranges.get(2));
+
+        ranges = DAPDownloader.getRanges("sst", "sst[0:2:10]", new int[]{20});
+        assertEquals(new Range(0, 10, 2), ranges.get(0));
+
+        ranges = DAPDownloader.getRanges("sst", "", new int[]{20, 30});
+        assertEquals(new Range(0, 19), ranges.get(0));
+        assertEquals(new Range(0, 29), ranges.get(1));
+    }
+
+    @Test
+    public void testGetChunks() throws Exception {
+        // 10 rows of 100 floats, 400 bytes per row
+        final List<Range> ranges = Arrays.asList(new Range(0, 18, 2), new Range(0, 99));
+
+        List<Section> chunks = DAPDownloader.getChunks(ranges, 4, 1200);
+        assertEquals(4, chunks.size());
+        assertEquals(new Range(0, 4, 2), chunks.get(0).getRange(0));
+        assertEquals(new Range(6, 10, 2), chunks.get(1).getRange(0));
+        assertEquals(new Range(12, 16, 2), chunks.get(2).getRange(0));
+        assertEquals(new Range(18, 18, 2), chunks.get(3).getRange(0));
+        assertEquals(new Range(0, 99), chunks.get(3).getRange(1));
+
+        // a row is never split
+        chunks = DAPDownloader.getChunks(ranges, 4, 100);
+        assertEquals(10, chunks.size());
+
+        chunks = DAPDownloader.getChunks(Collections.<Range>emptyList(), 4, 100);
+        assertEquals(1, chunks.size());
+    }
+
     @Test
     public void testGetDownloadSpeed() {
         assertEquals(1024.0 / 60.0, DAPDownloader.getDownloadSpeed(60 * 1000, 1024), 1E-4);
@@ -206,7 +246,8 @@ public class DAPDownloaderTest {
         final DAPDownloader dapDownloader = new DAPDownloader(null, null, new NullDownloadContext(), new NullLabelledProgressBarPM());
         final DODSNetcdfFile sourceNetcdfFile = new DODSNetcdfFile(
                 "http://test.opendap.org:80/opendap/data/nc/coads_climatology.nc");
-        dapDownloader.writeNetcdfFile(TESTDATA_DIR, "deleteme.nc", "", sourceNetcdfFile, false);
+        final File targetFile = getTestFile("deleteme.nc");
+        dapDownloader.writeNetcdfFile(targetFile, "", sourceNetcdfFile, new DownloadJournal(targetFile, "test", ""), false);
 
         final File testFile = getTestFile("deleteme.nc");
         assertTrue(testFile.exists());
@@ -221,7 +262,9 @@ public class DAPDownloaderTest {
         final DAPDownloader dapDownloader = new DAPDownloader(null, null, new NullDownloadContext(), new NullLabelledProgressBarPM());
         final DODSNetcdfFile sourceNetcdfFile = new DODSNetcdfFile(
                 "http://test.opendap.org:80/opendap/data/nc/coads_climatology.nc");
-        dapDownloader.writeNetcdfFile(TESTDATA_DIR, "deleteme.nc", "COADSX[0:1:4]", sourceNetcdfFile, false);
+        final File targetFile = getTestFile("deleteme.nc");
+        dapDownloader.writeNetcdfFile(targetFile, "COADSX[0:1:4]", sourceNetcdfFile,
+                                      new DownloadJournal(targetFile, "test", ""), false);
 
         final File testFile = getTestFile("deleteme.nc");
         assertTrue(testFile.exists());
@@ -0,0 +1,90 @@
+package org.esa.snap.opendap.utils;
+
+import org.esa.snap.util.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class DownloadJournalTest {
+
+    private static final File TESTDATA_DIR = new File("target/download_journal_test");
+
+    private File targetFile;
+
+    @Before
+    public void setUp() throws Exception {
+        TESTDATA_DIR.mkdirs();
+        if (!TESTDATA_DIR.isDirectory()) {
+            fail("Can't create test I/O directory: " + TESTDATA_DIR);
+        }
+        targetFile = new File(TESTDATA_DIR, "product.nc");
+        assertTrue(targetFile.createNewFile());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (!FileUtils.deleteTree(TESTDATA_DIR)) {
+            fail("Warning: test I/O directory could not be deleted: " + TESTDATA_DIR);
+        }
+    }
+
+    @Test
+    public void testThatInterruptedDownloadIsResumed() throws Exception {
+        final DownloadJournal journal = new DownloadJournal(targetFile, "http://some.where/product.nc", "sst[0:1:10]");
+        assertFalse(journal.load());
+        journal.start(Collections.singletonList("sst"));
+        journal.setWritten("sst", 0);
+        journal.setWritten("sst", 1);
+        journal.close();
+
+        final DownloadJournal resumed = new DownloadJournal(targetFile, "http://some.where/product.nc", "sst[0:1:10]");
+        assertTrue(resumed.load());
+        assertTrue(resumed.isForVariables(Collections.singletonList("sst")));
+        assertFalse(resumed.isForVariables(Arrays.asList("sst", "wind")));
+        assertTrue(resumed.isWritten("sst", 0));
+        assertTrue(resumed.isWritten("sst", 1));
+        assertFalse(resumed.isWritten("sst", 2));
+        assertFalse(resumed.isWritten("wind", 0));
+    }
+
+    @Test
+    public void testThatOtherDownloadIsNotResumed() throws Exception {
+        final DownloadJournal journal = new DownloadJournal(targetFile, "http://some.where/product.nc", "sst[0:1:10]");
+        journal.start(Collections.singletonList("sst"));
+        journal.setWritten("sst", 0);
+        journal.close();
+
+        final DownloadJournal other = new DownloadJournal(targetFile, "http://some.where/product.nc", "sst[0:1:20]");
+        assertFalse(other.load());
+        assertFalse(other.isWritten("sst", 0));
+    }
+
+    @Test
+    public void testThatDownloadWithoutTargetFileIsNotResumed() throws Exception {
+        final DownloadJournal journal = new DownloadJournal(targetFile, "id", "");
+        journal.start(Collections.singletonList("sst"));
+        journal.setWritten("sst", 0);
+        journal.close();
+        assertTrue(targetFile.delete());
+
+        assertFalse(new DownloadJournal(targetFile, "id", "").load());
+    }
+
+    @Test
+    public void testThatCompletedDownloadHasNoJournal() throws Exception {
+        final DownloadJournal journal = new DownloadJournal(targetFile, "id", "");
+        journal.start(Collections.singletonList("sst"));
+        journal.setWritten("sst", 0);
+        assertTrue(journal.getJournalFile().exists());
+
+        journal.delete();
+        assertFalse(journal.getJournalFile().exists());
+        assertFalse(new DownloadJournal(targetFile, "id", "").load());
+    }
+}
@@ -20,8 +20,8 @@ import org.esa.snap.db.ProductDB;
 import org.esa.snap.db.ProductEntry;
 import org.esa.snap.db.QuickLookGenerator;
 import org.esa.snap.framework.datamodel.Product;
-import org.esa.snap.gpf.ThreadManager;
 import org.esa.snap.util.ProductFunctions;
+import org.esa.snap.util.SystemUtils;
 
 import javax.swing.SwingWorker;
 import java.io.File;
@@ -29,12 +29,30 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 
 /**
- * Scans folders for products to add or update into the database
+ * Scans folders for products to add or update into the database.
+ * <p>
+ * New files are opened by a bounded pool of reader threads. The products found are saved by the scanner thread
+ * alone, and the files handled are recorded in a {@link ScanCheckpoint} every {@value #WRITE_BATCH_SIZE} entries,
+ * so that a cancelled scan resumes where it stopped. Missing quicklooks are generated by a separate pool while the
+ * scan goes on, each as soon as its entry is known.
  */
 public final class DBScanner extends SwingWorker {
+    private static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int WRITE_BATCH_SIZE = 50;
+    private static final int QUICKLOOK_QUEUE_SIZE = 2 * NUM_THREADS;
+
     private final ProductDB db;
 
     private final File baseDir;
@@ -90,109 +108,212 @@ public final class DBScanner extends SwingWorker {
             pm.setTaskName("Collecting "+fileList.size()+" files...");
         }
 
-        final List<File> qlProductFiles = new ArrayList<>(fileList.size());
-        final List<Integer> qlIDs = new ArrayList<>(fileList.size());
-
         final ProductEntry[] entriesInPath = db.getProductEntryInPath(baseDir);
         final Map<File, ProductEntry> fileMap = new ConcurrentHashMap<>(entriesInPath.length);
         for (ProductEntry entry : entriesInPath) {
             fileMap.put(entry.getFile(), entry);
         }
 
+        final ScanCheckpoint checkpoint = ScanCheckpoint.forBaseDir(baseDir);
+        checkpoint.load();
+
         final int total = fileList.size();
+        final ThreadPoolExecutor qlExecutor = generateQuicklooks ? createQuickLookExecutor() : null;
         pm.beginTask("Scanning Files...", total);
-        int i = 0;
-        int prodCount = 0;
         try {
+            final List<File> newFiles = new ArrayList<>(fileList.size());
             for (File file : fileList) {
-                ++i;
-                String taskMsg = "Scanning " + i + " of " + total + " files ";
-                if (prodCount > 0)
-                    taskMsg += "(" + prodCount + " new products)";
-                pm.setTaskName(taskMsg);
-                pm.worked(1);
-
                 // check if already exists in db
-                //final ProductEntry existingEntry = db.getProductEntry(file);
                 final ProductEntry existingEntry = fileMap.get(file);
 
                 if (existingEntry != null) {
                     // check for missing quicklook
-                    if (generateQuicklooks && !existingEntry.quickLookExists()) {
-                        qlProductFiles.add(file);
-                        qlIDs.add(existingEntry.getId());
+                    if (qlExecutor != null && !existingEntry.quickLookExists()) {
+                        queueQuickLook(qlExecutor, file, existingEntry.getId());
                     }
                     existingEntry.dispose();
-                    continue;
+                    pm.worked(1);
+                } else if (checkpoint.isScanned(file)) {
+                    // already handled by an interrupted scan
+                    pm.worked(1);
+                } else {
+                    newFiles.add(file);
+                }
+            }
+
+            final boolean completed = scanNewFiles(newFiles, total - newFiles.size(), total, checkpoint, qlExecutor);
+
+            db.cleanUpRemovedProducts(pm);
+            if (completed) {
+                checkpoint.delete();
+            }
+
+            notifyMSG(DBScannerListener.MSG.FOLDERS_SCANNED);
+
+            if (qlExecutor != null) {
+                finishQuicklooks(qlExecutor);
+            }
+            pm.setTaskName("");
+
+        } catch (Throwable e) {
+            SystemUtils.LOG.log(Level.SEVERE, "Unable to scan " + baseDir, e);
+        } finally {
+            if (qlExecutor != null) {
+                qlExecutor.shutdownNow();
+            }
+            checkpoint.close();
+            pm.done();
+        }
+        return true;
+    }
+
+    /**
+     * Reads the new files with a pool of reader threads and saves the products found in this thread.
+     *
+     * @return true if all files have been scanned, false if the scan has been cancelled
+     */
+    private boolean scanNewFiles(final List<File> newFiles, final int scannedCount, final int total,
+                                 final ScanCheckpoint checkpoint,
+                                 final ThreadPoolExecutor qlExecutor) throws Exception {
+        final BlockingQueue<ScanResult> results = new ArrayBlockingQueue<>(WRITE_BATCH_SIZE);
+        final AtomicInteger nextFile = new AtomicInteger();
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final int numReaders = Math.min(NUM_THREADS, Math.max(1, newFiles.size()));
+        final ExecutorService readerPool = Executors.newFixedThreadPool(numReaders);
+        for (int r = 0; r < numReaders; r++) {
+            readerPool.submit(() -> {
+                int index;
+                while (!stopped.get() && (index = nextFile.getAndIncrement()) < newFiles.size()) {
+                    if (!offer(results, readFile(newFiles.get(index)), stopped)) {
+                        return;
+                    }
                 }
+            });
+        }
+        readerPool.shutdown();
 
-                if (pm.isCanceled())
-                    break;
+        int i = scannedCount;
+        int prodCount = 0;
+        int batchCount = 0;
+        int resultCount = 0;
+        try {
+            while (resultCount < newFiles.size() && !pm.isCanceled()) {
+                final ScanResult result = results.poll(100, TimeUnit.MILLISECONDS);
+                if (result == null) {
+                    continue;
+                }
+                ++resultCount;
+                ++i;
+                String taskMsg = "Scanning " + i + " of " + total + " files ";
+                if (prodCount > 0)
+                    taskMsg += "(" + prodCount + " new products)";
+                pm.setTaskName(taskMsg);
+                pm.worked(1);
 
+                final File file = result.file;
+                boolean handled = false;
                 try {
-                    // quick test for common readers
-                    final Product sourceProduct = CommonReaders.readProduct(file);
-                    if (sourceProduct != null) {
-                        final ProductEntry entry = db.saveProduct(sourceProduct);
+                    if (result.error != null) {
+                        throw result.error;
+                    }
+                    if (result.product != null) {
+                        final ProductEntry entry = db.saveProduct(result.product);
                         ++prodCount;
-                        if (!entry.quickLookExists()) {
-                            qlProductFiles.add(file);
-                            qlIDs.add(entry.getId());
+                        if (qlExecutor != null && !entry.quickLookExists()) {
+                            queueQuickLook(qlExecutor, file, entry.getId());
                         }
-                        sourceProduct.dispose();
                         entry.dispose();
                     } else if (!file.isDirectory()) {
-                        System.out.println("No reader for " + file.getAbsolutePath());
+                        SystemUtils.LOG.info("No reader for " + file.getAbsolutePath());
                     }
+                    handled = true;
                 } catch (Throwable e) {
                     errorList.add(new ErrorFile(file, ErrorFile.UNREADABLE));
-                    System.out.println("Unable to read " + file.getAbsolutePath() + '\n' + e.getMessage());
+                    SystemUtils.LOG.log(Level.WARNING, "Unable to read " + file.getAbsolutePath(), e);
+                } finally {
+                    result.dispose();
                 }
-            }
-
-            db.cleanUpRemovedProducts(pm);
 
-            notifyMSG(DBScannerListener.MSG.FOLDERS_SCANNED);
-
-            if (generateQuicklooks) {
-                final int numQL = qlProductFiles.size();
-                pm.beginTask("Generating Quicklooks...", numQL);
-                final ThreadManager threadManager = new ThreadManager();
-
-                for (int j = 0; j < numQL; ++j) {
-                    pm.setTaskName("Generating Quicklook... " + (j + 1) + " of " + numQL);
-                    pm.worked(1);
-                    if (pm.isCanceled())
-                        break;
+                // files which could not be read or saved are scanned again when the scan is resumed
+                if (handled) {
+                    checkpoint.record(file);
+                    if (++batchCount == WRITE_BATCH_SIZE) {
+                        checkpoint.flush();
+                        batchCount = 0;
+                    }
+                }
+            }
+        } finally {
+            stopped.set(true);
+            do {
+                ScanResult result;
+                while ((result = results.poll()) != null) {
+                    result.dispose();
+                }
+            } while (!readerPool.awaitTermination(100, TimeUnit.MILLISECONDS));
+            checkpoint.flush();
+        }
+        return resultCount == newFiles.size();
+    }
 
-                    final File file = qlProductFiles.get(j);
-                    final int qlID = qlIDs.get(j);
+    private static ScanResult readFile(final File file) {
+        try {
+            // quick test for common readers
+            return new ScanResult(file, CommonReaders.readProduct(file), null);
+        } catch (Throwable e) {
+            return new ScanResult(file, null, e);
+        }
+    }
 
-                    final Thread worker = new Thread() {
+    private static boolean offer(final BlockingQueue<ScanResult> results, final ScanResult result,
+                                 final AtomicBoolean stopped) {
+        try {
+            while (!results.offer(result, 100, TimeUnit.MILLISECONDS)) {
+                if (stopped.get()) {
+                    result.dispose();
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            result.dispose();
+            return false;
+        }
+    }
 
-                        @Override
-                        public void run() {
-                            try {
-                                QuickLookGenerator.createQuickLook(qlID, file);
-                            } catch (Throwable e) {
-                                System.out.println("QL Unable to read " + file.getAbsolutePath() + '\n' + e.getMessage());
-                            }
-                        }
-                    };
-                    threadManager.add(worker);
+    /*
+     * A bounded queue, when it is full the scanner thread generates the next quicklook itself, so that the scan
+     * does not run far ahead of the quicklooks.
+     */
+    private static ThreadPoolExecutor createQuickLookExecutor() {
+        return new ThreadPoolExecutor(NUM_THREADS, NUM_THREADS, 0L, TimeUnit.MILLISECONDS,
+                                      new ArrayBlockingQueue<>(QUICKLOOK_QUEUE_SIZE),
+                                      new ThreadPoolExecutor.CallerRunsPolicy());
+    }
 
-                    notifyMSG(DBScannerListener.MSG.QUICK_LOOK_GENERATED);
-                }
-                threadManager.finish();
+    private void queueQuickLook(final ThreadPoolExecutor qlExecutor, final File file, final int qlID) {
+        qlExecutor.execute(() -> {
+            try {
+                QuickLookGenerator.createQuickLook(qlID, file);
+            } catch (Throwable e) {
+                SystemUtils.LOG.log(Level.WARNING, "Unable to create quicklook for " + file.getAbsolutePath(), e);
             }
-            pm.setTaskName("");
+        });
+        notifyMSG(DBScannerListener.MSG.QUICK_LOOK_GENERATED);
+    }
 
-        } catch (Throwable e) {
-            System.out.println("Scanning Exception\n" + e.getMessage());
-        } finally {
-            pm.done();
+    /**
+     * Waits for the quicklooks still being generated. Quicklooks not yet started are dropped if the scan is cancelled.
+     */
+    private void finishQuicklooks(final ThreadPoolExecutor qlExecutor) throws InterruptedException {
+        qlExecutor.shutdown();
+        while (!qlExecutor.awaitTermination(100, TimeUnit.MILLISECONDS)) {
+            if (pm.isCanceled()) {
+                qlExecutor.getQueue().clear();
+            }
+            final int remaining = qlExecutor.getQueue().size() + qlExecutor.getActiveCount();
+            pm.setTaskName("Generating Quicklooks... " + remaining + " remaining");
         }
-        return true;
     }
 
     @Override
@@ -234,6 +355,24 @@ public final class DBScanner extends SwingWorker {
         }
     }
 
+    private static class ScanResult {
+        private final File file;
+        private final Product product;
+        private final Throwable error;
+
+        private ScanResult(final File file, final Product product, final Throwable error) {
+            this.file = file;
+            this.product = product;
+            this.error = error;
+        }
+
+        private void dispose() {
+            if (product != null) {
+                product.dispose();
+            }
+        }
+    }
+
     public interface DBScannerListener {
 
         public enum MSG {DONE, FOLDERS_SCANNED, QUICK_LOOK_GENERATED}
@@ -16,6 +16,7 @@
 package org.esa.snap.productlibrary.rcp.toolviews;
 
 import org.esa.snap.productlibrary.rcp.toolviews.model.DatabaseQueryListener;
+import org.esa.snap.productlibrary.rcp.toolviews.model.dataprovider.QuicklookProvider;
 import org.esa.snap.datamodel.AbstractMetadata;
 import org.esa.snap.db.DBQuery;
 import org.esa.snap.db.ProductDB;
@@ -46,6 +47,9 @@ import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
 
@@ -76,14 +80,37 @@ public final class DatabasePane extends JPanel {
     private final JButton updateButton = new JButton(UIUtils.loadImageIcon("icons/ViewRefresh16.png"));
     private final JTextArea productText = new JTextArea();
 
+    private static final int QUERY_DELAY_MS = 200;
+
     private ProductDB db;
     private DBQuery dbQuery = new DBQuery();
     private ProductEntry[] productEntryList = null;
     boolean modifyingCombos = false;
 
+    private final Timer queryTimer;
+    private File baseDir = null;
+    private GeoPos[] selectionBox = null;
+    private boolean returnAllIfNoIntersection = false;
+    private PendingQuery pendingQuery = null;
+    private ProductEntryIndex resultIndex = null;
+    private String resultIndexKey = null;
+    private QueryWorker queryWorker = null;
+    // the queries share the database connection, so they are executed one after the other
+    private final ExecutorService queryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "DatabasePane query");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final List<DatabaseQueryListener> listenerList = new ArrayList<>(1);
 
     public DatabasePane() {
+        queryTimer = new Timer(QUERY_DELAY_MS, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                executeQuery();
+            }
+        });
+        queryTimer.setRepeats(false);
         try {
             missionJList.setFixedCellWidth(100);
             createPanel();
@@ -341,6 +368,7 @@ public final class DatabasePane extends JPanel {
     }
 
     public void setBaseDir(final File dir) {
+        baseDir = dir;
         dbQuery.setBaseDir(dir);
         if (db != null)
             queryDatabase();
@@ -371,24 +399,60 @@ public final class DatabasePane extends JPanel {
     }
 
     private void setData() {
-        dbQuery.setSelectedMissions(toStringArray(missionJList.getSelectedValuesList()));
-        dbQuery.setSelectedProductTypes(toStringArray(productTypeJList.getSelectedValuesList()));
-        dbQuery.setSelectedName(nameField.getText());
-        dbQuery.setSelectedAcquisitionMode((String) acquisitionModeCombo.getSelectedItem());
-        dbQuery.setSelectedPass((String) passCombo.getSelectedItem());
-        dbQuery.setSelectedTrack(trackField.getText());
+        setData(dbQuery);
+    }
+
+    private void setData(final DBQuery query) {
+        query.setSelectedMissions(toStringArray(missionJList.getSelectedValuesList()));
+        query.setSelectedProductTypes(toStringArray(productTypeJList.getSelectedValuesList()));
+        query.setSelectedName(nameField.getText());
+        query.setSelectedAcquisitionMode((String) acquisitionModeCombo.getSelectedItem());
+        query.setSelectedPass((String) passCombo.getSelectedItem());
+        query.setSelectedTrack(trackField.getText());
+
+        query.setStartEndDate(getDate(startDateBox), getDate(endDateBox));
 
-        dbQuery.setStartEndDate(getDate(startDateBox), getDate(endDateBox));
+        query.setSelectedPolarization((String) polarizationCombo.getSelectedItem());
+        query.setSelectedCalibration((String) calibrationCombo.getSelectedItem());
+        query.setSelectedOrbitCorrection((String) orbitCorrectionCombo.getSelectedItem());
 
-        dbQuery.setSelectedPolarization((String) polarizationCombo.getSelectedItem());
-        dbQuery.setSelectedCalibration((String) calibrationCombo.getSelectedItem());
-        dbQuery.setSelectedOrbitCorrection((String) orbitCorrectionCombo.getSelectedItem());
+        query.clearMetadataQuery();
+        query.setFreeQuery(metadataArea.getText());
+    }
 
-        dbQuery.clearMetadataQuery();
-        dbQuery.setFreeQuery(metadataArea.getText());
+    /**
+     * Creates the key of the filters evaluated by the database. The month and map selections are not part of it,
+     * they are applied to the {@link ProductEntryIndex} of the database result.
+     */
+    private String createDatabaseFilterKey() {
+        final Calendar startDate = getDate(startDateBox);
+        final Calendar endDate = getDate(endDateBox);
+        return baseDir + "|" + missionJList.getSelectedValuesList() + "|" + productTypeJList.getSelectedValuesList() +
+                "|" + nameField.getText() + "|" + acquisitionModeCombo.getSelectedItem() +
+                "|" + passCombo.getSelectedItem() + "|" + trackField.getText() +
+                "|" + (startDate != null ? startDate.getTimeInMillis() : null) +
+                "|" + (endDate != null ? endDate.getTimeInMillis() : null) +
+                "|" + polarizationCombo.getSelectedItem() + "|" + calibrationCombo.getSelectedItem() +
+                "|" + orbitCorrectionCombo.getSelectedItem() + "|" + metadataArea.getText();
     }
 
+    private boolean[] getSelectedMonths() {
+        final boolean[] selectedMonths = new boolean[12];
+        for (int m = 0; m < selectedMonths.length; ++m) {
+            selectedMonths[m] = dbQuery.isMonthSelected(m);
+        }
+        return selectedMonths;
+    }
+
+    /**
+     * Queries the database with the current filters. The query is delayed until the filters have not been changed
+     * for {@value #QUERY_DELAY_MS} ms and runs on a background thread. A query still running is superseded.
+     */
     public void queryDatabase() {
+        scheduleQuery(true);
+    }
+
+    private void scheduleQuery(final boolean forceDatabaseQuery) {
         if (db == null) {
             try {
                 connectToDatabase();
@@ -402,29 +466,53 @@ public final class DatabasePane extends JPanel {
 
         setData();
 
-        if (productEntryList != null) {
-            ProductEntry.dispose(productEntryList);
+        // the filters are taken now, they may be changed again before the query is executed
+        final DBQuery databaseQuery = new DBQuery();
+        setData(databaseQuery);
+        databaseQuery.setBaseDir(baseDir);
+        final boolean forced = forceDatabaseQuery || (pendingQuery != null && pendingQuery.forceDatabaseQuery);
+        pendingQuery = new PendingQuery(databaseQuery, createDatabaseFilterKey(), getSelectedMonths(),
+                                        selectionBox, returnAllIfNoIntersection, forced);
+        queryTimer.restart();
+    }
+
+    private void executeQuery() {
+        final PendingQuery query = pendingQuery;
+        pendingQuery = null;
+        if (query == null || db == null || !db.isReady()) {
+            return;
         }
-        try {
-            if(db.isReady()) {
-                productEntryList = dbQuery.queryDatabase(db);
-                notifyQuery();
-            }
-        } catch (Throwable t) {
-            handleException(t);
+        if (queryWorker != null) {
+            // not interrupted, the database connection must not be disturbed; a query which has already started
+            // is completed before the next one and its result is dropped, a queued one is not executed at all
+            queryWorker.cancel(false);
         }
+        final boolean reuseIndex = !query.forceDatabaseQuery && resultIndex != null &&
+                query.databaseFilterKey.equals(resultIndexKey);
+        queryWorker = new QueryWorker(query, reuseIndex ? resultIndex : null);
+        queryExecutor.execute(queryWorker);
     }
 
     public void setSelectionRect(final GeoPos[] selectionBox) {
         dbQuery.setSelectionRect(selectionBox);
         dbQuery.setReturnAllIfNoIntersection(true);
-        queryDatabase();
+        this.selectionBox = selectionBox;
+        this.returnAllIfNoIntersection = true;
+        scheduleQuery(false);
     }
 
     public ProductEntry[] getProductEntryList() {
         return productEntryList;
     }
 
+    /**
+     * Re-applies the month and map selections of the current {@link DBQuery} to the last database result.
+     * The database is only queried again if other filters have been changed.
+     */
+    public void updateSelection() {
+        scheduleQuery(false);
+    }
+
     public DBQuery getDBQuery() {
         setData();
         return dbQuery;
@@ -434,6 +522,7 @@ public final class DatabasePane extends JPanel {
         metadataArea.setText(AbstractMetadata.data_take_id+"="+dataTakeId);
 
         dbQuery.setSelectionRect(null);
+        selectionBox = null;
         queryDatabase();
 
         metadataArea.setText("");
@@ -442,6 +531,9 @@ public final class DatabasePane extends JPanel {
     public void setDBQuery(final DBQuery query) throws Exception {
         if (query == null) return;
         dbQuery = query;
+        // the map selection is applied to the database result by this pane, so it is taken from the query
+        selectionBox = query.getSelectionRect();
+        returnAllIfNoIntersection = selectionBox != null;
         if (db == null) {
             connectToDatabase();
         }
@@ -522,4 +614,85 @@ public final class DatabasePane extends JPanel {
             productText.setText("");
         }
     }
+
+    private static class PendingQuery {
+        private final DBQuery databaseQuery;
+        private final String databaseFilterKey;
+        private final boolean[] selectedMonths;
+        private final GeoPos[] selectionBox;
+        private final boolean returnAllIfNoIntersection;
+        private final boolean forceDatabaseQuery;
+
+        private PendingQuery(final DBQuery databaseQuery, final String databaseFilterKey,
+                             final boolean[] selectedMonths, final GeoPos[] selectionBox,
+                             final boolean returnAllIfNoIntersection, final boolean forceDatabaseQuery) {
+            this.databaseQuery = databaseQuery;
+            this.databaseFilterKey = databaseFilterKey;
+            this.selectedMonths = selectedMonths;
+            this.selectionBox = selectionBox;
+            this.returnAllIfNoIntersection = returnAllIfNoIntersection;
+            this.forceDatabaseQuery = forceDatabaseQuery;
+        }
+    }
+
+    private class QueryWorker extends SwingWorker<ProductEntry[], Object> {
+
+        private final PendingQuery query;
+        private final ProductEntryIndex reusedIndex;
+        // a new index is handed over to done() or disposed by whichever side takes it first
+        private final AtomicReference<ProductEntryIndex> newIndex = new AtomicReference<>();
+
+        private QueryWorker(final PendingQuery query, final ProductEntryIndex index) {
+            this.query = query;
+            this.reusedIndex = index;
+        }
+
+        @Override
+        protected ProductEntry[] doInBackground() throws Exception {
+            ProductEntryIndex index = reusedIndex;
+            if (index == null) {
+                index = new ProductEntryIndex(query.databaseQuery.queryDatabase(db));
+                newIndex.set(index);
+                QuicklookProvider.loadQuickLookStates(index.getEntries());
+                if (isCancelled()) {
+                    // superseded while running, done() may already have been called
+                    disposeNewIndex();
+                    return new ProductEntry[0];
+                }
+            }
+            return index.select(query.selectedMonths, query.selectionBox, query.returnAllIfNoIntersection);
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled() || queryWorker != this) {
+                disposeNewIndex();
+                return;
+            }
+            queryWorker = null;
+            try {
+                final ProductEntry[] entries = get();
+                final ProductEntryIndex index = newIndex.getAndSet(null);
+                if (index != null) {
+                    if (resultIndex != null) {
+                        ProductEntry.dispose(resultIndex.getEntries());
+                    }
+                    resultIndex = index;
+                    resultIndexKey = query.databaseFilterKey;
+                }
+                productEntryList = entries;
+                notifyQuery();
+            } catch (Throwable t) {
+                disposeNewIndex();
+                handleException(t);
+            }
+        }
+
+        private void disposeNewIndex() {
+            final ProductEntryIndex index = newIndex.getAndSet(null);
+            if (index != null) {
+                ProductEntry.dispose(index.getEntries());
+            }
+        }
+    }
 }
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.productlibrary.rcp.toolviews;
+
+import org.esa.snap.db.ProductEntry;
+import org.esa.snap.framework.datamodel.GeoPos;
+import org.esa.snap.framework.datamodel.ProductData;
+
+import java.awt.geom.Area;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+
+/**
+ * An in-memory index of the result of a database query.
+ * <p>
+ * The acquisition month and the geographic boundary of each entry are computed once, so that changes of the month
+ * selection and of the map selection are applied to the result without another database query.
+ * The index is immutable and may be shared between threads.
+ */
+class ProductEntryIndex {
+
+    private final ProductEntry[] entries;
+    private final int[] months;
+    private final Area[] areas;
+    private final Rectangle2D[] bounds;
+
+    ProductEntryIndex(final ProductEntry[] entries) {
+        this.entries = entries != null ? entries : new ProductEntry[0];
+        months = new int[this.entries.length];
+        areas = new Area[this.entries.length];
+        bounds = new Rectangle2D[this.entries.length];
+        for (int i = 0; i < this.entries.length; ++i) {
+            final ProductEntry entry = this.entries[i];
+            final ProductData.UTC firstLineTime = entry.getFirstLineTime();
+            months[i] = firstLineTime != null ? firstLineTime.getAsCalendar().get(Calendar.MONTH) : -1;
+            final GeoPos[] boundary = entry.getGeoBoundary();
+            if (boundary != null && boundary.length > 0) {
+                areas[i] = createArea(boundary);
+                bounds[i] = areas[i].getBounds2D();
+            }
+        }
+    }
+
+    ProductEntry[] getEntries() {
+        return entries;
+    }
+
+    /**
+     * Selects the entries acquired in one of the selected months and intersecting the map selection.
+     *
+     * @param selectedMonths            the selected months, indexed from 0 (January), or null to select all months
+     * @param selectionBox              the map selection, or null
+     * @param returnAllIfNoIntersection whether all entries of the selected months are returned
+     *                                  if none intersects the map selection
+     * @return the selected entries
+     */
+    ProductEntry[] select(final boolean[] selectedMonths, final GeoPos[] selectionBox,
+                          final boolean returnAllIfNoIntersection) {
+        final List<Integer> monthMatches = new ArrayList<>(entries.length);
+        for (int i = 0; i < entries.length; ++i) {
+            if (selectedMonths == null || months[i] < 0 || selectedMonths[months[i]]) {
+                monthMatches.add(i);
+            }
+        }
+        if (selectionBox == null || selectionBox.length == 0) {
+            return toEntries(monthMatches);
+        }
+
+        final Area selectionArea = createArea(selectionBox);
+        final Rectangle2D selectionBounds = selectionArea.getBounds2D();
+        final List<Integer> intersectMatches = new ArrayList<>(monthMatches.size());
+        for (Integer i : monthMatches) {
+            if (areas[i] != null && bounds[i].intersects(selectionBounds)) {
+                final Area entryArea = new Area(areas[i]);
+                entryArea.intersect(selectionArea);
+                if (!entryArea.isEmpty()) {
+                    intersectMatches.add(i);
+                }
+            }
+        }
+        if (intersectMatches.isEmpty() && returnAllIfNoIntersection) {
+            return toEntries(monthMatches);
+        }
+        return toEntries(intersectMatches);
+    }
+
+    private ProductEntry[] toEntries(final List<Integer> indices) {
+        final ProductEntry[] selection = new ProductEntry[indices.size()];
+        for (int i = 0; i < selection.length; ++i) {
+            selection[i] = entries[indices.get(i)];
+        }
+        return selection;
+    }
+
+    private static Area createArea(final GeoPos[] polygon) {
+        final GeneralPath path = new GeneralPath();
+        path.moveTo(polygon[0].getLon(), polygon[0].getLat());
+        for (int i = 1; i < polygon.length; ++i) {
+            path.lineTo(polygon[i].getLon(), polygon[i].getLat());
+        }
+        path.closePath();
+        return new Area(path);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.productlibrary.rcp.toolviews;
+
+import org.esa.snap.util.SystemUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Records the files already handled by a folder scan, so that an interrupted scan can be resumed.
+ * <p>
+ * Each line of the checkpoint file holds the last modification time, the size and the path of a scanned file.
+ * A file is skipped by a resumed scan if it has not changed since it was recorded. The checkpoint is deleted once
+ * a scan has completed. Failing to write the checkpoint does not stop a scan: the failure is logged and no
+ * further files are recorded, so that a resumed scan merely reads these files again.
+ */
+class ScanCheckpoint {
+
+    private final File checkpointFile;
+    private final Map<String, String> scannedFiles;
+    private BufferedWriter writer;
+    private boolean failed;
+
+    ScanCheckpoint(final File checkpointFile) {
+        this.checkpointFile = checkpointFile;
+        this.scannedFiles = new HashMap<>();
+    }
+
+    static ScanCheckpoint forBaseDir(final File baseDir) {
+        final File checkpointDir = new File(SystemUtils.getApplicationDataDir(), "product_library/scan_checkpoints");
+        final String name = Integer.toHexString(baseDir.getAbsolutePath().hashCode()) + ".txt";
+        return new ScanCheckpoint(new File(checkpointDir, name));
+    }
+
+    /**
+     * Reads the files recorded by a previous, interrupted scan.
+     */
+    void load() {
+        scannedFiles.clear();
+        if (!checkpointFile.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(checkpointFile))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int pathStart = line.indexOf('\t', line.indexOf('\t') + 1) + 1;
+                if (pathStart > 0) {
+                    scannedFiles.put(line.substring(pathStart), line.substring(0, pathStart - 1));
+                }
+            }
+        } catch (IOException e) {
+            SystemUtils.LOG.log(Level.WARNING, "Unable to read scan checkpoint " + checkpointFile, e);
+        }
+    }
+
+    boolean isScanned(final File file) {
+        final String state = scannedFiles.get(file.getAbsolutePath());
+        return state != null && state.equals(getState(file));
+    }
+
+    void record(final File file) {
+        if (failed) {
+            return;
+        }
+        try {
+            if (writer == null) {
+                if (!checkpointFile.getParentFile().exists() && !checkpointFile.getParentFile().mkdirs()) {
+                    throw new IOException("Unable to create " + checkpointFile.getParentFile());
+                }
+                writer = new BufferedWriter(new FileWriter(checkpointFile, true));
+            }
+            writer.write(getState(file));
+            writer.write('\t');
+            writer.write(file.getAbsolutePath());
+            writer.newLine();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    void flush() {
+        if (writer != null && !failed) {
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                fail(e);
+            }
+        }
+    }
+
+    private void fail(final IOException e) {
+        SystemUtils.LOG.log(Level.WARNING, "Unable to write scan checkpoint " + checkpointFile +
+                                           ", the scan continues without it", e);
+        failed = true;
+    }
+
+    void close() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                SystemUtils.LOG.log(Level.WARNING, "Unable to write scan checkpoint " + checkpointFile, e);
+            }
+            writer = null;
+        }
+    }
+
+    /**
+     * Removes the checkpoint after the scan has been completed.
+     */
+    void delete() {
+        close();
+        scannedFiles.clear();
+        if (checkpointFile.exists() && !checkpointFile.delete()) {
+            checkpointFile.deleteOnExit();
+        }
+    }
+
+    private static String getState(final File file) {
+        return file.lastModified() + "\t" + file.length();
+    }
+}
@@ -216,7 +216,7 @@ public class DatabaseStatistics implements DatabaseQueryListener {
 
         public void setSelected(final int m, final boolean selected) {
             dbPane.getDBQuery().setMonthSelected(m, selected);
-            dbPane.queryDatabase();
+            dbPane.updateSelection();
         }
 
         public boolean isSelected(final int m) {
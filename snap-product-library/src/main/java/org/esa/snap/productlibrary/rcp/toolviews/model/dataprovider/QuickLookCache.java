@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.productlibrary.rcp.toolviews.model.dataprovider;
+
+import org.esa.snap.db.ProductEntry;
+import org.esa.snap.util.SystemUtils;
+
+import javax.swing.SwingUtilities;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Provides scaled quicklook thumbnails of product entries without blocking the event dispatch thread.
+ * <p>
+ * Thumbnails are decoded and scaled on a small pool of background threads. The most recently requested thumbnails
+ * are decoded first, so that the rows scrolled into view are served before rows which have already been scrolled
+ * past. Only the most recent requests are kept, older ones are dropped, as their rows are likely out of view by now.
+ * The scaled images are kept in a least recently used cache which is bounded by the memory of its images.
+ * <p>
+ * Entries without a quicklook are not cached: they are only remembered for a short time, so that a quicklook
+ * created later is picked up.
+ * <p>
+ * Whether an entry has a quicklook at all is checked once, in the background, when the entry is loaded from the
+ * database, so that sorting and painting never access the file system.
+ */
+class QuickLookCache {
+
+    /**
+     * Marks entries for which no quicklook is available.
+     */
+    static final BufferedImage NOT_AVAILABLE = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+
+    private static final long MAX_CACHE_BYTES = 32L * 1024 * 1024;
+    private static final int NUM_THREADS = 2;
+    private static final long NOT_AVAILABLE_RETRY_MILLIS = 30000L;
+    private static final int MAX_NOT_AVAILABLE_COUNT = 10000;
+    private static final int MAX_PENDING_LOADS = 64;
+
+    private static QuickLookCache instance;
+
+    private final Map<String, BufferedImage> thumbnails;
+    private final Map<String, Long> notAvailableTimes;
+    private final Set<String> pendingKeys;
+    private final Map<ProductEntry, Boolean> quickLookStates;
+    private final LinkedBlockingDeque<Runnable> loadQueue;
+    private final ThreadPoolExecutor executor;
+    private long cacheBytes;
+
+    QuickLookCache() {
+        thumbnails = new LinkedHashMap<>(256, 0.75f, true);
+        notAvailableTimes = new LinkedHashMap<String, Long>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > MAX_NOT_AVAILABLE_COUNT;
+            }
+        };
+        pendingKeys = new HashSet<>();
+        quickLookStates = new WeakHashMap<>();
+        loadQueue = new LinkedBlockingDeque<Runnable>() {
+            @Override
+            public boolean offer(Runnable runnable) {
+                // last in, first out
+                return offerFirst(runnable);
+            }
+        };
+        executor = new ThreadPoolExecutor(NUM_THREADS, NUM_THREADS, 0L, TimeUnit.MILLISECONDS, loadQueue,
+                                          runnable -> {
+                                              final Thread thread = new Thread(runnable, "QuickLookCache");
+                                              thread.setDaemon(true);
+                                              thread.setPriority(Thread.MIN_PRIORITY);
+                                              return thread;
+                                          });
+    }
+
+    static synchronized QuickLookCache getInstance() {
+        if (instance == null) {
+            instance = new QuickLookCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Checks whether the given entries have a quicklook and remembers the result. Accesses the file system, so it
+     * must not be called on the event dispatch thread.
+     *
+     * @param entries the entries loaded from the database
+     */
+    void loadQuickLookStates(final ProductEntry[] entries) {
+        final Map<ProductEntry, Boolean> states = new HashMap<>(entries.length);
+        for (ProductEntry entry : entries) {
+            states.put(entry, entry.quickLookExists());
+        }
+        synchronized (this) {
+            quickLookStates.putAll(states);
+        }
+    }
+
+    /**
+     * @return whether the entry had a quicklook when it was loaded, false if this is not known
+     */
+    synchronized boolean hasQuickLook(final ProductEntry entry) {
+        return Boolean.TRUE.equals(quickLookStates.get(entry));
+    }
+
+    /**
+     * Returns the thumbnail of the given entry scaled to fit into a square of the given size. If the thumbnail
+     * is not cached yet, it is requested and {@code null} is returned.
+     *
+     * @param entry    the product entry
+     * @param size     the width and height of the square
+     * @param onLoaded called on the event dispatch thread once a requested thumbnail is available, may be null
+     * @return the thumbnail, {@link #NOT_AVAILABLE} if the entry has no quicklook, or null if not yet loaded
+     */
+    synchronized BufferedImage getThumbnail(final ProductEntry entry, final int size, final Runnable onLoaded) {
+        final String key = createKey(entry, size);
+        final BufferedImage thumbnail = thumbnails.get(key);
+        if (thumbnail != null) {
+            return thumbnail;
+        }
+        final Long notAvailableTime = notAvailableTimes.get(key);
+        if (notAvailableTime != null) {
+            if (System.currentTimeMillis() - notAvailableTime < NOT_AVAILABLE_RETRY_MILLIS) {
+                return NOT_AVAILABLE;
+            }
+            notAvailableTimes.remove(key);
+        }
+        if (pendingKeys.add(key)) {
+            executor.execute(new LoadTask(key, () -> load(entry, size, key, onLoaded)));
+            dropStaleLoads();
+        }
+        return null;
+    }
+
+    private void dropStaleLoads() {
+        while (loadQueue.size() > MAX_PENDING_LOADS) {
+            final Runnable stale = loadQueue.pollLast();
+            if (stale instanceof LoadTask) {
+                // requested again when its row is painted again
+                pendingKeys.remove(((LoadTask) stale).key);
+            }
+        }
+    }
+
+    private void load(final ProductEntry entry, final int size, final String key, final Runnable onLoaded) {
+        BufferedImage thumbnail = null;
+        try {
+            final BufferedImage image = entry.getQuickLook();
+            if (image != null) {
+                thumbnail = scale(image, size);
+            }
+        } catch (Exception e) {
+            SystemUtils.LOG.log(Level.WARNING, "Unable to load quicklook of product entry " + entry.getId(), e);
+        }
+        synchronized (this) {
+            pendingKeys.remove(key);
+            if (thumbnail != null) {
+                put(key, thumbnail);
+            } else {
+                notAvailableTimes.put(key, System.currentTimeMillis());
+            }
+        }
+        if (onLoaded != null) {
+            SwingUtilities.invokeLater(onLoaded);
+        }
+    }
+
+    private void put(final String key, final BufferedImage thumbnail) {
+        final BufferedImage previous = thumbnails.put(key, thumbnail);
+        if (previous != null) {
+            cacheBytes -= getBytes(previous);
+        }
+        cacheBytes += getBytes(thumbnail);
+        final Iterator<BufferedImage> iterator = thumbnails.values().iterator();
+        while (cacheBytes > MAX_CACHE_BYTES && iterator.hasNext()) {
+            cacheBytes -= getBytes(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    static BufferedImage scale(final BufferedImage image, final int size) {
+        final double scale = (double) size / Math.max(image.getWidth(), image.getHeight());
+        final int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        final int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        final BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return thumbnail;
+    }
+
+    private static long getBytes(final BufferedImage image) {
+        return 4L * image.getWidth() * image.getHeight();
+    }
+
+    private static String createKey(final ProductEntry entry, final int size) {
+        return entry.getId() + "_" + size;
+    }
+
+    private static class LoadTask implements Runnable {
+
+        private final String key;
+        private final Runnable load;
+
+        private LoadTask(final String key, final Runnable load) {
+            this.key = key;
+            this.load = load;
+        }
+
+        @Override
+        public void run() {
+            load.run();
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package org.esa.snap.productlibrary.rcp.toolviews.model.dataprovider;
 
 import org.esa.snap.db.ProductEntry;
+import org.esa.snap.util.SystemUtils;
 
 import javax.swing.AbstractCellEditor;
 import javax.swing.BorderFactory;
@@ -24,13 +25,17 @@ import javax.swing.JLabel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableCellEditor;
 import javax.swing.table.TableColumn;
 import java.awt.Color;
 import java.awt.Component;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.util.Comparator;
+import java.util.logging.Level;
 
 public class QuicklookProvider implements DataProvider {
 
@@ -51,6 +56,16 @@ public class QuicklookProvider implements DataProvider {
         return quickLookComparator;
     }
 
+    /**
+     * Checks whether the given entries have a quicklook, so that the quicklook column can be sorted and painted
+     * without accessing the file system. Must be called off the event dispatch thread when the entries are loaded.
+     *
+     * @param entries the entries loaded from the database
+     */
+    public static void loadQuickLookStates(final ProductEntry[] entries) {
+        QuickLookCache.getInstance().loadQuickLookStates(entries);
+    }
+
     public TableColumn getTableColumn() {
         if (quickLookColumn == null) {
             try {
@@ -61,7 +76,7 @@ public class QuicklookProvider implements DataProvider {
                 quickLookColumn.setCellRenderer(new QuickLookRenderer(preferredHeight));
                 quickLookColumn.setCellEditor(new QuickLookEditor());
             } catch (Throwable e) {
-                System.out.println("QuicklookProvider: " + e.getMessage());
+                SystemUtils.LOG.log(Level.WARNING, "Unable to create the quicklook column", e);
             }
         }
         return quickLookColumn;
@@ -69,6 +84,8 @@ public class QuicklookProvider implements DataProvider {
 
     private static class QuickLookRenderer extends DefaultTableCellRenderer {
 
+        private static final int PREFETCH_ROWS = 10;
+
         private final int rowHeight;
         private JLabel tableComponent;
 
@@ -105,29 +122,27 @@ public class QuicklookProvider implements DataProvider {
                 }
 
                 if (value instanceof ProductEntry) {
-                    final BufferedImage image = ((ProductEntry) value).getQuickLook();
+                    final int cellSize = table.getColumnModel().getColumn(column).getWidth();
+                    final BufferedImage image = QuickLookCache.getInstance().getThumbnail(
+                            (ProductEntry) value, cellSize, () -> repaintCell(table, row, column));
                     if (image == null) {
+                        tableComponent.setIcon(null);
+                        tableComponent.setText("Loading...");
+                    } else if (image == QuickLookCache.NOT_AVAILABLE) {
                         tableComponent.setIcon(null);
                         tableComponent.setText("Not available!");
                     } else {
-                        final TableColumn tableColumn = table.getColumnModel().getColumn(column);
-                        int cellWidth = tableColumn.getWidth();
-                        int cellHeight = tableColumn.getWidth();
-                        if (image.getHeight() > image.getWidth())
-                            cellWidth = -1;
-                        else
-                            cellHeight = -1;
-                        tableComponent.setIcon(
-                                new ImageIcon(image.getScaledInstance(cellWidth, cellHeight, BufferedImage.SCALE_FAST)));
+                        tableComponent.setIcon(new ImageIcon(image));
                         tableComponent.setText("");
                         setTableRowHeight(table, row);
                     }
+                    prefetch(table, row, column, cellSize);
                 } else {
                     tableComponent.setIcon(null);
                     //tableComponent.setText("Not available!");
                 }
             } catch (Throwable e) {
-                System.out.println("QuicklookRenderer: " + e.getMessage());
+                SystemUtils.LOG.log(Level.WARNING, "Unable to render quicklook", e);
             }
             return tableComponent;
         }
@@ -143,6 +158,38 @@ public class QuicklookProvider implements DataProvider {
             tableComponent.setBackground(backGroundColor);
         }
 
+        private static void repaintCell(final JTable table, final int row, final int column) {
+            if (row < table.getRowCount() && column < table.getColumnCount()) {
+                table.repaint(table.getCellRect(row, column, false));
+            }
+        }
+
+        /**
+         * Requests the thumbnails of the rows just outside of the visible rows, when the first or the last visible
+         * row is rendered.
+         */
+        private static void prefetch(final JTable table, final int row, final int column, final int cellSize) {
+            final Rectangle visibleRect = table.getVisibleRect();
+            final int firstRow = table.rowAtPoint(visibleRect.getLocation());
+            int lastRow = table.rowAtPoint(new Point(visibleRect.x, visibleRect.y + visibleRect.height - 1));
+            if (lastRow < 0) {
+                lastRow = table.getRowCount() - 1;
+            }
+            if (row != firstRow && row != lastRow) {
+                return;
+            }
+            final int from = Math.max(0, firstRow - PREFETCH_ROWS);
+            final int to = Math.min(table.getRowCount() - 1, lastRow + PREFETCH_ROWS);
+            for (int r = from; r <= to; r++) {
+                if (r < firstRow || r > lastRow) {
+                    final Object value = table.getValueAt(r, column);
+                    if (value instanceof ProductEntry) {
+                        QuickLookCache.getInstance().getThumbnail((ProductEntry) value, cellSize, null);
+                    }
+                }
+            }
+        }
+
         private void setTableRowHeight(final JTable table, final int row) {
             if (table.getRowHeight(row) < rowHeight) {
                 table.setRowHeight(row, rowHeight);
@@ -171,17 +218,29 @@ public class QuicklookProvider implements DataProvider {
                 if (!(value instanceof ProductEntry)) {
                     return scrollPane;
                 }
-                final BufferedImage image = ((ProductEntry) value).getQuickLook();
-                if (image == null) {
-                    return scrollPane;
-                }
-                scrollPane.setViewportView(
-                        new JLabel(new ImageIcon(image.getScaledInstance(-1, -1, BufferedImage.SCALE_AREA_AVERAGING))));
+                final ProductEntry entry = (ProductEntry) value;
+                scrollPane.setViewportView(new JLabel("Loading...", SwingConstants.CENTER));
+                new SwingWorker<BufferedImage, Object>() {
+                    @Override
+                    protected BufferedImage doInBackground() throws Exception {
+                        return entry.getQuickLook();
+                    }
+
+                    @Override
+                    protected void done() {
+                        try {
+                            final BufferedImage image = get();
+                            scrollPane.setViewportView(image != null ? new JLabel(new ImageIcon(image)) : null);
+                        } catch (Exception e) {
+                            SystemUtils.LOG.log(Level.WARNING, "Unable to show quicklook", e);
+                        }
+                    }
+                }.execute();
                 final Color backgroundColor = table.getSelectionBackground();
                 scrollPane.setBackground(backgroundColor);
                 scrollPane.setBorder(BorderFactory.createLineBorder(backgroundColor, 3));
             } catch (Throwable e) {
-                System.out.println("QuicklookEditor: " + e.getMessage());
+                SystemUtils.LOG.log(Level.WARNING, "Unable to show quicklook", e);
             }
             return scrollPane;
         }
@@ -204,19 +263,16 @@ public class QuicklookProvider implements DataProvider {
                 return 1;
             }
 
-            final BufferedImage image1 = ((ProductEntry) o1).getQuickLook();
-            final BufferedImage image2 = ((ProductEntry) o2).getQuickLook();
-
-            if (image1 == null) {
-                return -1;
-            } else if (image2 == null) {
-                return 1;
+            // quicklooks are not loaded just to be sorted, so the entries are sorted by a key which does not
+            // change while the thumbnails are loaded: entries without quicklook first, then by id
+            final ProductEntry entry1 = (ProductEntry) o1;
+            final ProductEntry entry2 = (ProductEntry) o2;
+            final QuickLookCache cache = QuickLookCache.getInstance();
+            final int existsComparison = Boolean.compare(cache.hasQuickLook(entry1), cache.hasQuickLook(entry2));
+            if (existsComparison != 0) {
+                return existsComparison;
             }
-
-            final Integer height1 = image1.getHeight();
-            final Integer height2 = image2.getHeight();
-
-            return height1.compareTo(height2);
+            return Integer.compare(entry1.getId(), entry2.getId());
         }
     }
 }
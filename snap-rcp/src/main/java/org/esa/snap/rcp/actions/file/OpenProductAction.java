@@ -42,6 +42,9 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.prefs.Preferences;
 import java.util.stream.Collectors;
@@ -221,12 +224,24 @@ public final class OpenProductAction extends AbstractAction {
             }
         }
 
-        Boolean summaryStatus = true;
-        for (File file : fileList) {
+        final List<List<PluginEntry>> pluginsForFiles;
+        if (formatName == null) {
+            pluginsForFiles = getPluginsForFiles(fileList);
+            if (pluginsForFiles == null) {
+                // Cancelled
+                return null;
+            }
+        } else {
+            pluginsForFiles = null;
+        }
+
+        final List<ReadProductOperation> operations = new ArrayList<>();
+        for (int i = 0; i < fileList.size(); i++) {
+            final File file = fileList.get(i);
             String fileFormatName;
             if (formatName == null) {
-                final List<PluginEntry> intendedPlugIns = getPluginsForFile(file, DecodeQualification.INTENDED);
-                final List<PluginEntry> suitablePlugIns = getPluginsForFile(file, DecodeQualification.SUITABLE);
+                final List<PluginEntry> intendedPlugIns = getPluginsForFile(pluginsForFiles.get(i), DecodeQualification.INTENDED);
+                final List<PluginEntry> suitablePlugIns = getPluginsForFile(pluginsForFiles.get(i), DecodeQualification.SUITABLE);
 
                 if (intendedPlugIns.isEmpty() && suitablePlugIns.isEmpty()) {
                     SnapDialogs.showError(Bundle.LBL_NoReaderFoundText() + String.format("%nFile '%s' can not be opened.", file));
@@ -248,31 +263,68 @@ public final class OpenProductAction extends AbstractAction {
             } else {
                 fileFormatName = formatName;
             }
+            operations.add(new ReadProductOperation(file, fileFormatName));
+        }
 
+        if (operations.isEmpty()) {
+            return true;
+        } else if (operations.size() == 1) {
+            return openProductFileDoNotCheckOpened(operations.get(0));
+        }
+        return openProductFilesDoNotCheckOpened(operations);
+    }
 
-            Boolean status = openProductFileDoNotCheckOpened(file, fileFormatName);
-            if (status == null) {
-                // Cancelled
-                summaryStatus = null;
-                break;
-            } else if (!Boolean.TRUE.equals(status)) {
-                summaryStatus = status;
+    /**
+     * Asks all reader plug-ins for their qualification for each file, the files in parallel. Each plug-in is asked
+     * at most once per file, and not at all if the file is in the {@link ReaderQualificationCache}.
+     *
+     * @return the plug-ins able to decode the files, in the order of the files, or {@code null} on cancellation
+     */
+    private static List<List<PluginEntry>> getPluginsForFiles(List<File> files) {
+        final List<ProductReaderPlugIn> plugIns = new ArrayList<>();
+        ProductIOPlugInManager.getInstance().getAllReaderPlugIns().forEachRemaining(plugIns::add);
+        final ReaderQualificationCache cache = ReaderQualificationCache.getInstance(plugIns);
+
+        final List<List<PluginEntry>> pluginsForFiles = Collections.synchronizedList(new ArrayList<>(files.size()));
+        final Runnable operation = () -> {
+            final ExecutorService executor = ReadProductsOperation.createExecutor("Product Reader Qualification",
+                                                                                  files.size());
+            try {
+                final List<Future<List<PluginEntry>>> futures = new ArrayList<>(files.size());
+                for (File file : files) {
+                    futures.add(executor.submit(() -> {
+                        final List<PluginEntry> entries = new ArrayList<>();
+                        cache.getQualifications(file, plugIns).forEach(
+                                (plugIn, qualification) -> entries.add(new PluginEntry(plugIn, qualification)));
+                        return entries;
+                    }));
+                }
+                for (Future<List<PluginEntry>> future : futures) {
+                    pluginsForFiles.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                pluginsForFiles.clear();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+            } finally {
+                executor.shutdownNow();
+                cache.save();
             }
-        }
+        };
 
-        return summaryStatus;
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ProgressUtils.runOffEventDispatchThread(operation, Bundle.CTL_OpenProductActionName(), cancelled, true, 50, 3000);
+        if (cancelled.get() || pluginsForFiles.size() != files.size()) {
+            return null;
+        }
+        return pluginsForFiles;
     }
 
-    private static List<PluginEntry> getPluginsForFile(File file, DecodeQualification desiredQualification) {
-        final Iterator<ProductReaderPlugIn> allReaderPlugIns = ProductIOPlugInManager.getInstance().getAllReaderPlugIns();
-        final List<PluginEntry> possiblePlugIns = new ArrayList<>();
-        allReaderPlugIns.forEachRemaining(plugIn -> {
-            final DecodeQualification qualification = plugIn.getDecodeQualification(file);
-            if (qualification == desiredQualification) {
-                possiblePlugIns.add(new PluginEntry(plugIn, qualification));
-            }
-        });
-        return possiblePlugIns;
+    private static List<PluginEntry> getPluginsForFile(List<PluginEntry> possiblePlugIns, DecodeQualification desiredQualification) {
+        return possiblePlugIns.stream()
+                .filter(entry -> entry.qualification == desiredQualification)
+                .collect(Collectors.toList());
     }
 
     private static String getUserSelection(List<PluginEntry> intendedPlugins, List<PluginEntry> suitablePlugIns) {
@@ -335,11 +387,26 @@ public final class OpenProductAction extends AbstractAction {
     }
 
 
-    private static Boolean openProductFileDoNotCheckOpened(File file, String formatName) {
-        SnapApp.getDefault().setStatusBarMessage(MessageFormat.format("Reading product ''{0}''...", file.getName()));
+    private static Boolean openProductFileDoNotCheckOpened(ReadProductOperation operation) {
+        SnapApp.getDefault().setStatusBarMessage(MessageFormat.format("Reading product ''{0}''...", operation.getFile().getName()));
+
+        AtomicBoolean cancelled = new AtomicBoolean();
+        ProgressUtils.runOffEventDispatchThread(operation, Bundle.CTL_OpenProductActionName(), cancelled, true, 50, 3000);
+
+        SnapApp.getDefault().setStatusBarMessage("");
+
+        if (cancelled.get()) {
+            return null;
+        }
+
+        return operation.getStatus();
+    }
+
+    private static Boolean openProductFilesDoNotCheckOpened(List<ReadProductOperation> operations) {
+        SnapApp.getDefault().setStatusBarMessage(MessageFormat.format("Reading {0} products...", operations.size()));
 
         AtomicBoolean cancelled = new AtomicBoolean();
-        ReadProductOperation operation = new ReadProductOperation(file, formatName);
+        ReadProductsOperation operation = new ReadProductsOperation(operations);
         ProgressUtils.runOffEventDispatchThread(operation, Bundle.CTL_OpenProductActionName(), cancelled, true, 50, 3000);
 
         SnapApp.getDefault().setStatusBarMessage("");
@@ -27,12 +27,30 @@ class ReadProductOperation implements Runnable, Cancellable {
         this.formatName = formatName;
     }
 
+    public File getFile() {
+        return file;
+    }
+
     public Boolean getStatus() {
         return status;
     }
 
     @Override
     public void run() {
+        Product product = readProduct();
+        if (product != null) {
+            OpenProductAction.getRecentProductPaths().add(file.getPath());
+            SwingUtilities.invokeLater(() -> SnapApp.getDefault().getProductManager().addProduct(product));
+        }
+    }
+
+    /**
+     * Reads the product without adding it to the product manager or to the recent product paths, so that it can be
+     * called from several threads. Failures are reported to the user.
+     *
+     * @return the product, or {@code null} if it could not be read or if reading has been interrupted
+     */
+    Product readProduct() {
         try {
             Product product = ProductIO.readProduct(file, formatName);
             if (!Thread.interrupted()) {
@@ -41,8 +59,7 @@ class ReadProductOperation implements Runnable, Cancellable {
                     SwingUtilities.invokeLater(() -> SnapDialogs.showError(Bundle.LBL_NoReaderFoundText() + String.format("%nFile '%s' can not be opened.", file)));
                 } else {
                     status = true;
-                    OpenProductAction.getRecentProductPaths().add(file.getPath());
-                    SwingUtilities.invokeLater(() -> SnapApp.getDefault().getProductManager().addProduct(product));
+                    return product;
                 }
             } else {
                 status = null;
@@ -51,6 +68,7 @@ class ReadProductOperation implements Runnable, Cancellable {
             status = false;
             SwingUtilities.invokeLater(() -> SnapDialogs.showError(Bundle.CTL_OpenProductActionName(), problem.getMessage()));
         }
+        return null;
     }
 
     @Override
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.actions.file;
+
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.rcp.SnapApp;
+import org.esa.snap.rcp.SnapDialogs;
+import org.esa.snap.util.SystemUtils;
+import org.openide.util.Cancellable;
+
+import javax.swing.SwingUtilities;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Reads several products concurrently, each by a {@link ReadProductOperation}, and adds them to the product manager
+ * in the order of the operations.
+ */
+class ReadProductsOperation implements Runnable, Cancellable {
+
+    static final int MAX_PRODUCT_READERS = 4;
+
+    private final List<ReadProductOperation> operations;
+    private Boolean status;
+
+    ReadProductsOperation(List<ReadProductOperation> operations) {
+        this.operations = operations;
+    }
+
+    /**
+     * @return {@code Boolean.TRUE} if all products have been read, {@code Boolean.FALSE} if a product could not be
+     * read, or {@code null} on cancellation
+     */
+    public Boolean getStatus() {
+        return status;
+    }
+
+    @Override
+    public void run() {
+        final ExecutorService executor = createExecutor("Product Reader", operations.size());
+        final List<Future<Product>> futures = new ArrayList<>(operations.size());
+        for (ReadProductOperation operation : operations) {
+            futures.add(executor.submit(operation::readProduct));
+        }
+        executor.shutdown();
+
+        Boolean summaryStatus = true;
+        int consumedCount = 0;
+        try {
+            for (int i = 0; i < operations.size(); i++) {
+                final Product product = futures.get(i).get();
+                consumedCount++;
+                if (product != null) {
+                    OpenProductAction.getRecentProductPaths().add(operations.get(i).getFile().getPath());
+                    // invokeLater keeps the order of the products
+                    SwingUtilities.invokeLater(() -> SnapApp.getDefault().getProductManager().addProduct(product));
+                }
+                final Boolean productStatus = operations.get(i).getStatus();
+                if (productStatus == null) {
+                    summaryStatus = null;
+                } else if (!productStatus && summaryStatus != null) {
+                    summaryStatus = false;
+                }
+            }
+            status = summaryStatus;
+        } catch (InterruptedException e) {
+            status = null;
+            disposeRemaining(futures, consumedCount);
+        } catch (ExecutionException e) {
+            status = false;
+            SystemUtils.LOG.log(Level.SEVERE, "Failed to read product", e.getCause());
+            disposeRemaining(futures, consumedCount + 1);
+        }
+    }
+
+    @Override
+    public boolean cancel() {
+        SnapDialogs.Answer answer = SnapDialogs.requestDecision(Bundle.CTL_OpenProductActionName(),
+                                                                "Do you really want to cancel the read process?",
+                                                                false, null);
+        boolean cancel = answer == SnapDialogs.Answer.YES;
+        if (cancel) {
+            status = null;
+        }
+        return cancel;
+    }
+
+    static ExecutorService createExecutor(String threadName, int taskCount) {
+        return Executors.newFixedThreadPool(Math.max(1, Math.min(MAX_PRODUCT_READERS, taskCount)), r -> {
+            final Thread thread = new Thread(r, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+     * Stops the reads which have not been started and disposes the products which have been read, but will not
+     * be added to the product manager.
+     */
+    private static void disposeRemaining(List<Future<Product>> futures, int startIndex) {
+        for (int i = startIndex; i < futures.size(); i++) {
+            futures.get(i).cancel(true);
+        }
+        for (int i = startIndex; i < futures.size(); i++) {
+            final Future<Product> future = futures.get(i);
+            if (future.isDone() && !future.isCancelled()) {
+                try {
+                    final Product product = future.get(0, TimeUnit.MILLISECONDS);
+                    if (product != null) {
+                        product.dispose();
+                    }
+                } catch (Exception ignored) {
+                    // not read
+                }
+            }
+        }
+    }
+}
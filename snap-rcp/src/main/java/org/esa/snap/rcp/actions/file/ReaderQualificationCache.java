@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.actions.file;
+
+import org.esa.snap.framework.dataio.DecodeQualification;
+import org.esa.snap.framework.dataio.ProductReaderPlugIn;
+import org.esa.snap.util.SystemUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Remembers the decode qualifications of the product reader plug-ins for the files opened before, so that the
+ * plug-ins do not have to inspect a file again as long as it has not changed.
+ * <p>
+ * An entry is identified by the path, the size and the last modification time of a file. Only regular files are
+ * cached, since the modification time of a directory does not tell whether its content has changed. Files which no
+ * plug-in is able to decode are not cached either, since a reader may depend on sibling files which can appear
+ * later. The cache is stored in the application data directory and is dropped if the installed reader plug-ins or
+ * their versions change.
+ * <p>
+ * The cache may be used by several threads.
+ */
+class ReaderQualificationCache {
+
+    private static final int MAX_ENTRY_COUNT = 2000;
+    private static final String HEADER_PREFIX = "# plug-ins ";
+
+    private static ReaderQualificationCache instance;
+
+    private final File cacheFile;
+    private final String plugInsId;
+    private final Map<String, Entry> entries;
+    private boolean modified;
+
+    ReaderQualificationCache(File cacheFile, List<ProductReaderPlugIn> plugIns) {
+        this.cacheFile = cacheFile;
+        this.plugInsId = getPlugInsId(plugIns);
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > MAX_ENTRY_COUNT;
+            }
+        };
+    }
+
+    /**
+     * @return the cache of the application, loaded on first use
+     */
+    static synchronized ReaderQualificationCache getInstance(List<ProductReaderPlugIn> plugIns) {
+        final String plugInsId = getPlugInsId(plugIns);
+        if (instance == null || !instance.plugInsId.equals(plugInsId)) {
+            instance = new ReaderQualificationCache(new File(SystemUtils.getApplicationDataDir(),
+                                                             "reader_qualifications.txt"), plugIns);
+            instance.load();
+        }
+        return instance;
+    }
+
+    /**
+     * Gets the qualifications of the given plug-ins for a file, from the cache if the file has not changed, otherwise
+     * by asking each plug-in once.
+     *
+     * @return the plug-ins which are able to decode the file, with their qualification, in the order of the plug-ins
+     */
+    Map<ProductReaderPlugIn, DecodeQualification> getQualifications(File file, List<ProductReaderPlugIn> plugIns) {
+        final boolean cacheable = file.isFile();
+        final String path = file.getAbsolutePath();
+        if (cacheable) {
+            final Entry entry;
+            synchronized (this) {
+                entry = entries.get(path);
+            }
+            if (entry != null && entry.size == file.length() && entry.lastModified == file.lastModified()) {
+                final Map<ProductReaderPlugIn, DecodeQualification> qualifications = new LinkedHashMap<>();
+                for (ProductReaderPlugIn plugIn : plugIns) {
+                    final DecodeQualification qualification = entry.qualifications.get(plugIn.getClass().getName());
+                    if (qualification != null) {
+                        qualifications.put(plugIn, qualification);
+                    }
+                }
+                return qualifications;
+            }
+        }
+
+        final long size = file.length();
+        final long lastModified = file.lastModified();
+        final Map<ProductReaderPlugIn, DecodeQualification> qualifications = new LinkedHashMap<>();
+        final Map<String, DecodeQualification> namedQualifications = new HashMap<>();
+        for (ProductReaderPlugIn plugIn : plugIns) {
+            final DecodeQualification qualification = plugIn.getDecodeQualification(file);
+            if (qualification != DecodeQualification.UNABLE) {
+                qualifications.put(plugIn, qualification);
+                namedQualifications.put(plugIn.getClass().getName(), qualification);
+            }
+        }
+        if (cacheable) {
+            synchronized (this) {
+                if (!namedQualifications.isEmpty()) {
+                    entries.put(path, new Entry(size, lastModified, namedQualifications));
+                    modified = true;
+                } else if (entries.remove(path) != null) {
+                    modified = true;
+                }
+            }
+        }
+        return qualifications;
+    }
+
+    synchronized void load() {
+        entries.clear();
+        if (!cacheFile.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(cacheFile))) {
+            if (!(HEADER_PREFIX + plugInsId).equals(reader.readLine())) {
+                // written for other plug-ins
+                return;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] parts = line.split("\t", 4);
+                if (parts.length == 4) {
+                    entries.put(parts[3], new Entry(Long.parseLong(parts[1]), Long.parseLong(parts[0]),
+                                                    parseQualifications(parts[2])));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            entries.clear();
+            SystemUtils.LOG.log(Level.WARNING, "Unable to read reader qualification cache " + cacheFile, e);
+        }
+    }
+
+    synchronized void save() {
+        if (!modified) {
+            return;
+        }
+        if (!cacheFile.getParentFile().exists() && !cacheFile.getParentFile().mkdirs()) {
+            SystemUtils.LOG.warning("Unable to create " + cacheFile.getParentFile());
+            return;
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(cacheFile))) {
+            writer.write(HEADER_PREFIX + plugInsId);
+            writer.newLine();
+            for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+                final Entry entry = mapEntry.getValue();
+                writer.write(entry.lastModified + "\t" + entry.size + "\t" + formatQualifications(entry.qualifications)
+                             + "\t" + mapEntry.getKey());
+                writer.newLine();
+            }
+            modified = false;
+        } catch (IOException e) {
+            SystemUtils.LOG.log(Level.WARNING, "Unable to write reader qualification cache " + cacheFile, e);
+        }
+    }
+
+    private static String getPlugInsId(List<ProductReaderPlugIn> plugIns) {
+        final List<String> names = new ArrayList<>(plugIns.size());
+        for (ProductReaderPlugIn plugIn : plugIns) {
+            names.add(plugIn.getClass().getName() + "@" + getVersion(plugIn.getClass()));
+        }
+        Collections.sort(names);
+        return Integer.toHexString(names.hashCode());
+    }
+
+    /**
+     * @return the implementation version of the module of a plug-in class and the modification time of its module
+     * file, which changes when a module is updated without increasing its version
+     */
+    private static String getVersion(Class<?> plugInClass) {
+        final Package plugInPackage = plugInClass.getPackage();
+        final String version = plugInPackage != null ? plugInPackage.getImplementationVersion() : null;
+        long lastModified = 0L;
+        final CodeSource codeSource = plugInClass.getProtectionDomain().getCodeSource();
+        if (codeSource != null && codeSource.getLocation() != null) {
+            try {
+                lastModified = new File(codeSource.getLocation().toURI()).lastModified();
+            } catch (URISyntaxException | IllegalArgumentException ignored) {
+                // not a file
+            }
+        }
+        return version + "/" + lastModified;
+    }
+
+    private static String formatQualifications(Map<String, DecodeQualification> qualifications) {
+        final StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, DecodeQualification> entry : qualifications.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(entry.getKey()).append('=').append(entry.getValue().name());
+        }
+        return sb.toString();
+    }
+
+    private static Map<String, DecodeQualification> parseQualifications(String text) {
+        final Map<String, DecodeQualification> qualifications = new HashMap<>();
+        for (String item : text.split(",")) {
+            final int index = item.indexOf('=');
+            qualifications.put(item.substring(0, index), DecodeQualification.valueOf(item.substring(index + 1)));
+        }
+        return qualifications;
+    }
+
+    private static class Entry {
+
+        final long size;
+        final long lastModified;
+        final Map<String, DecodeQualification> qualifications;
+
+        Entry(long size, long lastModified, Map<String, DecodeQualification> qualifications) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.qualifications = qualifications;
+        }
+    }
+}
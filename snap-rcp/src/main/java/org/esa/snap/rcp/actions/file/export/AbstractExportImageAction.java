@@ -19,7 +19,9 @@ package org.esa.snap.rcp.actions.file.export;
 import com.bc.ceres.core.ProgressMonitor;
 import com.bc.ceres.swing.progress.ProgressMonitorSwingWorker;
 import com.sun.media.jai.codec.ImageCodec;
+import com.sun.media.jai.codec.ImageEncodeParam;
 import com.sun.media.jai.codec.ImageEncoder;
+import com.sun.media.jai.codec.TIFFEncodeParam;
 import org.esa.snap.framework.ui.product.ProductSceneView;
 import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.rcp.SnapDialogs;
@@ -36,6 +38,7 @@ import org.openide.util.ContextAwareAction;
 import org.openide.util.HelpCtx;
 import org.openide.util.LookupListener;
 
+import javax.media.jai.PlanarImage;
 import javax.media.jai.operator.BandSelectDescriptor;
 import javax.swing.AbstractAction;
 import javax.swing.JFileChooser;
@@ -177,6 +180,24 @@ public abstract class AbstractExportImageAction extends AbstractAction implement
         return new SnapFileFilter(formatName, formatExt, formatDescr);
     }
 
+    /*
+     * Lets TIFF encoders write the image tile by tile, so that tiled images are never loaded as a whole.
+     */
+    private static ImageEncodeParam createEncodeParam(String imageFormat, RenderedImage image) {
+        if (TIFF_FORMAT_DESCRIPTION[0].equals(imageFormat)) {
+            final TIFFEncodeParam param = new TIFFEncodeParam();
+            param.setWriteTiled(true);
+            param.setTileSize(image.getTileWidth(), image.getTileHeight());
+            return param;
+        }
+        return null;
+    }
+
+    private static long getFreeMemory() {
+        final long usedMemory = Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+        return Runtime.getRuntime().maxMemory() - usedMemory;
+    }
+
     private class SaveImageSwingWorker extends ProgressMonitorSwingWorker {
 
         private final String imageFormat;
@@ -214,13 +235,24 @@ public abstract class AbstractExportImageAction extends AbstractAction implement
                 }
                 if (!geoTIFFWritten) {
                     if ("JPEG".equalsIgnoreCase(imageFormat)) {
+                        // the JPEG encoder reads the image as a whole, so the export is not bounded in memory by
+                        // the tiling of the image; the memory of the whole image is checked up front instead
+                        if (getFreeMemory() < 3L * image.getWidth() * image.getHeight()) {
+                            SnapDialogs.showOutOfMemoryError("The image is too large to be exported as JPEG.\n" +
+                                                             "Please choose a smaller size or a tiled format like TIFF.");
+                            return null;
+                        }
                         image = BandSelectDescriptor.create(image, new int[]{0, 1, 2}, null);
                     }
                     try (OutputStream stream = new FileOutputStream(file)) {
-                        ImageEncoder encoder = ImageCodec.createImageEncoder(imageFormat, stream, null);
+                        ImageEncoder encoder = ImageCodec.createImageEncoder(imageFormat, stream,
+                                                                             createEncodeParam(imageFormat, image));
                         encoder.encode(image);
                     }
                 }
+                if (image instanceof PlanarImage) {
+                    ((PlanarImage) image).dispose();
+                }
             } catch (OutOfMemoryError e) {
                 SnapDialogs.showOutOfMemoryError("The image could not be exported.");
             } catch (Throwable e) {
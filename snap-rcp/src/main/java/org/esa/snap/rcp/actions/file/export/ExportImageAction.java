@@ -22,7 +22,6 @@ import com.bc.ceres.binding.accessors.DefaultPropertyAccessor;
 import com.bc.ceres.binding.converters.IntegerConverter;
 import com.bc.ceres.glayer.support.ImageLayer;
 import com.bc.ceres.grender.Viewport;
-import com.bc.ceres.grender.support.BufferedImageRendering;
 import com.bc.ceres.grender.support.DefaultViewport;
 import com.bc.ceres.swing.binding.BindingContext;
 import com.bc.ceres.swing.binding.PropertyPane;
@@ -50,15 +49,14 @@ import javax.swing.ButtonGroup;
 import javax.swing.JComponent;
 import javax.swing.JPanel;
 import javax.swing.JRadioButton;
+import java.awt.Color;
 import java.awt.Dimension;
-import java.awt.Graphics2D;
 import java.awt.GridLayout;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
-import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 
 /**
@@ -179,25 +177,8 @@ public class ExportImageAction extends AbstractExportImageAction {
 
     static RenderedImage createImage(ProductSceneView view, boolean fullScene, Dimension dimension,
                                      boolean alphaChannel, boolean geoReferenced) {
-        final int imageType = alphaChannel ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR;
-        final BufferedImage bufferedImage = new BufferedImage(dimension.width, dimension.height, imageType);
-
-        final BufferedImageRendering imageRendering = createRendering(view, fullScene,
-                                                                      geoReferenced, bufferedImage);
-        if (!alphaChannel) {
-            final Graphics2D graphics = imageRendering.getGraphics();
-            graphics.setColor(view.getLayerCanvas().getBackground());
-            graphics.fillRect(0, 0, dimension.width, dimension.height);
-        }
-        view.getRootLayer().render(imageRendering);
-
-        return bufferedImage;
-    }
-
-    private static BufferedImageRendering createRendering(ProductSceneView view, boolean fullScene,
-                                                          boolean geoReferenced, BufferedImage bufferedImage) {
         final Viewport vp1 = view.getLayerCanvas().getViewport();
-        final Viewport vp2 = new DefaultViewport(new Rectangle(bufferedImage.getWidth(), bufferedImage.getHeight()),
+        final Viewport vp2 = new DefaultViewport(new Rectangle(dimension.width, dimension.height),
                                                  vp1.isModelYAxisDown());
         if (fullScene) {
             vp2.zoom(view.getBaseImageLayer().getModelBounds());
@@ -205,20 +186,11 @@ public class ExportImageAction extends AbstractExportImageAction {
             setTransform(vp1, vp2);
         }
 
-        final BufferedImageRendering imageRendering = new BufferedImageRendering(bufferedImage, vp2);
-        if (geoReferenced) {
-            // because image to model transform is stored with the exported image we have to invert
-            // image to view transformation
-            final AffineTransform m2iTransform = view.getBaseImageLayer().getModelToImageTransform(0);
-            final AffineTransform v2mTransform = vp2.getViewToModelTransform();
-            v2mTransform.preConcatenate(m2iTransform);
-            final AffineTransform v2iTransform = new AffineTransform(v2mTransform);
-
-            final Graphics2D graphics2D = imageRendering.getGraphics();
-            v2iTransform.concatenate(graphics2D.getTransform());
-            graphics2D.setTransform(v2iTransform);
-        }
-        return imageRendering;
+        final Color background = alphaChannel ? null : view.getLayerCanvas().getBackground();
+        // because image to model transform is stored with the exported image the layers are rendered
+        // in the pixel grid of the image
+        final AffineTransform m2iTransform = geoReferenced ? view.getBaseImageLayer().getModelToImageTransform(0) : null;
+        return new TiledViewImage(view.getRootLayer(), vp2, alphaChannel, background, m2iTransform);
     }
 
     private static void setTransform(Viewport vp1, Viewport vp2) {
@@ -344,7 +316,7 @@ public class ExportImageAction extends AbstractExportImageAction {
         }
 
         private long getExpectedMemory(int width, int height) {
-            return width * height * 6L;
+            return TiledViewImage.getExpectedMemory(width, height);
         }
 
         private int getWidth() {
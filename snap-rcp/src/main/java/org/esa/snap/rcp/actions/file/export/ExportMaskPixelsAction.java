@@ -20,9 +20,7 @@ import com.bc.ceres.core.ProgressMonitor;
 import com.bc.ceres.swing.progress.ProgressMonitorSwingWorker;
 import org.esa.snap.framework.datamodel.Band;
 import org.esa.snap.framework.datamodel.GeoCoding;
-import org.esa.snap.framework.datamodel.GeoPos;
 import org.esa.snap.framework.datamodel.Mask;
-import org.esa.snap.framework.datamodel.PixelPos;
 import org.esa.snap.framework.datamodel.Product;
 import org.esa.snap.framework.datamodel.TiePointGrid;
 import org.esa.snap.framework.ui.AbstractDialog;
@@ -322,18 +320,9 @@ public class ExportMaskPixelsAction extends AbstractAction implements ContextAwa
         final Band[] bands = product.getBands();
         final TiePointGrid[] tiePointGrids = product.getTiePointGrids();
         final GeoCoding geoCoding = product.getGeoCoding();
+        final MaskPixelExporter exporter = new MaskPixelExporter(product, maskImage, mustExportTiePoints);
 
-        final int minTileX = maskImage.getMinTileX();
-        final int minTileY = maskImage.getMinTileY();
-
-        final int numXTiles = maskImage.getNumXTiles();
-        final int numYTiles = maskImage.getNumYTiles();
-
-        final int w = product.getSceneRasterWidth();
-        final int h = product.getSceneRasterHeight();
-        final Rectangle imageRect = new Rectangle(0, 0, w, h);
-
-        pm.beginTask("Writing pixel data...", numXTiles * numYTiles + 2);
+        pm.beginTask("Writing pixel data...", exporter.getTileCount() + 2);
         try {
             if (mustCreateHeader) {
                 createHeader(out, product, maskName, mustExportWavelengthsAndSF);
@@ -342,28 +331,8 @@ public class ExportMaskPixelsAction extends AbstractAction implements ContextAwa
             writeColumnNames(out, geoCoding, bands, mustExportTiePoints, tiePointGrids);
             pm.worked(1);
 
-            for (int tileX = minTileX; tileX < minTileX + numXTiles; ++tileX) {
-                for (int tileY = minTileY; tileY < minTileY + numYTiles; ++tileY) {
-                    if (pm.isCanceled()) {
-                        return false;
-                    }
-                    final Rectangle tileRectangle = new Rectangle(maskImage.getTileGridXOffset() + tileX * maskImage.getTileWidth(),
-                                                                  maskImage.getTileGridYOffset() + tileY * maskImage.getTileHeight(),
-                                                                  maskImage.getTileWidth(), maskImage.getTileHeight());
-
-                    final Rectangle r = imageRect.intersection(tileRectangle);
-                    if (!r.isEmpty()) {
-                        Raster maskTile = maskImage.getTile(tileX, tileY);
-                        for (int y = r.y; y < r.y + r.height; y++) {
-                            for (int x = r.x; x < r.x + r.width; x++) {
-                                if (maskTile.getSample(x, y, 0) != 0) {
-                                    writeDataLine(out, geoCoding, bands, mustExportTiePoints, tiePointGrids, x, y);
-                                }
-                            }
-                        }
-                    }
-                    pm.worked(1);
-                }
+            if (!exporter.writeDataLines(out, pm)) {
+                return false;
             }
         } finally {
             pm.done();
@@ -434,62 +403,6 @@ public class ExportMaskPixelsAction extends AbstractAction implements ContextAwa
         out.print("\n");
     }
 
-    /*
-     * Writes a data line of the dataset to be exported for the given pixel position.
-     *
-     * @param out                     the data output writer
-     * @param geoCoding               the product's geo-coding
-     * @param bands                   the array of bands that provide pixel values
-     * @param mustExportTiePointGrids if tie-point grids shall be exported
-     * @param tiePointGrids           the array of tie-point grids that provide pixel values
-     * @param x                       the current pixel's X coordinate
-     * @param y                       the current pixel's Y coordinate
-     */
-    private static void writeDataLine(final PrintWriter out,
-                                      final GeoCoding geoCoding,
-                                      final Band[] bands,
-                                      boolean mustExportTiePoints,
-                                      TiePointGrid[] tiePointGrids, int x,
-                                      int y) throws IOException {
-        final PixelPos pixelPos = new PixelPos(x + 0.5f, y + 0.5f);
-
-        out.print(String.valueOf(pixelPos.x));
-        out.print("\t");
-        out.print(String.valueOf(pixelPos.y));
-        if (geoCoding != null) {
-            final GeoPos geoPos = geoCoding.getGeoPos(pixelPos, null);
-            out.print("\t");
-            out.print(String.valueOf(geoPos.lon));
-            out.print("\t");
-            out.print(String.valueOf(geoPos.lat));
-        }
-        final int[] intPixel = new int[1];
-        final float[] floatPixel = new float[1];
-        for (final Band band : bands) {
-            out.print("\t");
-            if (band.isPixelValid(x, y)) {
-                if (band.isFloatingPointType()) {
-                    band.readPixels(x, y, 1, 1, floatPixel, ProgressMonitor.NULL);
-                    out.print(floatPixel[0]);
-                } else {
-                    band.readPixels(x, y, 1, 1, intPixel, ProgressMonitor.NULL);
-                    out.print(intPixel[0]);
-                }
-            } else {
-                out.print("NaN");
-            }
-        }
-        if (mustExportTiePoints) {
-            for (final TiePointGrid grid : tiePointGrids) {
-                grid.readPixels(x, y, 1, 1, floatPixel, ProgressMonitor.NULL);
-                out.print("\t");
-                out.print(floatPixel[0]);
-            }
-        }
-        out.print("\n");
-    }
-
-
     /*
      * Computes the total number of pixels within the specified Mask.
      *
@@ -0,0 +1,313 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.actions.file.export;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.CrsGeoCoding;
+import org.esa.snap.framework.datamodel.GeoCoding;
+import org.esa.snap.framework.datamodel.GeoPos;
+import org.esa.snap.framework.datamodel.PixelPos;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.TiePointGrid;
+import org.esa.snap.util.SystemUtils;
+import org.geotools.referencing.CRS;
+import org.opengis.referencing.FactoryException;
+import org.opengis.referencing.operation.MathTransform;
+import org.opengis.referencing.operation.TransformException;
+
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+/**
+ * Writes the data lines of the pixels within a mask, tile by tile.
+ * <p>
+ * Each tile is split into blocks of rows which are formatted in parallel on a dedicated pool of worker threads: the
+ * bands and tie-point grids are read once per block into primitive buffers, and the geo-positions of a block are
+ * computed in one go. At most {@code 2 * parallelism} formatted blocks are held in memory, and a block is limited to
+ * about {@link #MAX_BLOCK_CHARS} characters, so the memory needed does not grow with the tile size or the number of
+ * bands. The blocks are written in the order of the tiles, so the output is the same as if the pixels were written
+ * one by one.
+ */
+class MaskPixelExporter {
+
+    private static final int MAX_PARALLELISM = 4;
+    private static final int MAX_BLOCK_CHARS = 1024 * 1024;
+    // enough for the longest String.valueOf() of a double
+    private static final int MAX_COLUMN_CHARS = 25;
+
+    private final Product product;
+    private final RenderedImage maskImage;
+    private final Band[] bands;
+    private final TiePointGrid[] tiePointGrids;
+    private final GeoCoding geoCoding;
+    private final MathTransform imageToGeo;
+    private final int parallelism;
+
+    MaskPixelExporter(Product product, RenderedImage maskImage, boolean mustExportTiePoints) {
+        this(product, maskImage, mustExportTiePoints,
+             Math.min(MAX_PARALLELISM, Runtime.getRuntime().availableProcessors()));
+    }
+
+    MaskPixelExporter(Product product, RenderedImage maskImage, boolean mustExportTiePoints, int parallelism) {
+        this.product = product;
+        this.maskImage = maskImage;
+        this.bands = product.getBands();
+        this.tiePointGrids = mustExportTiePoints ? product.getTiePointGrids() : new TiePointGrid[0];
+        this.geoCoding = product.getGeoCoding();
+        this.imageToGeo = getImageToGeoTransform(geoCoding);
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    int getTileCount() {
+        return maskImage.getNumXTiles() * maskImage.getNumYTiles();
+    }
+
+    /**
+     * Writes the data lines of all mask pixels. The progress monitor is advanced by one for each tile.
+     *
+     * @return {@code true} for success, {@code false} if the export has been cancelled
+     */
+    boolean writeDataLines(Writer out, ProgressMonitor pm) throws IOException {
+        final List<Block> blocks = createBlocks();
+        final int maxQueuedBlocks = 2 * parallelism;
+        final ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            final Thread thread = new Thread(r, "Mask Pixel Export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final ArrayDeque<Future<String>> queue = new ArrayDeque<>();
+        int submittedCount = 0;
+        try {
+            for (int i = 0; i < blocks.size(); i++) {
+                while (submittedCount < blocks.size() && submittedCount - i < maxQueuedBlocks) {
+                    final Block block = blocks.get(submittedCount);
+                    queue.add(executor.submit(() -> formatBlock(block)));
+                    submittedCount++;
+                }
+                if (pm.isCanceled()) {
+                    return false;
+                }
+                out.write(getFormatted(queue.poll()));
+                if (blocks.get(i).lastOfTile) {
+                    pm.worked(1);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return true;
+    }
+
+    private List<Block> createBlocks() {
+        final int minTileX = maskImage.getMinTileX();
+        final int minTileY = maskImage.getMinTileY();
+        final int numXTiles = maskImage.getNumXTiles();
+        final int numYTiles = maskImage.getNumYTiles();
+        final int columnCount = 2 + (geoCoding != null ? 2 : 0) + bands.length + tiePointGrids.length;
+        final Rectangle imageRect = new Rectangle(0, 0, product.getSceneRasterWidth(), product.getSceneRasterHeight());
+
+        final List<Block> blocks = new ArrayList<>();
+        // same tile order as before: columns of tiles from left to right
+        for (int tileX = minTileX; tileX < minTileX + numXTiles; tileX++) {
+            for (int tileY = minTileY; tileY < minTileY + numYTiles; tileY++) {
+                final Rectangle tileRectangle = new Rectangle(maskImage.getTileGridXOffset() + tileX * maskImage.getTileWidth(),
+                                                              maskImage.getTileGridYOffset() + tileY * maskImage.getTileHeight(),
+                                                              maskImage.getTileWidth(), maskImage.getTileHeight());
+                final Rectangle r = imageRect.intersection(tileRectangle);
+                if (r.isEmpty()) {
+                    blocks.add(new Block(tileX, tileY, r, true));
+                    continue;
+                }
+                final int rowCount = Math.max(1, MAX_BLOCK_CHARS / (r.width * columnCount * MAX_COLUMN_CHARS));
+                for (int y = r.y; y < r.y + r.height; y += rowCount) {
+                    final int height = Math.min(rowCount, r.y + r.height - y);
+                    blocks.add(new Block(tileX, tileY, new Rectangle(r.x, y, r.width, height), y + height == r.y + r.height));
+                }
+            }
+        }
+        return blocks;
+    }
+
+    private String formatBlock(Block block) throws IOException {
+        final Rectangle r = block.rectangle;
+        if (r.isEmpty()) {
+            return "";
+        }
+
+        final Raster maskTile = maskImage.getTile(block.tileX, block.tileY);
+        if (!containsMaskPixel(maskTile, r)) {
+            return "";
+        }
+
+        final int n = r.width * r.height;
+        final Object[] bandPixels = new Object[bands.length];
+        final Raster[] validMaskTiles = new Raster[bands.length];
+        for (int i = 0; i < bands.length; i++) {
+            final Band band = bands[i];
+            if (band.isFloatingPointType()) {
+                bandPixels[i] = band.readPixels(r.x, r.y, r.width, r.height, new float[n], ProgressMonitor.NULL);
+            } else {
+                bandPixels[i] = band.readPixels(r.x, r.y, r.width, r.height, new int[n], ProgressMonitor.NULL);
+            }
+            if (band.isValidMaskUsed() && band.getValidMaskImage() != null) {
+                validMaskTiles[i] = band.getValidMaskImage().getData(r);
+            }
+        }
+        final float[][] gridPixels = new float[tiePointGrids.length][];
+        for (int i = 0; i < tiePointGrids.length; i++) {
+            gridPixels[i] = tiePointGrids[i].readPixels(r.x, r.y, r.width, r.height, new float[n], ProgressMonitor.NULL);
+        }
+        final double[] lonLats = geoCoding != null ? computeLonLats(r) : null;
+
+        final StringBuilder sb = new StringBuilder();
+        for (int y = r.y; y < r.y + r.height; y++) {
+            for (int x = r.x; x < r.x + r.width; x++) {
+                if (maskTile.getSample(x, y, 0) == 0) {
+                    continue;
+                }
+                final int index = (y - r.y) * r.width + (x - r.x);
+                sb.append(x + 0.5f);
+                sb.append('\t');
+                sb.append(y + 0.5f);
+                if (lonLats != null) {
+                    sb.append('\t');
+                    sb.append(lonLats[2 * index]);
+                    sb.append('\t');
+                    sb.append(lonLats[2 * index + 1]);
+                }
+                for (int i = 0; i < bands.length; i++) {
+                    sb.append('\t');
+                    if (validMaskTiles[i] == null || validMaskTiles[i].getSample(x, y, 0) != 0) {
+                        if (bandPixels[i] instanceof float[]) {
+                            sb.append(((float[]) bandPixels[i])[index]);
+                        } else {
+                            sb.append(((int[]) bandPixels[i])[index]);
+                        }
+                    } else {
+                        sb.append("NaN");
+                    }
+                }
+                for (float[] pixels : gridPixels) {
+                    sb.append('\t');
+                    sb.append(pixels[index]);
+                }
+                sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    /*
+     * Computes the geo-positions of the pixel centres of the given rectangle as (lon, lat) pairs. For a CRS geo-coding
+     * all positions are transformed in a single call; other geo-codings offer no bulk method and are asked pixel by
+     * pixel.
+     */
+    private double[] computeLonLats(Rectangle r) {
+        final int n = r.width * r.height;
+        final double[] lonLats = new double[2 * n];
+        if (imageToGeo != null) {
+            final double[] pixelCoords = new double[2 * n];
+            for (int y = r.y, i = 0; y < r.y + r.height; y++) {
+                for (int x = r.x; x < r.x + r.width; x++) {
+                    pixelCoords[i++] = x + 0.5f;
+                    pixelCoords[i++] = y + 0.5f;
+                }
+            }
+            try {
+                imageToGeo.transform(pixelCoords, 0, lonLats, 0, n);
+                return lonLats;
+            } catch (TransformException e) {
+                SystemUtils.LOG.log(Level.FINE, "Bulk geo-coding failed, falling back to single pixels", e);
+            }
+        }
+        final GeoPos geoPos = new GeoPos();
+        for (int y = r.y, i = 0; y < r.y + r.height; y++) {
+            for (int x = r.x; x < r.x + r.width; x++) {
+                geoCoding.getGeoPos(new PixelPos(x + 0.5f, y + 0.5f), geoPos);
+                lonLats[i++] = geoPos.lon;
+                lonLats[i++] = geoPos.lat;
+            }
+        }
+        return lonLats;
+    }
+
+    private static MathTransform getImageToGeoTransform(GeoCoding geoCoding) {
+        if (!(geoCoding instanceof CrsGeoCoding)) {
+            return null;
+        }
+        try {
+            return CRS.findMathTransform(geoCoding.getImageCRS(), geoCoding.getGeoCRS(), true);
+        } catch (FactoryException e) {
+            SystemUtils.LOG.log(Level.FINE, "No image-to-geo transform, geo-positions are computed pixel by pixel", e);
+            return null;
+        }
+    }
+
+    private static boolean containsMaskPixel(Raster maskTile, Rectangle r) {
+        for (int y = r.y; y < r.y + r.height; y++) {
+            for (int x = r.x; x < r.x + r.width; x++) {
+                if (maskTile.getSample(x, y, 0) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String getFormatted(Future<String> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new IOException("Export has been interrupted.", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private static class Block {
+
+        final int tileX;
+        final int tileY;
+        final Rectangle rectangle;
+        final boolean lastOfTile;
+
+        Block(int tileX, int tileY, Rectangle rectangle, boolean lastOfTile) {
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.rectangle = rectangle;
+            this.lastOfTile = lastOfTile;
+        }
+    }
+}
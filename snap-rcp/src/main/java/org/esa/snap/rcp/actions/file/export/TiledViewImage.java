@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.actions.file.export;
+
+import com.bc.ceres.glayer.Layer;
+import com.bc.ceres.grender.Viewport;
+import com.bc.ceres.grender.support.BufferedImageRendering;
+import com.bc.ceres.grender.support.DefaultViewport;
+
+import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
+import javax.media.jai.SourcelessOpImage;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * A tiled image of the layers of a view, as seen through a viewport of the size of the image.
+ * <p>
+ * The layers are rendered tile by tile when the tiles are requested, and the image keeps the last two tile rows in its
+ * own tile cache, so encoders that read the image in strips or tiles never need more memory than a few tile rows,
+ * whatever the size of the image. Encoders which read the image as a whole, like the JPEG encoder, still need the
+ * memory of the whole image.
+ * <p>
+ * The layers and their renderers are not thread-safe, so the tiles are rendered one after the other; only the source
+ * images of the layers compute their tiles in parallel.
+ */
+class TiledViewImage extends SourcelessOpImage {
+
+    static final int TILE_SIZE = 512;
+
+    private static final int CACHED_TILE_ROWS = 2;
+
+    private final Layer layer;
+    private final Viewport viewport;
+    private final Color background;
+    private final AffineTransform modelToImageTransform;
+
+    /**
+     * @param layer                 the layer to be rendered
+     * @param viewport              the viewport, its view bounds define the size of the image
+     * @param alphaChannel          whether the image has an alpha channel
+     * @param background            the background colour, only used if the image has no alpha channel
+     * @param modelToImageTransform if not {@code null}, the layers are rendered in the pixel grid of the image
+     *                              with this model-to-image transform (geo-referenced export)
+     */
+    TiledViewImage(Layer layer, Viewport viewport, boolean alphaChannel, Color background,
+                   AffineTransform modelToImageTransform) {
+        this(layer, viewport, createLayout(viewport.getViewBounds(), alphaChannel), background, modelToImageTransform);
+    }
+
+    private TiledViewImage(Layer layer, Viewport viewport, ImageLayout layout, Color background,
+                           AffineTransform modelToImageTransform) {
+        super(layout, createConfiguration(layout), layout.getSampleModel(null),
+              layout.getMinX(null), layout.getMinY(null), layout.getWidth(null), layout.getHeight(null));
+        this.layer = layer;
+        this.viewport = viewport;
+        this.background = background;
+        this.modelToImageTransform = modelToImageTransform;
+    }
+
+    /**
+     * @return the memory needed to export an image of the given width, in bytes, if the image is read in strips or
+     * tiles
+     */
+    static long getExpectedMemory(int width, int height) {
+        return CACHED_TILE_ROWS * 4L * width * Math.min(height, TILE_SIZE);
+    }
+
+    @Override
+    public Raster getData(Rectangle region) {
+        final Rectangle bounds = region != null ? region : getBounds();
+        if (bounds.isEmpty() || !getBounds().contains(bounds)) {
+            return super.getData(region);
+        }
+        final SampleModel sampleModel = getSampleModel().createCompatibleSampleModel(bounds.width, bounds.height);
+        final WritableRaster raster = createWritableRaster(sampleModel, bounds.getLocation());
+        final int minTileX = XToTileX(bounds.x);
+        final int maxTileX = XToTileX(bounds.x + bounds.width - 1);
+        for (int tileY = YToTileY(bounds.y); tileY <= YToTileY(bounds.y + bounds.height - 1); tileY++) {
+            for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+                raster.setRect(getTile(tileX, tileY));
+            }
+        }
+        return raster;
+    }
+
+    @Override
+    protected Raster computeTile(int tileX, int tileY) {
+        final Point origin = new Point(tileXToX(tileX), tileYToY(tileY));
+        final WritableRaster tile = createWritableRaster(getSampleModel(), origin);
+        final BufferedImage image = new BufferedImage(getColorModel(), tile.createWritableTranslatedChild(0, 0),
+                                                      false, null);
+
+        final Viewport tileViewport = new DefaultViewport(new Rectangle(image.getWidth(), image.getHeight()),
+                                                          viewport.isModelYAxisDown());
+        tileViewport.setTransform(viewport);
+        tileViewport.moveViewDelta(-origin.x, -origin.y);
+
+        final BufferedImageRendering rendering = new BufferedImageRendering(image, tileViewport);
+        final Graphics2D graphics = rendering.getGraphics();
+        try {
+            if (background != null && !getColorModel().hasAlpha()) {
+                graphics.setColor(background);
+                graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            }
+            if (modelToImageTransform != null) {
+                // the exported image is stored with the image-to-model transform, so the view-to-image
+                // transformation is inverted, relative to the origin of this tile
+                final AffineTransform v2iTransform = tileViewport.getViewToModelTransform();
+                v2iTransform.preConcatenate(modelToImageTransform);
+                v2iTransform.preConcatenate(AffineTransform.getTranslateInstance(-origin.x, -origin.y));
+                v2iTransform.concatenate(graphics.getTransform());
+                graphics.setTransform(v2iTransform);
+            }
+            // the tile scheduler of JAI may compute tiles concurrently
+            synchronized (layer) {
+                layer.render(rendering);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        return tile;
+    }
+
+    private static ImageLayout createLayout(Rectangle viewBounds, boolean alphaChannel) {
+        final int imageType = alphaChannel ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR;
+        final BufferedImage prototype = new BufferedImage(1, 1, imageType);
+        final int tileWidth = Math.min(TILE_SIZE, viewBounds.width);
+        final int tileHeight = Math.min(TILE_SIZE, viewBounds.height);
+        final SampleModel sampleModel = prototype.getSampleModel().createCompatibleSampleModel(tileWidth, tileHeight);
+        final ColorModel colorModel = prototype.getColorModel();
+        return new ImageLayout(0, 0, viewBounds.width, viewBounds.height, 0, 0, tileWidth, tileHeight,
+                               sampleModel, colorModel);
+    }
+
+    private static RenderingHints createConfiguration(ImageLayout layout) {
+        final int tileWidth = layout.getTileWidth(null);
+        final int tileHeight = layout.getTileHeight(null);
+        final int numXTiles = (layout.getWidth(null) + tileWidth - 1) / tileWidth;
+        final int numBands = layout.getSampleModel(null).getNumBands();
+        final long memoryCapacity = (long) CACHED_TILE_ROWS * numXTiles * tileWidth * tileHeight * numBands;
+        return new RenderingHints(JAI.KEY_TILE_CACHE, JAI.createTileCache(memoryCapacity));
+    }
+}
@@ -32,11 +32,9 @@ import org.esa.snap.framework.datamodel.Stx;
 import org.esa.snap.framework.ui.GridBagUtils;
 import org.esa.snap.framework.ui.product.BandChooser;
 import org.esa.snap.framework.ui.product.ProductSceneView;
-import org.esa.snap.netbeans.docwin.WindowUtilities;
 import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.rcp.SnapDialogs;
 import org.esa.snap.rcp.util.SelectionSupport;
-import org.esa.snap.rcp.windows.ProductSceneViewTopComponent;
 import org.esa.snap.runtime.Config;
 import org.esa.snap.util.ProductUtils;
 import org.esa.snap.util.ResourceInstaller;
@@ -67,8 +65,8 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -108,6 +106,7 @@ class ColorManipulationForm implements SelectionSupport.Handler<ProductSceneView
     private SceneViewImageInfoChangeListener sceneViewChangeListener;
     private String titlePrefix; // todo - inline!
     private ColorManipulationChildForm emptyForm;
+    private final SceneViewUpdater sceneViewUpdater;
 
     public ColorManipulationForm(TopComponent colorManipulationToolView, FormModel formModel) {
         Assert.notNull(colorManipulationToolView);
@@ -118,6 +117,7 @@ class ColorManipulationForm implements SelectionSupport.Handler<ProductSceneView
         sceneViewChangeListener = new SceneViewImageInfoChangeListener();
         titlePrefix = this.formModel.getTitlePrefix();
         emptyForm = new EmptyImageInfoForm(this);
+        sceneViewUpdater = new SceneViewUpdater();
     }
 
     public FormModel getFormModel() {
@@ -445,26 +445,38 @@ class ColorManipulationForm implements SelectionSupport.Handler<ProductSceneView
                                                         availableBands,
                                                         bandsToBeModified, false);
 
-        final Set<RasterDataNode> modifiedRasters = new HashSet<>(availableBands.length);
-        if (bandChooser.show() == BandChooser.ID_OK) {
-            bandsToBeModified = bandChooser.getSelectedBands();
-            for (final Band band : bandsToBeModified) {
-                applyColorPaletteDef(getFormModel().getModifiedImageInfo().getColorPaletteDef(), band, band.getImageInfo());
-                modifiedRasters.add(band);
-            }
+        if (bandChooser.show() != BandChooser.ID_OK) {
+            return;
         }
-
-
-        // This code replaces visatApp.updateImages(rasters) from BEAM code.
-        WindowUtilities.getOpened(ProductSceneViewTopComponent.class).forEach(tc -> {
-            final ProductSceneView view = tc.getView();
-            for (RasterDataNode raster : view.getRasters()) {
-                if (modifiedRasters.contains(raster)) {
-                    view.updateImage();
-                    return;
-                }
+        bandsToBeModified = bandChooser.getSelectedBands();
+        // copied, since the palette of the form may be modified while the statistics are computed
+        final ColorPaletteDef colorPaletteDef = getFormModel().getModifiedImageInfo().getColorPaletteDef().createDeepCopy();
+        final List<Band> stxBands = new ArrayList<>(bandsToBeModified.length);
+        for (final Band band : bandsToBeModified) {
+            if (isIndexCoded(band)) {
+                band.getImageInfo().setColors(colorPaletteDef.getColors());
+                sceneViewUpdater.rastersModified(Collections.singleton(band));
+            } else {
+                stxBands.add(band);
             }
-        });
+        }
+        final Boolean autoDistribute = stxBands.isEmpty() ? null : getAutoDistribute(colorPaletteDef);
+        if (autoDistribute == null) {
+            sceneViewUpdater.flush();
+            return;
+        }
+        // the statistics are computed in the background, the palette is applied to each band as soon as
+        // its statistics are available
+        StxJobs.submit("Applying colour palette", stxBands,
+                       raster -> raster.getStx(false, ProgressMonitor.NULL),
+                       (raster, stx) -> {
+                           raster.getImageInfo().setColorPaletteDef(colorPaletteDef,
+                                                                    stx.getMinimum(),
+                                                                    stx.getMaximum(),
+                                                                    autoDistribute);
+                           sceneViewUpdater.rastersModified(Collections.singleton(raster));
+                       },
+                       sceneViewUpdater::flush);
     }
 
     private void setIODir(final File dir) {
@@ -25,11 +25,15 @@ import org.esa.snap.framework.datamodel.Scaling;
 import org.esa.snap.framework.datamodel.Stx;
 import org.esa.snap.framework.datamodel.StxFactory;
 import org.esa.snap.framework.ui.ImageInfoEditorModel;
+import org.esa.snap.rcp.util.ProgressHandleMonitor;
 
 import javax.swing.AbstractButton;
 import javax.swing.JPanel;
 import java.awt.BorderLayout;
 import java.awt.Component;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 class Continuous1BandGraphicalForm implements ColorManipulationChildForm {
 
@@ -43,9 +47,12 @@ class Continuous1BandGraphicalForm implements ColorManipulationChildForm {
     private final AbstractButton evenDistButton;
     private final MoreOptionsForm moreOptionsForm;
     private final DiscreteCheckBox discreteCheckBox;
+    private final Map<RasterDataNode, Stx> logStxCache;
+    private ProgressHandleMonitor logStxJob;
 
     Continuous1BandGraphicalForm(final ColorManipulationForm parentForm) {
         this.parentForm = parentForm;
+        logStxCache = new WeakHashMap<>();
 
         imageInfoEditor = new ImageInfoEditor2(parentForm);
         imageInfoEditorSupport = new ImageInfoEditorSupport(imageInfoEditor);
@@ -140,6 +147,7 @@ class Continuous1BandGraphicalForm implements ColorManipulationChildForm {
         final ImageInfoEditorModel model = imageInfoEditor.getModel();
         if (model != null) {
             if (event.getPropertyName().equals(RasterDataNode.PROPERTY_NAME_STX)) {
+                logStxCache.remove(raster);
                 updateFormModel(parentForm.getFormModel());
             } else {
                 setLogarithmicDisplay(raster, model.getImageInfo().isLogScaled());
@@ -159,20 +167,40 @@ class Continuous1BandGraphicalForm implements ColorManipulationChildForm {
 
     private void setLogarithmicDisplay(final RasterDataNode raster, final boolean logarithmicDisplay) {
         final ImageInfoEditorModel model = imageInfoEditor.getModel();
-        if (logarithmicDisplay) {
-            final StxFactory stxFactory = new StxFactory();
-            final Stx stx = stxFactory
-                        .withHistogramBinCount(raster.getStx().getHistogramBinCount())
-                        .withLogHistogram(logarithmicDisplay)
-                        .withResolutionLevel(raster.getSourceImage().getModel().getLevelCount() - 1)
-                        .create(raster, ProgressMonitor.NULL);
-            model.setDisplayProperties(raster.getName(), raster.getUnit(), stx, POW10_SCALING);
+        if (logStxJob != null) {
+            logStxJob.cancel();
+            logStxJob = null;
+        }
+        final Stx logStx = logarithmicDisplay ? logStxCache.get(raster) : null;
+        if (logStx != null) {
+            model.setDisplayProperties(raster.getName(), raster.getUnit(), logStx, POW10_SCALING);
         } else {
             model.setDisplayProperties(raster.getName(), raster.getUnit(), raster.getStx(), Scaling.IDENTITY);
+            if (logarithmicDisplay) {
+                // the log-histogram is computed in the background, the linear one is shown in the meantime
+                logStxJob = StxJobs.submit("Computing logarithmic histogram",
+                                           Collections.singletonList(raster),
+                                           Continuous1BandGraphicalForm::createLogStx,
+                                           (r, stx) -> {
+                                               logStxCache.put(r, stx);
+                                               if (imageInfoEditor.getModel() == model && model.getImageInfo().isLogScaled()) {
+                                                   model.setDisplayProperties(r.getName(), r.getUnit(), stx, POW10_SCALING);
+                                               }
+                                           },
+                                           null);
+            }
         }
         model.getImageInfo().setLogScaled(logarithmicDisplay);
     }
 
+    private static Stx createLogStx(RasterDataNode raster) {
+        return new StxFactory()
+                .withHistogramBinCount(raster.getStx().getHistogramBinCount())
+                .withLogHistogram(true)
+                .withResolutionLevel(raster.getSourceImage().getModel().getLevelCount() - 1)
+                .create(raster, ProgressMonitor.NULL);
+    }
+
     private void distributeSlidersEvenly() {
         imageInfoEditor.distributeSlidersEvenly();
     }
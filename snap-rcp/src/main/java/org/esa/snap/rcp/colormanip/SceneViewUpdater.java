@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.colormanip;
+
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.framework.ui.product.ProductSceneView;
+import org.esa.snap.netbeans.docwin.WindowUtilities;
+import org.esa.snap.rcp.windows.ProductSceneViewTopComponent;
+
+import javax.swing.Timer;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Updates the images of the opened scene views displaying modified rasters.
+ * <p>
+ * The modified rasters are collected and the views are updated after a short delay, each view once, however many of
+ * its rasters have been modified in the meantime. Must be used on the event dispatch thread.
+ */
+class SceneViewUpdater {
+
+    private static final int DELAY_MILLIS = 250;
+
+    private final Set<RasterDataNode> modifiedRasters;
+    private final Timer timer;
+
+    SceneViewUpdater() {
+        modifiedRasters = new HashSet<>();
+        timer = new Timer(DELAY_MILLIS, e -> flush());
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Schedules the update of the views displaying the given rasters.
+     */
+    void rastersModified(Collection<? extends RasterDataNode> rasters) {
+        modifiedRasters.addAll(rasters);
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Updates the views displaying the rasters modified since the last update.
+     */
+    void flush() {
+        timer.stop();
+        if (modifiedRasters.isEmpty()) {
+            return;
+        }
+        // This code replaces visatApp.updateImages(rasters) from BEAM code.
+        WindowUtilities.getOpened(ProductSceneViewTopComponent.class).forEach(tc -> {
+            final ProductSceneView view = tc.getView();
+            for (RasterDataNode raster : view.getRasters()) {
+                if (modifiedRasters.contains(raster)) {
+                    view.updateImage();
+                    return;
+                }
+            }
+        });
+        modifiedRasters.clear();
+    }
+}
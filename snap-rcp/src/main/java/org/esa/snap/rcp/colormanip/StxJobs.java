@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.colormanip;
+
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.framework.datamodel.Stx;
+import org.esa.snap.rcp.util.ProgressHandleMonitor;
+import org.esa.snap.util.SystemUtils;
+
+import javax.swing.SwingUtilities;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * Computes the statistics of rasters in a background thread pool shared by all colour manipulation forms.
+ * <p>
+ * The statistics of the rasters of a job are computed in parallel. Each result is passed to the event dispatch
+ * thread as soon as it is available, so the caller may use it while the other statistics are still computed.
+ * The progress of a job is shown by a progress handle, from which the job can be cancelled.
+ */
+class StxJobs {
+
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), r -> {
+                final Thread thread = new Thread(r, "Colour Manipulation Statistics");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            });
+
+    private StxJobs() {
+    }
+
+    /**
+     * Submits a job computing the statistics of the given rasters.
+     *
+     * @param taskName     the name of the job, shown in the progress bar
+     * @param rasters      the rasters
+     * @param stxFunction  computes the statistics of a raster, called in a background thread
+     * @param stxConsumer  called on the event dispatch thread for each raster whose statistics are computed,
+     *                     unless the job has been cancelled
+     * @param doneCallback called on the event dispatch thread when the job is done or cancelled, may be {@code null}
+     * @return the progress monitor of the job, which can be used to cancel it
+     */
+    static ProgressHandleMonitor submit(String taskName,
+                                        List<? extends RasterDataNode> rasters,
+                                        Function<RasterDataNode, Stx> stxFunction,
+                                        BiConsumer<RasterDataNode, Stx> stxConsumer,
+                                        Runnable doneCallback) {
+        final ProgressHandleMonitor pm = ProgressHandleMonitor.create(taskName);
+        pm.beginTask(taskName, rasters.size());
+        if (rasters.isEmpty()) {
+            finish(pm, doneCallback);
+            return pm;
+        }
+        final AtomicInteger pendingCount = new AtomicInteger(rasters.size());
+        for (RasterDataNode raster : rasters) {
+            EXECUTOR.submit(() -> {
+                Stx stx = null;
+                if (!pm.isCanceled()) {
+                    try {
+                        stx = stxFunction.apply(raster);
+                    } catch (RuntimeException e) {
+                        SystemUtils.LOG.log(Level.WARNING, "Failed to compute statistics of " + raster.getName(), e);
+                    }
+                }
+                final Stx result = stx;
+                SwingUtilities.invokeLater(() -> {
+                    if (result != null && !pm.isCanceled()) {
+                        stxConsumer.accept(raster, result);
+                    }
+                    pm.worked(1);
+                    if (pendingCount.decrementAndGet() == 0) {
+                        finish(pm, doneCallback);
+                    }
+                });
+            });
+        }
+        return pm;
+    }
+
+    private static void finish(ProgressHandleMonitor pm, Runnable doneCallback) {
+        final Runnable finishAction = () -> {
+            pm.done();
+            if (doneCallback != null) {
+                doneCallback.run();
+            }
+        };
+        if (SwingUtilities.isEventDispatchThread()) {
+            finishAction.run();
+        } else {
+            SwingUtilities.invokeLater(finishAction);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.imgfilter;
+
+import org.esa.snap.framework.datamodel.ConvolutionFilterBand;
+import org.esa.snap.framework.datamodel.FilterBand;
+import org.esa.snap.framework.datamodel.GeneralFilterBand;
+import org.esa.snap.framework.datamodel.Kernel;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.rcp.imgfilter.model.Filter;
+
+import java.awt.RenderingHints;
+import java.awt.image.RenderedImage;
+
+/**
+ * Creates filter bands whose images are computed by the {@link FastFilterOpImage}, if the filter allows it:
+ * convolutions with separable kernels and rank or statistics filters with a rectangular structuring element.
+ * <p>
+ * The bands are still {@link ConvolutionFilterBand}s and {@link GeneralFilterBand}s with the same kernel, so they are
+ * written and read the same way as before. Only the images differ, in the rounding of the results.
+ */
+class FastFilterBands {
+
+    private FastFilterBands() {
+    }
+
+    /**
+     * @return the filter band, or {@code null} if the filter has no fast implementation
+     */
+    static FilterBand createFilterBand(RasterDataNode sourceRaster, String bandName, Filter filter, Kernel kernel,
+                                       int iterationCount) {
+        final int kernelWidth = filter.getKernelWidth();
+        final int kernelHeight = filter.getKernelHeight();
+        if (filter.getOperation() == Filter.Operation.CONVOLVE) {
+            final double[] elements = filter.getKernelElements().clone();
+            for (int i = 0; i < elements.length; i++) {
+                elements[i] /= filter.getKernelQuotient();
+            }
+            final double[][] separated = FastFilters.separate(kernelWidth, kernelHeight, elements);
+            if (separated == null) {
+                return null;
+            }
+            return new FastConvolutionFilterBand(bandName, sourceRaster, kernel, iterationCount,
+                                                 separated[0], separated[1]);
+        }
+        if (!isRectangle(filter)) {
+            return null;
+        }
+        final FastFilterOpImage.Operation[] operations = getOperations(filter.getOperation());
+        return new FastGeneralFilterBand(bandName, sourceRaster, FilteredBandAction.getOpType(filter.getOperation()),
+                                         kernel, iterationCount, operations);
+    }
+
+    static FastFilterOpImage.Operation[] getOperations(Filter.Operation operation) {
+        switch (operation) {
+            case MIN:
+            case ERODE:
+                return new FastFilterOpImage.Operation[]{FastFilterOpImage.Operation.MIN};
+            case MAX:
+            case DILATE:
+                return new FastFilterOpImage.Operation[]{FastFilterOpImage.Operation.MAX};
+            case OPEN:
+                return new FastFilterOpImage.Operation[]{FastFilterOpImage.Operation.MIN, FastFilterOpImage.Operation.MAX};
+            case CLOSE:
+                return new FastFilterOpImage.Operation[]{FastFilterOpImage.Operation.MAX, FastFilterOpImage.Operation.MIN};
+            case MEAN:
+                return new FastFilterOpImage.Operation[]{FastFilterOpImage.Operation.MEAN};
+            case MEDIAN:
+                return new FastFilterOpImage.Operation[]{FastFilterOpImage.Operation.MEDIAN};
+            case STDDEV:
+                return new FastFilterOpImage.Operation[]{FastFilterOpImage.Operation.STDDEV};
+            default:
+                throw new IllegalArgumentException("illegal operation: " + operation);
+        }
+    }
+
+    private static boolean isRectangle(Filter filter) {
+        for (double element : filter.getKernelElements()) {
+            if (element == 0.0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class FastConvolutionFilterBand extends ConvolutionFilterBand {
+
+        private final double[] rowKernel;
+        private final double[] columnKernel;
+
+        FastConvolutionFilterBand(String name, RasterDataNode source, Kernel kernel, int iterationCount,
+                                  double[] rowKernel, double[] columnKernel) {
+            super(name, source, kernel, iterationCount);
+            this.rowKernel = rowKernel;
+            this.columnKernel = columnKernel;
+        }
+
+        @Override
+        protected RenderedImage createSourceLevelImage(RenderedImage sourceImage, int level, RenderingHints rh) {
+            final Kernel kernel = getKernel();
+            return new FastFilterOpImage(sourceImage, rowKernel, columnKernel,
+                                         kernel.getXOrigin(), kernel.getYOrigin(), rh);
+        }
+    }
+
+    private static class FastGeneralFilterBand extends GeneralFilterBand {
+
+        private final FastFilterOpImage.Operation[] operations;
+
+        FastGeneralFilterBand(String name, RasterDataNode source, OpType opType, Kernel structuringElement,
+                              int iterationCount, FastFilterOpImage.Operation[] operations) {
+            super(name, source, opType, structuringElement, iterationCount);
+            this.operations = operations;
+        }
+
+        @Override
+        protected RenderedImage createSourceLevelImage(RenderedImage sourceImage, int level, RenderingHints rh) {
+            final Kernel structuringElement = getStructuringElement();
+            RenderedImage image = sourceImage;
+            for (FastFilterOpImage.Operation operation : operations) {
+                image = new FastFilterOpImage(image, operation,
+                                              structuringElement.getWidth(), structuringElement.getHeight(),
+                                              structuringElement.getXOrigin(), structuringElement.getYOrigin(), rh);
+            }
+            return image;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.imgfilter;
+
+import javax.media.jai.AreaOpImage;
+import javax.media.jai.BorderExtender;
+import javax.media.jai.ImageLayout;
+import javax.media.jai.JAI;
+import javax.media.jai.PlanarImage;
+import javax.media.jai.RasterFactory;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Applies one of the {@link FastFilters} to a single-banded image, giving a {@code float} image.
+ * <p>
+ * Each tile is computed from the source samples of the tile extended by the kernel border, the border of the image
+ * being filled by the border extender of the rendering hints (copy by default). The tiles are independent from
+ * each other, so they are computed in parallel by the JAI tile scheduler.
+ */
+class FastFilterOpImage extends AreaOpImage {
+
+    enum Operation {
+        CONVOLVE,
+        MEAN,
+        STDDEV,
+        MIN,
+        MAX,
+        MEDIAN
+    }
+
+    private final Operation operation;
+    private final int kernelWidth;
+    private final int kernelHeight;
+    private final double[] rowKernel;
+    private final double[] columnKernel;
+
+    /**
+     * Creates an image applying a separable convolution.
+     */
+    FastFilterOpImage(RenderedImage source, double[] rowKernel, double[] columnKernel,
+                      int kernelOffsetX, int kernelOffsetY, RenderingHints rh) {
+        this(source, Operation.CONVOLVE, rowKernel.length, columnKernel.length, kernelOffsetX, kernelOffsetY,
+             rowKernel, columnKernel, rh);
+    }
+
+    /**
+     * Creates an image applying a rank or statistics filter with a rectangular structuring element.
+     */
+    FastFilterOpImage(RenderedImage source, Operation operation, int kernelWidth, int kernelHeight,
+                      int kernelOffsetX, int kernelOffsetY, RenderingHints rh) {
+        this(source, operation, kernelWidth, kernelHeight, kernelOffsetX, kernelOffsetY, null, null, rh);
+    }
+
+    private FastFilterOpImage(RenderedImage source, Operation operation, int kernelWidth, int kernelHeight,
+                              int kernelOffsetX, int kernelOffsetY, double[] rowKernel, double[] columnKernel,
+                              RenderingHints rh) {
+        super(source, createLayout(source), rh, true, getBorderExtender(rh),
+              kernelOffsetX, kernelWidth - kernelOffsetX - 1,
+              kernelOffsetY, kernelHeight - kernelOffsetY - 1);
+        this.operation = operation;
+        this.kernelWidth = kernelWidth;
+        this.kernelHeight = kernelHeight;
+        this.rowKernel = rowKernel;
+        this.columnKernel = columnKernel;
+    }
+
+    @Override
+    protected void computeRect(Raster[] sources, WritableRaster dest, Rectangle destRect) {
+        final int width = destRect.width;
+        final int height = destRect.height;
+        final float[] src = sources[0].getSamples(destRect.x - leftPadding, destRect.y - topPadding,
+                                                  width + kernelWidth - 1, height + kernelHeight - 1,
+                                                  0, (float[]) null);
+        final float[] dst = new float[width * height];
+        switch (operation) {
+            case CONVOLVE:
+                FastFilters.convolveSeparable(src, rowKernel, columnKernel, dst, width, height);
+                break;
+            case MEAN:
+                FastFilters.meanOrStdDev(src, kernelWidth, kernelHeight, dst, width, height, false);
+                break;
+            case STDDEV:
+                FastFilters.meanOrStdDev(src, kernelWidth, kernelHeight, dst, width, height, true);
+                break;
+            case MIN:
+                FastFilters.minOrMax(src, kernelWidth, kernelHeight, dst, width, height, false);
+                break;
+            case MAX:
+                FastFilters.minOrMax(src, kernelWidth, kernelHeight, dst, width, height, true);
+                break;
+            case MEDIAN:
+                FastFilters.median(src, kernelWidth, kernelHeight, dst, width, height);
+                break;
+            default:
+                throw new IllegalStateException("unhandled operation " + operation);
+        }
+        dest.setSamples(destRect.x, destRect.y, width, height, 0, dst);
+    }
+
+    private static ImageLayout createLayout(RenderedImage source) {
+        final ImageLayout layout = new ImageLayout(source);
+        final SampleModel sampleModel = RasterFactory.createPixelInterleavedSampleModel(DataBuffer.TYPE_FLOAT,
+                                                                                       source.getTileWidth(),
+                                                                                       source.getTileHeight(), 1);
+        layout.setSampleModel(sampleModel);
+        layout.setColorModel(PlanarImage.createColorModel(sampleModel));
+        return layout;
+    }
+
+    private static BorderExtender getBorderExtender(RenderingHints rh) {
+        final Object extender = rh != null ? rh.get(JAI.KEY_BORDER_EXTENDER) : null;
+        if (extender instanceof BorderExtender) {
+            return (BorderExtender) extender;
+        }
+        return BorderExtender.createInstance(BorderExtender.BORDER_COPY);
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.imgfilter;
+
+import java.util.Arrays;
+
+/**
+ * Filter algorithms whose costs do not grow with the kernel area.
+ * <p>
+ * All methods read a source window of {@code (width + kernelWidth - 1) x (height + kernelHeight - 1)} samples and
+ * write {@code width x height} samples, the target sample {@code (x, y)} being computed from the source samples
+ * {@code (x .. x + kernelWidth - 1, y .. y + kernelHeight - 1)}. Except for the convolution, NaN samples are ignored,
+ * and the result is NaN if a window contains no valid sample.
+ */
+class FastFilters {
+
+    private static final int COARSE_SHIFT = 8;
+
+    private FastFilters() {
+    }
+
+    /**
+     * Splits a kernel into a row kernel and a column kernel, so that
+     * {@code kernel[y * width + x] == columnKernel[y] * rowKernel[x]}.
+     *
+     * @return {@code {rowKernel, columnKernel}}, or {@code null} if the kernel is not separable
+     */
+    static double[][] separate(int width, int height, double[] kernel) {
+        int pivot = 0;
+        for (int i = 1; i < kernel.length; i++) {
+            if (Math.abs(kernel[i]) > Math.abs(kernel[pivot])) {
+                pivot = i;
+            }
+        }
+        final double scale = Math.abs(kernel[pivot]);
+        if (scale == 0.0) {
+            return null;
+        }
+        final int pivotX = pivot % width;
+        final int pivotY = pivot / width;
+        final double[] rowKernel = new double[width];
+        final double[] columnKernel = new double[height];
+        for (int x = 0; x < width; x++) {
+            rowKernel[x] = kernel[pivotY * width + x] / kernel[pivot];
+        }
+        for (int y = 0; y < height; y++) {
+            columnKernel[y] = kernel[y * width + pivotX];
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (Math.abs(columnKernel[y] * rowKernel[x] - kernel[y * width + x]) > 1.0e-9 * scale) {
+                    return null;
+                }
+            }
+        }
+        return new double[][]{rowKernel, columnKernel};
+    }
+
+    /**
+     * Convolves with a separable kernel in two one-dimensional passes.
+     */
+    static void convolveSeparable(float[] src, double[] rowKernel, double[] columnKernel,
+                                  float[] dst, int width, int height) {
+        final int kw = rowKernel.length;
+        final int kh = columnKernel.length;
+        final int sw = width + kw - 1;
+        final int sh = height + kh - 1;
+        final double[] rows = new double[width * sh];
+        for (int y = 0; y < sh; y++) {
+            for (int x = 0; x < width; x++) {
+                double sum = 0.0;
+                final int offset = y * sw + x;
+                for (int i = 0; i < kw; i++) {
+                    sum += src[offset + i] * rowKernel[i];
+                }
+                rows[y * width + x] = sum;
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double sum = 0.0;
+                for (int j = 0; j < kh; j++) {
+                    sum += rows[(y + j) * width + x] * columnKernel[j];
+                }
+                dst[y * width + x] = (float) sum;
+            }
+        }
+    }
+
+    /**
+     * Computes the mean or the standard deviation of the windows from integral images of the sums,
+     * the sums of squares and the counts of the valid samples.
+     */
+    static void meanOrStdDev(float[] src, int kernelWidth, int kernelHeight,
+                             float[] dst, int width, int height, boolean stdDev) {
+        final int sw = width + kernelWidth - 1;
+        final int sh = height + kernelHeight - 1;
+        final int iw = sw + 1;
+        final double[] sums = new double[iw * (sh + 1)];
+        final double[] sqrSums = stdDev ? new double[iw * (sh + 1)] : null;
+        final int[] counts = new int[iw * (sh + 1)];
+        for (int y = 0; y < sh; y++) {
+            double rowSum = 0.0;
+            double rowSqrSum = 0.0;
+            int rowCount = 0;
+            for (int x = 0; x < sw; x++) {
+                final float v = src[y * sw + x];
+                if (!Float.isNaN(v)) {
+                    rowSum += v;
+                    rowSqrSum += (double) v * v;
+                    rowCount++;
+                }
+                final int index = (y + 1) * iw + x + 1;
+                sums[index] = sums[index - iw] + rowSum;
+                counts[index] = counts[index - iw] + rowCount;
+                if (stdDev) {
+                    sqrSums[index] = sqrSums[index - iw] + rowSqrSum;
+                }
+            }
+        }
+        for (int y = 0; y < height; y++) {
+            final int i0 = y * iw;
+            final int i1 = (y + kernelHeight) * iw;
+            for (int x = 0; x < width; x++) {
+                final int x1 = x + kernelWidth;
+                final int n = counts[i1 + x1] - counts[i0 + x1] - counts[i1 + x] + counts[i0 + x];
+                if (n == 0) {
+                    dst[y * width + x] = Float.NaN;
+                    continue;
+                }
+                final double mean = (sums[i1 + x1] - sums[i0 + x1] - sums[i1 + x] + sums[i0 + x]) / n;
+                if (stdDev) {
+                    final double sqrMean = (sqrSums[i1 + x1] - sqrSums[i0 + x1] - sqrSums[i1 + x] + sqrSums[i0 + x]) / n;
+                    dst[y * width + x] = (float) Math.sqrt(Math.max(0.0, sqrMean - mean * mean));
+                } else {
+                    dst[y * width + x] = (float) mean;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the minimum or maximum of the windows with the van Herk/Gil-Werman algorithm, first along the rows,
+     * then along the columns. Needs three comparisons per sample, whatever the kernel size.
+     */
+    static void minOrMax(float[] src, int kernelWidth, int kernelHeight,
+                         float[] dst, int width, int height, boolean max) {
+        final int sw = width + kernelWidth - 1;
+        final int sh = height + kernelHeight - 1;
+        final float[] rows = new float[width * sh];
+        final int bufferSize = Math.max(sw, sh);
+        final float[] line = new float[bufferSize];
+        final float[] prefix = new float[bufferSize];
+        final float[] suffix = new float[bufferSize];
+        final float[] result = new float[Math.max(width, height)];
+
+        for (int y = 0; y < sh; y++) {
+            System.arraycopy(src, y * sw, line, 0, sw);
+            slidingExtremum(line, sw, kernelWidth, result, max, prefix, suffix);
+            System.arraycopy(result, 0, rows, y * width, width);
+        }
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < sh; y++) {
+                line[y] = rows[y * width + x];
+            }
+            slidingExtremum(line, sh, kernelHeight, result, max, prefix, suffix);
+            for (int y = 0; y < height; y++) {
+                dst[y * width + x] = result[y];
+            }
+        }
+    }
+
+    private static void slidingExtremum(float[] in, int n, int k, float[] out, boolean max,
+                                        float[] prefix, float[] suffix) {
+        for (int i = 0; i < n; i++) {
+            prefix[i] = i % k == 0 ? in[i] : extremum(prefix[i - 1], in[i], max);
+        }
+        for (int i = n - 1; i >= 0; i--) {
+            suffix[i] = i % k == k - 1 || i == n - 1 ? in[i] : extremum(suffix[i + 1], in[i], max);
+        }
+        for (int i = 0; i + k <= n; i++) {
+            out[i] = extremum(suffix[i], prefix[i + k - 1], max);
+        }
+    }
+
+    private static float extremum(float a, float b, boolean max) {
+        if (max) {
+            return a > b || Float.isNaN(b) ? a : b;
+        } else {
+            return a < b || Float.isNaN(b) ? a : b;
+        }
+    }
+
+    /**
+     * Computes the median of the windows with a sliding histogram (Huang's algorithm). The samples are replaced by
+     * their ranks within the source window, so the histogram is exact for floating point data. The median of an
+     * even number of samples is the upper one of the two middle samples.
+     */
+    static void median(float[] src, int kernelWidth, int kernelHeight,
+                       float[] dst, int width, int height) {
+        final int sw = width + kernelWidth - 1;
+
+        final float[] values = createSortedValues(src);
+        final int[] ranks = new int[src.length];
+        for (int i = 0; i < src.length; i++) {
+            ranks[i] = Float.isNaN(src[i]) ? -1 : Arrays.binarySearch(values, src[i]);
+        }
+
+        final Histogram histogram = new Histogram(values.length);
+        for (int y = 0; y < height; y++) {
+            for (int j = 0; j < kernelHeight; j++) {
+                for (int i = 0; i < kernelWidth; i++) {
+                    histogram.add(ranks[(y + j) * sw + i]);
+                }
+            }
+            dst[y * width] = histogram.median(values);
+            for (int x = 1; x < width; x++) {
+                for (int j = 0; j < kernelHeight; j++) {
+                    final int offset = (y + j) * sw + x;
+                    histogram.remove(ranks[offset - 1]);
+                    histogram.add(ranks[offset + kernelWidth - 1]);
+                }
+                dst[y * width + x] = histogram.median(values);
+            }
+            for (int j = 0; j < kernelHeight; j++) {
+                for (int i = 0; i < kernelWidth; i++) {
+                    histogram.remove(ranks[(y + j) * sw + width - 1 + i]);
+                }
+            }
+        }
+    }
+
+    private static float[] createSortedValues(float[] src) {
+        final float[] sorted = new float[src.length];
+        int n = 0;
+        for (float v : src) {
+            if (!Float.isNaN(v)) {
+                sorted[n++] = v;
+            }
+        }
+        Arrays.sort(sorted, 0, n);
+        int uniqueCount = 0;
+        for (int i = 0; i < n; i++) {
+            if (uniqueCount == 0 || sorted[i] != sorted[uniqueCount - 1]) {
+                sorted[uniqueCount++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, uniqueCount);
+    }
+
+    /**
+     * A two-level histogram of ranks, so that the median is found without visiting every empty bin.
+     */
+    private static class Histogram {
+
+        private final int[] fine;
+        private final int[] coarse;
+        private int count;
+
+        Histogram(int binCount) {
+            fine = new int[binCount];
+            coarse = new int[(binCount >> COARSE_SHIFT) + 1];
+        }
+
+        void add(int rank) {
+            if (rank >= 0) {
+                fine[rank]++;
+                coarse[rank >> COARSE_SHIFT]++;
+                count++;
+            }
+        }
+
+        void remove(int rank) {
+            if (rank >= 0) {
+                fine[rank]--;
+                coarse[rank >> COARSE_SHIFT]--;
+                count--;
+            }
+        }
+
+        float median(float[] values) {
+            if (count == 0) {
+                return Float.NaN;
+            }
+            final int target = count / 2;
+            int below = 0;
+            int coarseBin = 0;
+            while (below + coarse[coarseBin] <= target) {
+                below += coarse[coarseBin];
+                coarseBin++;
+            }
+            int bin = coarseBin << COARSE_SHIFT;
+            while (below + fine[bin] <= target) {
+                below += fine[bin];
+                bin++;
+            }
+            return values[bin];
+        }
+    }
+}
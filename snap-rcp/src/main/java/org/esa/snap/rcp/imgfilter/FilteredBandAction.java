@@ -143,7 +143,11 @@ public class FilteredBandAction extends AbstractAction  implements LookupListene
         FilterBand targetBand;
         Product product = sourceRaster.getProduct();
 
-        if (filter.getOperation() == Filter.Operation.CONVOLVE) {
+        final FilterBand fastFilterBand = FastFilterBands.createFilterBand(sourceRaster, bandName, filter,
+                                                                          getKernel(filter), iterationCount);
+        if (fastFilterBand != null) {
+            targetBand = fastFilterBand;
+        } else if (filter.getOperation() == Filter.Operation.CONVOLVE) {
             targetBand = new ConvolutionFilterBand
 
                     (bandName, sourceRaster, getKernel(filter), iterationCount);
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.magicwand;
+
+import java.util.List;
+
+/**
+ * Classifies pixel spectra the same way as the band maths expression created by
+ * {@link MagicWandModel#createMaskExpression()}, but without parsing and evaluating an expression.
+ * <p>
+ * The reference spectra are transformed once, when the classifier is created. Each pixel spectrum is transformed
+ * once and then tested against all plus and minus spectra. The distances and limits are computed in the same order
+ * as the band maths functions {@code distance}, {@code distance_deriv}, {@code distance_integ}, {@code inrange},
+ * {@code inrange_deriv} and {@code inrange_integ}, so both give the same result.
+ * <p>
+ * A classifier is immutable and may be used by several threads, each with its own work buffer.
+ */
+class MagicWandClassifier {
+
+    private final int bandCount;
+    private final MagicWandModel.SpectrumTransform spectrumTransform;
+    private final MagicWandModel.PixelTest pixelTest;
+    private final boolean normalize;
+    private final double tolerance;
+    private final double maxSqrSum;
+    private final double[][] plusReferences;
+    private final double[][] minusReferences;
+
+    MagicWandClassifier(MagicWandModel model) {
+        this(model.getBandCount(), model.getSpectrumTransform(), model.getPixelTest(), model.isNormalize(),
+             model.getTolerance(), model.getPlusSpectra(), model.getMinusSpectra());
+    }
+
+    MagicWandClassifier(int bandCount,
+                        MagicWandModel.SpectrumTransform spectrumTransform,
+                        MagicWandModel.PixelTest pixelTest,
+                        boolean normalize,
+                        double tolerance,
+                        List<double[]> plusSpectra,
+                        List<double[]> minusSpectra) {
+        this.bandCount = bandCount;
+        this.spectrumTransform = spectrumTransform;
+        this.pixelTest = pixelTest;
+        this.normalize = normalize;
+        this.tolerance = tolerance;
+        final double divisor = bandCount == 1 ? 1.0 : bandCount;
+        // slightly larger than the limit, so that stopping early never changes the result
+        this.maxSqrSum = (tolerance * divisor) * (tolerance * divisor) * (1.0 + 1.0e-9);
+        this.plusReferences = createReferences(plusSpectra);
+        this.minusReferences = createReferences(minusSpectra);
+    }
+
+    int getBandCount() {
+        return bandCount;
+    }
+
+    /**
+     * @return a work buffer for {@link #isSelected(double[], double[])}, one per thread
+     */
+    double[] createWorkBuffer() {
+        return new double[bandCount];
+    }
+
+    /**
+     * @param spectrum   the pixel spectrum, the values of the bands
+     * @param workBuffer a buffer created by {@link #createWorkBuffer()}
+     * @return {@code true} if the pixel belongs to the mask
+     */
+    boolean isSelected(double[] spectrum, double[] workBuffer) {
+        if (plusReferences == null && minusReferences == null) {
+            return false;
+        }
+        if (bandCount == 0) {
+            // the expression is "0" for each part
+            return plusReferences == null;
+        }
+        final double[] transformed = transform(spectrum, normalize, workBuffer);
+        if (plusReferences != null && !matches(transformed, plusReferences)) {
+            return false;
+        }
+        return minusReferences == null || !matches(transformed, minusReferences);
+    }
+
+    private double[][] createReferences(List<double[]> spectra) {
+        if (spectra.isEmpty()) {
+            return null;
+        }
+        if (pixelTest == MagicWandModel.PixelTest.DISTANCE) {
+            final double[][] references = new double[spectra.size()][];
+            for (int i = 0; i < spectra.size(); i++) {
+                references[i] = transform(spectra.get(i), normalize, new double[bandCount]);
+            }
+            return references;
+        } else if (pixelTest == MagicWandModel.PixelTest.AVERAGE) {
+            final double[] avgSpectrum = MagicWandModel.getAvgSpectrum(bandCount, spectra, normalize);
+            return new double[][]{transform(avgSpectrum, false, new double[bandCount])};
+        } else if (pixelTest == MagicWandModel.PixelTest.LIMITS) {
+            final double[] minSpectrum = MagicWandModel.getMinSpectrum(bandCount, spectra, tolerance, normalize);
+            final double[] maxSpectrum = MagicWandModel.getMaxSpectrum(bandCount, spectra, tolerance, normalize);
+            return new double[][]{
+                    transform(minSpectrum, false, new double[bandCount]),
+                    transform(maxSpectrum, false, new double[bandCount])
+            };
+        } else {
+            throw new IllegalStateException("Unhandled method " + pixelTest);
+        }
+    }
+
+    /*
+     * Identity: the values, derivative: the differences of neighbouring values (one less than the number of bands),
+     * integral: the cumulative sums of the values.
+     */
+    private double[] transform(double[] spectrum, boolean normalize, double[] result) {
+        final double first = spectrum[0];
+        if (spectrumTransform == MagicWandModel.SpectrumTransform.IDENTITY) {
+            for (int i = 0; i < bandCount; i++) {
+                result[i] = normalize ? spectrum[i] / first : spectrum[i];
+            }
+        } else if (spectrumTransform == MagicWandModel.SpectrumTransform.DERIVATIVE) {
+            double previous = normalize ? spectrum[0] / first : spectrum[0];
+            for (int i = 0; i < bandCount - 1; i++) {
+                final double next = normalize ? spectrum[i + 1] / first : spectrum[i + 1];
+                result[i] = next - previous;
+                previous = next;
+            }
+        } else if (spectrumTransform == MagicWandModel.SpectrumTransform.INTEGRAL) {
+            double sum = 0.0;
+            for (int i = 0; i < bandCount; i++) {
+                sum += normalize ? spectrum[i] / first : spectrum[i];
+                result[i] = sum;
+            }
+        } else {
+            throw new IllegalStateException("unhandled operator " + spectrumTransform);
+        }
+        return result;
+    }
+
+    private int getTransformedLength() {
+        return spectrumTransform == MagicWandModel.SpectrumTransform.DERIVATIVE ? bandCount - 1 : bandCount;
+    }
+
+    private boolean matches(double[] transformed, double[][] references) {
+        if (pixelTest == MagicWandModel.PixelTest.LIMITS) {
+            return isInRange(transformed, references[0], references[1]);
+        }
+        for (double[] reference : references) {
+            if (isWithinDistance(transformed, reference)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isWithinDistance(double[] transformed, double[] reference) {
+        final int n = getTransformedLength();
+        double sqrSum = 0.0;
+        for (int i = 0; i < n; i++) {
+            final double d = spectrumTransform == MagicWandModel.SpectrumTransform.INTEGRAL
+                             ? reference[i] - transformed[i]
+                             : transformed[i] - reference[i];
+            sqrSum += d * d;
+            if (sqrSum > maxSqrSum) {
+                return false;
+            }
+        }
+        final double distance = Math.sqrt(sqrSum);
+        if (bandCount == 1) {
+            return distance < tolerance;
+        } else {
+            return distance / bandCount < tolerance;
+        }
+    }
+
+    private boolean isInRange(double[] transformed, double[] min, double[] max) {
+        final int n = getTransformedLength();
+        for (int i = 0; i < n; i++) {
+            final double v = transformed[i];
+            if (v < min[i] || v > max[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
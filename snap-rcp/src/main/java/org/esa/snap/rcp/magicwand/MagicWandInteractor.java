@@ -287,7 +287,7 @@ public class MagicWandInteractor extends ViewportInteractor implements MagicWand
     }
 
     private void updateMagicWandMask(Product product) {
-        MagicWandModel.setMagicWandMask(product, getModel().createMaskExpression());
+        MagicWandModel.setMagicWandMask(product, getModel());
     }
 
     private JDialog createOptionsWindow() {
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.magicwand;
+
+import com.bc.ceres.glevel.MultiLevelImage;
+import com.bc.ceres.glevel.support.AbstractMultiLevelSource;
+import com.bc.ceres.glevel.support.DefaultMultiLevelImage;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.jai.ImageManager;
+import org.esa.snap.jai.ResolutionLevel;
+import org.esa.snap.jai.SingleBandedOpImage;
+
+import javax.media.jai.PlanarImage;
+import java.awt.Rectangle;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The image of the magic wand mask. The geophysical images of the bands are read tile by tile and
+ * classified by a {@link MagicWandClassifier}, so only the tiles which are requested, e.g. those on the screen,
+ * are computed.
+ * <p>
+ * As for band maths masks, a pixel is set to 255 if it is selected and valid in all bands, and to 0 otherwise.
+ */
+class MagicWandMaskOpImage extends SingleBandedOpImage {
+
+    private static final byte TRUE = (byte) 255;
+
+    private final Band[] bands;
+    private final MagicWandClassifier classifier;
+    private final int level;
+
+    MagicWandMaskOpImage(Mask mask, Band[] bands, MagicWandClassifier classifier, ResolutionLevel level) {
+        super(DataBuffer.TYPE_BYTE,
+              mask.getSceneRasterWidth(),
+              mask.getSceneRasterHeight(),
+              ImageManager.getPreferredTileSize(mask.getProduct()),
+              null,
+              level);
+        this.bands = bands;
+        this.classifier = classifier;
+        this.level = level.getIndex();
+    }
+
+    /**
+     * Creates the multi-level image of the magic wand mask for the given bands.
+     */
+    static MultiLevelImage createMaskImage(final Mask mask, List<Band> bands, final MagicWandClassifier classifier) {
+        final Band[] bandArray = bands.toArray(new Band[bands.size()]);
+        return new DefaultMultiLevelImage(new AbstractMultiLevelSource(ImageManager.getMultiLevelModel(mask)) {
+            @Override
+            protected RenderedImage createImage(int level) {
+                return new MagicWandMaskOpImage(mask, bandArray, classifier, ResolutionLevel.create(getModel(), level));
+            }
+        });
+    }
+
+    @Override
+    protected void computeRect(PlanarImage[] sourceImages, WritableRaster tile, Rectangle destRect) {
+        final int width = destRect.width;
+        final Raster[] dataRasters = new Raster[bands.length];
+        final Raster[] validRasters = new Raster[bands.length];
+        for (int b = 0; b < bands.length; b++) {
+            dataRasters[b] = getSourceRaster(bands[b].getGeophysicalImage().getImage(level), destRect);
+            final MultiLevelImage validMaskImage = bands[b].getValidMaskImage();
+            if (validMaskImage != null) {
+                validRasters[b] = getSourceRaster(validMaskImage.getImage(level), destRect);
+            }
+        }
+
+        final double[][] rowValues = new double[bands.length][width];
+        final int[] validRow = new int[width];
+        final boolean[] rowValid = new boolean[width];
+        final byte[] maskRow = new byte[width];
+        final double[] spectrum = new double[bands.length];
+        final double[] workBuffer = classifier.createWorkBuffer();
+
+        for (int y = destRect.y; y < destRect.y + destRect.height; y++) {
+            Arrays.fill(rowValid, true);
+            for (int b = 0; b < bands.length; b++) {
+                dataRasters[b].getSamples(destRect.x, y, width, 1, 0, rowValues[b]);
+                if (validRasters[b] != null) {
+                    validRasters[b].getSamples(destRect.x, y, width, 1, 0, validRow);
+                    for (int i = 0; i < width; i++) {
+                        rowValid[i] &= validRow[i] != 0;
+                    }
+                }
+            }
+            for (int i = 0; i < width; i++) {
+                boolean selected = false;
+                if (rowValid[i]) {
+                    for (int b = 0; b < bands.length; b++) {
+                        spectrum[b] = rowValues[b][i];
+                    }
+                    selected = classifier.isSelected(spectrum, workBuffer);
+                }
+                maskRow[i] = selected ? TRUE : 0;
+            }
+            tile.setDataElements(destRect.x, y, width, 1, maskRow);
+        }
+    }
+
+    /*
+     * Uses the source tile directly if it contains the rectangle, which is the case if both images have
+     * the same tiling, otherwise copies the data.
+     */
+    private static Raster getSourceRaster(RenderedImage image, Rectangle rect) {
+        final int tileX = Math.floorDiv(rect.x - image.getTileGridXOffset(), image.getTileWidth());
+        final int tileY = Math.floorDiv(rect.y - image.getTileGridYOffset(), image.getTileHeight());
+        final Raster tile = image.getTile(tileX, tileY);
+        if (tile != null && tile.getBounds().contains(rect)) {
+            return tile;
+        }
+        return image.getData(rect);
+    }
+}
@@ -17,7 +17,6 @@
 package org.esa.snap.rcp.magicwand;
 
 import com.bc.ceres.core.Assert;
-import com.bc.jexp.ParseException;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.converters.SingleValueConverter;
 import org.esa.snap.framework.datamodel.Band;
@@ -152,6 +151,14 @@ public class MagicWandModel implements Cloneable {
         return bandNames.size();
     }
 
+    List<double[]> getPlusSpectra() {
+        return Collections.unmodifiableList(plusSpectra);
+    }
+
+    List<double[]> getMinusSpectra() {
+        return Collections.unmodifiableList(minusSpectra);
+    }
+
     void addSpectrum(double... spectrum) {
         Assert.argument(spectrum.length == bandNames.size(), "spectrum size does not match # selected bands");
         if (pickMode == PickMode.SINGLE) {
@@ -241,6 +248,10 @@ public class MagicWandModel implements Cloneable {
         fireModelChanged(false);
     }
 
+    public boolean isNormalize() {
+        return normalize;
+    }
+
     public void setNormalize(boolean normalize) {
         this.normalize = normalize;
         fireModelChanged(false);
@@ -282,27 +293,49 @@ public class MagicWandModel implements Cloneable {
         return bands;
     }
 
-    static void setMagicWandMask(Product product, String expression) {
-
-        String validMaskExpression;
-        try {
-            validMaskExpression = BandArithmetic.getValidMaskExpression(expression, new Product[]{product}, 0, null);
-        } catch (ParseException e) {
-            validMaskExpression = null;
-        }
-
+    /**
+     * Sets the magic wand mask of the given product. The mask image is computed directly from the bands by a
+     * {@link MagicWandClassifier}. The equivalent band maths expression is only stored as the expression of the
+     * mask, so that the mask can be saved with the product; it is not parsed here.
+     */
+    static void setMagicWandMask(Product product, MagicWandModel model) {
+        String expression = model.createMaskExpression();
+        String validMaskExpression = getValidMaskExpression(model.getBands(product));
         if (validMaskExpression != null) {
             expression = "(" + validMaskExpression + ") && (" + expression + ")";
         }
 
-        final Mask magicWandMask = product.getMaskGroup().get(MAGIC_WAND_MASK_NAME);
+        Mask magicWandMask = product.getMaskGroup().get(MAGIC_WAND_MASK_NAME);
         if (magicWandMask != null) {
             magicWandMask.getImageConfig().setValue("expression", expression);
         } else {
-            product.addMask(MAGIC_WAND_MASK_NAME,
-                            expression, "Magic wand mask",
-                            Color.RED, 0.5);
+            magicWandMask = product.addMask(MAGIC_WAND_MASK_NAME,
+                                            expression, "Magic wand mask",
+                                            Color.RED, 0.5);
+        }
+
+        List<Band> bands = model.getBands(product);
+        if (bands != null) {
+            magicWandMask.setSourceImage(MagicWandMaskOpImage.createMaskImage(magicWandMask, bands,
+                                                                              new MagicWandClassifier(model)));
+        }
+    }
+
+    private static String getValidMaskExpression(List<Band> bands) {
+        if (bands == null) {
+            return null;
+        }
+        final StringBuilder sb = new StringBuilder();
+        for (Band band : bands) {
+            final String bandValidMaskExpression = band.getValidMaskExpression();
+            if (bandValidMaskExpression != null && !bandValidMaskExpression.isEmpty()) {
+                if (sb.length() > 0) {
+                    sb.append(" && ");
+                }
+                sb.append("(").append(bandValidMaskExpression).append(")");
+            }
         }
+        return sb.length() > 0 ? sb.toString() : null;
     }
 
     String createMaskExpression() {
@@ -375,7 +408,7 @@ public class MagicWandModel implements Cloneable {
         }
     }
 
-    private static double[] getAvgSpectrum(int numBands, List<double[]> spectra, boolean normalize) {
+    static double[] getAvgSpectrum(int numBands, List<double[]> spectra, boolean normalize) {
         double[] avgSpectrum = new double[numBands];
         for (double[] spectrum : spectra) {
             for (int i = 0; i < spectrum.length; i++) {
@@ -389,7 +422,7 @@ public class MagicWandModel implements Cloneable {
         return avgSpectrum;
     }
 
-    private static double[] getMinSpectrum(int numBands, List<double[]> spectra, double tolerance, boolean normalize) {
+    static double[] getMinSpectrum(int numBands, List<double[]> spectra, double tolerance, boolean normalize) {
         double[] minSpectrum = new double[numBands];
         Arrays.fill(minSpectrum, +Double.MAX_VALUE);
         for (double[] spectrum : spectra) {
@@ -401,7 +434,7 @@ public class MagicWandModel implements Cloneable {
         return minSpectrum;
     }
 
-    private static double[] getMaxSpectrum(int numBands, List<double[]> spectra, double tolerance, boolean normalize) {
+    static double[] getMaxSpectrum(int numBands, List<double[]> spectra, double tolerance, boolean normalize) {
         double[] maxSpectrum = new double[numBands];
         Arrays.fill(maxSpectrum, -Double.MAX_VALUE);
         for (double[] spectrum : spectra) {
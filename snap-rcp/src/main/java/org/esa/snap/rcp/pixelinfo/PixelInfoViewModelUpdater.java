@@ -30,7 +30,6 @@ import org.esa.snap.framework.datamodel.RasterDataNode;
 import org.esa.snap.framework.datamodel.TiePointGrid;
 import org.esa.snap.framework.dataop.maptransf.MapTransform;
 import org.esa.snap.framework.ui.product.ProductSceneView;
-import org.esa.snap.jai.ImageManager;
 import org.esa.snap.util.Guardian;
 import org.esa.snap.util.ProductUtils;
 import org.esa.snap.util.math.MathUtils;
@@ -39,12 +38,10 @@ import org.opengis.geometry.DirectPosition;
 import org.opengis.referencing.operation.MathTransform;
 import org.opengis.referencing.operation.TransformException;
 
-import javax.media.jai.PlanarImage;
 import javax.swing.SwingUtilities;
 import java.awt.Dimension;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
-import java.awt.image.Raster;
 import java.util.Calendar;
 import java.util.Vector;
 
@@ -67,6 +64,10 @@ public class PixelInfoViewModelUpdater {
     private volatile RasterDataNode currentRaster;
     private volatile ProductSceneView currentView;
     private Band[] currentFlagBands;
+    private Band[] displayedBands;
+    private double[] bandSamples;
+    private boolean[] bandSamplesValid;
+    private final PixelSampler pixelSampler;
 
     private int pixelX;
     private int pixelY;
@@ -86,6 +87,11 @@ public class PixelInfoViewModelUpdater {
         this.tiePointModel = tiePointModel;
         this.flagModel = flagModel;
         this.pixelInfoView = pixelInfoView;
+        this.pixelSampler = new PixelSampler();
+        this.displayedBands = new Band[0];
+        this.bandSamples = new double[0];
+        this.bandSamplesValid = new boolean[0];
+        this.currentFlagBands = new Band[0];
     }
 
     Product getCurrentProduct() {
@@ -304,21 +310,39 @@ public class PixelInfoViewModelUpdater {
 
     private void resetBandTableModel() {
         bandModel.clear();
+        final Vector<Band> bandsVector = new Vector<>();
         if (currentRaster != null) {
             final int numBands = currentProduct.getNumBands();
             for (int i = 0; i < numBands; i++) {
                 final Band band = currentProduct.getBandAt(i);
                 if (shouldDisplayBand(band)) {
                     bandModel.addRow(band.getName(), "", band.getUnit());
+                    bandsVector.add(band);
                 }
             }
         }
+        displayedBands = bandsVector.toArray(new Band[bandsVector.size()]);
+        bandSamples = new double[displayedBands.length];
+        bandSamplesValid = new boolean[displayedBands.length];
     }
 
     private void updateBandPixelValues() {
-        for (int i = 0; i < bandModel.getRowCount(); i++) {
-            final String bandName = (String) bandModel.getValueAt(i, 0);
-            bandModel.updateValue(getPixelString(currentProduct.getBand(bandName)), i);
+        if (!pixelPosValid) {
+            for (int i = 0; i < displayedBands.length; i++) {
+                bandModel.updateValue(RasterDataNode.INVALID_POS_TEXT, i);
+            }
+            return;
+        }
+        pixelSampler.readSamples(displayedBands, pixelX, pixelY, level, bandSamples, bandSamplesValid);
+        for (int i = 0; i < displayedBands.length; i++) {
+            final Band band = displayedBands[i];
+            if (!bandSamplesValid[i]) {
+                bandModel.updateValue(RasterDataNode.NO_DATA_TEXT, i);
+            } else if (band.isFloatingPointType()) {
+                bandModel.updateValue(bandSamples[i], false, i);
+            } else {
+                bandModel.updateValue(toLong(band, bandSamples[i]), true, i);
+            }
         }
     }
 
@@ -398,9 +422,14 @@ public class PixelInfoViewModelUpdater {
         if (flagModel.getRowCount() != getFlagRowCount()) {
             resetFlagTableModel();
         }
+        final double[] samples = new double[currentFlagBands.length];
+        if (available) {
+            pixelSampler.readSamples(currentFlagBands, pixelX, pixelY, level, samples, new boolean[samples.length]);
+        }
         int rowIndex = 0;
-        for (Band band : currentFlagBands) {
-            long pixelValue = available ? ProductUtils.getGeophysicalSampleLong(band, pixelX, pixelY, level) : 0;
+        for (int i = 0; i < currentFlagBands.length; i++) {
+            final Band band = currentFlagBands[i];
+            long pixelValue = available ? toLong(band, samples[i]) : 0;
 
             for (int j = 0; j < band.getFlagCoding().getNumAttributes(); j++) {
                 if (available) {
@@ -441,38 +470,15 @@ public class PixelInfoViewModelUpdater {
     }
 
 
-    private String getPixelString(Band band) {
-        if (!pixelPosValid) {
-            return RasterDataNode.INVALID_POS_TEXT;
-        }
-        if (isPixelValid(band, pixelX, pixelY, level)) {
-            if (band.isFloatingPointType()) {
-                return String.valueOf((float) ProductUtils.getGeophysicalSampleDouble(band, pixelX, pixelY, level));
-            } else {
-                return String.valueOf(ProductUtils.getGeophysicalSampleLong(band, pixelX, pixelY, level));
-            }
-        } else {
-            return RasterDataNode.NO_DATA_TEXT;
-        }
-    }
-
-    private boolean isPixelValid(Band band, int pixelX, int pixelY, int level) {
-        if (band.isValidMaskUsed()) {
-            PlanarImage image = ImageManager.getInstance().getValidMaskImage(band, level);
-            Raster data = getRasterTile(image, pixelX, pixelY);
-            return data.getSample(pixelX, pixelY, 0) != 0;
-        } else {
-            return true;
+    private static long toLong(Band band, double sample) {
+        final long value = (long) sample;
+        if (band.getDataType() == ProductData.TYPE_UINT32 && value < 0) {
+            // unsigned 32-bit integers are read from signed int tiles
+            return value & 0xFFFFFFFFL;
         }
+        return value;
     }
 
-    private Raster getRasterTile(PlanarImage image, int pixelX, int pixelY) {
-        final int tileX = image.XToTileX(pixelX);
-        final int tileY = image.YToTileY(pixelY);
-        return image.getTile(tileX, tileY);
-    }
-
-
     private boolean isSampleValueAvailable(int pixelX, int pixelY, boolean pixelValid) {
         return currentRaster != null
                && pixelValid
@@ -487,5 +493,8 @@ public class PixelInfoViewModelUpdater {
         currentRaster = null;
         currentView = null;
         currentFlagBands = new Band[0];
+        displayedBands = new Band[0];
+        bandSamples = new double[0];
+        bandSamplesValid = new boolean[0];
     }
 }
@@ -16,11 +16,13 @@
 package org.esa.snap.rcp.pixelinfo;
 
 import javax.swing.table.AbstractTableModel;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.Arrays;
 
 /**
+ * The table model of the pixel info view.
+ * <p>
+ * Numeric values are stored as primitives and only converted into text when they are displayed, so that the frequent
+ * updates of large tables, e.g. of hyperspectral products, do not create any garbage.
  *
  * @author Marco Zuehlke
  * @version $Revision$ $Date$
@@ -28,62 +30,114 @@ import java.util.List;
  */
 public class PixelInfoViewTableModel extends AbstractTableModel {
 
+    private static final byte TEXT = 0;
+    private static final byte INTEGER = 1;
+    private static final byte FLOAT = 2;
+
     private final String[] columnNames;
-    private final List<String> names;
-    private final List<String> values;
-    private final List<String> units;
+    private String[] names;
+    private String[] units;
+    private String[] texts;
+    private double[] numbers;
+    private byte[] valueTypes;
+    private int rowCount;
 
     public PixelInfoViewTableModel(String[] columnNames) {
         this.columnNames = columnNames;
-        names = Collections.synchronizedList(new ArrayList<String>(32));
-        values = Collections.synchronizedList(new ArrayList<String>(32));
-        units = Collections.synchronizedList(new ArrayList<String>(32));
+        names = new String[32];
+        units = new String[32];
+        texts = new String[32];
+        numbers = new double[32];
+        valueTypes = new byte[32];
     }
-    
+
     @Override
     public String getColumnName(int column) {
         return columnNames[column];
     }
-    
+
     @Override
     public int getColumnCount() {
         return columnNames.length;
     }
 
     @Override
-    public int getRowCount() {
-        return names.size();
+    public synchronized int getRowCount() {
+        return rowCount;
     }
 
     @Override
-    public Object getValueAt(int rowIndex, int columnIndex) {
+    public synchronized Object getValueAt(int rowIndex, int columnIndex) {
+        if (rowIndex >= rowCount) {
+            // the table has been cleared, but not yet been notified
+            return "";
+        }
         if (columnIndex == 0) {
-            return names.get(rowIndex);
+            return names[rowIndex];
         } else if (columnIndex == 1) {
-            return values.get(rowIndex);
+            return getValueText(rowIndex);
         } else if (columnIndex == 2) {
-            return units.get(rowIndex);
+            return units[rowIndex];
         }
         return "";
     }
-    
-    public void addRow(String name, String value, String unit) {
-        synchronized (this) {
-            names.add(name);
-            values.add(value);
-            units.add(unit);
+
+    public synchronized void addRow(String name, String value, String unit) {
+        if (rowCount == names.length) {
+            final int capacity = 2 * rowCount;
+            names = Arrays.copyOf(names, capacity);
+            units = Arrays.copyOf(units, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+            valueTypes = Arrays.copyOf(valueTypes, capacity);
         }
+        names[rowCount] = name;
+        units[rowCount] = unit;
+        rowCount++;
+        updateValue(value, rowCount - 1);
+    }
+
+    public synchronized void updateValue(String aValue, int row) {
+        checkRow(row);
+        texts[row] = aValue;
+        valueTypes[row] = TEXT;
     }
-    
-    public void updateValue(String aValue, int row) {
-        values.set(row, aValue);
+
+    /**
+     * Updates the value of the given row with a number, which is formatted when it is displayed.
+     *
+     * @param aValue   the value
+     * @param integral whether the value is displayed as integer or as floating point number
+     * @param row      the row index
+     */
+    public synchronized void updateValue(double aValue, boolean integral, int row) {
+        checkRow(row);
+        texts[row] = null;
+        numbers[row] = aValue;
+        valueTypes[row] = integral ? INTEGER : FLOAT;
     }
-    
-    public void clear() {
-        synchronized (this) {
-            names.clear();
-            values.clear();
-            units.clear();
-        }        
+
+    public synchronized void clear() {
+        Arrays.fill(names, 0, rowCount, null);
+        Arrays.fill(units, 0, rowCount, null);
+        Arrays.fill(texts, 0, rowCount, null);
+        rowCount = 0;
+    }
+
+    private String getValueText(int row) {
+        switch (valueTypes[row]) {
+            case INTEGER:
+                return String.valueOf((long) numbers[row]);
+            case FLOAT:
+                return String.valueOf((float) numbers[row]);
+            default:
+                return texts[row];
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row >= rowCount) {
+            throw new IndexOutOfBoundsException("row: " + row + ", rowCount: " + rowCount);
+        }
     }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.pixelinfo;
+
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.jai.ImageManager;
+
+import javax.media.jai.PlanarImage;
+
+/**
+ * Reads the geophysical sample values of many rasters at a single pixel position.
+ * <p>
+ * The tile indices are computed once for all rasters sharing the same tiling. The tiles themselves are not kept by
+ * the sampler: they are looked up in the JAI tile cache each time, so that the memory they take remains bounded by
+ * the tile cache however many rasters are sampled. The sampler is not thread-safe, it is meant to be used by the
+ * single update thread of the {@link PixelInfoUpdateService}.
+ */
+class PixelSampler {
+
+    /**
+     * Reads the samples of the given rasters.
+     *
+     * @param rasters the rasters
+     * @param pixelX  the pixel X-coordinate at the given level
+     * @param pixelY  the pixel Y-coordinate at the given level
+     * @param level   the resolution level
+     * @param samples receives the geophysical sample values
+     * @param valid   receives whether the sample values are valid
+     */
+    void readSamples(RasterDataNode[] rasters, int pixelX, int pixelY, int level, double[] samples, boolean[] valid) {
+        final ImageManager imageManager = ImageManager.getInstance();
+        TileLayout layout = null;
+        TileLayout maskLayout = null;
+        for (int i = 0; i < rasters.length; i++) {
+            final RasterDataNode raster = rasters[i];
+            final PlanarImage dataImage = imageManager.getGeophysicalImage(raster, level);
+            if (layout == null || !layout.matches(dataImage)) {
+                layout = new TileLayout(dataImage, pixelX, pixelY);
+            }
+            samples[i] = dataImage.getTile(layout.tileX, layout.tileY).getSampleDouble(pixelX, pixelY, 0);
+            if (raster.isValidMaskUsed()) {
+                final PlanarImage maskImage = imageManager.getValidMaskImage(raster, level);
+                if (maskLayout == null || !maskLayout.matches(maskImage)) {
+                    maskLayout = new TileLayout(maskImage, pixelX, pixelY);
+                }
+                valid[i] = maskImage.getTile(maskLayout.tileX, maskLayout.tileY).getSample(pixelX, pixelY, 0) != 0;
+            } else {
+                valid[i] = true;
+            }
+        }
+    }
+
+    private static class TileLayout {
+
+        final int tileWidth;
+        final int tileHeight;
+        final int tileGridXOffset;
+        final int tileGridYOffset;
+        final int tileX;
+        final int tileY;
+
+        TileLayout(PlanarImage image, int pixelX, int pixelY) {
+            tileWidth = image.getTileWidth();
+            tileHeight = image.getTileHeight();
+            tileGridXOffset = image.getTileGridXOffset();
+            tileGridYOffset = image.getTileGridYOffset();
+            tileX = image.XToTileX(pixelX);
+            tileY = image.YToTileY(pixelY);
+        }
+
+        boolean matches(PlanarImage image) {
+            return image.getTileWidth() == tileWidth
+                   && image.getTileHeight() == tileHeight
+                   && image.getTileGridXOffset() == tileGridXOffset
+                   && image.getTileGridYOffset() == tileGridYOffset;
+        }
+    }
+}
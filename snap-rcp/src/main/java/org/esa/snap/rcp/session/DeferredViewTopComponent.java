@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.session;
+
+import org.esa.snap.framework.datamodel.ProductNode;
+import org.esa.snap.netbeans.docwin.DocumentTopComponent;
+import org.esa.snap.netbeans.docwin.DocumentWindowManager;
+
+import javax.swing.JLabel;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import java.awt.BorderLayout;
+
+/**
+ * A placeholder document window for a view of a restored session which has not been created yet
+ * (see {@link Session.DeferredView}).
+ * <p>
+ * When the placeholder is shown for the first time, the materializer is run, which creates the view and opens it in a
+ * window of its own. The placeholder is closed afterwards.
+ */
+class DeferredViewTopComponent extends DocumentTopComponent<ProductNode> {
+
+    private final Runnable materializer;
+    private boolean materialized;
+
+    DeferredViewTopComponent(ProductNode document, String name, Runnable materializer) {
+        super(document);
+        this.materializer = materializer;
+        setName(name);
+        setDisplayName(name);
+        setLayout(new BorderLayout());
+        add(new JLabel("Restoring view...", SwingConstants.CENTER), BorderLayout.CENTER);
+    }
+
+    boolean isMaterialized() {
+        return materialized;
+    }
+
+    @Override
+    public void componentShowing() {
+        super.componentShowing();
+        if (!materialized) {
+            materialized = true;
+            // the windows must not be changed while the window system shows this one
+            SwingUtilities.invokeLater(() -> {
+                try {
+                    materializer.run();
+                } finally {
+                    DocumentWindowManager.getDefault().closeWindow(this);
+                }
+            });
+        }
+    }
+}
@@ -23,13 +23,16 @@ import org.esa.snap.framework.dataio.ProductIO;
 import org.esa.snap.framework.datamodel.Product;
 import org.esa.snap.framework.ui.product.ProductNodeView;
 import org.esa.snap.framework.ui.product.ProductSceneView;
+import org.esa.snap.netbeans.docwin.DocumentWindowManager;
 import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.rcp.SnapDialogs;
+import org.esa.snap.rcp.windows.ProductSceneViewTopComponent;
 import org.esa.snap.util.SystemUtils;
 import org.esa.snap.util.io.SnapFileFilter;
 import org.openide.awt.ActionID;
 import org.openide.awt.ActionReference;
 import org.openide.awt.ActionRegistration;
+import org.openide.awt.UndoRedo;
 import org.openide.util.ContextAwareAction;
 import org.openide.util.Lookup;
 import org.openide.util.LookupEvent;
@@ -218,6 +221,11 @@ public class OpenSessionAction extends AbstractAction implements LookupListener,
 //            ShowImageViewRGBAction showImageViewRGBAction = getAction(ShowImageViewRGBAction.ID);
 //            ShowMetadataViewAction showMetadataViewAction = getAction(ShowMetadataViewAction.ID);
 
+            // the hidden views are opened first, so that the visible ones end up on top of them
+            for (Session.DeferredView deferredView : restoredSession.getDeferredViews()) {
+                openDeferredView(deferredView);
+            }
+
             final ProductNodeView[] nodeViews = restoredSession.getViews();
             for (ProductNodeView nodeView : nodeViews) {
                 Rectangle bounds = nodeView.getBounds();
@@ -227,11 +235,7 @@ public class OpenSessionAction extends AbstractAction implements LookupListener,
 
                     sceneView.getLayerCanvas().setInitiallyZoomingAll(false);
                     Viewport viewport = sceneView.getLayerCanvas().getViewport().clone();
-                    if (sceneView.isRGB()) {
-                        internalFrame = null;// showImageViewRGBAction.openInternalFrame(sceneView, false);
-                    } else {
-                        internalFrame = null;//showImageViewAction.openInternalFrame(sceneView, false);
-                    }
+                    openSceneView(sceneView);
                     sceneView.getLayerCanvas().getViewport().setTransform(viewport);
 //                } else if (nodeView instanceof ProductMetadataView) {
 //                    ProductMetadataView metadataView = (ProductMetadataView) nodeView;
@@ -249,6 +253,36 @@ public class OpenSessionAction extends AbstractAction implements LookupListener,
             }
         }
 
+        /*
+         * Opens a placeholder window, which creates the view when its tab is shown for the first time.
+         */
+        private static void openDeferredView(Session.DeferredView deferredView) {
+            final Product product = deferredView.getProduct();
+            if (product == null) {
+                return;
+            }
+            final DeferredViewTopComponent placeholder = new DeferredViewTopComponent(product, deferredView.getName(), () -> {
+                try {
+                    openSceneView(deferredView.materialize());
+                    for (Exception problem : deferredView.getProblems()) {
+                        SystemUtils.LOG.warning("Problem restoring view '" + deferredView.getName() + "': "
+                                                + problem.getMessage());
+                    }
+                } catch (Exception e) {
+                    SnapApp.getDefault().handleError(MessageFormat.format("Failed to restore view ''{0}''.\n\n{1}",
+                                                                          deferredView.getName(), e.getMessage()), e);
+                }
+            });
+            DocumentWindowManager.getDefault().openWindow(placeholder);
+        }
+
+        private static void openSceneView(ProductSceneView sceneView) {
+            final UndoRedo.Manager undoManager = SnapApp.getDefault().getUndoManager(sceneView.getProduct());
+            final ProductSceneViewTopComponent window = new ProductSceneViewTopComponent(sceneView, undoManager);
+            DocumentWindowManager.getDefault().openWindow(window);
+            window.requestSelected();
+        }
+
         private <T> T getAction(String actionId) {
             T action = null;
             if (action == null) {
@@ -30,11 +30,18 @@ public class RestoredSession {
 
     private final Product[] products;
     private final ProductNodeView[] views;
+    private final Session.DeferredView[] deferredViews;
     private final Exception[] problems;
 
     public RestoredSession(Product[] products, ProductNodeView[] views, Exception[] problems) {
+        this(products, views, new Session.DeferredView[0], problems);
+    }
+
+    public RestoredSession(Product[] products, ProductNodeView[] views, Session.DeferredView[] deferredViews,
+                           Exception[] problems) {
         this.products = products;
         this.views = views;
+        this.deferredViews = deferredViews;
         this.problems = problems;
     }
 
@@ -46,6 +53,13 @@ public class RestoredSession {
         return views.clone();
     }
 
+    /**
+     * @return the views which have not been restored yet, because they were hidden by other views
+     */
+    public Session.DeferredView[] getDeferredViews() {
+        return deferredViews.clone();
+    }
+
     public Exception[] getProblems() {
         return problems.clone();
     }
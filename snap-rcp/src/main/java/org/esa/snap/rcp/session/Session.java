@@ -55,6 +55,7 @@ import org.esa.snap.glayer.MaskCollectionLayerType;
 import org.esa.snap.rcp.metadata.MetadataViewTopComponent;
 import org.esa.snap.rcp.session.dom.SessionDomConverter;
 import org.esa.snap.util.PropertyMap;
+import org.esa.snap.util.SystemUtils;
 import org.esa.snap.util.io.FileUtils;
 
 import javax.swing.JComponent;
@@ -62,12 +63,20 @@ import javax.swing.RootPaneContainer;
 import javax.swing.SwingUtilities;
 import java.awt.Container;
 import java.awt.Rectangle;
+import java.awt.geom.Area;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Data container used for storing/restoring BEAM sessions.
@@ -82,6 +91,8 @@ public class Session {
 
     public static String CURRENT_MODEL_VERSION = "1.0.0";
 
+    private static final int MAX_PRODUCT_READERS = 4;
+
     String modelVersion;
     @XStreamAlias("products")
     ProductRef[] productRefs;
@@ -273,28 +284,51 @@ public class Session {
             ProductManager productManager = restoreProducts(rootURI, SubProgressMonitor.create(pm, 80),
                                                             problemSolver, problems);
             // Note: ProductManager is used for the SessionDomConverter
-            ProductNodeView[] views = restoreViews(productManager, appContext.getPreferences(), SubProgressMonitor.create(pm, 20), problems
-            );
+            ArrayList<DeferredView> deferredViews = new ArrayList<DeferredView>();
+            ProductNodeView[] views = restoreViews(productManager, appContext.getPreferences(), SubProgressMonitor.create(pm, 20), problems,
+                                                   deferredViews);
             return new RestoredSession(productManager.getProducts(),
                                        views,
+                                       deferredViews.toArray(new DeferredView[deferredViews.size()]),
                                        problems.toArray(new Exception[problems.size()]));
         } finally {
             pm.done();
         }
     }
 
+    /*
+     * Reads the products concurrently, but adds them to the product manager in the order of the product
+     * references. Products which are not found are resolved by the problem solver one after the other.
+     */
     ProductManager restoreProducts(URI rootURI, ProgressMonitor pm, ProblemSolver problemSolver,
                                    List<Exception> problems) throws CanceledException {
         ProductManager productManager = new ProductManager();
+        ExecutorService executor = Executors.newFixedThreadPool(getProductReaderCount(), runnable -> {
+            Thread thread = new Thread(runnable, "SessionProductReader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<Product>> productReads = new ArrayList<Future<Product>>(productRefs.length);
+        int consumedCount = 0;
         try {
             pm.beginTask("Restoring products", productRefs.length);
             for (ProductRef productRef : productRefs) {
+                File productFile = new File(rootURI.resolve(productRef.uri));
+                if (productFile.exists()) {
+                    productReads.add(executor.submit(() -> readProduct(productRef, productFile)));
+                } else {
+                    productReads.add(null);
+                }
+            }
+            for (; consumedCount < productRefs.length; consumedCount++) {
+                ProductRef productRef = productRefs[consumedCount];
                 try {
                     Product product;
-                    File productFile = new File(rootURI.resolve(productRef.uri));
-                    if (productFile.exists()) {
-                        product = ProductIO.readProduct(productFile);
+                    Future<Product> productRead = productReads.get(consumedCount);
+                    if (productRead != null) {
+                        product = getProduct(productRead);
                     } else {
+                        File productFile = new File(rootURI.resolve(productRef.uri));
                         product = problemSolver.solveProductNotFound(productRef.refNo, productFile);
                         if (product == null) {
                             throw new IOException("Product [" + productRef.refNo + "] not found.");
@@ -309,23 +343,83 @@ public class Session {
                 }
             }
         } finally {
+            executor.shutdownNow();
+            // products which have been read ahead but are no longer needed, e.g. if the user has cancelled
+            for (int i = consumedCount; i < productReads.size(); i++) {
+                disposeProduct(productReads.get(i));
+            }
             pm.done();
         }
 
         return productManager;
     }
 
+    private static int getProductReaderCount() {
+        return Math.max(1, Math.min(MAX_PRODUCT_READERS, Runtime.getRuntime().availableProcessors()));
+    }
+
+    private static Product readProduct(ProductRef productRef, File productFile) throws IOException {
+        long t0 = System.nanoTime();
+        Product product = ProductIO.readProduct(productFile);
+        if (product == null) {
+            throw new IOException("No reader found for product [" + productRef.refNo + "]: " + productFile);
+        }
+        SystemUtils.LOG.info(String.format("Session: restored product [%d] '%s' in %d ms",
+                                           productRef.refNo, product.getName(), getMillisSince(t0)));
+        return product;
+    }
+
+    private static Product getProduct(Future<Product> productRead) throws IOException, CanceledException {
+        try {
+            return productRead.get();
+        } catch (InterruptedException e) {
+            throw new CanceledException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    private static void disposeProduct(Future<Product> productRead) {
+        if (productRead != null && !productRead.cancel(true) && productRead.isDone()) {
+            try {
+                productRead.get().dispose();
+            } catch (Exception ignored) {
+                // the product has not been read
+            }
+        }
+    }
+
+    private static long getMillisSince(long nanos) {
+        return (System.nanoTime() - nanos) / 1000000L;
+    }
+
+    /*
+     * Restores the views which are visible right away. Scene views which are hidden behind other views are only
+     * collected as deferred views; they are restored together with their layers when they are first shown.
+     */
     private ProductNodeView[] restoreViews(ProductManager productManager,
                                            PropertyMap applicationPreferences,
                                            ProgressMonitor pm,
-                                           List<Exception> problems) {
+                                           List<Exception> problems,
+                                           List<DeferredView> deferredViews) {
         ArrayList<ProductNodeView> views = new ArrayList<ProductNodeView>();
+        Set<ViewRef> hiddenViews = getHiddenViews(viewRefs);
         try {
             pm.beginTask("Restoring views", viewRefs.length);
             for (ViewRef viewRef : viewRefs) {
                 try {
                     if (ProductSceneView.class.getName().equals(viewRef.type)) {
-                        collectSceneView(viewRef, productManager, applicationPreferences, pm, problems, views);
+                        if (hiddenViews.contains(viewRef)) {
+                            deferredViews.add(new DeferredView(viewRef, productManager, applicationPreferences));
+                        } else {
+                            long t0 = System.nanoTime();
+                            collectSceneView(viewRef, productManager, applicationPreferences, pm, problems, views);
+                            logViewRestored(viewRef, t0);
+                        }
                     } else if (MetadataViewTopComponent.class.getName().equals(viewRef.type)) {
                         collectMetadataView(viewRef, productManager, views);
                         // todo - flag and index coding views (rq-20100618)
@@ -344,6 +438,34 @@ public class Session {
         return views.toArray(new ProductNodeView[views.size()]);
     }
 
+    /*
+     * A view is hidden if its bounds are completely covered by the views stored after it, which are on top of it.
+     * Views docked as tabs of the same window share their bounds, so only the last of them is visible.
+     */
+    static Set<ViewRef> getHiddenViews(ViewRef[] viewRefs) {
+        Set<ViewRef> hiddenViews = Collections.newSetFromMap(new IdentityHashMap<ViewRef, Boolean>());
+        Area coveredArea = new Area();
+        for (int i = viewRefs.length - 1; i >= 0; i--) {
+            Rectangle bounds = viewRefs[i].bounds;
+            if (bounds == null || bounds.isEmpty()) {
+                continue;
+            }
+            Area area = new Area(bounds);
+            area.subtract(coveredArea);
+            if (area.isEmpty()) {
+                hiddenViews.add(viewRefs[i]);
+            }
+            coveredArea.add(new Area(bounds));
+        }
+        return hiddenViews;
+    }
+
+    private static void logViewRestored(ViewRef viewRef, long t0) {
+        String viewName = viewRef.productNodeName != null ? viewRef.productNodeName : viewRef.viewName;
+        SystemUtils.LOG.info(String.format("Session: restored view [%d] '%s' in %d ms",
+                                           viewRef.id, viewName, getMillisSince(t0)));
+    }
+
     private static void collectSceneView(final ViewRef viewRef,
                                          final ProductManager productManager,
                                          final PropertyMap applicationPreferences,
@@ -360,25 +482,30 @@ public class Session {
                         throw new IllegalStateException("Could not create scene", e);
                     }
                     views.add(view);
-                    for (int i = 0; i < viewRef.getLayerCount(); i++) {
-                        LayerRef ref = viewRef.getLayerRef(i);
-                        if (isBaseImageLayerRef(view, ref)) {
-                            // The BaseImageLayer is not restored by LayerRef, so we have to adjust
-                            // transparency and visibility  manually
-                            view.getBaseImageLayer().setTransparency(ref.transparency);
-                            view.getBaseImageLayer().setVisible(ref.visible);
-                        } else {
-                            try {
-                                addLayerRef(view, view.getRootLayer(), ref, productManager);
-                            } catch (Exception e) {
-                                problems.add(e);
-                            }
-                        }
-                    }
+                    restoreLayers(view, viewRef, productManager, problems);
                 }
             });
     }
 
+    private static void restoreLayers(ProductSceneView view, ViewRef viewRef, ProductManager productManager,
+                                      List<Exception> problems) {
+        for (int i = 0; i < viewRef.getLayerCount(); i++) {
+            LayerRef ref = viewRef.getLayerRef(i);
+            if (isBaseImageLayerRef(view, ref)) {
+                // The BaseImageLayer is not restored by LayerRef, so we have to adjust
+                // transparency and visibility  manually
+                view.getBaseImageLayer().setTransparency(ref.transparency);
+                view.getBaseImageLayer().setVisible(ref.visible);
+            } else {
+                try {
+                    addLayerRef(view, view.getRootLayer(), ref, productManager);
+                } catch (Exception e) {
+                    problems.add(e);
+                }
+            }
+        }
+    }
+
     private static boolean isBaseImageLayerRef(ProductSceneView view, LayerRef ref) {
         return view.getBaseImageLayer().getId().equals(ref.id);
     }
@@ -498,6 +625,70 @@ public class Session {
         return null;
     }
 
+    /**
+     * A scene view of a restored session which has not been created yet, because it was hidden when the
+     * session has been saved. The view and its layers are created by {@link #materialize()}, when the view is
+     * first shown.
+     */
+    public static class DeferredView {
+
+        private final ViewRef viewRef;
+        private final ProductManager productManager;
+        private final PropertyMap applicationPreferences;
+        private final List<Exception> problems;
+        private ProductSceneView view;
+
+        DeferredView(ViewRef viewRef, ProductManager productManager, PropertyMap applicationPreferences) {
+            this.viewRef = viewRef;
+            this.productManager = productManager;
+            this.applicationPreferences = applicationPreferences;
+            this.problems = new ArrayList<Exception>();
+        }
+
+        /**
+         * @return the product of the view, or {@code null} if it is not part of the session any more
+         */
+        public Product getProduct() {
+            return productManager.getProductByRefNo(viewRef.productRefNo);
+        }
+
+        public String getName() {
+            return viewRef.productNodeName != null ? viewRef.productNodeName : viewRef.viewName;
+        }
+
+        public Rectangle getBounds() {
+            return viewRef.bounds != null ? new Rectangle(viewRef.bounds) : null;
+        }
+
+        public boolean isMaterialized() {
+            return view != null;
+        }
+
+        /**
+         * Creates the view and its layers, if not already done. Must be called from the event dispatch thread.
+         * Problems with single layers do not prevent the view from being created, they are reported by
+         * {@link #getProblems()}.
+         *
+         * @return the view
+         * @throws Exception if the view cannot be created
+         */
+        public ProductSceneView materialize() throws Exception {
+            if (view == null) {
+                long t0 = System.nanoTime();
+                ProductSceneView sceneView = createSceneView(viewRef, productManager, applicationPreferences,
+                                                             ProgressMonitor.NULL);
+                restoreLayers(sceneView, viewRef, productManager, problems);
+                view = sceneView;
+                logViewRestored(viewRef, t0);
+            }
+            return view;
+        }
+
+        public Exception[] getProblems() {
+            return problems.toArray(new Exception[problems.size()]);
+        }
+    }
+
     public static interface ProblemSolver {
 
         Product solveProductNotFound(int id, File file) throws CanceledException;
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.spectrum;
+
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.PixelPos;
+import org.esa.snap.framework.datamodel.Placemark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the spectra of the displayed pins.
+ * <p>
+ * Only the spectra of the pins passed to the last call of {@link #getSpectra} are kept. An entry is re-read if its
+ * pin has moved, or if the bands or the resolution level have changed. All spectra to be re-read are read in one
+ * pass by the {@link SpectrumExtractor}.
+ */
+class PinSpectraCache {
+
+    private final Map<Placemark, Entry> entries;
+
+    PinSpectraCache() {
+        entries = new HashMap<>();
+    }
+
+    /**
+     * @param pins  the displayed pins
+     * @param bands the spectral bands
+     * @param level the resolution level
+     * @return the spectra, {@code spectra[pinIndex][bandIndex]}
+     */
+    double[][] getSpectra(Placemark[] pins, Band[] bands, int level) {
+        entries.keySet().retainAll(Arrays.asList(pins));
+
+        final double[][] spectra = new double[pins.length][];
+        final List<Integer> missingIndexes = new ArrayList<>();
+        for (int i = 0; i < pins.length; i++) {
+            final Entry entry = entries.get(pins[i]);
+            if (entry != null && entry.isValid(pins[i].getPixelPos(), bands, level)) {
+                spectra[i] = entry.spectrum;
+            } else {
+                missingIndexes.add(i);
+            }
+        }
+        if (!missingIndexes.isEmpty()) {
+            final PixelPos[] positions = new PixelPos[missingIndexes.size()];
+            for (int k = 0; k < positions.length; k++) {
+                final PixelPos pixelPos = pins[missingIndexes.get(k)].getPixelPos();
+                positions[k] = new PixelPos(pixelPos.getX(), pixelPos.getY());
+            }
+            final double[][] missingSpectra = SpectrumExtractor.readSpectra(bands, positions, level);
+            for (int k = 0; k < positions.length; k++) {
+                final int i = missingIndexes.get(k);
+                spectra[i] = missingSpectra[k];
+                entries.put(pins[i], new Entry(positions[k], bands, level, missingSpectra[k]));
+            }
+        }
+        return spectra;
+    }
+
+    void removePin(Placemark pin) {
+        entries.remove(pin);
+    }
+
+    void removeBand(Band band) {
+        entries.values().removeIf(entry -> Arrays.asList(entry.bands).contains(band));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+
+        private final PixelPos pixelPos;
+        private final Band[] bands;
+        private final int level;
+        private final double[] spectrum;
+
+        private Entry(PixelPos pixelPos, Band[] bands, int level, double[] spectrum) {
+            this.pixelPos = pixelPos;
+            this.bands = bands;
+            this.level = level;
+            this.spectrum = spectrum;
+        }
+
+        private boolean isValid(PixelPos currentPixelPos, Band[] currentBands, int currentLevel) {
+            return level == currentLevel
+                   && pixelPos.getX() == currentPixelPos.getX()
+                   && pixelPos.getY() == currentPixelPos.getY()
+                   && Arrays.equals(bands, currentBands);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.spectrum;
+
+import com.bc.ceres.glevel.MultiLevelModel;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.PixelPos;
+import org.esa.snap.jai.ImageManager;
+
+import javax.media.jai.PlanarImage;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Point2D;
+import java.awt.image.Raster;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Reads the spectra of a stack of bands at many pixel positions.
+ * <p>
+ * For each band the positions are grouped by the tile they fall into, so that every tile is fetched only once.
+ * The bands are read in parallel. Positions outside of a band's image yield the band's geophysical no-data value.
+ */
+class SpectrumExtractor {
+
+    private SpectrumExtractor() {
+    }
+
+    /**
+     * Reads the spectra at positions given in level-zero image coordinates.
+     *
+     * @param bands     the spectral bands
+     * @param positions the level-zero pixel positions
+     * @param level     the resolution level to read from
+     * @return the spectra, {@code spectra[positionIndex][bandIndex]}
+     */
+    static double[][] readSpectra(Band[] bands, PixelPos[] positions, int level) {
+        // the bands of a spectrum usually share a single multi-level model, transform the positions only once
+        final Map<MultiLevelModel, int[][]> levelPositions = new IdentityHashMap<>();
+        final int[][][] bandPositions = new int[bands.length][][];
+        for (int i = 0; i < bands.length; i++) {
+            final MultiLevelModel multiLevelModel = ImageManager.getMultiLevelModel(bands[i]);
+            bandPositions[i] = levelPositions.computeIfAbsent(multiLevelModel,
+                                                              model -> toLevelPositions(model, positions, level));
+        }
+        return readSpectra(bands, bandPositions, positions.length, level);
+    }
+
+    /**
+     * Reads the spectra at positions given in image coordinates of the given level.
+     *
+     * @param bands  the spectral bands
+     * @param pixelX the pixel X-coordinates at the given level
+     * @param pixelY the pixel Y-coordinates at the given level
+     * @param level  the resolution level to read from
+     * @return the spectra, {@code spectra[positionIndex][bandIndex]}
+     */
+    static double[][] readSpectra(Band[] bands, int[] pixelX, int[] pixelY, int level) {
+        final int[][][] bandPositions = new int[bands.length][][];
+        Arrays.fill(bandPositions, new int[][]{pixelX, pixelY});
+        return readSpectra(bands, bandPositions, pixelX.length, level);
+    }
+
+    private static double[][] readSpectra(Band[] bands, int[][][] bandPositions, int positionCount, int level) {
+        final double[][] spectra = new double[positionCount][bands.length];
+        IntStream.range(0, bands.length).parallel().forEach(bandIndex -> {
+            readBand(bands[bandIndex], bandIndex, bandPositions[bandIndex][0], bandPositions[bandIndex][1],
+                     level, spectra);
+        });
+        return spectra;
+    }
+
+    private static void readBand(Band band, int bandIndex, int[] pixelX, int[] pixelY, int level, double[][] spectra) {
+        final PlanarImage image = ImageManager.getInstance().getGeophysicalImage(band, level);
+        final double noDataValue = band.getGeophysicalNoDataValue();
+
+        // sort the positions by tile, the lower 32 bits keep the index of the position
+        final long[] keys = new long[pixelX.length];
+        int keyCount = 0;
+        for (int i = 0; i < pixelX.length; i++) {
+            final int x = pixelX[i];
+            final int y = pixelY[i];
+            if (x >= image.getMinX() && y >= image.getMinY() && x < image.getMaxX() && y < image.getMaxY()) {
+                final long tileIndex = (long) (image.YToTileY(y) - image.getMinTileY()) * image.getNumXTiles()
+                                       + (image.XToTileX(x) - image.getMinTileX());
+                keys[keyCount++] = (tileIndex << 32) | i;
+            } else {
+                spectra[i][bandIndex] = noDataValue;
+            }
+        }
+        Arrays.sort(keys, 0, keyCount);
+
+        Raster tile = null;
+        long currentTileIndex = -1;
+        for (int k = 0; k < keyCount; k++) {
+            final long tileIndex = keys[k] >>> 32;
+            final int i = (int) keys[k];
+            if (tile == null || tileIndex != currentTileIndex) {
+                tile = image.getTile(image.XToTileX(pixelX[i]), image.YToTileY(pixelY[i]));
+                currentTileIndex = tileIndex;
+            }
+            spectra[i][bandIndex] = tile.getSampleDouble(pixelX[i], pixelY[i], 0);
+        }
+    }
+
+    private static int[][] toLevelPositions(MultiLevelModel multiLevelModel, PixelPos[] positions, int level) {
+        final AffineTransform transform = new AffineTransform(multiLevelModel.getModelToImageTransform(level));
+        transform.concatenate(multiLevelModel.getImageToModelTransform(0));
+        final int[] pixelX = new int[positions.length];
+        final int[] pixelY = new int[positions.length];
+        final Point2D imagePixel = new Point2D.Double();
+        for (int i = 0; i < positions.length; i++) {
+            transform.transform(positions[i], imagePixel);
+            pixelX[i] = (int) Math.floor(imagePixel.getX());
+            pixelY[i] = (int) Math.floor(imagePixel.getY());
+        }
+        return new int[][]{pixelX, pixelY};
+    }
+}
@@ -15,7 +15,6 @@
  */
 package org.esa.snap.rcp.spectrum;
 
-import com.bc.ceres.glevel.MultiLevelModel;
 import org.esa.snap.framework.datamodel.Band;
 import org.esa.snap.framework.datamodel.DataNode;
 import org.esa.snap.framework.datamodel.Placemark;
@@ -37,14 +36,12 @@ import org.esa.snap.framework.ui.product.spectrum.SpectrumChooser;
 import org.esa.snap.framework.ui.product.spectrum.SpectrumShapeProvider;
 import org.esa.snap.framework.ui.product.spectrum.SpectrumStrokeProvider;
 import org.esa.snap.framework.ui.tool.ToolButtonFactory;
-import org.esa.snap.jai.ImageManager;
 import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.rcp.SnapDialogs;
 import org.esa.snap.rcp.actions.help.HelpAction;
 import org.esa.snap.rcp.placemark.PlacemarkUtils;
 import org.esa.snap.rcp.statistics.XYPlotMarker;
 import org.esa.snap.rcp.windows.ToolTopComponent;
-import org.esa.snap.util.ProductUtils;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -90,13 +87,13 @@ import java.awt.GridBagConstraints;
 import java.awt.Paint;
 import java.awt.Shape;
 import java.awt.Stroke;
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -784,7 +781,7 @@ public class SpectrumTopComponent extends ToolTopComponent {
         private final static int range_axis_index = 1;
         private final static double relativePlotInset = 0.05;
 
-        private final Map<Placemark, Map<Band, Double>> pinToEnergies;
+        private final PinSpectraCache pinSpectraCache;
         private int pixelX;
         private int pixelY;
         private int level;
@@ -792,7 +789,7 @@ public class SpectrumTopComponent extends ToolTopComponent {
         private XYSeriesCollection dataset;
 
         private ChartUpdater() {
-            pinToEnergies = new HashMap<>();
+            pinSpectraCache = new PinSpectraCache();
             plotBounds = new Range[2];
             invalidatePlotBounds();
         }
@@ -887,9 +884,12 @@ public class SpectrumTopComponent extends ToolTopComponent {
                 for (DisplayableSpectrum spectrum : spectra) {
                     XYSeries series = new XYSeries(spectrum.getName());
                     final Band[] spectralBands = spectrum.getSelectedBands();
-                    for (Band spectralBand : spectralBands) {
+                    final double[] energies = SpectrumExtractor.readSpectra(spectralBands, new int[]{pixelX},
+                                                                            new int[]{pixelY}, level)[0];
+                    for (int i = 0; i < spectralBands.length; i++) {
+                        final Band spectralBand = spectralBands[i];
                         final float wavelength = spectralBand.getSpectralWavelength();
-                        final double energy = ProductUtils.getGeophysicalSampleDouble(spectralBand, pixelX, pixelY, level);
+                        final double energy = energies[i];
                         if (energy != spectralBand.getGeophysicalNoDataValue()) {
                             series.add(wavelength, energy);
                         }
@@ -902,33 +902,31 @@ public class SpectrumTopComponent extends ToolTopComponent {
 
         private void fillDatasetWithPinSeries(List<DisplayableSpectrum> spectra, XYSeriesCollection dataset, JFreeChart chart) {
             Placemark[] pins = getDisplayedPins();
-            for (Placemark pin : pins) {
-                List<XYSeries> pinSeries = createXYSeriesFromPin(pin, dataset.getSeriesCount(), spectra, chart);
+            final Map<Band, Integer> bandIndexes = new IdentityHashMap<>();
+            for (DisplayableSpectrum spectrum : spectra) {
+                for (Band spectralBand : spectrum.getSpectralBands()) {
+                    bandIndexes.putIfAbsent(spectralBand, bandIndexes.size());
+                }
+            }
+            final Band[] bands = new Band[bandIndexes.size()];
+            bandIndexes.forEach((band, index) -> bands[index] = band);
+            final double[][] pinSpectra = pinSpectraCache.getSpectra(pins, bands, level);
+            for (int i = 0; i < pins.length; i++) {
+                List<XYSeries> pinSeries = createXYSeriesFromPin(pins[i], pinSpectra[i], bandIndexes,
+                                                                 dataset.getSeriesCount(), spectra, chart);
                 pinSeries.forEach(dataset::addSeries);
             }
         }
 
-        private List<XYSeries> createXYSeriesFromPin(Placemark pin, int seriesIndex, List<DisplayableSpectrum> spectra, JFreeChart chart) {
+        private List<XYSeries> createXYSeriesFromPin(Placemark pin, double[] energies, Map<Band, Integer> bandIndexes,
+                                                     int seriesIndex, List<DisplayableSpectrum> spectra, JFreeChart chart) {
             List<XYSeries> pinSeries = new ArrayList<>();
             Color pinColor = PlacemarkUtils.getPlacemarkColor(pin, currentView);
             for (DisplayableSpectrum spectrum : spectra) {
                 XYSeries series = new XYSeries(spectrum.getName() + "_" + pin.getLabel());
                 final Band[] spectralBands = spectrum.getSelectedBands();
-                Map<Band, Double> bandToEnergy;
-                if (pinToEnergies.containsKey(pin)) {
-                    bandToEnergy = pinToEnergies.get(pin);
-                } else {
-                    bandToEnergy = new HashMap<>();
-                    pinToEnergies.put(pin, bandToEnergy);
-                }
                 for (Band spectralBand : spectralBands) {
-                    double energy;
-                    if (bandToEnergy.containsKey(spectralBand)) {
-                        energy = bandToEnergy.get(spectralBand);
-                    } else {
-                        energy = readEnergy(pin, spectralBand);
-                        bandToEnergy.put(spectralBand, energy);
-                    }
+                    final double energy = energies[bandIndexes.get(spectralBand)];
                     final float wavelength = spectralBand.getSpectralWavelength();
                     if (energy != spectralBand.getGeophysicalNoDataValue()) {
                         series.add(wavelength, energy);
@@ -950,28 +948,12 @@ public class SpectrumTopComponent extends ToolTopComponent {
             renderer.setSeriesShape(seriesIndex, symbol);
         }
 
-        private double readEnergy(Placemark pin, Band spectralBand) {
-            final MultiLevelModel multiLevelModel = ImageManager.getMultiLevelModel(spectralBand);
-            final AffineTransform i2mTransform = multiLevelModel.getImageToModelTransform(0);
-            final AffineTransform m2iTransform = multiLevelModel.getModelToImageTransform(level);
-            final Point2D modelPixel = i2mTransform.transform(pin.getPixelPos(), null);
-            final Point2D imagePixel = m2iTransform.transform(modelPixel, null);
-            int pinPixelX = (int) Math.floor(imagePixel.getX());
-            int pinPixelY = (int) Math.floor(imagePixel.getY());
-            return ProductUtils.getGeophysicalSampleDouble(spectralBand, pinPixelX, pinPixelY, level);
-        }
-
         private void removePinInformation(Placemark pin) {
-            pinToEnergies.remove(pin);
+            pinSpectraCache.removePin(pin);
         }
 
         private void removeBandinformation(Band band) {
-            for (Placemark pin : pinToEnergies.keySet()) {
-                Map<Band, Double> bandToEnergiesMap = pinToEnergies.get(pin);
-                if (bandToEnergiesMap.containsKey(band)) {
-                    bandToEnergiesMap.remove(band);
-                }
-            }
+            pinSpectraCache.removeBand(band);
         }
 
         public boolean hasValidCursorPosition() {
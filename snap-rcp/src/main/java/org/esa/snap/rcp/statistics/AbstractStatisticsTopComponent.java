@@ -201,6 +201,7 @@ public abstract class AbstractStatisticsTopComponent extends TopComponent implem
 
         @Override
         public void productRemoved(ProductManager.Event event) {
+            StxCache.getDefault().removeProduct(event.getProduct());
             selectionChanged(null, null, null);
         }
 
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.ProgressMonitor;
+import com.bc.ceres.glevel.MultiLevelImage;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+
+import javax.media.jai.PlanarImage;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A two-dimensional histogram of the values of two rasters, used by the {@link DensityPlotPanel}.
+ * <p>
+ * The bin counts are not limited. The rasters are read tile by tile, tiles are processed in parallel. The
+ * histogram can be computed from any resolution level of the rasters, which allows for a quick preview computed from
+ * a coarse level before the full resolution is processed.
+ */
+class DensityPlotAccumulator {
+
+    /**
+     * Maps a bin count to an index of the 256-colour palette of the density plot image. Index 0 is reserved for
+     * empty bins.
+     */
+    interface CountScale {
+
+        int toColorIndex(long count, long maxCount);
+    }
+
+    /**
+     * Counts are used as colour index and cropped at 255, the traditional density plot appearance.
+     */
+    static final CountScale CROPPED = (count, maxCount) -> (int) Math.min(count, 255);
+
+    static final CountScale LINEAR = (count, maxCount) -> 1 + (int) (254 * (count - 1) / Math.max(1, maxCount - 1));
+
+    static final CountScale LOGARITHMIC = (count, maxCount) ->
+            1 + (int) (254 * (Math.log(count) / Math.max(Math.log(maxCount), 1.0e-10)));
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final int width;
+    private final int height;
+    private final double minX;
+    private final double maxX;
+    private final double minY;
+    private final double maxY;
+    private final long[] counts;
+    private long maxCount;
+    private long totalCount;
+    private int numNonEmptyBins;
+
+    DensityPlotAccumulator(int width, int height, double minX, double maxX, double minY, double maxY) {
+        this.width = width;
+        this.height = height;
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.counts = new long[width * height];
+    }
+
+    /**
+     * Selects the resolution level used for a quick preview: the coarsest level which still provides at least as many
+     * pixels as the plot has bins.
+     */
+    static int getPreviewLevel(RasterDataNode raster, int binCount) {
+        final MultiLevelImage image = raster.getGeophysicalImage();
+        final int levelCount = image.getModel().getLevelCount();
+        for (int level = levelCount - 1; level > 0; level--) {
+            final Rectangle bounds = image.getImage(level).getBounds();
+            if ((long) bounds.width * bounds.height >= binCount) {
+                return level;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Accumulates the values of the given rasters at the given resolution level. Previously accumulated counts are
+     * discarded.
+     *
+     * @throws CancellationException if the progress monitor has been cancelled
+     */
+    void accumulate(RasterDataNode rasterX, RasterDataNode rasterY, Mask roiMask, int level, ProgressMonitor pm) {
+        final PlanarImage imageX = rasterX.getGeophysicalImage().getImage(level);
+        final PlanarImage imageY = rasterY.getGeophysicalImage().getImage(level);
+        final PlanarImage validX = getImage(rasterX.getValidMaskImage(), level);
+        final PlanarImage validY = getImage(rasterY.getValidMaskImage(), level);
+        final PlanarImage roi = roiMask != null ? roiMask.getSourceImage().getImage(level) : null;
+        final TilePass pass = new TilePass(imageX, imageY, validX, validY, roi);
+        final int tileCount = imageX.getNumXTiles() * imageX.getNumYTiles();
+
+        pm.beginTask("Computing density plot", tileCount);
+        try {
+            final ForkJoinPool pool = ForkJoinPool.commonPool();
+            final List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < Math.max(1, pool.getParallelism()); i++) {
+                futures.add(pool.submit(pass::work));
+            }
+            int reportedTiles = 0;
+            for (Future<long[]> future : futures) {
+                while (true) {
+                    if (pm.isCanceled()) {
+                        pass.cancelled.set(true);
+                        throw new CancellationException("Computation of density plot has been cancelled.");
+                    }
+                    try {
+                        future.get(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException ignored) {
+                        // poll again
+                    } finally {
+                        final int processedTiles = pass.processedTileCount.get();
+                        pm.worked(processedTiles - reportedTiles);
+                        reportedTiles = processedTiles;
+                    }
+                }
+            }
+            final long[] result = new long[counts.length];
+            for (Future<long[]> future : futures) {
+                final long[] partial = future.get();
+                for (int i = 0; i < result.length; i++) {
+                    result[i] += partial[i];
+                }
+            }
+            setCounts(result);
+        } catch (InterruptedException e) {
+            pass.cancelled.set(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Computation of density plot has been interrupted.");
+        } catch (ExecutionException e) {
+            pass.cancelled.set(true);
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            pm.done();
+        }
+    }
+
+    private synchronized void setCounts(long[] newCounts) {
+        System.arraycopy(newCounts, 0, counts, 0, counts.length);
+        maxCount = 0;
+        totalCount = 0;
+        numNonEmptyBins = 0;
+        for (long count : counts) {
+            if (count > 0) {
+                numNonEmptyBins++;
+                totalCount += count;
+                if (count > maxCount) {
+                    maxCount = count;
+                }
+            }
+        }
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * @param binX the bin index along the X-axis
+     * @param binY the bin index along the Y-axis, counted from the minimum Y value
+     * @return the number of pixels in the bin
+     */
+    synchronized long getCount(int binX, int binY) {
+        return counts[binY * width + binX];
+    }
+
+    synchronized long getMaxCount() {
+        return maxCount;
+    }
+
+    synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    synchronized int getNumNonEmptyBins() {
+        return numNonEmptyBins;
+    }
+
+    /**
+     * Renders the counts into an indexed image. The first image row shows the maximum Y values.
+     */
+    synchronized BufferedImage createImage(IndexColorModel colorModel, CountScale countScale) {
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_INDEXED, colorModel);
+        final byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        for (int binY = 0; binY < height; binY++) {
+            final int rowOffset = (height - 1 - binY) * width;
+            for (int binX = 0; binX < width; binX++) {
+                final long count = counts[binY * width + binX];
+                if (count > 0) {
+                    final int index = countScale.toColorIndex(count, maxCount);
+                    pixels[rowOffset + binX] = (byte) Math.max(1, Math.min(255, index));
+                }
+            }
+        }
+        return image;
+    }
+
+    private static PlanarImage getImage(MultiLevelImage image, int level) {
+        return image != null ? image.getImage(level) : null;
+    }
+
+    private class TilePass {
+
+        final PlanarImage imageX;
+        final PlanarImage imageY;
+        final PlanarImage validX;
+        final PlanarImage validY;
+        final PlanarImage roi;
+        final AtomicInteger nextTileIndex = new AtomicInteger();
+        final AtomicInteger processedTileCount = new AtomicInteger();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        TilePass(PlanarImage imageX, PlanarImage imageY, PlanarImage validX, PlanarImage validY, PlanarImage roi) {
+            this.imageX = imageX;
+            this.imageY = imageY;
+            this.validX = validX;
+            this.validY = validY;
+            this.roi = roi;
+        }
+
+        long[] work() {
+            final long[] localCounts = new long[width * height];
+            final int numXTiles = imageX.getNumXTiles();
+            final int tileCount = numXTiles * imageX.getNumYTiles();
+            final Rectangle imageBounds = imageX.getBounds();
+            final double scaleX = width / (maxX - minX);
+            final double scaleY = height / (maxY - minY);
+            double[] valuesX = null;
+            double[] valuesY = null;
+            int[] maskX = null;
+            int[] maskY = null;
+            int[] roiSamples = null;
+            int tileIndex;
+            while (!cancelled.get() && (tileIndex = nextTileIndex.getAndIncrement()) < tileCount) {
+                final int tileX = imageX.getMinTileX() + tileIndex % numXTiles;
+                final int tileY = imageX.getMinTileY() + tileIndex / numXTiles;
+                final Raster tile = imageX.getTile(tileX, tileY);
+                final Rectangle rect = tile.getBounds().intersection(imageBounds);
+                if (!rect.isEmpty()) {
+                    final int n = rect.width * rect.height;
+                    valuesX = tile.getSamples(rect.x, rect.y, rect.width, rect.height, 0, ensureSize(valuesX, n));
+                    valuesY = getData(imageY, rect).getSamples(rect.x, rect.y, rect.width, rect.height, 0, ensureSize(valuesY, n));
+                    if (validX != null) {
+                        maskX = getData(validX, rect).getSamples(rect.x, rect.y, rect.width, rect.height, 0, ensureSize(maskX, n));
+                    }
+                    if (validY != null) {
+                        maskY = getData(validY, rect).getSamples(rect.x, rect.y, rect.width, rect.height, 0, ensureSize(maskY, n));
+                    }
+                    if (roi != null) {
+                        roiSamples = getData(roi, rect).getSamples(rect.x, rect.y, rect.width, rect.height, 0, ensureSize(roiSamples, n));
+                    }
+                    for (int i = 0; i < n; i++) {
+                        if ((validX == null || maskX[i] != 0)
+                            && (validY == null || maskY[i] != 0)
+                            && (roi == null || roiSamples[i] != 0)) {
+                            final int binX = toBinIndex(valuesX[i], minX, maxX, scaleX, width);
+                            final int binY = toBinIndex(valuesY[i], minY, maxY, scaleY, height);
+                            if (binX >= 0 && binY >= 0) {
+                                localCounts[binY * width + binX]++;
+                            }
+                        }
+                    }
+                }
+                processedTileCount.incrementAndGet();
+            }
+            return localCounts;
+        }
+
+        private Raster getData(PlanarImage image, Rectangle rect) {
+            if (image.getTileWidth() == imageX.getTileWidth()
+                && image.getTileHeight() == imageX.getTileHeight()
+                && image.getTileGridXOffset() == imageX.getTileGridXOffset()
+                && image.getTileGridYOffset() == imageX.getTileGridYOffset()) {
+                return image.getTile(image.XToTileX(rect.x), image.YToTileY(rect.y));
+            }
+            return image.getData(rect);
+        }
+    }
+
+    /**
+     * @return the bin index, or -1 if the value is outside of the value range
+     */
+    static int toBinIndex(double value, double min, double max, double scale, int binCount) {
+        if (!(value >= min && value <= max)) {
+            return -1;
+        }
+        final int index = (int) ((value - min) * scale);
+        return index < binCount ? index : binCount - 1;
+    }
+
+    private static double[] ensureSize(double[] array, int size) {
+        return array != null && array.length >= size ? array : new double[size];
+    }
+
+    private static int[] ensureSize(int[] array, int size) {
+        return array != null && array.length >= size ? array : new int[size];
+    }
+}
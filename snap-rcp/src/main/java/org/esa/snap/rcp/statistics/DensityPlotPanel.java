@@ -37,7 +37,6 @@ import org.esa.snap.framework.ui.GridBagUtils;
 import org.esa.snap.rcp.SnapApp;
 import org.esa.snap.rcp.SnapDialogs;
 import org.esa.snap.util.Debug;
-import org.esa.snap.util.ProductUtils;
 import org.esa.snap.util.math.MathUtils;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
@@ -64,7 +63,6 @@ import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
-import java.awt.image.DataBufferByte;
 import java.awt.image.IndexColorModel;
 import java.io.IOException;
 import java.text.MessageFormat;
@@ -100,6 +98,7 @@ class DensityPlotPanel extends ChartPagePanel {
     private static final int Y_VAR = 1;
 
     private static final int NUM_DECIMALS = 2;
+    private static final int PLOT_SIZE = 512;
 
     private BindingContext bindingContext;
     private DataSourceConfig dataSourceConfig;
@@ -123,6 +122,8 @@ class DensityPlotPanel extends ChartPagePanel {
     private static final Color backgroundColor = new Color(255, 255, 255, 0);
     private boolean plotColorsInverted;
     private JCheckBox toggleColorCheckBox;
+    private DensityPlotAccumulator densityPlotAccumulator;
+    private DensityPlotAccumulator.CountScale countScale = DensityPlotAccumulator.CROPPED;
 
     DensityPlotPanel(TopComponent parentComponent, String helpId) {
         super(parentComponent, helpId, CHART_TITLE, true);
@@ -481,41 +482,47 @@ class DensityPlotPanel extends ChartPagePanel {
             return;
         }
 
-        ProgressMonitorSwingWorker<BufferedImage, Object> swingWorker = new ProgressMonitorSwingWorker<BufferedImage, Object>(
+        ProgressMonitorSwingWorker<DensityPlotAccumulator, DensityPlotAccumulator> swingWorker = new ProgressMonitorSwingWorker<DensityPlotAccumulator, DensityPlotAccumulator>(
                 this, "Computing scatter plot") {
 
             @Override
-            protected BufferedImage doInBackground(ProgressMonitor pm) throws Exception {
+            protected DensityPlotAccumulator doInBackground(ProgressMonitor pm) throws Exception {
                 pm.beginTask("Computing scatter plot...", 100);
                 try {
                     checkBandsForRange();
-                    setRange(X_VAR, rasterX, dataSourceConfig.useRoiMask ? dataSourceConfig.roiMask : null, SubProgressMonitor.create(pm, 15));
-                    setRange(Y_VAR, rasterY, dataSourceConfig.useRoiMask ? dataSourceConfig.roiMask : null, SubProgressMonitor.create(pm, 15));
-                    final BufferedImage densityPlotImage = ProductUtils.createDensityPlotImage(rasterX,
-                                                                                               axisRangeControls[X_VAR].getMin().floatValue(),
-                                                                                               axisRangeControls[X_VAR].getMax().floatValue(),
-                                                                                               rasterY,
-                                                                                               axisRangeControls[Y_VAR].getMin().floatValue(),
-                                                                                               axisRangeControls[Y_VAR].getMax().floatValue(),
-                                                                                               dataSourceConfig.useRoiMask ? dataSourceConfig.roiMask : null,
-                                                                                               512,
-                                                                                               512,
-                                                                                               backgroundColor,
-                                                                                               null,
-                                                                                               SubProgressMonitor.create(pm, 70));
+                    final Mask roiMask = dataSourceConfig.useRoiMask ? dataSourceConfig.roiMask : null;
+                    setRange(X_VAR, rasterX, roiMask, SubProgressMonitor.create(pm, 15));
+                    setRange(Y_VAR, rasterY, roiMask, SubProgressMonitor.create(pm, 15));
+                    final int previewLevel = DensityPlotAccumulator.getPreviewLevel(rasterX, PLOT_SIZE * PLOT_SIZE);
+                    if (previewLevel > 0) {
+                        final DensityPlotAccumulator preview = createAccumulator();
+                        preview.accumulate(rasterX, rasterY, roiMask, previewLevel, SubProgressMonitor.create(pm, 10));
+                        publish(preview);
+                    } else {
+                        pm.worked(10);
+                    }
+                    final DensityPlotAccumulator accumulator = createAccumulator();
+                    accumulator.accumulate(rasterX, rasterY, roiMask, 0, SubProgressMonitor.create(pm, 60));
                     toggleColorCheckBox.setSelected(false);
                     plotColorsInverted = false;
-                    return densityPlotImage;
+                    return accumulator;
                 } finally {
                     pm.done();
                 }
             }
 
+            @Override
+            protected void process(List<DensityPlotAccumulator> previews) {
+                if (!isDone()) {
+                    showDensityPlot(previews.get(previews.size() - 1));
+                }
+            }
+
             @Override
             public void done() {
                 try {
                     checkBandsForRange();
-                    final BufferedImage densityPlotImage = get();
+                    final DensityPlotAccumulator accumulator = get();
                     double minX = axisRangeControls[X_VAR].getMin();
                     double maxX = axisRangeControls[X_VAR].getMax();
                     double minY = axisRangeControls[Y_VAR].getMin();
@@ -532,18 +539,9 @@ class DensityPlotPanel extends ChartPagePanel {
 
                     }
 
-                    if (MathUtils.equalValues(minX, maxX, 1.0e-4)) {
-                        minX = Math.floor(minX);
-                        maxX = Math.ceil(maxX);
-                    }
-                    if (MathUtils.equalValues(minY, maxY, 1.0e-4)) {
-                        minY = Math.floor(minY);
-                        maxY = Math.ceil(maxY);
-                    }
-                    plot.setImage(densityPlotImage);
-                    plot.setImageDataBounds(new Rectangle2D.Double(minX, minY, maxX - minX, maxY - minY));
-                    axisRangeControls[X_VAR].adjustComponents(minX, maxX, NUM_DECIMALS);
-                    axisRangeControls[Y_VAR].adjustComponents(minY, maxY, NUM_DECIMALS);
+                    showDensityPlot(accumulator);
+                    axisRangeControls[X_VAR].adjustComponents(getPlotMin(minX, maxX), getPlotMax(minX, maxX), NUM_DECIMALS);
+                    axisRangeControls[Y_VAR].adjustComponents(getPlotMin(minY, maxY), getPlotMax(minY, maxY), NUM_DECIMALS);
                     plot.getDomainAxis().setLabel(StatisticChartStyling.getAxisLabel(getRaster(X_VAR), "X", false));
                     plot.getRangeAxis().setLabel(StatisticChartStyling.getAxisLabel(getRaster(Y_VAR), "Y", false));
                     toggleColorCheckBox.setEnabled(true);
@@ -570,6 +568,43 @@ class DensityPlotPanel extends ChartPagePanel {
         swingWorker.execute();
     }
 
+    private static DensityPlotAccumulator createAccumulator() {
+        return new DensityPlotAccumulator(PLOT_SIZE, PLOT_SIZE,
+                                          axisRangeControls[X_VAR].getMin(), axisRangeControls[X_VAR].getMax(),
+                                          axisRangeControls[Y_VAR].getMin(), axisRangeControls[Y_VAR].getMax());
+    }
+
+    private void showDensityPlot(DensityPlotAccumulator accumulator) {
+        final double minX = axisRangeControls[X_VAR].getMin();
+        final double maxX = axisRangeControls[X_VAR].getMax();
+        final double minY = axisRangeControls[Y_VAR].getMin();
+        final double maxY = axisRangeControls[Y_VAR].getMax();
+        if (minX > maxX || minY > maxY) {
+            return;
+        }
+        densityPlotAccumulator = accumulator;
+        final IndexColorModel colorModel = plotColorsInverted ? untoggledColorModel : toggledColorModel;
+        plot.setImage(accumulator.createImage(colorModel, countScale));
+        plot.setImageDataBounds(new Rectangle2D.Double(getPlotMin(minX, maxX), getPlotMin(minY, maxY),
+                                                       getPlotMax(minX, maxX) - getPlotMin(minX, maxX),
+                                                       getPlotMax(minY, maxY) - getPlotMin(minY, maxY)));
+    }
+
+    void setCountScale(DensityPlotAccumulator.CountScale countScale) {
+        this.countScale = countScale;
+        if (densityPlotAccumulator != null) {
+            showDensityPlot(densityPlotAccumulator);
+        }
+    }
+
+    private static double getPlotMin(double min, double max) {
+        return MathUtils.equalValues(min, max, 1.0e-4) ? Math.floor(min) : min;
+    }
+
+    private static double getPlotMax(double min, double max) {
+        return MathUtils.equalValues(min, max, 1.0e-4) ? Math.ceil(max) : max;
+    }
+
     private static void setRange(int varIndex, RasterDataNode raster, Mask mask, ProgressMonitor pm) throws IOException {
         final AxisRangeControl axisRangeControl = axisRangeControls[varIndex];
         if (axisRangeControl.isAutoMinMax()) {
@@ -577,7 +612,12 @@ class DensityPlotPanel extends ChartPagePanel {
             if (mask == null) {
                 stx = raster.getStx(false, pm);
             } else {
-                stx = new StxFactory().withRoiMask(mask).create(raster, pm);
+                final StxCache stxCache = StxCache.getDefault();
+                stx = stxCache.get(raster, mask, Stx.DEFAULT_BIN_COUNT, 0, false);
+                if (stx == null) {
+                    stx = new StxFactory().withRoiMask(mask).create(raster, pm);
+                    stxCache.put(raster, mask, Stx.DEFAULT_BIN_COUNT, 0, false, stx);
+                }
             }
             axisRangeControl.adjustComponents(stx.getMinimum(), stx.getMaximum(), NUM_DECIMALS);
         }
@@ -641,43 +681,21 @@ class DensityPlotPanel extends ChartPagePanel {
         return true;
     }
 
-    private static byte[] getValidData(BufferedImage image) {
-        if (image != null &&
-                image.getColorModel() instanceof IndexColorModel &&
-                image.getData().getDataBuffer() instanceof DataBufferByte) {
-            return ((DataBufferByte) image.getData().getDataBuffer()).getData();
-        }
-        return null;
-    }
-
     protected int getNumNonEmptyBins() {
-        final byte[] data = getValidData(plot.getImage());
-        int n = 0;
-        if (data != null) {
-            int b;
-            for (byte aData : data) {
-                b = aData & 0xff;
-                if (b != 0) {
-                    n++;
-                }
-            }
-        }
-        return n;
+        return densityPlotAccumulator != null ? densityPlotAccumulator.getNumNonEmptyBins() : 0;
     }
 
     @Override
     protected String getDataAsText() {
-        final BufferedImage image = plot.getImage();
+        final DensityPlotAccumulator accumulator = densityPlotAccumulator;
         final Rectangle2D bounds = plot.getImageDataBounds();
-
-        final byte[] data = getValidData(image);
-        if (data == null) {
+        if (accumulator == null || bounds == null) {
             return null;
         }
 
         final StringBuilder sb = new StringBuilder(64000);
-        final int w = image.getWidth();
-        final int h = image.getHeight();
+        final int w = accumulator.getWidth();
+        final int h = accumulator.getHeight();
 
         final RasterDataNode rasterX = getRaster(X_VAR);
         assert rasterX != null;
@@ -716,27 +734,25 @@ class DensityPlotPanel extends ChartPagePanel {
         sb.append('\t');
         sb.append(nameY);
         sb.append('\t');
-        sb.append("Bin counts\t(cropped at 255)");
+        sb.append("Bin counts");
         sb.append('\n');
 
-        int x, y, z;
+        long z;
         double v1, v2;
-        for (int i = 0; i < data.length; i++) {
-            z = data[i] & 0xff;
-            if (z != 0) {
-
-                x = i % w;
-                y = h - i / w - 1;
-
-                v1 = sampleMinX + ((x + 0.5) * (sampleMaxX - sampleMinX)) / w;
-                v2 = sampleMinY + ((y + 0.5) * (sampleMaxY - sampleMinY)) / h;
-
-                sb.append(v1);
-                sb.append('\t');
-                sb.append(v2);
-                sb.append('\t');
-                sb.append(z);
-                sb.append('\n');
+        for (int y = h - 1; y >= 0; y--) {
+            for (int x = 0; x < w; x++) {
+                z = accumulator.getCount(x, y);
+                if (z != 0) {
+                    v1 = sampleMinX + ((x + 0.5) * (sampleMaxX - sampleMinX)) / w;
+                    v2 = sampleMinY + ((y + 0.5) * (sampleMaxY - sampleMinY)) / h;
+
+                    sb.append(v1);
+                    sb.append('\t');
+                    sb.append(v2);
+                    sb.append('\t');
+                    sb.append(z);
+                    sb.append('\n');
+                }
             }
         }
 
@@ -412,14 +412,14 @@ class HistogramPanel extends ChartPagePanel {
         new StxWorker(min, max, autoMinMaxEnabled, recompute).execute();
     }
 
-    private void setStx(Stx stx) {
+    private void setStx(Stx stx, boolean shared) {
         if (stx != null) {
             HistogramPanelModel.HistogramConfig config = createHistogramConfig();
             if (config == null) {
                 return;
             }
             if (!model.hasStx(config)) {
-                model.setStx(config, stx);
+                model.setStx(config, stx, shared);
             }
             dataset = new XIntervalSeriesCollection();
             final int[] binCounts = stx.getHistogramBins();
@@ -610,7 +610,7 @@ class HistogramPanel extends ChartPagePanel {
                                 4);
                         histogramComputing = false;
                     }
-                    setStx(stx);
+                    setStx(stx, min == null && max == null);
                 } else {
                     SnapDialogs.showError("Either the selected ROI is empty or no pixels have been found within the minimum and maximum values specified.\n" +
                             "No valid histogram could be computed.\n");
@@ -25,28 +25,57 @@ import java.util.List;
 import java.util.Map;
 
 /**
+ * Holds the histograms computed by the {@link HistogramPanel}. Histograms computed over the full value range are
+ * stored in the session-wide {@link StxCache} and are thus shared with the other statistics tool windows, histograms
+ * restricted to a user-defined value range are kept locally.
+ *
  * @author Thomas Storm
  */
 class HistogramPanelModel {
 
+    private final StxCache stxCache;
     Map<HistogramConfig, Stx> stxMap = new HashMap<>(31);
 
+    HistogramPanelModel() {
+        this(StxCache.getDefault());
+    }
+
+    HistogramPanelModel(StxCache stxCache) {
+        this.stxCache = stxCache;
+    }
+
     public boolean hasStx(HistogramConfig config) {
-        return config != null && stxMap.containsKey(config);
+        return config != null && (stxMap.containsKey(config) || stxCache.get(config.createCacheKey()) != null);
     }
 
     public Stx getStx(HistogramConfig config) {
-        if (!stxMap.containsKey(config)) {
+        if (stxMap.containsKey(config)) {
+            return stxMap.get(config);
+        }
+        final Stx stx = config != null ? stxCache.get(config.createCacheKey()) : null;
+        if (stx == null) {
             throw new IllegalArgumentException("No such key: " + config);
         }
-        return stxMap.get(config);
+        return stx;
     }
 
     public void setStx(HistogramConfig config, Stx stx) {
+        setStx(config, stx, true);
+    }
+
+    /**
+     * @param shared {@code false} if the stx is restricted to a user-defined value range and must therefore not
+     *               be shared with other tool windows
+     */
+    public void setStx(HistogramConfig config, Stx stx, boolean shared) {
         if (hasStx(config)) {
             throw new IllegalArgumentException("Trying to overwrite valid stx for config: " + config);
         }
-        stxMap.put(config, stx);
+        if (shared) {
+            stxCache.put(config.createCacheKey(), stx);
+        } else {
+            stxMap.put(config, stx);
+        }
     }
 
     public void removeStxFromProduct(Product product) {
@@ -59,10 +88,14 @@ class HistogramPanelModel {
         for (HistogramConfig histogramConfig : toRemove) {
             stxMap.remove(histogramConfig);
         }
+        stxCache.removeProduct(product);
     }
 
     public void removeStx(HistogramConfig histogramPlotConfig) {
         stxMap.remove(histogramPlotConfig);
+        if (histogramPlotConfig != null) {
+            stxCache.remove(histogramPlotConfig.createCacheKey());
+        }
     }
 
     static class HistogramConfig {
@@ -79,6 +112,10 @@ class HistogramPanelModel {
             this.logScaledBins = logScaledBins;
         }
 
+        StxCache.Key createCacheKey() {
+            return StxCache.createKey(raster, roiMask, numBins, 0, logScaledBins);
+        }
+
         @Override
         public String toString() {
             return "HistogramConfig{" +
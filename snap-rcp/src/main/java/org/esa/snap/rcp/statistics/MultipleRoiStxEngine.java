@@ -0,0 +1,378 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.ProgressMonitor;
+import com.bc.ceres.glevel.MultiLevelImage;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.framework.datamodel.Stx;
+
+import javax.media.jai.Histogram;
+import javax.media.jai.PlanarImage;
+import java.awt.Rectangle;
+import java.awt.image.Raster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes the statistics of a raster for several ROI masks at once.
+ * <p>
+ * In contrast to calling {@link org.esa.snap.framework.datamodel.StxFactory} once per mask, every tile of the
+ * raster is read only once per pass and the values are accumulated for all masks simultaneously. Two passes are
+ * required: the first one determines minimum, maximum and mean, the second one fills the histograms and the
+ * central moments. Tiles are processed in parallel on a {@link ForkJoinPool}.
+ * <p>
+ * A {@code null} entry in the mask array denotes the statistics of the whole raster (only the valid mask applies).
+ */
+class MultipleRoiStxEngine {
+
+    /**
+     * Upper limit for the number of histogram bins held by all workers together, limits the worker count for high
+     * accuracies and many masks.
+     */
+    private static final long MAX_TOTAL_BIN_COUNT = 16L * 1024 * 1024;
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final RasterDataNode raster;
+    private final Mask[] masks;
+    private final int binCount;
+    private final ForkJoinPool pool;
+
+    interface ResultHandler {
+
+        void stxComputed(int maskIndex, Mask mask, Stx stx);
+    }
+
+    MultipleRoiStxEngine(RasterDataNode raster, Mask[] masks, int binCount) {
+        this(raster, masks, binCount, ForkJoinPool.commonPool());
+    }
+
+    MultipleRoiStxEngine(RasterDataNode raster, Mask[] masks, int binCount, ForkJoinPool pool) {
+        this.raster = raster;
+        this.masks = masks.clone();
+        this.binCount = binCount;
+        this.pool = pool;
+    }
+
+    /**
+     * Computes the statistics for all masks.
+     *
+     * @param resultHandler called for each mask as soon as its statistics are available, may be {@code null}
+     * @param pm            a progress monitor
+     * @return the statistics, in the same order as the masks
+     * @throws CancellationException if the progress monitor has been cancelled
+     */
+    Stx[] compute(ResultHandler resultHandler, ProgressMonitor pm) {
+        final PlanarImage dataImage = raster.getGeophysicalImage();
+        final MultiLevelImage validMaskImage = raster.getValidMaskImage();
+        final PlanarImage[] roiImages = new PlanarImage[masks.length];
+        for (int i = 0; i < masks.length; i++) {
+            roiImages[i] = masks[i] != null ? masks[i].getSourceImage() : null;
+        }
+        final boolean intHistogram = !ProductData.isFloatingPointType(raster.getGeophysicalDataType());
+        final int tileCount = dataImage.getNumXTiles() * dataImage.getNumYTiles();
+
+        pm.beginTask("Computing statistics", 2 * tileCount);
+        try {
+            final Accumulator[] summaries = runPass(new TilePass(dataImage, validMaskImage, roiImages, null, null, null, 0),
+                                                    pm);
+            final double[] minima = new double[masks.length];
+            final double[] maxima = new double[masks.length];
+            final double[] means = new double[masks.length];
+            for (int i = 0; i < masks.length; i++) {
+                final Accumulator summary = summaries[i];
+                if (summary.count > 0) {
+                    minima[i] = summary.min;
+                    maxima[i] = computeHistogramHigh(summary.min, summary.max, intHistogram);
+                    means[i] = summary.sum / summary.count;
+                } else {
+                    minima[i] = 0.0;
+                    maxima[i] = 1.0;
+                    means[i] = Double.NaN;
+                }
+            }
+
+            final Accumulator[] histograms = runPass(new TilePass(dataImage, validMaskImage, roiImages,
+                                                                  minima, maxima, means, binCount), pm);
+            final Stx[] result = new Stx[masks.length];
+            for (int i = 0; i < masks.length; i++) {
+                result[i] = createStx(summaries[i], histograms[i], minima[i], maxima[i], means[i], intHistogram);
+                if (resultHandler != null) {
+                    resultHandler.stxComputed(i, masks[i], result[i]);
+                }
+            }
+            return result;
+        } finally {
+            pm.done();
+        }
+    }
+
+    static double computeHistogramHigh(double min, double max, boolean intHistogram) {
+        final double high = intHistogram ? max + 1.0 : max;
+        return high > min ? high : min + 1.0;
+    }
+
+    private Stx createStx(Accumulator summary, Accumulator moments, double low, double high, double mean,
+                         boolean intHistogram) {
+        final Histogram histogram = new Histogram(binCount, low, high, 1);
+        final int[] bins = histogram.getBins(0);
+        System.arraycopy(moments.bins, 0, bins, 0, binCount);
+        if (summary.count == 0) {
+            return new Stx(low, high, Double.NaN, Double.NaN, Double.NaN, Double.NaN,
+                           false, intHistogram, histogram, 0);
+        }
+        final long n = summary.count;
+        final double variance = n > 1 ? moments.m2 / (n - 1) : 0.0;
+        final double populationVariance = moments.m2 / n;
+        final double skewness = populationVariance > 0.0 ? (moments.m3 / n) / Math.pow(populationVariance, 1.5) : 0.0;
+        final double kurtosis = populationVariance > 0.0 ? (moments.m4 / n) / (populationVariance * populationVariance) - 3.0 : 0.0;
+        return new Stx(summary.min, summary.max, mean, Math.sqrt(variance), skewness, kurtosis,
+                       false, intHistogram, histogram, 0);
+    }
+
+    private Accumulator[] runPass(TilePass pass, ProgressMonitor pm) {
+        final int workerCount = computeWorkerCount(pass.binCount);
+        final List<Future<Accumulator[]>> futures = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            futures.add(pool.submit(pass::work));
+        }
+        int reportedTiles = 0;
+        try {
+            for (Future<Accumulator[]> future : futures) {
+                while (true) {
+                    if (pm.isCanceled()) {
+                        pass.cancelled.set(true);
+                        throw new CancellationException("Computation of statistics has been cancelled.");
+                    }
+                    try {
+                        future.get(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException ignored) {
+                        // poll again, progress is reported below
+                    } finally {
+                        final int processedTiles = pass.processedTileCount.get();
+                        pm.worked(processedTiles - reportedTiles);
+                        reportedTiles = processedTiles;
+                    }
+                }
+            }
+            final Accumulator[] result = futures.get(0).get();
+            for (int i = 1; i < futures.size(); i++) {
+                final Accumulator[] partial = futures.get(i).get();
+                for (int m = 0; m < result.length; m++) {
+                    result[m].merge(partial[m]);
+                }
+            }
+            return result;
+        } catch (InterruptedException e) {
+            pass.cancelled.set(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Computation of statistics has been interrupted.");
+        } catch (ExecutionException e) {
+            pass.cancelled.set(true);
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private int computeWorkerCount(int passBinCount) {
+        int workerCount = Math.max(1, pool.getParallelism());
+        if (passBinCount > 0) {
+            final long binsPerWorker = (long) passBinCount * masks.length;
+            workerCount = (int) Math.max(1, Math.min(workerCount, MAX_TOTAL_BIN_COUNT / binsPerWorker));
+        }
+        return workerCount;
+    }
+
+    /**
+     * One pass over all tiles of the data image. Each worker pulls tile indices from a shared counter and
+     * accumulates into its own accumulators, which are merged when all workers are done.
+     */
+    private class TilePass {
+
+        final PlanarImage dataImage;
+        final PlanarImage validMaskImage;
+        final PlanarImage[] roiImages;
+        final double[] lows;
+        final double[] highs;
+        final double[] means;
+        final int binCount;
+        final AtomicInteger nextTileIndex = new AtomicInteger();
+        final AtomicInteger processedTileCount = new AtomicInteger();
+        final AtomicBoolean cancelled = new AtomicBoolean();
+
+        TilePass(PlanarImage dataImage, PlanarImage validMaskImage, PlanarImage[] roiImages,
+                 double[] lows, double[] highs, double[] means, int binCount) {
+            this.dataImage = dataImage;
+            this.validMaskImage = validMaskImage;
+            this.roiImages = roiImages;
+            this.lows = lows;
+            this.highs = highs;
+            this.means = means;
+            this.binCount = binCount;
+        }
+
+        Accumulator[] work() {
+            final Accumulator[] accumulators = new Accumulator[roiImages.length];
+            for (int i = 0; i < accumulators.length; i++) {
+                accumulators[i] = new Accumulator(binCount);
+            }
+            final int numXTiles = dataImage.getNumXTiles();
+            final int tileCount = numXTiles * dataImage.getNumYTiles();
+            final Rectangle imageBounds = dataImage.getBounds();
+            double[] values = null;
+            int[] validSamples = null;
+            int[] roiSamples = null;
+            int tileIndex;
+            while (!cancelled.get() && (tileIndex = nextTileIndex.getAndIncrement()) < tileCount) {
+                final int tileX = dataImage.getMinTileX() + tileIndex % numXTiles;
+                final int tileY = dataImage.getMinTileY() + tileIndex / numXTiles;
+                final Raster dataTile = dataImage.getTile(tileX, tileY);
+                final Rectangle rect = dataTile.getBounds().intersection(imageBounds);
+                if (!rect.isEmpty()) {
+                    final int pixelCount = rect.width * rect.height;
+                    values = dataTile.getSamples(rect.x, rect.y, rect.width, rect.height, 0, ensureSize(values, pixelCount));
+                    if (validMaskImage != null) {
+                        validSamples = getData(validMaskImage, rect).getSamples(rect.x, rect.y, rect.width, rect.height, 0,
+                                                                               ensureSize(validSamples, pixelCount));
+                    }
+                    for (int m = 0; m < roiImages.length; m++) {
+                        final int[] roi;
+                        if (roiImages[m] != null) {
+                            roiSamples = getData(roiImages[m], rect).getSamples(rect.x, rect.y, rect.width, rect.height, 0,
+                                                                                ensureSize(roiSamples, pixelCount));
+                            roi = roiSamples;
+                        } else {
+                            roi = null;
+                        }
+                        final int[] valid = validMaskImage != null ? validSamples : null;
+                        if (lows == null) {
+                            accumulators[m].accumulateSummary(values, valid, roi, pixelCount);
+                        } else {
+                            accumulators[m].accumulateHistogram(values, valid, roi, pixelCount, lows[m], highs[m], means[m]);
+                        }
+                    }
+                }
+                processedTileCount.incrementAndGet();
+            }
+            return accumulators;
+        }
+
+        private Raster getData(PlanarImage image, Rectangle rect) {
+            if (image.getTileWidth() == dataImage.getTileWidth()
+                && image.getTileHeight() == dataImage.getTileHeight()
+                && image.getTileGridXOffset() == dataImage.getTileGridXOffset()
+                && image.getTileGridYOffset() == dataImage.getTileGridYOffset()) {
+                return image.getTile(image.XToTileX(rect.x), image.YToTileY(rect.y));
+            }
+            return image.getData(rect);
+        }
+    }
+
+    private static double[] ensureSize(double[] array, int size) {
+        return array != null && array.length >= size ? array : new double[size];
+    }
+
+    private static int[] ensureSize(int[] array, int size) {
+        return array != null && array.length >= size ? array : new int[size];
+    }
+
+    private static class Accumulator {
+
+        long count;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum;
+        double m2;
+        double m3;
+        double m4;
+        final int[] bins;
+
+        Accumulator(int binCount) {
+            bins = new int[binCount];
+        }
+
+        void accumulateSummary(double[] values, int[] valid, int[] roi, int pixelCount) {
+            for (int i = 0; i < pixelCount; i++) {
+                final double value = values[i];
+                if (isConsidered(value, valid, roi, i)) {
+                    count++;
+                    sum += value;
+                    if (value < min) {
+                        min = value;
+                    }
+                    if (value > max) {
+                        max = value;
+                    }
+                }
+            }
+        }
+
+        void accumulateHistogram(double[] values, int[] valid, int[] roi, int pixelCount,
+                                 double low, double high, double mean) {
+            final int binCount = bins.length;
+            final double binScale = binCount / (high - low);
+            for (int i = 0; i < pixelCount; i++) {
+                final double value = values[i];
+                if (isConsidered(value, valid, roi, i)) {
+                    int binIndex = (int) ((value - low) * binScale);
+                    if (binIndex >= binCount) {
+                        binIndex = binCount - 1;
+                    } else if (binIndex < 0) {
+                        binIndex = 0;
+                    }
+                    bins[binIndex]++;
+                    final double d = value - mean;
+                    final double d2 = d * d;
+                    m2 += d2;
+                    m3 += d2 * d;
+                    m4 += d2 * d2;
+                }
+            }
+        }
+
+        void merge(Accumulator other) {
+            count += other.count;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            m2 += other.m2;
+            m3 += other.m3;
+            m4 += other.m4;
+            for (int i = 0; i < bins.length; i++) {
+                bins[i] += other.bins[i];
+            }
+        }
+
+        private static boolean isConsidered(double value, int[] valid, int[] roi, int i) {
+            return (valid == null || valid[i] != 0) && (roi == null || roi[i] != 0) && !Double.isNaN(value);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.statistics;
+
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+
+import javax.media.jai.PlanarImage;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the mean and the standard deviation of the valid raster values within a box around each of a large
+ * number of pixel positions.
+ * <p>
+ * The positions are grouped by the source image tile they fall into. The data of each group is read at once and
+ * the groups are processed in parallel.
+ */
+class PixelBoxSampler {
+
+    private final RasterDataNode raster;
+    private final Mask roiMask;
+    private final int boxSize;
+
+    PixelBoxSampler(RasterDataNode raster, Mask roiMask, int boxSize) {
+        this.raster = raster;
+        this.roiMask = roiMask;
+        this.boxSize = boxSize;
+    }
+
+    /**
+     * @param pixelX the pixel X-coordinates of the box centres
+     * @param pixelY the pixel Y-coordinates of the box centres
+     * @return the box statistics, in the same order as the given positions
+     */
+    Samples sample(float[] pixelX, float[] pixelY) {
+        final int pointCount = pixelX.length;
+        final Samples samples = new Samples(pointCount);
+        final PlanarImage dataImage = raster.getGeophysicalImage();
+        final PlanarImage validMaskImage = raster.getValidMaskImage();
+        final PlanarImage roiImage = roiMask != null ? roiMask.getSourceImage() : null;
+        final Rectangle sceneRect = new Rectangle(raster.getSceneRasterWidth(), raster.getSceneRasterHeight());
+
+        // sort the points by tile, the lower 32 bits keep the index of the point
+        final long[] sortKeys = new long[pointCount];
+        int keyCount = 0;
+        for (int i = 0; i < pointCount; i++) {
+            final int x = (int) pixelX[i];
+            final int y = (int) pixelY[i];
+            if (sceneRect.contains(x, y)) {
+                final long tileIndex = (long) (dataImage.YToTileY(y) - dataImage.getMinTileY()) * dataImage.getNumXTiles()
+                                       + (dataImage.XToTileX(x) - dataImage.getMinTileX());
+                sortKeys[keyCount++] = (tileIndex << 32) | i;
+            }
+        }
+        final long[] keys = Arrays.copyOf(sortKeys, keyCount);
+        Arrays.sort(keys);
+
+        final int[] groupStarts = findGroupStarts(keys);
+        IntStream.range(0, groupStarts.length - 1).parallel().forEach(group -> {
+            sampleGroup(keys, groupStarts[group], groupStarts[group + 1], pixelX, pixelY, sceneRect,
+                        dataImage, validMaskImage, roiImage, samples);
+        });
+        return samples;
+    }
+
+    private static int[] findGroupStarts(long[] keys) {
+        final int[] starts = new int[keys.length + 1];
+        int groupCount = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || (keys[i] >>> 32) != (keys[i - 1] >>> 32)) {
+                starts[groupCount++] = i;
+            }
+        }
+        starts[groupCount++] = keys.length;
+        return Arrays.copyOf(starts, groupCount);
+    }
+
+    private void sampleGroup(long[] keys, int start, int end, float[] pixelX, float[] pixelY, Rectangle sceneRect,
+                             PlanarImage dataImage, PlanarImage validMaskImage, PlanarImage roiImage,
+                             Samples samples) {
+        Rectangle region = null;
+        for (int k = start; k < end; k++) {
+            final int i = (int) keys[k];
+            final Rectangle box = getBox(pixelX[i], pixelY[i], sceneRect);
+            region = region == null ? box : region.union(box);
+        }
+        if (region == null || region.isEmpty()) {
+            return;
+        }
+
+        final int size = region.width * region.height;
+        final double[] values = dataImage.getData(region).getSamples(region.x, region.y, region.width, region.height,
+                                                                       0, new double[size]);
+        final int[] valid = validMaskImage != null ?
+                            validMaskImage.getData(region).getSamples(region.x, region.y, region.width, region.height,
+                                                                      0, new int[size]) : null;
+        final int[] roi = roiImage != null ?
+                          roiImage.getData(region).getSamples(region.x, region.y, region.width, region.height,
+                                                              0, new int[size]) : null;
+
+        for (int k = start; k < end; k++) {
+            final int i = (int) keys[k];
+            final int centerX = (int) pixelX[i];
+            final int centerY = (int) pixelY[i];
+            if (roi != null && roi[(centerY - region.y) * region.width + (centerX - region.x)] == 0) {
+                continue;
+            }
+            final Rectangle box = getBox(pixelX[i], pixelY[i], sceneRect);
+            double sum = 0;
+            double sumSqr = 0;
+            int n = 0;
+            for (int y = box.y; y < box.y + box.height; y++) {
+                int index = (y - region.y) * region.width + (box.x - region.x);
+                for (int x = 0; x < box.width; x++, index++) {
+                    if ((valid == null || valid[index] != 0) && (roi == null || roi[index] != 0)) {
+                        final double value = values[index];
+                        sum += value;
+                        sumSqr += value * value;
+                        n++;
+                    }
+                }
+            }
+            if (n > 0) {
+                samples.valid[i] = true;
+                samples.means[i] = sum / n;
+                samples.sigmas[i] = n > 1 ? Math.sqrt((sumSqr - (sum * sum) / n) / (n - 1)) : 0.0;
+            }
+        }
+    }
+
+    private Rectangle getBox(float pixelX, float pixelY, Rectangle sceneRect) {
+        return sceneRect.intersection(new Rectangle(((int) pixelX) - boxSize / 2,
+                                                    ((int) pixelY) - boxSize / 2,
+                                                    boxSize, boxSize));
+    }
+
+    static class Samples {
+
+        private final boolean[] valid;
+        private final double[] means;
+        private final double[] sigmas;
+
+        private Samples(int count) {
+            valid = new boolean[count];
+            means = new double[count];
+            sigmas = new double[count];
+        }
+
+        boolean isValid(int index) {
+            return valid[index];
+        }
+
+        double getMean(int index) {
+            return means[index];
+        }
+
+        double getSigma(int index) {
+            return sigmas[index];
+        }
+    }
+}
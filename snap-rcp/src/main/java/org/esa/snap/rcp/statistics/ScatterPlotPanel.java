@@ -645,6 +645,9 @@ class ScatterPlotPanel extends ChartPagePanel {
                 final GeoCoding geoCoding = raster.getGeoCoding();
                 final AffineTransform imageToModelTransform;
                 imageToModelTransform = ImageManager.getImageToModelTransform(geoCoding);
+                final List<SimpleFeature> sceneFeatures = new ArrayList<>(features.length);
+                final float[] pixelX = new float[features.length];
+                final float[] pixelY = new float[features.length];
                 for (SimpleFeature feature : features) {
                     final Point point = (Point) feature.getDefaultGeometryProperty().getValue();
                     Point2D modelPos = new Point2D.Float((float) point.getX(), (float) point.getY());
@@ -653,55 +656,22 @@ class ScatterPlotPanel extends ChartPagePanel {
                     if (!sceneRect.contains(imagePos)) {
                         continue;
                     }
-                    final float imagePosX = (float) imagePos.getX();
-                    final float imagePosY = (float) imagePos.getY();
-                    final Rectangle imageRect = sceneRect.intersection(new Rectangle(((int) imagePosX) - boxSize / 2,
-                                                                                     ((int) imagePosY) - boxSize / 2,
-                                                                                     boxSize, boxSize));
-                    if (imageRect.isEmpty()) {
-                        continue;
-                    }
-                    final double[] rasterValues = new double[imageRect.width * imageRect.height];
-                    raster.readPixels(imageRect.x, imageRect.y, imageRect.width, imageRect.height, rasterValues);
-
-                    final int[] maskBuffer = new int[imageRect.width * imageRect.height];
-                    Arrays.fill(maskBuffer, 1);
-                    if (selectedMask != null) {
-                        selectedMask.readPixels(imageRect.x, imageRect.y, imageRect.width, imageRect.height,
-                                                maskBuffer);
-                    }
-
-                    final int centerIndex = imageRect.width * (imageRect.height / 2) + (imageRect.width / 2);
-                    if (maskBuffer[centerIndex] == 0) {
-                        continue;
-                    }
+                    pixelX[sceneFeatures.size()] = (float) imagePos.getX();
+                    pixelY[sceneFeatures.size()] = (float) imagePos.getY();
+                    sceneFeatures.add(feature);
+                }
 
-                    double sum = 0;
-                    double sumSqr = 0;
-                    int n = 0;
-                    boolean valid = false;
-
-                    for (int y = 0; y < imageRect.height; y++) {
-                        for (int x = 0; x < imageRect.width; x++) {
-                            final int index = y * imageRect.height + x;
-                            if (raster.isPixelValid(x + imageRect.x, y + imageRect.y) && maskBuffer[index] != 0) {
-                                final double rasterValue = rasterValues[index];
-                                sum += rasterValue;
-                                sumSqr += rasterValue * rasterValue;
-                                n++;
-                                valid = true;
-                            }
-                        }
-                    }
+                final PixelBoxSampler.Samples samples = new PixelBoxSampler(raster, selectedMask, boxSize).sample(
+                        Arrays.copyOf(pixelX, sceneFeatures.size()), Arrays.copyOf(pixelY, sceneFeatures.size()));
 
-                    if (!valid) {
+                final String localName = dataField.getLocalName();
+                for (int i = 0; i < sceneFeatures.size(); i++) {
+                    if (!samples.isValid(i)) {
                         continue;
                     }
-
-                    double rasterMean = sum / n;
-                    double rasterSigma = n > 1 ? Math.sqrt((sumSqr - (sum * sum) / n) / (n - 1)) : 0.0;
-
-                    String localName = dataField.getLocalName();
+                    final SimpleFeature feature = sceneFeatures.get(i);
+                    final float imagePosX = pixelX[i];
+                    final float imagePosY = pixelY[i];
                     Number attribute = (Number) feature.getAttribute(localName);
 
                     final Collection<org.opengis.feature.Property> featureProperties = feature.getProperties();
@@ -715,8 +685,9 @@ class ScatterPlotPanel extends ChartPagePanel {
                         geoPos.setInvalid();
                     }
                     computedDataList.add(
-                            new ComputedData(imagePosX, imagePosY, (float) geoPos.getLat(), (float) geoPos.getLon(), (float) rasterMean,
-                                             (float) rasterSigma, correlativeData, featureProperties));
+                            new ComputedData(imagePosX, imagePosY, (float) geoPos.getLat(), (float) geoPos.getLon(),
+                                             (float) samples.getMean(i), (float) samples.getSigma(i), correlativeData,
+                                             featureProperties));
                 }
 
                 return computedDataList.toArray(new ComputedData[computedDataList.size()]);
@@ -21,14 +21,12 @@ import com.bc.ceres.binding.PropertyDescriptor;
 import com.bc.ceres.binding.ValueRange;
 import com.bc.ceres.binding.validators.IntervalValidator;
 import com.bc.ceres.core.ProgressMonitor;
-import com.bc.ceres.core.SubProgressMonitor;
 import com.bc.ceres.swing.binding.BindingContext;
 import com.bc.ceres.swing.progress.ProgressMonitorSwingWorker;
 import org.esa.snap.framework.datamodel.Mask;
 import org.esa.snap.framework.datamodel.ProductNodeGroup;
 import org.esa.snap.framework.datamodel.RasterDataNode;
 import org.esa.snap.framework.datamodel.Stx;
-import org.esa.snap.framework.datamodel.StxFactory;
 import org.esa.snap.framework.datamodel.VectorDataNode;
 import org.esa.snap.framework.ui.GridBagUtils;
 import org.esa.snap.framework.ui.UIUtils;
@@ -84,7 +82,10 @@ import java.awt.event.MouseEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 /**
  * A general pane within the statistics window.
@@ -285,33 +286,44 @@ class StatisticsPanel extends PagePanel implements MultipleRoiComputePanel.Compu
 
             @Override
             protected Object doInBackground(ProgressMonitor pm) {
-                pm.beginTask(title, selectedMasks.length);
-                try {
-                    final int binCount = Util.computeBinCount(accuracyModel.accuracy);
-                    for (int i = 0; i < selectedMasks.length; i++) {
-                        final Mask mask = selectedMasks[i];
-                        final Stx stx;
-                        ProgressMonitor subPm = SubProgressMonitor.create(pm, 1);
+                final RasterDataNode raster = getRaster();
+                final int binCount = Util.computeBinCount(accuracyModel.accuracy);
+                final StxCache stxCache = StxCache.getDefault();
+                final Stx[] stxs = new Stx[selectedMasks.length];
+                final List<Mask> missingMasks = new ArrayList<>();
+                final List<Integer> missingIndices = new ArrayList<>();
+                for (int i = 0; i < selectedMasks.length; i++) {
+                    stxs[i] = stxCache.get(raster, selectedMasks[i], binCount, 0, false);
+                    if (stxs[i] == null) {
+                        missingMasks.add(selectedMasks[i]);
+                        missingIndices.add(i);
+                    }
+                }
+                publishAvailable(stxs);
+                if (!missingMasks.isEmpty()) {
+                    final Mask[] masks = missingMasks.toArray(new Mask[missingMasks.size()]);
+                    new MultipleRoiStxEngine(raster, masks, binCount).compute((maskIndex, mask, stx) -> {
                         if (mask == null) {
-                            stx = new StxFactory()
-                                    .withHistogramBinCount(binCount)
-                                    .create(getRaster(), subPm);
-                            getRaster().setStx(stx);
-                        } else {
-                            stx = new StxFactory()
-                                    .withHistogramBinCount(binCount)
-                                    .withRoiMask(mask)
-                                    .create(getRaster(), subPm);
+                            raster.setStx(stx);
                         }
-                        histograms[i] = stx.getHistogram();
-                        publish(new ComputeResult(stx, mask));
-                    }
-                } finally {
-                    pm.done();
+                        stxCache.put(raster, mask, binCount, 0, false, stx);
+                        stxs[missingIndices.get(maskIndex)] = stx;
+                        publishAvailable(stxs);
+                    }, pm);
                 }
                 return null;
             }
 
+            private int publishedCount;
+
+            private void publishAvailable(Stx[] stxs) {
+                while (publishedCount < stxs.length && stxs[publishedCount] != null) {
+                    histograms[publishedCount] = stxs[publishedCount].getHistogram();
+                    publish(new ComputeResult(stxs[publishedCount], selectedMasks[publishedCount]));
+                    publishedCount++;
+                }
+            }
+
             @Override
             protected void process(List<ComputeResult> chunks) {
 
@@ -345,14 +357,22 @@ class StatisticsPanel extends PagePanel implements MultipleRoiComputePanel.Compu
                     }
                     putStatisticsIntoVectorDataAction.setSelectedMasks(selectedMasks);
                     exportButton.setEnabled(true);
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof CancellationException)) {
+                        showComputationError(e.getCause());
+                    }
                 } catch (Exception e) {
-                    e.printStackTrace();
-                    SnapDialogs.showMessage("<html>Statistics",
-                                            "Failed to compute statistics.<br/>An error occurred:"
-                                                    + e.getMessage() + "</html>",
-                                            JOptionPane.ERROR_MESSAGE, null);
+                    showComputationError(e);
                 }
             }
+
+            private void showComputationError(Throwable e) {
+                e.printStackTrace();
+                SnapDialogs.showMessage("<html>Statistics",
+                                        "Failed to compute statistics.<br/>An error occurred:"
+                                                + e.getMessage() + "</html>",
+                                        JOptionPane.ERROR_MESSAGE, null);
+            }
         };
 
         resultText.setLength(0);
@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.statistics;
+
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductNode;
+import org.esa.snap.framework.datamodel.ProductNodeEvent;
+import org.esa.snap.framework.datamodel.ProductNodeListener;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.framework.datamodel.Stx;
+import org.esa.snap.framework.datamodel.VirtualBand;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A session-wide cache of {@link Stx} instances shared by the statistics tool windows.
+ * <p>
+ * Entries are keyed by product, raster expression, ROI-mask expression, bin count, resolution level and histogram
+ * scaling. The least recently used entry is evicted if the cache is full. The cache listens to the products of its
+ * entries and drops all entries affected by a change of raster data or expressions.
+ */
+class StxCache {
+
+    static final int DEFAULT_CAPACITY = 64;
+
+    private static final Set<String> INVALIDATING_PROPERTIES = new HashSet<>(Arrays.asList(
+            "name", "expression", "validPixelExpression", "noDataValue", "noDataValueUsed",
+            "scalingFactor", "scalingOffset", "log10Scaled", "sourceImage", "imageType"
+    ));
+
+    private static StxCache defaultInstance;
+
+    private final Map<Key, Stx> entries;
+    private final Set<Product> observedProducts;
+    private final ProductNodeListener invalidationListener;
+
+    StxCache(final int capacity) {
+        entries = new LinkedHashMap<Key, Stx>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Stx> eldest) {
+                return size() > capacity;
+            }
+        };
+        observedProducts = new HashSet<>();
+        invalidationListener = new InvalidationListener();
+    }
+
+    static synchronized StxCache getDefault() {
+        if (defaultInstance == null) {
+            defaultInstance = new StxCache(DEFAULT_CAPACITY);
+        }
+        return defaultInstance;
+    }
+
+    synchronized Stx get(RasterDataNode raster, Mask roiMask, int binCount, int level, boolean logHistogram) {
+        return get(createKey(raster, roiMask, binCount, level, logHistogram));
+    }
+
+    synchronized Stx get(Key key) {
+        return key != null ? entries.get(key) : null;
+    }
+
+    synchronized void put(RasterDataNode raster, Mask roiMask, int binCount, int level, boolean logHistogram, Stx stx) {
+        put(createKey(raster, roiMask, binCount, level, logHistogram), stx);
+    }
+
+    synchronized void put(Key key, Stx stx) {
+        if (key == null || stx == null) {
+            return;
+        }
+        entries.put(key, stx);
+        if (observedProducts.add(key.product)) {
+            key.product.addProductNodeListener(invalidationListener);
+        }
+    }
+
+    synchronized void remove(Key key) {
+        if (key != null) {
+            entries.remove(key);
+        }
+    }
+
+    synchronized void removeProduct(Product product) {
+        entries.keySet().removeIf(key -> key.product == product);
+        if (observedProducts.remove(product)) {
+            product.removeProductNodeListener(invalidationListener);
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    static Key createKey(RasterDataNode raster, Mask roiMask, int binCount, int level, boolean logHistogram) {
+        if (raster == null || raster.getProduct() == null) {
+            return null;
+        }
+        return new Key(raster.getProduct(), raster.getName(), getExpression(raster), raster.getValidMaskExpression(),
+                       roiMask != null ? getExpression(roiMask) : null, binCount, level, logHistogram);
+    }
+
+    static Key createKey(RasterDataNode raster, String roiMaskName, int binCount, int level, boolean logHistogram) {
+        Mask roiMask = null;
+        if (roiMaskName != null && raster != null && raster.getProduct() != null) {
+            roiMask = raster.getProduct().getMaskGroup().get(roiMaskName);
+        }
+        final Key key = createKey(raster, roiMask, binCount, level, logHistogram);
+        if (key != null && roiMaskName != null && roiMask == null) {
+            // the mask is not (yet) part of the product, fall back to its name
+            return new Key(key.product, key.rasterName, key.rasterExpression, key.validExpression,
+                           roiMaskName, binCount, level, logHistogram);
+        }
+        return key;
+    }
+
+    private static String getExpression(RasterDataNode raster) {
+        if (raster instanceof VirtualBand) {
+            return ((VirtualBand) raster).getExpression();
+        }
+        if (raster instanceof Mask && ((Mask) raster).getImageType() instanceof Mask.BandMathsType) {
+            return Mask.BandMathsType.getExpression((Mask) raster);
+        }
+        return raster.getName();
+    }
+
+    private synchronized void invalidate(Product product, ProductNode node) {
+        final Pattern reference = Pattern.compile("(?<![\\w.$])" + Pattern.quote(node.getName()) + "(?![\\w])");
+        final Iterator<Key> iterator = entries.keySet().iterator();
+        while (iterator.hasNext()) {
+            final Key key = iterator.next();
+            if ((product == null || key.product == product) && key.references(node.getName(), reference)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private synchronized void invalidateProduct(Product product) {
+        entries.keySet().removeIf(key -> key.product == product);
+    }
+
+    static final class Key {
+
+        private final Product product;
+        private final String rasterName;
+        private final String rasterExpression;
+        private final String validExpression;
+        private final String maskExpression;
+        private final int binCount;
+        private final int level;
+        private final boolean logHistogram;
+
+        private Key(Product product, String rasterName, String rasterExpression, String validExpression,
+                    String maskExpression, int binCount, int level, boolean logHistogram) {
+            this.product = product;
+            this.rasterName = rasterName;
+            this.rasterExpression = rasterExpression;
+            this.validExpression = validExpression;
+            this.maskExpression = maskExpression;
+            this.binCount = binCount;
+            this.level = level;
+            this.logHistogram = logHistogram;
+        }
+
+        private boolean references(String nodeName, Pattern reference) {
+            return nodeName.equals(rasterName)
+                   || nodeName.equals(maskExpression)
+                   || reference.matcher(rasterExpression).find()
+                   || (validExpression != null && reference.matcher(validExpression).find())
+                   || (maskExpression != null && reference.matcher(maskExpression).find());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            Key that = (Key) o;
+
+            return binCount == that.binCount &&
+                   level == that.level &&
+                   logHistogram == that.logHistogram &&
+                   product == that.product &&
+                   rasterName.equals(that.rasterName) &&
+                   rasterExpression.equals(that.rasterExpression) &&
+                   !(validExpression != null ? !validExpression.equals(that.validExpression) : that.validExpression != null) &&
+                   !(maskExpression != null ? !maskExpression.equals(that.maskExpression) : that.maskExpression != null);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(product);
+            result = 31 * result + rasterName.hashCode();
+            result = 31 * result + rasterExpression.hashCode();
+            result = 31 * result + (validExpression != null ? validExpression.hashCode() : 0);
+            result = 31 * result + (maskExpression != null ? maskExpression.hashCode() : 0);
+            result = 31 * result + binCount;
+            result = 31 * result + level;
+            result = 31 * result + (logHistogram ? 1 : 0);
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "Key{" +
+                   "raster='" + rasterName + '\'' +
+                   ", maskExpression='" + maskExpression + '\'' +
+                   ", binCount=" + binCount +
+                   ", level=" + level +
+                   ", logHistogram=" + logHistogram +
+                   '}';
+        }
+    }
+
+    private class InvalidationListener implements ProductNodeListener {
+
+        @Override
+        public void nodeChanged(ProductNodeEvent event) {
+            if (INVALIDATING_PROPERTIES.contains(event.getPropertyName())) {
+                if ("name".equals(event.getPropertyName())) {
+                    invalidateProduct(event.getSourceNode().getProduct());
+                } else {
+                    invalidate(event.getSourceNode().getProduct(), event.getSourceNode());
+                }
+            }
+        }
+
+        @Override
+        public void nodeDataChanged(ProductNodeEvent event) {
+            invalidate(event.getSourceNode().getProduct(), event.getSourceNode());
+        }
+
+        @Override
+        public void nodeAdded(ProductNodeEvent event) {
+        }
+
+        @Override
+        public void nodeRemoved(ProductNodeEvent event) {
+            invalidate(event.getSourceNode().getProduct(), event.getSourceNode());
+        }
+    }
+}
@@ -45,7 +45,7 @@ public class ProgressHandleMonitor implements ProgressMonitor, Cancellable {
 
     private ProgressHandle progressHandle;
     private Cancellable cancellable;
-    private boolean canceled;
+    private volatile boolean canceled;
     private int totalWorkUnits;
     private int currentWorkUnits;
     private double currentWorkUnitsRational;
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.actions.file;
+
+import org.esa.snap.framework.dataio.DecodeQualification;
+import org.esa.snap.framework.dataio.ProductReaderPlugIn;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ReaderQualificationCacheTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private ProductReaderPlugIn plugIn;
+    private List<ProductReaderPlugIn> plugIns;
+    private File cacheFile;
+    private File productFile;
+
+    @Before
+    public void setUp() throws Exception {
+        plugIn = mock(ProductReaderPlugIn.class);
+        when(plugIn.getDecodeQualification(any())).thenReturn(DecodeQualification.INTENDED);
+        plugIns = Collections.singletonList(plugIn);
+        cacheFile = new File(tempFolder.getRoot(), "cache/qualifications.txt");
+        productFile = tempFolder.newFile("product.dat");
+        write(productFile, "abc");
+    }
+
+    @Test
+    public void testPlugInIsAskedOncePerFile() throws Exception {
+        final ReaderQualificationCache cache = new ReaderQualificationCache(cacheFile, plugIns);
+
+        final Map<ProductReaderPlugIn, DecodeQualification> qualifications = cache.getQualifications(productFile, plugIns);
+        assertEquals(1, qualifications.size());
+        assertEquals(DecodeQualification.INTENDED, qualifications.get(plugIn));
+
+        assertEquals(qualifications, cache.getQualifications(productFile, plugIns));
+        verify(plugIn, times(1)).getDecodeQualification(any());
+    }
+
+    @Test
+    public void testCacheIsPersistent() throws Exception {
+        final ReaderQualificationCache cache = new ReaderQualificationCache(cacheFile, plugIns);
+        cache.getQualifications(productFile, plugIns);
+        cache.save();
+        assertTrue(cacheFile.isFile());
+
+        final ReaderQualificationCache loadedCache = new ReaderQualificationCache(cacheFile, plugIns);
+        loadedCache.load();
+        assertEquals(DecodeQualification.INTENDED, loadedCache.getQualifications(productFile, plugIns).get(plugIn));
+        verify(plugIn, times(1)).getDecodeQualification(any());
+    }
+
+    @Test
+    public void testModifiedFileIsQualifiedAgain() throws Exception {
+        final ReaderQualificationCache cache = new ReaderQualificationCache(cacheFile, plugIns);
+        cache.getQualifications(productFile, plugIns);
+
+        write(productFile, "abcdef");
+        when(plugIn.getDecodeQualification(any())).thenReturn(DecodeQualification.UNABLE);
+        assertTrue(cache.getQualifications(productFile, plugIns).isEmpty());
+        verify(plugIn, times(2)).getDecodeQualification(any());
+    }
+
+    @Test
+    public void testUndecodableFileIsNotCached() throws Exception {
+        when(plugIn.getDecodeQualification(any())).thenReturn(DecodeQualification.UNABLE);
+        final ReaderQualificationCache cache = new ReaderQualificationCache(cacheFile, plugIns);
+        assertTrue(cache.getQualifications(productFile, plugIns).isEmpty());
+        assertTrue(cache.getQualifications(productFile, plugIns).isEmpty());
+        verify(plugIn, times(2)).getDecodeQualification(any());
+    }
+
+    @Test
+    public void testDirectoriesAreNotCached() throws Exception {
+        final ReaderQualificationCache cache = new ReaderQualificationCache(cacheFile, plugIns);
+        final File dir = tempFolder.newFolder("product.SAFE");
+        cache.getQualifications(dir, plugIns);
+        cache.getQualifications(dir, plugIns);
+        verify(plugIn, times(2)).getDecodeQualification(any());
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+    }
+}
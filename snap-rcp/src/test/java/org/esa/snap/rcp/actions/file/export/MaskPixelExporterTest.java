@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.actions.file.export;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.CrsGeoCoding;
+import org.esa.snap.framework.datamodel.GeoCoding;
+import org.esa.snap.framework.datamodel.GeoPos;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.PixelPos;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.TiePointGrid;
+import org.geotools.referencing.crs.DefaultGeographicCRS;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.image.RenderedImage;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class MaskPixelExporterTest {
+
+    private static final int WIDTH = 50;
+    private static final int HEIGHT = 37;
+
+    @Test
+    public void testOutputEqualsPixelByPixelExport() throws Exception {
+        assertOutputEqualsPixelByPixelExport(createProduct());
+    }
+
+    @Test
+    public void testOutputEqualsPixelByPixelExportWithGeoCoding() throws Exception {
+        final Product product = createProduct();
+        product.setGeoCoding(new CrsGeoCoding(DefaultGeographicCRS.WGS84, WIDTH, HEIGHT, 10.0, 50.0, 0.1, 0.2, 0.0, 0.0));
+        assertOutputEqualsPixelByPixelExport(product);
+    }
+
+    private static void assertOutputEqualsPixelByPixelExport(Product product) throws Exception {
+        final Mask mask = Mask.BandMathsType.create("m", null, WIDTH, HEIGHT, "(X + Y) % 3 < 1", Color.RED, 0.5);
+        product.getMaskGroup().add(mask);
+        final RenderedImage maskImage = mask.getSourceImage();
+
+        final StringWriter out = new StringWriter();
+        final MaskPixelExporter exporter = new MaskPixelExporter(product, maskImage, true, 3);
+        assertTrue(exporter.writeDataLines(out, ProgressMonitor.NULL));
+
+        assertEquals(exportPixelByPixel(product, maskImage), out.toString());
+    }
+
+    private static Product createProduct() {
+        final Product product = new Product("test", "test", WIDTH, HEIGHT);
+        product.setPreferredTileSize(16, 16);
+
+        final float[] floatValues = new float[WIDTH * HEIGHT];
+        final int[] intValues = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < floatValues.length; i++) {
+            floatValues[i] = i / 7.0f;
+            intValues[i] = i % 11;
+        }
+        final Band floatBand = product.addBand("f", ProductData.TYPE_FLOAT32);
+        floatBand.setRasterData(ProductData.createInstance(floatValues));
+        final Band intBand = product.addBand("i", ProductData.TYPE_INT32);
+        intBand.setRasterData(ProductData.createInstance(intValues));
+        intBand.setValidPixelExpression("i != 5");
+
+        final float[] gridValues = new float[6 * 5];
+        for (int i = 0; i < gridValues.length; i++) {
+            gridValues[i] = i * 1.5f;
+        }
+        product.addTiePointGrid(new TiePointGrid("t", 6, 5, 0.5, 0.5, 10, 9, gridValues));
+        return product;
+    }
+
+    private static String exportPixelByPixel(Product product, RenderedImage maskImage) throws Exception {
+        final StringBuilder sb = new StringBuilder();
+        final int[] intPixel = new int[1];
+        final float[] floatPixel = new float[1];
+        final GeoCoding geoCoding = product.getGeoCoding();
+        for (int tileX = 0; tileX < maskImage.getNumXTiles(); tileX++) {
+            for (int tileY = 0; tileY < maskImage.getNumYTiles(); tileY++) {
+                final int x0 = tileX * maskImage.getTileWidth();
+                final int y0 = tileY * maskImage.getTileHeight();
+                for (int y = y0; y < Math.min(y0 + maskImage.getTileHeight(), HEIGHT); y++) {
+                    for (int x = x0; x < Math.min(x0 + maskImage.getTileWidth(), WIDTH); x++) {
+                        if (maskImage.getData().getSample(x, y, 0) == 0) {
+                            continue;
+                        }
+                        sb.append(String.valueOf(x + 0.5f)).append("\t").append(String.valueOf(y + 0.5f));
+                        if (geoCoding != null) {
+                            final GeoPos geoPos = geoCoding.getGeoPos(new PixelPos(x + 0.5f, y + 0.5f), null);
+                            sb.append("\t").append(String.valueOf(geoPos.lon));
+                            sb.append("\t").append(String.valueOf(geoPos.lat));
+                        }
+                        for (Band band : product.getBands()) {
+                            sb.append("\t");
+                            if (band.isPixelValid(x, y)) {
+                                if (band.isFloatingPointType()) {
+                                    band.readPixels(x, y, 1, 1, floatPixel, ProgressMonitor.NULL);
+                                    sb.append(String.valueOf(floatPixel[0]));
+                                } else {
+                                    band.readPixels(x, y, 1, 1, intPixel, ProgressMonitor.NULL);
+                                    sb.append(String.valueOf(intPixel[0]));
+                                }
+                            } else {
+                                sb.append("NaN");
+                            }
+                        }
+                        for (TiePointGrid grid : product.getTiePointGrids()) {
+                            grid.readPixels(x, y, 1, 1, floatPixel, ProgressMonitor.NULL);
+                            sb.append("\t").append(String.valueOf(floatPixel[0]));
+                        }
+                        sb.append("\n");
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
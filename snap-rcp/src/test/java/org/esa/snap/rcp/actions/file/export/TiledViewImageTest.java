@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.actions.file.export;
+
+import com.bc.ceres.glayer.CollectionLayer;
+import com.bc.ceres.grender.Rendering;
+import com.bc.ceres.grender.Viewport;
+import com.bc.ceres.grender.support.BufferedImageRendering;
+import com.bc.ceres.grender.support.DefaultViewport;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+
+import static org.junit.Assert.*;
+
+public class TiledViewImageTest {
+
+    private static final int WIDTH = 1200;
+    private static final int HEIGHT = 700;
+
+    @Test
+    public void testTilesEqualSingleRendering() throws Exception {
+        final CollectionLayer layer = new RectangleLayer();
+        final Viewport viewport = new DefaultViewport(new Rectangle(WIDTH, HEIGHT), true);
+        viewport.setZoomFactor(2.0);
+
+        final TiledViewImage image = new TiledViewImage(layer, viewport, false, Color.BLUE, null);
+        assertEquals(TiledViewImage.TILE_SIZE, image.getTileWidth());
+        assertEquals(3, image.getNumXTiles());
+        assertEquals(2, image.getNumYTiles());
+
+        final BufferedImage expected = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_3BYTE_BGR);
+        final BufferedImageRendering rendering = new BufferedImageRendering(expected, viewport);
+        rendering.getGraphics().setColor(Color.BLUE);
+        rendering.getGraphics().fillRect(0, 0, WIDTH, HEIGHT);
+        layer.render(rendering);
+
+        final Raster expectedData = expected.getData();
+        final Raster actualData = image.getData();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                for (int b = 0; b < 3; b++) {
+                    assertEquals("x=" + x + ", y=" + y, expectedData.getSample(x, y, b), actualData.getSample(x, y, b));
+                }
+            }
+        }
+
+        final Raster strip = image.getData(new Rectangle(0, 510, WIDTH, 4));
+        assertEquals(expectedData.getSample(600, 511, 0), strip.getSample(600, 511, 0));
+        image.dispose();
+    }
+
+    private static class RectangleLayer extends CollectionLayer {
+
+        @Override
+        protected void renderLayer(Rendering rendering) {
+            final Graphics2D graphics = rendering.getGraphics();
+            final AffineTransform transform = graphics.getTransform();
+            graphics.transform(rendering.getViewport().getModelToViewTransform());
+            graphics.setColor(Color.RED);
+            graphics.fill(new Rectangle2D.Double(100, 100, 300, 200));
+            graphics.setTransform(transform);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.imgfilter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the fast filters with a direct computation over each window.
+ */
+public class FastFiltersTest {
+
+    private static final int WIDTH = 23;
+    private static final int HEIGHT = 17;
+
+    @Test
+    public void testSeparate() {
+        final double[] gaussian = {
+                1, 2, 1,
+                2, 4, 2,
+                1, 2, 1
+        };
+        final double[][] separated = FastFilters.separate(3, 3, gaussian);
+        assertNotNull(separated);
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 3; x++) {
+                assertEquals(gaussian[y * 3 + x], separated[1][y] * separated[0][x], 1e-12);
+            }
+        }
+
+        final double[] laplacian = {
+                0, -1, 0,
+                -1, 4, -1,
+                0, -1, 0
+        };
+        assertNull(FastFilters.separate(3, 3, laplacian));
+        assertNull(FastFilters.separate(2, 2, new double[4]));
+    }
+
+    @Test
+    public void testConvolveSeparable() {
+        final double[] rowKernel = {0.25, 0.5, 0.25, -0.1, 0.3};
+        final double[] columnKernel = {1.0, -2.0, 1.5};
+        final int kw = rowKernel.length;
+        final int kh = columnKernel.length;
+        final float[] src = createSource(kw, kh, false);
+        final float[] dst = new float[WIDTH * HEIGHT];
+        FastFilters.convolveSeparable(src, rowKernel, columnKernel, dst, WIDTH, HEIGHT);
+
+        final int sw = WIDTH + kw - 1;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                double expected = 0.0;
+                for (int j = 0; j < kh; j++) {
+                    for (int i = 0; i < kw; i++) {
+                        expected += src[(y + j) * sw + x + i] * rowKernel[i] * columnKernel[j];
+                    }
+                }
+                assertEquals(expected, dst[y * WIDTH + x], 1e-4);
+            }
+        }
+    }
+
+    @Test
+    public void testMeanAndStdDev() {
+        final float[] src = createSource(5, 3, true);
+        final float[] mean = new float[WIDTH * HEIGHT];
+        final float[] stdDev = new float[WIDTH * HEIGHT];
+        FastFilters.meanOrStdDev(src, 5, 3, mean, WIDTH, HEIGHT, false);
+        FastFilters.meanOrStdDev(src, 5, 3, stdDev, WIDTH, HEIGHT, true);
+
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                final float[] values = getValidWindow(src, 5, 3, x, y);
+                if (values.length == 0) {
+                    assertTrue(Float.isNaN(mean[y * WIDTH + x]));
+                    assertTrue(Float.isNaN(stdDev[y * WIDTH + x]));
+                    continue;
+                }
+                double sum = 0.0;
+                for (float v : values) {
+                    sum += v;
+                }
+                final double expectedMean = sum / values.length;
+                double sqrSum = 0.0;
+                for (float v : values) {
+                    sqrSum += (v - expectedMean) * (v - expectedMean);
+                }
+                assertEquals(expectedMean, mean[y * WIDTH + x], 1e-4);
+                assertEquals(Math.sqrt(sqrSum / values.length), stdDev[y * WIDTH + x], 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void testMinAndMax() {
+        for (int kw = 1; kw <= 6; kw++) {
+            for (int kh = 1; kh <= 4; kh++) {
+                final float[] src = createSource(kw, kh, true);
+                final float[] min = new float[WIDTH * HEIGHT];
+                final float[] max = new float[WIDTH * HEIGHT];
+                FastFilters.minOrMax(src, kw, kh, min, WIDTH, HEIGHT, false);
+                FastFilters.minOrMax(src, kw, kh, max, WIDTH, HEIGHT, true);
+
+                for (int y = 0; y < HEIGHT; y++) {
+                    for (int x = 0; x < WIDTH; x++) {
+                        final float[] values = getValidWindow(src, kw, kh, x, y);
+                        Arrays.sort(values);
+                        final float expectedMin = values.length > 0 ? values[0] : Float.NaN;
+                        final float expectedMax = values.length > 0 ? values[values.length - 1] : Float.NaN;
+                        assertEquals(expectedMin, min[y * WIDTH + x], 0.0f);
+                        assertEquals(expectedMax, max[y * WIDTH + x], 0.0f);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMedian() {
+        for (int kw = 1; kw <= 5; kw += 2) {
+            for (int kh = 1; kh <= 4; kh++) {
+                // more than 256 distinct values, so that the median is searched in several coarse bins
+                final float[] src = kh % 2 == 0 ? createSource(kw, kh, true) : createSource(kw, kh, 100000);
+                final float[] median = new float[WIDTH * HEIGHT];
+                FastFilters.median(src, kw, kh, median, WIDTH, HEIGHT);
+
+                for (int y = 0; y < HEIGHT; y++) {
+                    for (int x = 0; x < WIDTH; x++) {
+                        final float[] values = getValidWindow(src, kw, kh, x, y);
+                        Arrays.sort(values);
+                        final float expected = values.length > 0 ? values[values.length / 2] : Float.NaN;
+                        assertEquals(expected, median[y * WIDTH + x], 0.0f);
+                    }
+                }
+            }
+        }
+    }
+
+    /*
+     * Few distinct values, so that windows contain equal values, and some NaNs.
+     */
+    private static float[] createSource(int kernelWidth, int kernelHeight, boolean withNaN) {
+        final float[] src = createSource(kernelWidth, kernelHeight, 50);
+        if (!withNaN) {
+            for (int i = 0; i < src.length; i++) {
+                if (Float.isNaN(src[i])) {
+                    src[i] = 1.0f;
+                }
+            }
+        }
+        return src;
+    }
+
+    private static float[] createSource(int kernelWidth, int kernelHeight, int distinctValueCount) {
+        final Random random = new Random(kernelWidth * 31 + kernelHeight);
+        final float[] src = new float[(WIDTH + kernelWidth - 1) * (HEIGHT + kernelHeight - 1)];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = random.nextInt(10) == 0 ? Float.NaN : random.nextInt(distinctValueCount) * 0.5f - 10f;
+        }
+        return src;
+    }
+
+    private static float[] getValidWindow(float[] src, int kernelWidth, int kernelHeight, int x, int y) {
+        final int sw = WIDTH + kernelWidth - 1;
+        final float[] values = new float[kernelWidth * kernelHeight];
+        int n = 0;
+        for (int j = 0; j < kernelHeight; j++) {
+            for (int i = 0; i < kernelWidth; i++) {
+                final float v = src[(y + j) * sw + x + i];
+                if (!Float.isNaN(v)) {
+                    values[n++] = v;
+                }
+            }
+        }
+        return Arrays.copyOf(values, n);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.magicwand;
+
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.awt.image.Raster;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the classifier selects the same pixels as the band maths expression of the model.
+ */
+public class MagicWandClassifierTest {
+
+    private static final int SIZE = 32;
+
+    private Product product;
+
+    @Before
+    public void setUp() throws Exception {
+        product = new Product("product", "t", SIZE, SIZE);
+        final Random random = new Random(5);
+        for (int b = 1; b <= 4; b++) {
+            final float[] values = new float[SIZE * SIZE];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = 0.2f + 0.6f * random.nextFloat();
+            }
+            final Band band = product.addBand("b" + b, ProductData.TYPE_FLOAT32);
+            band.setRasterData(ProductData.createInstance(values));
+        }
+        product.getBand("b2").setValidPixelExpression("b2 < 0.75");
+    }
+
+    @Test
+    public void testSameSelectionAsExpression() throws Exception {
+        for (MagicWandModel.PixelTest pixelTest : MagicWandModel.PixelTest.values()) {
+            for (MagicWandModel.SpectrumTransform spectrumTransform : MagicWandModel.SpectrumTransform.values()) {
+                for (boolean normalize : new boolean[]{false, true}) {
+                    final MagicWandModel model = new MagicWandModel();
+                    model.setBandNames("b1", "b2", "b3", "b4");
+                    model.setPixelTest(pixelTest);
+                    model.setSpectrumTransform(spectrumTransform);
+                    model.setNormalize(normalize);
+                    model.setTolerance(0.05);
+                    model.setPickMode(MagicWandModel.PickMode.PLUS);
+                    model.addSpectrum(MagicWandInteractor.getSpectrum(model.getBands(product), 3, 4));
+                    model.addSpectrum(MagicWandInteractor.getSpectrum(model.getBands(product), 20, 9));
+                    model.setPickMode(MagicWandModel.PickMode.MINUS);
+                    model.addSpectrum(MagicWandInteractor.getSpectrum(model.getBands(product), 11, 30));
+
+                    assertSameSelection(pixelTest + "/" + spectrumTransform + "/" + normalize, model);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testMagicWandMaskUsesClassifierImage() throws Exception {
+        final MagicWandModel model = new MagicWandModel();
+        model.setBandNames("b1", "b3");
+        model.addSpectrum(MagicWandInteractor.getSpectrum(model.getBands(product), 7, 7));
+
+        MagicWandModel.setMagicWandMask(product, model);
+
+        final Mask mask = product.getMaskGroup().get(MagicWandModel.MAGIC_WAND_MASK_NAME);
+        assertNotNull(mask);
+        assertEquals(model.createMaskExpression(), mask.getImageConfig().getValue("expression"));
+        assertEquals(255, mask.getSourceImage().getData().getSample(7, 7, 0));
+    }
+
+    private void assertSameSelection(String message, MagicWandModel model) {
+        final String expression = "(b2 < 0.75) && (" + model.createMaskExpression() + ")";
+        final Mask expected = Mask.BandMathsType.create("expected", null, SIZE, SIZE, expression, Color.RED, 0.5);
+        product.getMaskGroup().add(expected);
+        final Mask actual = Mask.BandMathsType.create("actual", null, SIZE, SIZE, "0", Color.RED, 0.5);
+        product.getMaskGroup().add(actual);
+        actual.setSourceImage(MagicWandMaskOpImage.createMaskImage(actual, model.getBands(product),
+                                                                   new MagicWandClassifier(model)));
+        try {
+            final Raster expectedData = expected.getSourceImage().getData();
+            final Raster actualData = actual.getSourceImage().getData();
+            for (int y = 0; y < SIZE; y++) {
+                for (int x = 0; x < SIZE; x++) {
+                    assertEquals(message + " at " + x + "," + y,
+                                 expectedData.getSample(x, y, 0), actualData.getSample(x, y, 0));
+                }
+            }
+        } finally {
+            product.getMaskGroup().remove(expected);
+            product.getMaskGroup().remove(actual);
+        }
+    }
+}
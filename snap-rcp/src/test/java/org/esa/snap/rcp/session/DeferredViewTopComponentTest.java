@@ -0,0 +1,54 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.session;
+
+import org.esa.snap.framework.datamodel.Product;
+import org.junit.Test;
+
+import javax.swing.SwingUtilities;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DeferredViewTopComponentTest {
+
+    @Test
+    public void testViewIsMaterializedWhenFirstShown() throws Exception {
+        final AtomicInteger materializeCount = new AtomicInteger();
+        final DeferredViewTopComponent[] placeholder = new DeferredViewTopComponent[1];
+        SwingUtilities.invokeAndWait(() -> placeholder[0] = new DeferredViewTopComponent(new Product("P", "T", 10, 10),
+                                                                                         "band_1",
+                                                                                         materializeCount::incrementAndGet));
+        assertFalse(placeholder[0].isMaterialized());
+        assertEquals(0, materializeCount.get());
+
+        SwingUtilities.invokeAndWait(() -> {
+            placeholder[0].componentShowing();
+            placeholder[0].componentShowing();
+        });
+        // the materializer runs in a later event
+        SwingUtilities.invokeAndWait(() -> {
+        });
+
+        assertTrue(placeholder[0].isMaterialized());
+        assertEquals(1, materializeCount.get());
+
+        SwingUtilities.invokeAndWait(() -> placeholder[0].componentShowing());
+        SwingUtilities.invokeAndWait(() -> {
+        });
+        assertEquals(1, materializeCount.get());
+    }
+}
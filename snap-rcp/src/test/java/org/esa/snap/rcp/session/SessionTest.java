@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.rcp.session;
+
+import org.esa.snap.framework.ui.product.ProductSceneView;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class SessionTest {
+
+    @Test
+    public void testGetHiddenViews() {
+        final Session.ViewRef[] viewRefs = {
+                createViewRef(0, new Rectangle(0, 0, 400, 300)),
+                createViewRef(1, new Rectangle(0, 0, 400, 300)),
+                createViewRef(2, new Rectangle(500, 0, 200, 200)),
+                createViewRef(3, new Rectangle(0, 0, 400, 300)),
+                createViewRef(4, null),
+        };
+
+        final Set<Session.ViewRef> hiddenViews = Session.getHiddenViews(viewRefs);
+
+        assertEquals(2, hiddenViews.size());
+        assertTrue(hiddenViews.contains(viewRefs[0]));
+        assertTrue(hiddenViews.contains(viewRefs[1]));
+    }
+
+    private static Session.ViewRef createViewRef(int id, Rectangle bounds) {
+        return new Session.ViewRef(id, ProductSceneView.class.getName(), bounds, null, 1,
+                                   "band_" + id, null, null, null, null, new Session.LayerRef[0]);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.spectrum;
+
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.PinDescriptor;
+import org.esa.snap.framework.datamodel.PixelPos;
+import org.esa.snap.framework.datamodel.Placemark;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PinSpectraCacheTest {
+
+    private Product product;
+    private Band[] bands;
+    private Placemark pin1;
+    private Placemark pin2;
+
+    @Before
+    public void setUp() throws Exception {
+        final int width = 20;
+        final int height = 10;
+        product = new Product("p", "t", width, height);
+        bands = new Band[3];
+        for (int b = 0; b < bands.length; b++) {
+            bands[b] = new Band("radiance_" + b, ProductData.TYPE_INT32, width, height);
+            final int[] data = new int[width * height];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = 1000 * b + i;
+            }
+            bands[b].setRasterData(ProductData.createInstance(data));
+            bands[b].setSpectralWavelength(400 + 10 * b);
+            product.addBand(bands[b]);
+        }
+        pin1 = Placemark.createPointPlacemark(PinDescriptor.getInstance(), "P1", "P1", "",
+                                              new PixelPos(2.5f, 1.5f), null, product.getGeoCoding());
+        pin2 = Placemark.createPointPlacemark(PinDescriptor.getInstance(), "P2", "P2", "",
+                                              new PixelPos(15.5f, 8.5f), null, product.getGeoCoding());
+        product.getPinGroup().add(pin1);
+        product.getPinGroup().add(pin2);
+    }
+
+    @Test
+    public void testSpectraAreRead() throws Exception {
+        final double[][] spectra = new PinSpectraCache().getSpectra(new Placemark[]{pin1, pin2}, bands, 0);
+
+        assertEquals(2, spectra.length);
+        assertArrayEquals(new double[]{22, 1022, 2022}, spectra[0], 0.0);
+        assertArrayEquals(new double[]{175, 1175, 2175}, spectra[1], 0.0);
+    }
+
+    @Test
+    public void testSpectraAreReusedUntilPinMoves() throws Exception {
+        final PinSpectraCache cache = new PinSpectraCache();
+        final double[] spectrum = cache.getSpectra(new Placemark[]{pin1}, bands, 0)[0];
+        assertSame(spectrum, cache.getSpectra(new Placemark[]{pin1}, bands, 0)[0]);
+
+        pin1.setPixelPos(new PixelPos(3.5f, 1.5f));
+        final double[] movedSpectrum = cache.getSpectra(new Placemark[]{pin1}, bands, 0)[0];
+        assertNotSame(spectrum, movedSpectrum);
+        assertEquals(23, movedSpectrum[0], 0.0);
+    }
+
+    @Test
+    public void testOnlyDisplayedPinsAreKept() throws Exception {
+        final PinSpectraCache cache = new PinSpectraCache();
+        cache.getSpectra(new Placemark[]{pin1, pin2}, bands, 0);
+        assertEquals(2, cache.size());
+
+        cache.getSpectra(new Placemark[]{pin2}, bands, 0);
+        assertEquals(1, cache.size());
+
+        cache.removeBand(bands[1]);
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+
+import static org.junit.Assert.*;
+
+public class DensityPlotAccumulatorTest {
+
+    private Band bandX;
+    private Band bandY;
+
+    @Before
+    public void setUp() throws Exception {
+        final int width = 40;
+        final int height = 30;
+        final Product product = new Product("p", "t", width, height);
+        bandX = new Band("x", ProductData.TYPE_FLOAT32, width, height);
+        bandY = new Band("y", ProductData.TYPE_FLOAT32, width, height);
+        final float[] dataX = new float[width * height];
+        final float[] dataY = new float[width * height];
+        for (int i = 0; i < dataX.length; i++) {
+            // all but the first row fall into a single bin
+            dataX[i] = i < width ? 0.15f : 0.95f;
+            dataY[i] = i < width ? 0.15f : 0.95f;
+        }
+        bandX.setRasterData(ProductData.createInstance(dataX));
+        bandY.setRasterData(ProductData.createInstance(dataY));
+        product.addBand(bandX);
+        product.addBand(bandY);
+    }
+
+    @Test
+    public void testCountsAreNotCropped() throws Exception {
+        final DensityPlotAccumulator accumulator = new DensityPlotAccumulator(10, 10, 0.0, 1.0, 0.0, 1.0);
+        accumulator.accumulate(bandX, bandY, null, 0, ProgressMonitor.NULL);
+
+        assertEquals(40, accumulator.getCount(1, 1));
+        assertEquals(29 * 40, accumulator.getCount(9, 9));
+        assertEquals(29 * 40, accumulator.getMaxCount());
+        assertEquals(30 * 40, accumulator.getTotalCount());
+        assertEquals(2, accumulator.getNumNonEmptyBins());
+    }
+
+    @Test
+    public void testCreateImage() throws Exception {
+        final DensityPlotAccumulator accumulator = new DensityPlotAccumulator(10, 10, 0.0, 1.0, 0.0, 1.0);
+        accumulator.accumulate(bandX, bandY, null, 0, ProgressMonitor.NULL);
+        final IndexColorModel colorModel = createGrayColorModel();
+
+        final BufferedImage image = accumulator.createImage(colorModel, DensityPlotAccumulator.LINEAR);
+
+        // first image row shows the maximum Y values
+        assertEquals(255, image.getRaster().getSample(9, 0, 0));
+        assertEquals(1 + 254 * 39 / 1159, image.getRaster().getSample(1, 8, 0));
+        assertEquals(0, image.getRaster().getSample(5, 5, 0));
+    }
+
+    @Test
+    public void testToBinIndex() throws Exception {
+        assertEquals(0, DensityPlotAccumulator.toBinIndex(0.0, 0.0, 1.0, 10.0, 10));
+        assertEquals(9, DensityPlotAccumulator.toBinIndex(1.0, 0.0, 1.0, 10.0, 10));
+        assertEquals(-1, DensityPlotAccumulator.toBinIndex(1.1, 0.0, 1.0, 10.0, 10));
+        assertEquals(-1, DensityPlotAccumulator.toBinIndex(Double.NaN, 0.0, 1.0, 10.0, 10));
+    }
+
+    @Test
+    public void testCountScales() throws Exception {
+        assertEquals(255, DensityPlotAccumulator.CROPPED.toColorIndex(1000, 1000));
+        assertEquals(7, DensityPlotAccumulator.CROPPED.toColorIndex(7, 1000));
+        assertEquals(255, DensityPlotAccumulator.LINEAR.toColorIndex(1000, 1000));
+        assertEquals(1, DensityPlotAccumulator.LINEAR.toColorIndex(1, 1000));
+        assertEquals(255, DensityPlotAccumulator.LOGARITHMIC.toColorIndex(1000, 1000));
+        assertEquals(1, DensityPlotAccumulator.LOGARITHMIC.toColorIndex(1, 1000));
+    }
+
+    private static IndexColorModel createGrayColorModel() {
+        final byte[] gray = new byte[256];
+        for (int i = 0; i < gray.length; i++) {
+            gray[i] = (byte) i;
+        }
+        return new IndexColorModel(8, 256, gray, gray, gray);
+    }
+}
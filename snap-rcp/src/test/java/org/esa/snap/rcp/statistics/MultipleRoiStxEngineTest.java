@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.statistics;
+
+import com.bc.ceres.core.ProgressMonitor;
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.Stx;
+import org.esa.snap.framework.datamodel.StxFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MultipleRoiStxEngineTest {
+
+    private Band band;
+    private Mask leftMask;
+    private Mask emptyMask;
+
+    @Before
+    public void setUp() throws Exception {
+        final int width = 64;
+        final int height = 48;
+        final Product product = new Product("p", "t", width, height);
+        band = new Band("b", ProductData.TYPE_FLOAT32, width, height);
+        final float[] data = new float[width * height];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (float) Math.sin(i * 0.01) * 100;
+        }
+        band.setRasterData(ProductData.createInstance(data));
+        product.addBand(band);
+        leftMask = product.addMask("left", "X < 20", "", Color.RED, 0.5);
+        emptyMask = product.addMask("none", "X < 0", "", Color.RED, 0.5);
+    }
+
+    @Test
+    public void testSameResultAsStxFactory() throws Exception {
+        final Mask[] masks = {null, leftMask};
+        final Stx[] stxs = new MultipleRoiStxEngine(band, masks, 1000).compute(null, ProgressMonitor.NULL);
+
+        assertEquals(2, stxs.length);
+        for (int i = 0; i < masks.length; i++) {
+            final StxFactory factory = new StxFactory().withHistogramBinCount(1000);
+            if (masks[i] != null) {
+                factory.withRoiMask(masks[i]);
+            }
+            final Stx expected = factory.create(band, ProgressMonitor.NULL);
+            assertEquals(expected.getSampleCount(), stxs[i].getSampleCount());
+            assertEquals(expected.getMinimum(), stxs[i].getMinimum(), 1.0e-6);
+            assertEquals(expected.getMaximum(), stxs[i].getMaximum(), 1.0e-6);
+            assertEquals(expected.getMean(), stxs[i].getMean(), 1.0e-4);
+        }
+        assertTrue(stxs[1].getSampleCount() < stxs[0].getSampleCount());
+    }
+
+    @Test
+    public void testResultHandlerIsCalledForEachMask() throws Exception {
+        final Mask[] masks = {leftMask, null, emptyMask};
+        final List<Mask> reported = new ArrayList<>();
+        final Stx[] stxs = new MultipleRoiStxEngine(band, masks, 100).compute((maskIndex, mask, stx) -> {
+            assertSame(masks[maskIndex], mask);
+            reported.add(mask);
+        }, ProgressMonitor.NULL);
+
+        assertEquals(3, reported.size());
+        assertEquals(0, stxs[2].getSampleCount());
+    }
+
+    @Test
+    public void testComputeHistogramHigh() throws Exception {
+        assertEquals(11.0, MultipleRoiStxEngine.computeHistogramHigh(2.0, 10.0, true), 0.0);
+        assertEquals(10.0, MultipleRoiStxEngine.computeHistogramHigh(2.0, 10.0, false), 0.0);
+        assertEquals(3.0, MultipleRoiStxEngine.computeHistogramHigh(2.0, 2.0, false), 0.0);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.statistics;
+
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.Color;
+
+import static org.junit.Assert.*;
+
+public class PixelBoxSamplerTest {
+
+    private static final int WIDTH = 20;
+    private static final int HEIGHT = 10;
+
+    private Band band;
+    private Mask mask;
+
+    @Before
+    public void setUp() throws Exception {
+        final Product product = new Product("p", "t", WIDTH, HEIGHT);
+        band = new Band("b", ProductData.TYPE_INT32, WIDTH, HEIGHT);
+        final int[] data = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = i;
+        }
+        band.setRasterData(ProductData.createInstance(data));
+        product.addBand(band);
+        mask = product.addMask("m", "X < 10", "", Color.RED, 0.5);
+    }
+
+    @Test
+    public void testBoxInsideScene() throws Exception {
+        final PixelBoxSampler.Samples samples = new PixelBoxSampler(band, null, 3).sample(new float[]{5.5f},
+                                                                                            new float[]{4.5f});
+        assertTrue(samples.isValid(0));
+        assertEquals(4 * WIDTH + 5, samples.getMean(0), 1.0e-10);
+    }
+
+    @Test
+    public void testNonSquareBoxAtSceneEdge() throws Exception {
+        // box is clipped to 3 x 5 pixels: x in [17, 19], y in [2, 6]
+        final PixelBoxSampler.Samples samples = new PixelBoxSampler(band, null, 5).sample(new float[]{19.5f},
+                                                                                            new float[]{4.5f});
+        assertTrue(samples.isValid(0));
+        double sum = 0;
+        for (int y = 2; y <= 6; y++) {
+            for (int x = 17; x <= 19; x++) {
+                sum += y * WIDTH + x;
+            }
+        }
+        assertEquals(sum / 15, samples.getMean(0), 1.0e-10);
+    }
+
+    @Test
+    public void testRoiMask() throws Exception {
+        final PixelBoxSampler.Samples samples = new PixelBoxSampler(band, mask, 3).sample(new float[]{9.5f, 15.5f, 1.5f},
+                                                                                            new float[]{1.5f, 1.5f, 8.5f});
+        assertTrue(samples.isValid(0));
+        assertEquals((8 + 9 + 2 * WIDTH) / 2.0, samples.getMean(0), 1.0e-10);
+        assertFalse(samples.isValid(1));
+        assertTrue(samples.isValid(2));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.rcp.statistics;
+
+import org.esa.snap.framework.datamodel.Band;
+import org.esa.snap.framework.datamodel.Mask;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.ProductData;
+import org.esa.snap.framework.datamodel.Stx;
+import org.esa.snap.framework.datamodel.VirtualBand;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.media.jai.Histogram;
+import java.awt.Color;
+
+import static org.junit.Assert.*;
+
+public class StxCacheTest {
+
+    private Product product;
+    private Band band;
+    private VirtualBand virtualBand;
+    private Mask mask;
+    private StxCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        product = new Product("dummy", "dummy", 10, 10);
+        band = new Band("a", ProductData.TYPE_FLOAT32, 10, 10);
+        product.addBand(band);
+        virtualBand = new VirtualBand("v", ProductData.TYPE_FLOAT32, 10, 10, "a * 2");
+        product.addBand(virtualBand);
+        mask = product.addMask("m", "X > 4", "", Color.RED, 0.5);
+        cache = new StxCache(3);
+    }
+
+    @Test
+    public void testPutAndGet() throws Exception {
+        final Stx stx = arbitraryStx();
+        cache.put(band, mask, 100, 0, false, stx);
+
+        assertSame(stx, cache.get(band, mask, 100, 0, false));
+        assertNull(cache.get(band, null, 100, 0, false));
+        assertNull(cache.get(band, mask, 1000, 0, false));
+        assertNull(cache.get(band, mask, 100, 1, false));
+        assertNull(cache.get(band, mask, 100, 0, true));
+    }
+
+    @Test
+    public void testMaskNameAndMaskInstanceShareEntry() throws Exception {
+        final Stx stx = arbitraryStx();
+        cache.put(StxCache.createKey(band, "m", 100, 0, false), stx);
+
+        assertSame(stx, cache.get(band, mask, 100, 0, false));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws Exception {
+        cache.put(band, null, 1, 0, false, arbitraryStx());
+        cache.put(band, null, 2, 0, false, arbitraryStx());
+        cache.put(band, null, 3, 0, false, arbitraryStx());
+        assertNotNull(cache.get(band, null, 1, 0, false));
+
+        cache.put(band, null, 4, 0, false, arbitraryStx());
+
+        assertEquals(3, cache.size());
+        assertNotNull(cache.get(band, null, 1, 0, false));
+        assertNull(cache.get(band, null, 2, 0, false));
+    }
+
+    @Test
+    public void testDataChangeInvalidatesDependentEntries() throws Exception {
+        cache.put(band, null, 100, 0, false, arbitraryStx());
+        cache.put(virtualBand, null, 100, 0, false, arbitraryStx());
+        cache.put(virtualBand, mask, 100, 0, false, arbitraryStx());
+
+        band.fireProductNodeDataChanged();
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpressionChangeInvalidatesEntry() throws Exception {
+        cache.put(band, null, 100, 0, false, arbitraryStx());
+        cache.put(virtualBand, null, 100, 0, false, arbitraryStx());
+
+        virtualBand.setExpression("a * 3");
+
+        assertNull(cache.get(virtualBand, null, 100, 0, false));
+        assertNotNull(cache.get(band, null, 100, 0, false));
+    }
+
+    @Test
+    public void testRemoveProduct() throws Exception {
+        cache.put(band, mask, 100, 0, false, arbitraryStx());
+
+        cache.removeProduct(product);
+
+        assertEquals(0, cache.size());
+    }
+
+    private static Stx arbitraryStx() {
+        return new Stx(10, 20, 15, 2, 0, 0, true, true, new Histogram(10, 10, 20, 1), 12);
+    }
+}
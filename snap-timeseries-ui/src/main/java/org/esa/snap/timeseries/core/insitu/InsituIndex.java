@@ -0,0 +1,268 @@
+/*
+ * Copyright (C) 2015 Brockmann Consult GmbH (info@brockmann-consult.de)
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+
+package org.esa.snap.timeseries.core.insitu;
+
+import org.esa.snap.framework.datamodel.GeoPos;
+import org.esa.snap.timeseries.core.insitu.csv.CsvRecordSource;
+import org.esa.snap.timeseries.core.insitu.csv.InsituRecord;
+import org.esa.snap.util.SystemUtils;
+
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An index of the records of a {@link RecordSource} by position and by time.
+ * <p>
+ * The locations, times and station names of the records are read once into primitive arrays. For every position
+ * the record indexes are kept sorted by time, so that the records of a position and a time range are found without
+ * a pass over all records. The values of a parameter are read into a {@code double} array on first request, directly
+ * from the columns of a {@link CsvRecordSource}.
+ */
+class InsituIndex {
+
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private final RecordSource recordSource;
+    private final GeoPos[] positions;
+    private final Map<GeoPos, Integer> positionIndexes;
+    private final int[] recordPositions;
+    private final long[] recordTimes;
+    private final String[] recordStationNames;
+    private final int[] recordsByTime;
+    private final int[][] recordsByPosition;
+    private final Map<Integer, ParameterValues> parameterValues;
+
+    InsituIndex(RecordSource recordSource) {
+        this.recordSource = recordSource;
+        this.positionIndexes = new HashMap<>();
+        this.parameterValues = new HashMap<>();
+
+        final List<GeoPos> positionList = new ArrayList<>();
+        final Map<String, String> stationNames = new HashMap<>();
+        long[] times = new long[1024];
+        int[] positionIndices = new int[1024];
+        String[] names = new String[1024];
+        int recordCount = 0;
+        for (Record record : recordSource.getRecords()) {
+            if (recordCount == times.length) {
+                final int capacity = recordCount + (recordCount >> 1);
+                times = Arrays.copyOf(times, capacity);
+                positionIndices = Arrays.copyOf(positionIndices, capacity);
+                names = Arrays.copyOf(names, capacity);
+            }
+            final GeoPos location = record.getLocation();
+            Integer positionIndex = positionIndexes.get(location);
+            if (positionIndex == null) {
+                positionIndex = positionList.size();
+                positionIndexes.put(location, positionIndex);
+                positionList.add(location);
+            }
+            positionIndices[recordCount] = positionIndex;
+            times[recordCount] = record.getTime() != null ? record.getTime().getTime() : NO_TIME;
+            final String stationName = record.getStationName();
+            names[recordCount] = stationName != null ? stationNames.computeIfAbsent(stationName, n -> n) : null;
+            recordCount++;
+        }
+        positions = positionList.toArray(new GeoPos[positionList.size()]);
+        recordPositions = Arrays.copyOf(positionIndices, recordCount);
+        recordTimes = Arrays.copyOf(times, recordCount);
+        recordStationNames = Arrays.copyOf(names, recordCount);
+        recordsByTime = sortByTime(recordTimes);
+
+        // distributing the time-sorted records keeps the records of each position sorted by time
+        final int[] positionCounts = new int[positions.length];
+        for (int recordPosition : recordPositions) {
+            positionCounts[recordPosition]++;
+        }
+        recordsByPosition = new int[positions.length][];
+        for (int i = 0; i < positions.length; i++) {
+            recordsByPosition[i] = new int[positionCounts[i]];
+        }
+        Arrays.fill(positionCounts, 0);
+        for (int record : recordsByTime) {
+            final int positionIndex = recordPositions[record];
+            recordsByPosition[positionIndex][positionCounts[positionIndex]++] = record;
+        }
+    }
+
+    /**
+     * @return The positions where values of the given column are present.
+     */
+    List<GeoPos> getPositions(int columnIndex) {
+        final ParameterValues values = getParameterValues(columnIndex);
+        final List<GeoPos> result = new ArrayList<>();
+        for (int i = 0; i < positions.length; i++) {
+            for (int record : recordsByPosition[i]) {
+                if (values.present.get(record)) {
+                    result.add(positions[i]);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the records holding a value of the given column, sorted ascending by time.
+     *
+     * @param columnIndex The index of the column.
+     * @param position    The position of the records, or {@code null} for the records of all positions.
+     * @param startTime   The start of the time range (inclusive), or {@code null} for no lower bound.
+     * @param endTime     The end of the time range (inclusive), or {@code null} for no upper bound.
+     *
+     * @return The records.
+     */
+    InsituRecord[] getRecords(int columnIndex, GeoPos position, Date startTime, Date endTime) {
+        final int[] records;
+        if (position != null) {
+            final Integer positionIndex = positionIndexes.get(position);
+            if (positionIndex == null) {
+                return new InsituRecord[0];
+            }
+            records = recordsByPosition[positionIndex];
+        } else {
+            records = recordsByTime;
+        }
+        final int start = startTime != null ? lowerBound(records, startTime.getTime()) : 0;
+        final int end = endTime != null ? lowerBound(records, endTime.getTime() + 1) : records.length;
+
+        final ParameterValues values = getParameterValues(columnIndex);
+        final List<InsituRecord> result = new ArrayList<>(end - start);
+        for (int i = start; i < end; i++) {
+            final int record = records[i];
+            if (values.present.get(record)) {
+                final String stationName = recordStationNames[record] == null ? "" : recordStationNames[record];
+                final Date time = recordTimes[record] != NO_TIME ? new Date(recordTimes[record]) : null;
+                result.add(new InsituRecord(positions[recordPositions[record]], time, stationName,
+                                            values.values[record]));
+            }
+        }
+        return result.toArray(new InsituRecord[result.size()]);
+    }
+
+    /**
+     * @return The station name of the first record at the given position, or an empty string if there is no
+     * record at the position.
+     */
+    String getStationName(GeoPos position) {
+        final Integer positionIndex = positionIndexes.get(position);
+        if (positionIndex == null) {
+            return "";
+        }
+        int firstRecord = Integer.MAX_VALUE;
+        for (int record : recordsByPosition[positionIndex]) {
+            firstRecord = Math.min(firstRecord, record);
+        }
+        return recordStationNames[firstRecord];
+    }
+
+    private synchronized ParameterValues getParameterValues(int columnIndex) {
+        ParameterValues values = parameterValues.get(columnIndex);
+        if (values == null) {
+            values = new ParameterValues(recordTimes.length);
+            if (!readNumbers(columnIndex, values)) {
+                int record = 0;
+                for (Record r : recordSource.getRecords()) {
+                    if (record == recordTimes.length) {
+                        break;
+                    }
+                    final Object value = r.getAttributeValues()[columnIndex];
+                    if (value instanceof Number) {
+                        values.values[record] = ((Number) value).doubleValue();
+                        values.present.set(record);
+                    }
+                    record++;
+                }
+            }
+            parameterValues.put(columnIndex, values);
+        }
+        return values;
+    }
+
+    /**
+     * @return {@code false} if the values have not been read from the columns of the record source.
+     */
+    private boolean readNumbers(int columnIndex, ParameterValues values) {
+        if (!(recordSource instanceof CsvRecordSource)) {
+            return false;
+        }
+        try {
+            return ((CsvRecordSource) recordSource).readNumbers(columnIndex, values.values, values.present);
+        } catch (IOException e) {
+            SystemUtils.LOG.warning("Unable to read in-situ values: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private int lowerBound(int[] records, long time) {
+        int low = 0;
+        int high = records.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (recordTimes[records[mid]] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return The record indexes sorted by time; records of equal times keep their order.
+     */
+    private static int[] sortByTime(long[] times) {
+        final long[] distinctTimes = times.clone();
+        Arrays.sort(distinctTimes);
+        int distinctCount = 0;
+        for (int i = 0; i < distinctTimes.length; i++) {
+            if (i == 0 || distinctTimes[i] != distinctTimes[distinctCount - 1]) {
+                distinctTimes[distinctCount++] = distinctTimes[i];
+            }
+        }
+        // the upper 32 bits hold the rank of the time, the lower 32 bits the record index
+        final long[] keys = new long[times.length];
+        for (int i = 0; i < times.length; i++) {
+            final long rank = Arrays.binarySearch(distinctTimes, 0, distinctCount, times[i]);
+            keys[i] = (rank << 32) | i;
+        }
+        Arrays.sort(keys);
+        final int[] records = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            records[i] = (int) keys[i];
+        }
+        return records;
+    }
+
+    private static class ParameterValues {
+
+        private final double[] values;
+        private final BitSet present;
+
+        private ParameterValues(int recordCount) {
+            values = new double[recordCount];
+            present = new BitSet(recordCount);
+        }
+    }
+}
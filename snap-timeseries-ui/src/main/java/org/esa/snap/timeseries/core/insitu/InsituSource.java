@@ -21,14 +21,9 @@ import org.esa.snap.timeseries.core.insitu.csv.InsituRecord;
 import org.esa.snap.util.StringUtils;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
 
 /**
  * Represents a source for in situ data.
@@ -39,6 +34,7 @@ import java.util.Set;
 public class InsituSource {
 
     private RecordSource recordSource;
+    private InsituIndex index;
 
     public InsituSource(RecordSource recordSource) throws IOException {
         this.recordSource = recordSource;
@@ -50,17 +46,7 @@ public class InsituSource {
      * @return a collection of in-situ positions
      */
     public Collection<GeoPos> getInsituPositionsFor(String parameterName) {
-        Set<GeoPos> result = new HashSet<>();
-        final int columnIndex = getIndexForParameter(parameterName);
-        final Iterable<Record> records = recordSource.getRecords();
-        for (Record record : records) {
-            final Double value = (Double) record.getAttributeValues()[columnIndex];
-            if (value == null) {
-                continue;
-            }
-            result.add(record.getLocation());
-        }
-        return result;
+        return new HashSet<>(getIndex().getPositions(getIndexForParameter(parameterName)));
     }
 
     /**
@@ -70,26 +56,20 @@ public class InsituSource {
      * @return an array of in-situ records
      */
     public InsituRecord[] getValuesFor(String parameterName, GeoPos position) {
-        final int columnIndex = getIndexForParameter(parameterName);
-        final Iterable<Record> records = recordSource.getRecords();
-        final List<InsituRecord> parameterRecords = new ArrayList<>();
-        for (Record record : records) {
-            final GeoPos pos = record.getLocation();
-            if (position != null && !pos.equals(position)) {
-                continue;
-            }
-            final Date time = record.getTime();
-            final Double value = (Double) record.getAttributeValues()[columnIndex];
-            if (value == null) {
-                continue;
-            }
-            final String stationName = record.getStationName() == null ? "" : record.getStationName();
-            final InsituRecord insituRecord = new InsituRecord(pos, time, stationName, value);
-            parameterRecords.add(insituRecord);
-        }
+        return getValuesFor(parameterName, position, null, null);
+    }
 
-        sortRecordsAscending(parameterRecords);
-        return parameterRecords.toArray(new InsituRecord[parameterRecords.size()]);
+    /**
+     * Returns an array of {@link InsituRecord}s for the given variable name, the given {@link GeoPos} and the
+     * given time range, sorted ascending by time.
+     * @param parameterName the variable name to get the records for
+     * @param position the position to get the records for, may be {@code null} for all positions
+     * @param startTime the start of the time range (inclusive), may be {@code null}
+     * @param endTime the end of the time range (inclusive), may be {@code null}
+     * @return an array of in-situ records
+     */
+    public InsituRecord[] getValuesFor(String parameterName, GeoPos position, Date startTime, Date endTime) {
+        return getIndex().getRecords(getIndexForParameter(parameterName), position, startTime, endTime);
     }
 
     /**
@@ -112,13 +92,7 @@ public class InsituSource {
      * @return the name, or an empty string if no such name exists
      */
     public String getNameFor(GeoPos geoPos) {
-        Iterable<Record> records = recordSource.getRecords();
-        for (Record record : records) {
-            if (record.getLocation().equals(geoPos)) {
-                return record.getStationName();
-            }
-        }
-        return "";
+        return getIndex().getStationName(geoPos);
     }
 
     /**
@@ -128,22 +102,21 @@ public class InsituSource {
         recordSource.close();
     }
 
+    private synchronized InsituIndex getIndex() {
+        if (index == null) {
+            index = new InsituIndex(recordSource);
+        }
+        return index;
+    }
+
     private int getIndexForParameter(String parameterName) {
         final Header header = recordSource.getHeader();
         final String[] columnNames = header.getColumnNames();
-        return StringUtils.indexOf(columnNames, parameterName);
-    }
-
-    private void sortRecordsAscending(List<InsituRecord> parameterRecords) {
-        Collections.sort(parameterRecords, new Comparator<InsituRecord>() {
-            @Override
-            public int compare(InsituRecord o1, InsituRecord o2) {
-                if (o1.time.equals(o2.time)) {
-                    return 0;
-                }
-                return o1.time.before(o2.time) ? -1 : 1;
-            }
-        });
+        final int columnIndex = StringUtils.indexOf(columnNames, parameterName);
+        if (columnIndex < 0) {
+            throw new IllegalArgumentException("Unknown parameter: " + parameterName);
+        }
+        return columnIndex;
     }
 
 }
@@ -0,0 +1,206 @@
+package org.esa.snap.timeseries.core.insitu.csv;
+
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A column of a CSV file, which stores its values in a primitive array.
+ * <p>
+ * The type of the column is derived from its first non-empty value: numbers are stored as {@code double},
+ * date/time values as {@code long} milliseconds since the epoch and texts as (shared) {@code String} instances.
+ * Empty values are recorded as missing.
+ */
+class CsvColumn {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final DateFormat dateFormat;
+    private final BitSet present;
+    private Class<?> type;
+    private double[] numbers;
+    private long[] times;
+    private String[] texts;
+    private Map<String, String> sharedTexts;
+    private int size;
+
+    CsvColumn(DateFormat dateFormat) {
+        this.dateFormat = dateFormat;
+        this.present = new BitSet();
+    }
+
+    /**
+     * @return The type of the column, either {@link Double}, {@link Date} or {@link String}, or {@code null} if
+     * the column has no values yet.
+     */
+    Class<?> getType() {
+        return type;
+    }
+
+    int getSize() {
+        return size;
+    }
+
+    void add(String text) {
+        final int index = size++;
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        if (type == null) {
+            initType(text);
+        }
+        if (type == Double.class) {
+            numbers = ensureCapacity(numbers, index);
+            numbers[index] = parseNumber(text);
+        } else if (type == Date.class) {
+            times = ensureCapacity(times, index);
+            times[index] = parseTime(text);
+        } else {
+            texts = ensureCapacity(texts, index);
+            texts[index] = sharedTexts.computeIfAbsent(text, t -> t);
+        }
+        present.set(index);
+    }
+
+    boolean isPresent(int index) {
+        return present.get(index);
+    }
+
+    double getNumber(int index) {
+        return numbers[index];
+    }
+
+    long getTime(int index) {
+        return times[index];
+    }
+
+    String getText(int index) {
+        return texts[index];
+    }
+
+    /**
+     * Copies the numbers of a numeric column to the given array and marks the indexes of the values present.
+     *
+     * @return {@code false} if the column is not numeric.
+     */
+    boolean copyNumbers(double[] target, BitSet targetPresent) {
+        if (type != Double.class) {
+            return type == null;
+        }
+        final int length = Math.min(size, target.length);
+        for (int i = present.nextSetBit(0); i >= 0 && i < length; i = present.nextSetBit(i + 1)) {
+            target[i] = numbers[i];
+            targetPresent.set(i);
+        }
+        return true;
+    }
+
+    /**
+     * @return The value at the given index as {@link Double}, {@link Date} or {@link String}, or {@code null}
+     * if the value is missing.
+     */
+    Object getValue(int index) {
+        if (!isPresent(index)) {
+            return null;
+        }
+        if (type == Double.class) {
+            return numbers[index];
+        } else if (type == Date.class) {
+            return new Date(times[index]);
+        } else {
+            return texts[index];
+        }
+    }
+
+    /**
+     * Releases the unused capacity of the column.
+     */
+    void trim() {
+        if (numbers != null) {
+            numbers = Arrays.copyOf(numbers, size);
+        }
+        if (times != null) {
+            times = Arrays.copyOf(times, size);
+        }
+        if (texts != null) {
+            texts = Arrays.copyOf(texts, size);
+        }
+        sharedTexts = null;
+    }
+
+    private void initType(String text) {
+        try {
+            parseDouble(text);
+            type = Double.class;
+        } catch (NumberFormatException e) {
+            try {
+                dateFormat.parse(text);
+                type = Date.class;
+            } catch (ParseException e1) {
+                type = String.class;
+                sharedTexts = new HashMap<>();
+            }
+        }
+    }
+
+    private double parseNumber(String text) {
+        try {
+            return parseDouble(text);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    private long parseTime(String text) {
+        try {
+            return dateFormat.parse(text).getTime();
+        } catch (ParseException e) {
+            return 0L;
+        }
+    }
+
+    private static double parseDouble(String text) {
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            if (text.equalsIgnoreCase("nan")) {
+                return Double.NaN;
+            } else if (text.equalsIgnoreCase("inf") || text.equalsIgnoreCase("infinity")) {
+                return Double.POSITIVE_INFINITY;
+            } else if (text.equalsIgnoreCase("-inf") || text.equalsIgnoreCase("-infinity")) {
+                return Double.NEGATIVE_INFINITY;
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    private static double[] ensureCapacity(double[] array, int index) {
+        if (array == null) {
+            return new double[Math.max(INITIAL_CAPACITY, index + 1)];
+        }
+        return index < array.length ? array : Arrays.copyOf(array, newCapacity(array.length, index));
+    }
+
+    private static long[] ensureCapacity(long[] array, int index) {
+        if (array == null) {
+            return new long[Math.max(INITIAL_CAPACITY, index + 1)];
+        }
+        return index < array.length ? array : Arrays.copyOf(array, newCapacity(array.length, index));
+    }
+
+    private static String[] ensureCapacity(String[] array, int index) {
+        if (array == null) {
+            return new String[Math.max(INITIAL_CAPACITY, index + 1)];
+        }
+        return index < array.length ? array : Arrays.copyOf(array, newCapacity(array.length, index));
+    }
+
+    private static int newCapacity(int capacity, int index) {
+        return Math.max(capacity + (capacity >> 1), index + 1);
+    }
+}
@@ -9,9 +9,9 @@ import java.io.IOException;
 import java.io.LineNumberReader;
 import java.io.Reader;
 import java.text.DateFormat;
-import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -19,6 +19,9 @@ import java.util.List;
 /**
  * A record source that reads from a CSV stream. Values must be separated by a TAB character, records by a NL (newline).
  * The first records must contain header names. All non-header records must use the same data type in a column.
+ * <p>
+ * The records are parsed once into primitive columns (see {@link CsvColumn}), records are created from the columns
+ * on iteration.
  *
  * @author Norman
  */
@@ -36,9 +39,8 @@ public class CsvRecordSource implements RecordSource {
     private final int lonIndex;
     private final int timeIndex;
     private final int stationNameIndex;
-    private final Class<?>[] attributeTypes;
-    private Iterable<Record> recordIterable;
-    private CsvRecordIterator csvRecordIterator;
+    private CsvColumn[] columns;
+    private int recordCount;
 
     public CsvRecordSource(Reader reader, DateFormat dateFormat) throws IOException {
         if (reader instanceof LineNumberReader) {
@@ -49,8 +51,7 @@ public class CsvRecordSource implements RecordSource {
 
         this.dateFormat = dateFormat;
 
-        String[] columnNames = readTextRecords(-1).get(0);
-        attributeTypes = new Class<?>[columnNames.length];
+        String[] columnNames = readHeaderRecord();
 
         latIndex = indexOf(columnNames, LAT_NAMES);
         lonIndex = indexOf(columnNames, LON_NAMES);
@@ -72,14 +73,30 @@ public class CsvRecordSource implements RecordSource {
 
     @Override
     public Iterable<Record> getRecords() {
-        if (recordIterable == null) {
-            recordIterable = createIterable();
-        }
+        return () -> {
+            try {
+                readColumns();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            return new CsvRecordIterator();
+        };
+    }
 
-        if (csvRecordIterator != null) {
-            csvRecordIterator.currentRecord = 0;
-        }
-        return recordIterable;
+    /**
+     * Reads the numbers of a column without creating the records, see {@link Record#getAttributeValues()}.
+     *
+     * @param columnIndex The index of the column.
+     * @param values      Receives the number of each record.
+     * @param present     Receives the indexes of the records holding a number.
+     *
+     * @return {@code false} if the column is not numeric.
+     *
+     * @throws IOException If the records cannot be read.
+     */
+    public boolean readNumbers(int columnIndex, double[] values, BitSet present) throws IOException {
+        readColumns();
+        return columns[columnIndex].copyNumbers(values, present);
     }
 
     @Override
@@ -90,17 +107,34 @@ public class CsvRecordSource implements RecordSource {
         }
     }
 
-    private Iterable<Record> createIterable() {
-        return () -> {
-            if (csvRecordIterator == null) {
-                try {
-                    csvRecordIterator = new CsvRecordIterator(readTextRecords(recordLength));
-                } catch (IOException e) {
-                    e.printStackTrace();
+    private synchronized void readColumns() throws IOException {
+        if (columns != null) {
+            return;
+        }
+        final CsvColumn[] newColumns = new CsvColumn[recordLength];
+        for (int i = 0; i < newColumns.length; i++) {
+            newColumns[i] = new CsvColumn(dateFormat);
+        }
+        final String[] textValues = new String[recordLength];
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String trimLine = line.trim();
+                if (!trimLine.startsWith("#") && !trimLine.isEmpty()) {
+                    splitRecordLine(line, textValues);
+                    for (int i = 0; i < recordLength; i++) {
+                        newColumns[i].add(textValues[i]);
+                    }
+                    recordCount++;
                 }
             }
-            return csvRecordIterator;
-        };
+        } finally {
+            // keep the records read so far, even if reading has failed
+            for (CsvColumn column : newColumns) {
+                column.trim();
+            }
+            columns = newColumns;
+        }
     }
 
     private String[] getParameterNames(String[] columnNames) {
@@ -119,37 +153,6 @@ public class CsvRecordSource implements RecordSource {
         return parameterNames.toArray(new String[parameterNames.size()]);
     }
 
-    /**
-     * Converts a string array into an array of object which are either a number ({@link Double}), a text ({@link String}),
-     * a date/time value ({@link Date}). Empty text is converted to {@code null}.
-     *
-     * @param textValues The text values to convert.
-     * @param types      The types.
-     * @param dateFormat The date format to be used.
-     *
-     * @return The array of converted objects.
-     */
-    private static Object[] toObjects(String[] textValues, Class<?>[] types, DateFormat dateFormat) {
-        final Object[] values = new Object[textValues.length];
-        for (int i = 0; i < textValues.length; i++) {
-            final String text = textValues[i];
-            if (text != null && !text.isEmpty()) {
-                final Object value;
-                final Class<?> type = types[i];
-                if (type != null) {
-                    value = parse(text, type, dateFormat);
-                } else {
-                    value = parse(text, dateFormat);
-                    if (value != null) {
-                        types[i] = value.getClass();
-                    }
-                }
-                values[i] = value;
-            }
-        }
-        return values;
-    }
-
     private static int indexOf(String[] textValues, String[] possibleValues) {
         for (String possibleValue : possibleValues) {
             for (int index = 0; index < textValues.length; index++) {
@@ -161,112 +164,63 @@ public class CsvRecordSource implements RecordSource {
         return -1;
     }
 
-    private static String[] splitRecordLine(String line, int recordLength) {
+    private static String[] splitRecordLine(String line) {
         int pos2;
         int pos1 = 0;
         ArrayList<String> strings = new ArrayList<>(256);
         while ((pos2 = line.indexOf('\t', pos1)) >= 0) {
             strings.add(line.substring(pos1, pos2).trim());
-            if (recordLength > 0 && strings.size() >= recordLength) {
-                break;
-            }
             pos1 = pos2 + 1;
         }
         strings.add(line.substring(pos1).trim());
-        if (recordLength > 0) {
-            return strings.toArray(new String[recordLength]);
-        } else {
-            return strings.toArray(new String[strings.size()]);
+        return strings.toArray(new String[strings.size()]);
+    }
+
+    /**
+     * Splits a record line into the given array. Missing values are set to {@code null}, surplus values are ignored.
+     */
+    private static void splitRecordLine(String line, String[] textValues) {
+        int pos2;
+        int pos1 = 0;
+        int index = 0;
+        while (index < textValues.length - 1 && (pos2 = line.indexOf('\t', pos1)) >= 0) {
+            textValues[index++] = line.substring(pos1, pos2).trim();
+            pos1 = pos2 + 1;
         }
+        if (index < textValues.length) {
+            final int pos3 = line.indexOf('\t', pos1);
+            textValues[index++] = (pos3 >= 0 ? line.substring(pos1, pos3) : line.substring(pos1)).trim();
+        }
+        Arrays.fill(textValues, index, textValues.length, null);
     }
 
-    private List<String[]> readTextRecords(int recordLength) throws IOException {
-        final List<String[]> result = new ArrayList<>();
+    private String[] readHeaderRecord() throws IOException {
         String line;
         while ((line = reader.readLine()) != null) {
             String trimLine = line.trim();
             if (!trimLine.startsWith("#") && !trimLine.isEmpty()) {
-                result.add(splitRecordLine(line, recordLength));
-                if (recordLength < 0) {
-                    return result;
-                }
-            }
-        }
-        return result;
-    }
-
-    private static Object parse(String text, Class<?> type, DateFormat dateFormat) {
-        if (type.equals(Double.class)) {
-            try {
-                return parseDouble(text);
-            } catch (NumberFormatException e) {
-                return Double.NaN;
-            }
-        } else if (type.equals(String.class)) {
-            return text;
-        } else if (type.equals(Date.class)) {
-            try {
-                return dateFormat.parse(text);
-            } catch (ParseException e) {
-                return new Date(0L);
-            }
-        } else {
-            throw new IllegalStateException("Unhandled data type: " + type);
-        }
-    }
-
-    private static Object parse(String text, DateFormat dateFormat) {
-        try {
-            return parseDouble(text);
-        } catch (NumberFormatException e) {
-            try {
-                return dateFormat.parse(text);
-            } catch (ParseException e1) {
-                return text;
-            }
-        }
-    }
-
-    private static Double parseDouble(String text) {
-        try {
-            return Double.valueOf(text);
-        } catch (NumberFormatException e) {
-            if (text.equalsIgnoreCase("nan")) {
-                return Double.NaN;
-            } else if (text.equalsIgnoreCase("inf") || text.equalsIgnoreCase("infinity")) {
-                return Double.POSITIVE_INFINITY;
-            } else if (text.equalsIgnoreCase("-inf") || text.equalsIgnoreCase("-infinity")) {
-                return Double.NEGATIVE_INFINITY;
-            } else {
-                throw e;
+                return splitRecordLine(line);
             }
         }
+        throw new IOException("Missing header record.");
     }
 
     private class CsvRecordIterator extends RecordIterator {
 
-        List<String[]> records;
         private int currentRecord;
 
-        private CsvRecordIterator(List<String[]> records) {
-            currentRecord = 0;
-            this.records = records;
-        }
-
         @Override
         protected Record getNextRecord() {
-            if (records.size() <= currentRecord) {
+            if (columns == null || recordCount <= currentRecord) {
                 return null;
             }
-            String[] record = records.get(currentRecord);
-            currentRecord++;
+            final int index = currentRecord++;
 
-            if (getHeader().getColumnNames().length != record.length) {
-                System.out.println("too few values " + Arrays.toString(record));
+            final Object[] values = new Object[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                values[i] = columns[i].getValue(index);
             }
 
-            final Object[] values = toObjects(record, attributeTypes, dateFormat);
-
             final GeoPos location;
             if (header.hasLocation() && values[latIndex] instanceof Number && values[lonIndex] instanceof Number) {
                 location = new GeoPos(((Number) values[latIndex]).floatValue(),
@@ -277,20 +231,19 @@ public class CsvRecordSource implements RecordSource {
 
             final Date time;
             if (header.hasTime() && values[timeIndex] instanceof Date) {
-                time = values[timeIndex] instanceof Date ? (Date) values[timeIndex] : null;
+                time = (Date) values[timeIndex];
             } else {
                 time = null;
             }
 
             final String stationName;
             if (header.hasStationName()) {
-                stationName = (String) values[stationNameIndex];
+                stationName = values[stationNameIndex] instanceof String ? (String) values[stationNameIndex] : null;
             } else {
                 stationName = time != null ? time.toString() : "Unknown";
             }
 
             return new DefaultRecord(location, time, stationName, values);
         }
-
     }
 }
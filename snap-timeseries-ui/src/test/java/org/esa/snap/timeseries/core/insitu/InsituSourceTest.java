@@ -117,6 +117,29 @@ public class InsituSourceTest {
         assertEquals(expectedRecord, chlRecordsPos2[0]);
     }
 
+    @Test
+    public void testGetValuesForGeoPosAndTimeRange() throws Exception {
+        // execution
+        InsituRecord[] ysRecords = insituSource.getValuesFor("ys", new GeoPos(20, 40), getDate("03.04.2003"), null);
+        InsituRecord[] chlRecords = insituSource.getValuesFor("CHL", null, getDate("02.04.2003"), getDate("08.04.2003"));
+
+        // verification
+        assertEquals(1, ysRecords.length);
+        assertEquals(new InsituRecord(new GeoPos(20, 40), getDate("05.04.2003"), "Name 2", 40), ysRecords[0]);
+
+        assertEquals(3, chlRecords.length);
+        assertEquals(getDate("02.04.2003"), chlRecords[0].time);
+        assertEquals(getDate("05.04.2003"), chlRecords[1].time);
+        assertEquals(getDate("08.04.2003"), chlRecords[2].time);
+    }
+
+    @Test
+    public void testGetInsituPositionsAndNames() throws Exception {
+        assertEquals(3, insituSource.getInsituPositionsFor("CHL").size());
+        assertEquals("Name 2", insituSource.getNameFor(new GeoPos(20, 40)));
+        assertEquals("", insituSource.getNameFor(new GeoPos(0, 0)));
+    }
+
     @Test
     public void testGetParameterNames() throws Exception {
         // execution
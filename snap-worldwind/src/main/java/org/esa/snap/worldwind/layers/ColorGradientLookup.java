@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.worldwind.layers;
+
+import gov.nasa.worldwind.util.BufferWrapper;
+import gov.nasa.worldwind.util.WWMath;
+import gov.nasa.worldwindx.examples.analytics.AnalyticSurface;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A colour lookup table for analytic surfaces.
+ * <p>
+ * The grid point attributes of a colour range are created once for a fixed number of steps. Recolouring a surface
+ * only maps its values to the steps, the values stay in their buffer and no attributes are created per value. The
+ * surfaces are clamped to the ground, so the value of the attributes only has to match the colour.
+ */
+class ColorGradientLookup {
+
+    private static final int STEP_COUNT = 1024;
+
+    private final double minValue;
+    private final double maxValue;
+    private final AnalyticSurface.GridPointAttributes[] steps;
+    private final AnalyticSurface.GridPointAttributes missingValue;
+
+    ColorGradientLookup(double minValue, double maxValue, double minHue, double maxHue, boolean whiteZero) {
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        steps = new AnalyticSurface.GridPointAttributes[STEP_COUNT];
+        for (int i = 0; i < STEP_COUNT; i++) {
+            final double value = minValue + (maxValue - minValue) * i / (STEP_COUNT - 1);
+            steps[i] = Level2ProductLayer.createColorGradientAttributes(value, minValue, maxValue,
+                                                                        minHue, maxHue, whiteZero);
+        }
+        missingValue = Level2ProductLayer.createColorGradientAttributes(Double.NaN, minValue, maxValue,
+                                                                        minHue, maxHue, whiteZero);
+    }
+
+    AnalyticSurface.GridPointAttributes get(double value) {
+        if (Double.isNaN(value)) {
+            return missingValue;
+        }
+        final double factor = WWMath.computeInterpolationFactor(value, minValue, maxValue);
+        return steps[(int) Math.round(factor * (STEP_COUNT - 1))];
+    }
+
+    /**
+     * @return A view of the given values as grid point attributes.
+     */
+    List<AnalyticSurface.GridPointAttributes> map(final BufferWrapper values) {
+        return new AbstractList<AnalyticSurface.GridPointAttributes>() {
+            @Override
+            public AnalyticSurface.GridPointAttributes get(int index) {
+                return ColorGradientLookup.this.get(values.getDouble(index));
+            }
+
+            @Override
+            public int size() {
+                return values.length();
+            }
+        };
+    }
+}
@@ -21,27 +21,21 @@ import gov.nasa.worldwind.awt.WorldWindowGLCanvas;
 import gov.nasa.worldwind.event.SelectEvent;
 import gov.nasa.worldwind.geom.Angle;
 import gov.nasa.worldwind.geom.Position;
-import gov.nasa.worldwind.geom.Sector;
 import gov.nasa.worldwind.render.Offset;
 import gov.nasa.worldwind.render.PointPlacemark;
 import gov.nasa.worldwind.render.PointPlacemarkAttributes;
 import gov.nasa.worldwind.render.Polyline;
-import gov.nasa.worldwind.render.SurfaceImage;
 import org.esa.snap.datamodel.AbstractMetadata;
 import org.esa.snap.eo.Constants;
 import org.esa.snap.eo.GeoUtils;
-import org.esa.snap.framework.dataio.ProductSubsetDef;
 import org.esa.snap.framework.datamodel.Band;
 import org.esa.snap.framework.datamodel.GeoCoding;
-import org.esa.snap.framework.datamodel.GeoPos;
+import org.esa.snap.framework.datamodel.ImageInfo;
 import org.esa.snap.framework.datamodel.MetadataElement;
-import org.esa.snap.framework.datamodel.PixelPos;
 import org.esa.snap.framework.datamodel.Product;
-import org.esa.snap.framework.datamodel.RasterDataNode;
-import org.esa.snap.framework.gpf.GPF;
-import org.esa.snap.gpf.OperatorUtils;
 import org.esa.snap.rcp.SnapDialogs;
 import org.esa.snap.util.ProductUtils;
+import org.esa.snap.util.SystemUtils;
 
 import javax.swing.*;
 import javax.swing.event.ChangeEvent;
@@ -49,11 +43,8 @@ import javax.swing.event.ChangeListener;
 import java.awt.*;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.PathIterator;
-import java.awt.image.BufferedImage;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -66,7 +57,7 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
     private boolean enableSurfaceImages;
 
     private final ConcurrentHashMap<String, Polyline[]> outlineTable = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, SurfaceImage> imageTable = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ProductSurfaceTiles> imageTable = new ConcurrentHashMap<>();
     private final ConcurrentHashMap<String, PointPlacemark> labelTable = new ConcurrentHashMap<>();
 
     public WorldWindowGLCanvas theWWD = null;
@@ -93,19 +84,19 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
     public void setOpacity(double opacity) {
         super.setOpacity(opacity);
 
-        for (Map.Entry<String, SurfaceImage> entry : this.imageTable.entrySet()) {
+        for (Map.Entry<String, ProductSurfaceTiles> entry : this.imageTable.entrySet()) {
             entry.getValue().setOpacity(opacity);
         }
     }
 
     public void setOpacity(String name, double opacity) {
-        final SurfaceImage img = imageTable.get(name);
+        final ProductSurfaceTiles img = imageTable.get(name);
         if (img != null)
             img.setOpacity(opacity);
     }
 
     public double getOpacity(String name) {
-        final SurfaceImage img = imageTable.get(name);
+        final ProductSurfaceTiles img = imageTable.get(name);
         if (img != null)
             return img.getOpacity();
         else {
@@ -158,36 +149,31 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
         }
     }
 
+    /**
+     * Adds the quicklook band of the product as a pyramid of surface image tiles, which are created from the
+     * resolution levels of the band when they become visible.
+     */
     private void addSurfaceImage(final Product product) {
         final String name = getUniqueName(product);
 
-        final SwingWorker worker = new SwingWorker() {
+        final SwingWorker<ProductSurfaceTiles, Void> worker = new SwingWorker<ProductSurfaceTiles, Void>() {
 
             @Override
-            protected SurfaceImage doInBackground() throws Exception {
+            protected ProductSurfaceTiles doInBackground() throws Exception {
                 try {
-                    final Product newProduct = createSubsampledProduct(product);
-                    final Band band = newProduct.getBandAt(0);
-                    final BufferedImage image = ProductUtils.createRgbImage(new RasterDataNode[]{band},
-                                                                            band.getImageInfo(com.bc.ceres.core.ProgressMonitor.NULL),
-                                                                            com.bc.ceres.core.ProgressMonitor.NULL);
-
-                    final GeoPos geoPos1 = product.getGeoCoding().getGeoPos(new PixelPos(0, 0), null);
-                    final GeoPos geoPos2 = product.getGeoCoding().getGeoPos(new PixelPos(product.getSceneRasterWidth() - 1,
-                                                                                         product.getSceneRasterHeight() - 1),
-                                                                            null
-                    );
-
-                    final Sector sector = new Sector(Angle.fromDegreesLatitude(geoPos1.getLat()),
-                                                     Angle.fromDegreesLatitude(geoPos2.getLat()),
-                                                     Angle.fromDegreesLongitude(geoPos1.getLon()),
-                                                     Angle.fromDegreesLongitude(geoPos2.getLon()));
-
-                    final SurfaceImage si = new SurfaceImage(image, sector);
-                    si.setOpacity(getOpacity());
-                    return si;
+                    final String quicklookBandName = ProductUtils.findSuitableQuicklookBandName(product);
+                    final Band band = product.getBand(quicklookBandName);
+                    if (band == null) {
+                        return null;
+                    }
+                    final ImageInfo imageInfo = band.getImageInfo(com.bc.ceres.core.ProgressMonitor.NULL);
+                    final ProductSurfaceTiles surfaceTiles = new ProductSurfaceTiles(band, imageInfo,
+                                                                                     ProductTileCache.getDefault(),
+                                                                                     DefaultProductLayer.this::redraw);
+                    surfaceTiles.setOpacity(getOpacity());
+                    return surfaceTiles;
                 } catch (Exception e) {
-                    //e.printStackTrace();
+                    SystemUtils.LOG.warning("Unable to create surface image of " + product.getName() + ": " + e.getMessage());
                 }
                 return null;
             }
@@ -196,12 +182,12 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
             public void done() {
 
                 try {
-                    if (imageTable.contains(name))
+                    if (imageTable.containsKey(name))
                         removeImage(name);
-                    final SurfaceImage si = (SurfaceImage) get();
-                    if(si != null) {
-                        addRenderable(si);
-                        imageTable.put(name, si);
+                    final ProductSurfaceTiles surfaceTiles = get();
+                    if (surfaceTiles != null) {
+                        addRenderable(surfaceTiles);
+                        imageTable.put(name, surfaceTiles);
                     }
                 } catch (Exception e) {
                     SnapDialogs.showError(e.getMessage());
@@ -211,6 +197,13 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
         worker.execute();
     }
 
+    private void redraw() {
+        final WorldWindowGLCanvas wwd = theWWD;
+        if (wwd != null) {
+            wwd.redraw();
+        }
+    }
+
     private void addOutline(final Product product) {
 
         final int step = Math.max(16, (product.getSceneRasterWidth() + product.getSceneRasterHeight()) / 250);
@@ -373,10 +366,11 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
     }
 
     private void removeImage(String imagePath) {
-        final SurfaceImage si = this.imageTable.get(imagePath);
+        final ProductSurfaceTiles si = this.imageTable.get(imagePath);
         if (si != null) {
             this.removeRenderable(si);
             this.imageTable.remove(imagePath);
+            si.dispose();
         }
     }
 
@@ -388,34 +382,6 @@ public class DefaultProductLayer extends BaseLayer implements WWLayer {
         }
     }
 
-    private static Product createSubsampledProduct(final Product product) throws IOException {
-
-        final String quicklookBandName = ProductUtils.findSuitableQuicklookBandName(product);
-        final ProductSubsetDef productSubsetDef = new ProductSubsetDef("subset");
-        int scaleFactor = product.getSceneRasterWidth() / 1000;
-        if (scaleFactor < 1) {
-            scaleFactor = 1;
-        }
-        productSubsetDef.setSubSampling(scaleFactor, scaleFactor);
-        productSubsetDef.setTreatVirtualBandsAsRealBands(true);
-        productSubsetDef.setNodeNames(new String[]{quicklookBandName});
-        Product productSubset = product.createSubset(productSubsetDef, quicklookBandName, null);
-
-        if (!OperatorUtils.isMapProjected(product) && productSubset.getGeoCoding() != null) {
-            try {
-                final Map<String, Object> projParameters = new HashMap<>();
-                Map<String, Product> projProducts = new HashMap<>();
-                projProducts.put("source", productSubset);
-                projParameters.put("crs", "WGS84(DD)");
-                productSubset = GPF.createProduct("Reproject", projParameters, projProducts);
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
-        }
-
-        return productSubset;
-    }
-
     public JPanel getControlPanel(final WorldWindowGLCanvas wwd) {
         final JSlider opacitySlider = new JSlider();
         opacitySlider.setMaximum(100);
@@ -251,14 +251,21 @@ public class Level2ProductLayer extends BaseLayer implements WWLayer {
 
             final int[] cellSizeArr = {4, 8, 16, 24, 32, 40, 48, 64};
 
-            for (int cellSizeInd = 0; cellSizeInd < cellSizeArr.length; cellSizeInd++) {
+            // all cell sizes are averaged in a single pass over the pixels
+            final WindFieldCells windFieldCells = WindFieldCells.aggregate(latValues, lonValues, incAngleValues,
+                                                                           windSpeedValues, windDirValues,
+                                                                           lonBand.getRasterWidth(),
+                                                                           lonBand.getRasterHeight(), cellSizeArr);
+            final WindFieldCells.Level[] cellLevels = windFieldCells.getLevels();
+            final float pixelWidth = Math.abs(lonValues[0] - lonValues[lonValues.length - 1]) / lonBand.getRasterWidth();
+            final float pixelHeight = Math.abs(latValues[0] - latValues[latValues.length - 1]) / lonBand.getRasterHeight();
+            for (int cellSizeInd = 0; cellSizeInd < cellLevels.length; cellSizeInd++) {
                 double minHeight = 0;
                 double maxHeight = cellSizeArr[cellSizeInd] * 0.5e6 / 16;
                 if (cellSizeInd > 0) {
                     minHeight = cellSizeArr[cellSizeInd - 1] * 0.5e6 / 16;
                 }
-                addWindSpeedArrows(latValues, lonValues, incAngleValues, windSpeedValues, windDirValues, lonBand.getRasterWidth(), lonBand.getRasterHeight(), cellSizeArr[cellSizeInd], minHeight, maxHeight, productRenderablesInfo.theRenderableListHash.get("owi"));
-                //addWindSpeedArrows(waveLatValues, waveLonValues, incAngleValues, windSpeedValues, windDirValues, waveLonBand.getRasterWidth(), waveLonBand.getRasterHeight(), cellSizeArr[cellSizeInd], minHeight, maxHeight, productRenderablesInfo.theRenderableListHash.get("osw"));
+                addWindSpeedArrows(cellLevels[cellSizeInd], pixelWidth, pixelHeight, minHeight, maxHeight, productRenderablesInfo.theRenderableListHash.get("owi"));
             }
 
             createColorSurfaceWithGradient(geoPos1, geoPos2, windSpeedValues, windSpeedBand.getRasterWidth(), windSpeedBand.getRasterHeight(), 0, 10, false, productRenderablesInfo.theRenderableListHash.get("owi"), productRenderablesInfo, "owi");
@@ -354,124 +361,64 @@ public class Level2ProductLayer extends BaseLayer implements WWLayer {
         wwd.redrawNow();
     }
 
-    private void addWindSpeedArrows(float[] latValues,
-                                     float[] lonValues,
-                                     double[] incAngleValues,
-                                     double[] windSpeedValues,
-                                     double[] windDirValues,
-                                     int width,
-                                     int height,
-                                     int cellSize,
+    private void addWindSpeedArrows(WindFieldCells.Level cells,
+                                     float pixelWidth,
+                                     float pixelHeight,
                                      double minHeight,
                                      double maxHeight,
                                      ArrayList<Renderable> renderableList) {
-        float pixelWidth = Math.abs(lonValues[0] - lonValues[lonValues.length - 1]) / width;
-        float pixelHeight = Math.abs(latValues[0] - latValues[latValues.length - 1]) / height;
-
-        //SystemUtils.LOG.info("pixelWidth " + pixelWidth + " pixelHeight " + pixelHeight);
-
-        //System.out.println("pixelWidth " + pixelWidth + " pixelHeight " + pixelHeight);
-
         // take half of the smaller dimension
         float arrowLength = pixelWidth;
         if (pixelHeight < pixelWidth) {
             arrowLength = pixelHeight;
         }
-        arrowLength = arrowLength * cellSize / 2;
+        arrowLength = arrowLength * cells.getCellSize() / 2;
 
         final ShapeAttributes dpAttrs = new BasicShapeAttributes();
         dpAttrs.setOutlineMaterial(Material.BLACK);
         dpAttrs.setOutlineWidth(2d);
-        for (int row = 0; row < height; row=row+cellSize) {
-            for (int col = 0; col < width; col=col+cellSize) {
-                //int i = row*width + col;
-                int globalInd = row*width + col;
-                float avgLat = 0;
-                float avgLon = 0;
-                double avgIncAngle = 0;
-                double avgWindSpeed = 0;
-                double avgWindDir = 0;
-                int finalCellRow = row +  cellSize;
-                int finalCellCol = col +  cellSize;
-
-                if (finalCellRow > height) {
-                    finalCellRow = height;
-                }
-                if (finalCellCol > width) {
-                    finalCellCol = width;
-                }
-                for (int currCellRow = row; currCellRow < finalCellRow; currCellRow++) {
-                    for (int currCellCol = col; currCellCol < finalCellCol; currCellCol++) {
-                        int i = currCellRow*width + currCellCol;
-                        avgLat += latValues[i];
-                        avgLon += lonValues[i];
-                        avgIncAngle += incAngleValues[i];
-                        avgWindSpeed += windSpeedValues[i];
-                        avgWindDir += windDirValues[i];
-                    }
-                }
-
-                avgLat = avgLat / ((finalCellRow - row) * (finalCellCol - col));
-                avgLon = avgLon / ((finalCellRow - row) * (finalCellCol - col));
-                avgIncAngle = avgIncAngle / ((finalCellRow - row) * (finalCellCol - col));
-                avgWindSpeed = avgWindSpeed / ((finalCellRow - row) * (finalCellCol - col));
-                avgWindDir = avgWindDir / ((finalCellRow - row) * (finalCellCol - col));
-
-                           /*
-                           avgLat = latValues[globalInd];
-                           avgLon = lonValues[globalInd];
-                           avgWindDir = windDirValues[globalInd];
-                            */
-                            /*
-                           System.out.println("avgLat " + avgLat);
-                           System.out.println("avgLon " + avgLon);
-                           System.out.println("avgWindDir " + avgWindDir);
-                            */
-                //System.out.println("avgIncAngle " + avgIncAngle);
-                //for (int i = 0; i < latValues.length; i=i+50) {
-                //System.out.println(lonValues[i] + "::==::" + latValues[i] + "::==::" + incAngleValues[i] + "::==::" + windSpeedValues[i] + "::==::" + windDirValues[i] + "::==::");
-                final Position startPos = new Position(Angle.fromDegreesLatitude(avgLat), Angle.fromDegreesLongitude(avgLon), 10.0);
-                final Position endPos = new Position(LatLon.greatCircleEndPosition(startPos, Angle.fromDegrees(avgWindDir), Angle.fromDegrees(arrowLength)), 10.0);
-
-                //System.out.println("startPos " + startPos + " endPos " + endPos);
-
-                final ArrayList<Position> positions = new ArrayList<>();
-                positions.add(startPos);
-                positions.add(endPos);
-
-                final DirectedPath directedPath = new DirectedPath(positions);
-                Renderable renderable = new Renderable() {
-                    public void render (DrawContext dc) {
-
-                        directedPath.setAttributes(dpAttrs);
-                        //directedPath.setHighlightAttributes(highlightAttrs);
-                        directedPath.setVisible(true);
-                        directedPath.setFollowTerrain(true);
-                        directedPath.setAltitudeMode(WorldWind.RELATIVE_TO_GROUND);
-                        directedPath.setPathType(AVKey.GREAT_CIRCLE);
-                        //directedPath.setHighlighted(true);
-                        // this is the length of the arrow head actually
-                        double arrowHeadLength = computeSegmentLength(directedPath, dc, startPos, endPos) / 4;
-                        directedPath.setArrowLength(arrowHeadLength);
-                        //double maxHeight = cellSize * 0.5e6 / 16;
-
-                        if (dc.getView().getCurrentEyePosition().getAltitude() > minHeight && dc.getView().getCurrentEyePosition().getAltitude() < maxHeight) {
-                            directedPath.render(dc);
-                            //System.out.println("arrowHeadLength " + arrowHeadLength);
-                        }
-
-                        //System.out.println("eyePosition " + dc.getView().getCurrentEyePosition());
+        for (int cell = 0; cell < cells.getCellCount(); cell++) {
+            final double avgLat = cells.getLat(cell);
+            final double avgLon = cells.getLon(cell);
+            final double avgIncAngle = cells.getIncAngle(cell);
+            final double avgWindSpeed = cells.getWindSpeed(cell);
+            final double avgWindDir = cells.getWindDir(cell);
+
+            final Position startPos = new Position(Angle.fromDegreesLatitude(avgLat), Angle.fromDegreesLongitude(avgLon), 10.0);
+            final Position endPos = new Position(LatLon.greatCircleEndPosition(startPos, Angle.fromDegrees(avgWindDir), Angle.fromDegrees(arrowLength)), 10.0);
+
+            final ArrayList<Position> positions = new ArrayList<>();
+            positions.add(startPos);
+            positions.add(endPos);
+
+            final DirectedPath directedPath = new DirectedPath(positions);
+            Renderable renderable = new Renderable() {
+                public void render (DrawContext dc) {
+
+                    directedPath.setAttributes(dpAttrs);
+                    //directedPath.setHighlightAttributes(highlightAttrs);
+                    directedPath.setVisible(true);
+                    directedPath.setFollowTerrain(true);
+                    directedPath.setAltitudeMode(WorldWind.RELATIVE_TO_GROUND);
+                    directedPath.setPathType(AVKey.GREAT_CIRCLE);
+                    //directedPath.setHighlighted(true);
+                    // this is the length of the arrow head actually
+                    double arrowHeadLength = computeSegmentLength(directedPath, dc, startPos, endPos) / 4;
+                    directedPath.setArrowLength(arrowHeadLength);
+
+                    if (dc.getView().getCurrentEyePosition().getAltitude() > minHeight && dc.getView().getCurrentEyePosition().getAltitude() < maxHeight) {
+                        directedPath.render(dc);
                     }
-                };
-                addRenderable(renderable);
-                if (renderableList != null) {
-                    renderableList.add(renderable);
                 }
-                String info = "Wind Speed: " + avgWindSpeed + "<br/>";
-                info += "Wind Direction: " + avgWindDir + "<br/>";
-                info += "Incidence Angle: " + avgIncAngle + "<br/>";
-                theObjectInfoHash.put(directedPath, info);
+            };
+            addRenderable(renderable);
+            if (renderableList != null) {
+                renderableList.add(renderable);
             }
+            String info = "Wind Speed: " + avgWindSpeed + "<br/>";
+            info += "Wind Direction: " + avgWindDir + "<br/>";
+            info += "Incidence Angle: " + avgIncAngle + "<br/>";
+            theObjectInfoHash.put(directedPath, info);
         }
     }
 
@@ -629,31 +576,8 @@ public class Level2ProductLayer extends BaseLayer implements WWLayer {
         }
 
         if(analyticSurfaceValueBuffer != null) {
-            final ArrayList<AnalyticSurface.GridPointAttributes> attributesList = new ArrayList<>();
-            for (int i = 0; i < analyticSurfaceValueBuffer.length(); i++) {
-                /*
-                String s = analyticSurfaceValueBuffer.getDouble(i) + "";
-                System.out.print(s.substring(0, 3) + " ");
-                if (i % 82 == 0) {
-                    System.out.println();
-                }
-                */
-                double d = analyticSurfaceValueBuffer.getDouble(i);
-                /*
-                if (i % 82 == 0) {
-                    d = 0.0;
-                }
-                */
-                /*
-                if (i / 93 == 0) {
-                    d = 0.0;
-                }
-                */
-                attributesList.add(
-                        createColorGradientAttributes(d, minValue, maxValue, HUE_RED, HUE_MAX_RED, whiteZero));
-            }
-
-            analyticSurface.setValues(attributesList);
+            final ColorGradientLookup lookup = new ColorGradientLookup(minValue, maxValue, HUE_RED, HUE_MAX_RED, whiteZero);
+            analyticSurface.setValues(lookup.map(analyticSurfaceValueBuffer));
         }
     }
 
@@ -0,0 +1,469 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.worldwind.layers;
+
+import com.bc.ceres.glevel.MultiLevelModel;
+import gov.nasa.worldwind.geom.LatLon;
+import gov.nasa.worldwind.geom.Sector;
+import gov.nasa.worldwind.geom.Vec4;
+import gov.nasa.worldwind.render.DrawContext;
+import gov.nasa.worldwind.render.PreRenderable;
+import gov.nasa.worldwind.render.Renderable;
+import gov.nasa.worldwind.render.SurfaceImage;
+import org.esa.snap.framework.datamodel.ColorPaletteDef;
+import org.esa.snap.framework.datamodel.GeoCoding;
+import org.esa.snap.framework.datamodel.GeoPos;
+import org.esa.snap.framework.datamodel.ImageInfo;
+import org.esa.snap.framework.datamodel.PixelPos;
+import org.esa.snap.framework.datamodel.Product;
+import org.esa.snap.framework.datamodel.RasterDataNode;
+import org.esa.snap.jai.ImageManager;
+import org.esa.snap.util.SystemUtils;
+
+import javax.media.jai.PlanarImage;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Renders a band of a product as a pyramid of surface image tiles.
+ * <p>
+ * The tiles are taken from the resolution levels of the band's multi-level image, so that no reprojected copy of the
+ * product is needed. Each tile is warped onto the globe by the geo-positions of its corners. For every frame, the
+ * tiles intersecting the visible sector are selected from the coarsest level downwards, until the tile resolution
+ * matches the resolution on screen. Missing tiles are computed in the background by the {@link ProductTileCache};
+ * until then the next coarser tile available is drawn instead.
+ * <p>
+ * The surface images are only accessed by the rendering thread, except for {@link #dispose()}. They are softly
+ * referenced, since their tile images may already have been evicted from the memory budget of the tile cache.
+ */
+class ProductSurfaceTiles implements Renderable, PreRenderable {
+
+    private static final int TILE_SIZE = 256;
+    private static final long REQUEST_TIMEOUT_MILLIS = 2000;
+    private static final int MAX_SURFACE_IMAGES = 64;
+
+    private final RasterDataNode raster;
+    private final ImageInfo imageInfo;
+    private final GeoCoding geoCoding;
+    private final MultiLevelModel model;
+    private final int levelCount;
+    private final int sceneWidth;
+    private final int sceneHeight;
+    private final String productKey;
+    private final boolean diskCacheEnabled;
+    private final ProductTileCache tileCache;
+    private final Runnable repaintRequest;
+
+    private final RenderedImage[] levelImages;
+    private final Map<String, Tile> tiles;
+    private final Map<String, SoftReference<SurfaceImage>> surfaceImages;
+    private final Map<String, Long> requestTimes;
+    private final Set<String> emptyTiles;
+    private final List<SurfaceImage> drawnImages;
+    private volatile boolean disposed;
+    private volatile double opacity;
+
+    ProductSurfaceTiles(RasterDataNode raster, ImageInfo imageInfo, ProductTileCache tileCache, Runnable repaintRequest) {
+        this.raster = raster;
+        this.imageInfo = imageInfo;
+        this.tileCache = tileCache;
+        this.repaintRequest = repaintRequest;
+        final Product product = raster.getProduct();
+        this.geoCoding = product.getGeoCoding();
+        this.model = raster.getSourceImage().getModel();
+        this.levelCount = model.getLevelCount();
+        this.sceneWidth = raster.getSceneRasterWidth();
+        this.sceneHeight = raster.getSceneRasterHeight();
+        final File fileLocation = product.getFileLocation();
+        this.diskCacheEnabled = fileLocation != null && fileLocation.exists();
+        this.productKey = createProductKey(raster, imageInfo, fileLocation);
+        this.levelImages = new RenderedImage[levelCount];
+        this.tiles = new HashMap<>();
+        this.surfaceImages = new LinkedHashMap<String, SoftReference<SurfaceImage>>(MAX_SURFACE_IMAGES, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SoftReference<SurfaceImage>> eldest) {
+                return size() > MAX_SURFACE_IMAGES;
+            }
+        };
+        this.requestTimes = new ConcurrentHashMap<>();
+        this.emptyTiles = ConcurrentHashMap.newKeySet();
+        this.drawnImages = new ArrayList<>();
+        this.opacity = 1.0;
+        if (diskCacheEnabled) {
+            tileCache.touch(productKey);
+        }
+    }
+
+    double getOpacity() {
+        return opacity;
+    }
+
+    /**
+     * Sets the opacity of the tiles; it is applied to the surface images when they are rendered next.
+     */
+    void setOpacity(double opacity) {
+        this.opacity = opacity;
+    }
+
+    /**
+     * Stops computing tiles and releases the tiles held in memory.
+     */
+    void dispose() {
+        disposed = true;
+        synchronized (surfaceImages) {
+            surfaceImages.clear();
+        }
+        tileCache.removeAll(productKey + "/");
+    }
+
+    @Override
+    public void preRender(DrawContext dc) {
+        drawnImages.clear();
+        if (disposed) {
+            return;
+        }
+        synchronized (surfaceImages) {
+            preRenderTiles(dc);
+        }
+    }
+
+    private void preRenderTiles(DrawContext dc) {
+        final List<Tile> selectedTiles = new ArrayList<>();
+        for (Tile tile : getRootTiles()) {
+            selectTiles(dc, tile, selectedTiles);
+        }
+
+        // coarser tiles are drawn first, finer tiles on top of them
+        final Map<String, Tile> drawnTiles = new LinkedHashMap<>();
+        for (Tile tile : selectedTiles) {
+            final Tile drawnTile = getAvailableTile(tile);
+            if (drawnTile != null) {
+                drawnTiles.put(drawnTile.key, drawnTile);
+            }
+        }
+        final List<Tile> sortedTiles = new ArrayList<>(drawnTiles.values());
+        sortedTiles.sort((t1, t2) -> Integer.compare(t2.level, t1.level));
+        for (Tile tile : sortedTiles) {
+            final SurfaceImage surfaceImage = getSurfaceImage(tile);
+            if (surfaceImage != null) {
+                surfaceImage.setOpacity(opacity);
+                surfaceImage.preRender(dc);
+                drawnImages.add(surfaceImage);
+            }
+        }
+        if (drawnImages.isEmpty()) {
+            surfaceImages.clear();
+        }
+    }
+
+    @Override
+    public void render(DrawContext dc) {
+        for (SurfaceImage surfaceImage : drawnImages) {
+            surfaceImage.render(dc);
+        }
+    }
+
+    private void selectTiles(DrawContext dc, Tile tile, List<Tile> selectedTiles) {
+        if (tile.sector == null || emptyTiles.contains(tile.key)) {
+            return;
+        }
+        final Sector visibleSector = dc.getVisibleSector();
+        if (visibleSector != null && !tile.sector.intersects(visibleSector)) {
+            return;
+        }
+        final List<Tile> children = tile.level > 0 && needsMoreDetail(dc, tile) ? getChildren(tile) : null;
+        if (children != null && !children.isEmpty()) {
+            for (Tile child : children) {
+                selectTiles(dc, child, selectedTiles);
+            }
+        } else {
+            selectedTiles.add(tile);
+        }
+    }
+
+    private boolean needsMoreDetail(DrawContext dc, Tile tile) {
+        final LatLon centroid = tile.sector.getCentroid();
+        final Vec4 centerPoint = dc.getGlobe().computePointFromPosition(centroid.getLatitude(),
+                                                                         centroid.getLongitude(), 0.0);
+        final double distance = dc.getView().getEyePoint().distanceTo3(centerPoint);
+        final double pixelSize = dc.getView().computePixelSizeAtDistance(distance);
+        final double radius = dc.getGlobe().getRadius();
+        final double height = tile.sector.getDeltaLatRadians() * radius;
+        final double width = tile.sector.getDeltaLonRadians() * radius * Math.cos(centroid.getLatitude().radians);
+        final double texelSize = Math.max(height, width) / Math.max(tile.width, tile.height);
+        return texelSize > pixelSize;
+    }
+
+    /**
+     * @return The given tile, or the next coarser tile, whose image is available; requests the image of the given
+     * tile if it is not available.
+     */
+    private Tile getAvailableTile(Tile tile) {
+        Tile current = tile;
+        while (current != null) {
+            if (getCachedSurfaceImage(current) != null || tileCache.get(current.key) != null) {
+                return current;
+            }
+            requestTile(current);
+            current = getParent(current);
+        }
+        return null;
+    }
+
+    private SurfaceImage getSurfaceImage(Tile tile) {
+        SurfaceImage surfaceImage = getCachedSurfaceImage(tile);
+        if (surfaceImage == null) {
+            final BufferedImage image = tileCache.get(tile.key);
+            if (image == null) {
+                return null;
+            }
+            surfaceImage = new SurfaceImage(image, tile.corners);
+            surfaceImages.put(tile.key, new SoftReference<>(surfaceImage));
+        }
+        return surfaceImage;
+    }
+
+    private SurfaceImage getCachedSurfaceImage(Tile tile) {
+        final SoftReference<SurfaceImage> reference = surfaceImages.get(tile.key);
+        if (reference == null) {
+            return null;
+        }
+        final SurfaceImage surfaceImage = reference.get();
+        if (surfaceImage == null) {
+            surfaceImages.remove(tile.key);
+        }
+        return surfaceImage;
+    }
+
+    private void requestTile(Tile tile) {
+        final Long previousRequest = requestTimes.put(tile.key, System.currentTimeMillis());
+        if (previousRequest != null) {
+            // already being computed
+            return;
+        }
+        final Rectangle bounds = tile.getLevelBounds();
+        final int level = tile.level;
+        final String key = tile.key;
+        tileCache.execute(() -> {
+            try {
+                final Long requestTime = requestTimes.get(key);
+                // a tile which has not been requested for a while has left the view
+                if (disposed || requestTime == null ||
+                    System.currentTimeMillis() - requestTime > REQUEST_TIMEOUT_MILLIS) {
+                    return;
+                }
+                BufferedImage image = diskCacheEnabled ? tileCache.readFromDisk(key) : null;
+                if (image == null) {
+                    image = computeTileImage(level, bounds);
+                    if (image == null) {
+                        emptyTiles.add(key);
+                        return;
+                    }
+                    if (diskCacheEnabled) {
+                        tileCache.writeToDisk(key, image);
+                    }
+                }
+                if (!disposed) {
+                    tileCache.put(key, image);
+                    repaintRequest.run();
+                }
+            } catch (Exception e) {
+                SystemUtils.LOG.warning("Unable to create tile of " + raster.getName() + ": " + e.getMessage());
+                emptyTiles.add(key);
+            } finally {
+                requestTimes.remove(key);
+            }
+        });
+    }
+
+    private BufferedImage computeTileImage(int level, Rectangle bounds) {
+        final RenderedImage levelImage = getLevelImage(level);
+        final Rectangle imageBounds = new Rectangle(levelImage.getMinX(), levelImage.getMinY(),
+                                                    levelImage.getWidth(), levelImage.getHeight());
+        final Rectangle tileBounds = bounds.intersection(imageBounds);
+        if (tileBounds.isEmpty()) {
+            return null;
+        }
+        return PlanarImage.wrapRenderedImage(levelImage).getAsBufferedImage(tileBounds, null);
+    }
+
+    private synchronized RenderedImage getLevelImage(int level) {
+        if (levelImages[level] == null) {
+            levelImages[level] = ImageManager.getInstance().createColoredBandImage(new RasterDataNode[]{raster},
+                                                                                   imageInfo, level);
+        }
+        return levelImages[level];
+    }
+
+    private List<Tile> getRootTiles() {
+        final int level = levelCount - 1;
+        final int numXTiles = getNumTiles(sceneWidth, level);
+        final int numYTiles = getNumTiles(sceneHeight, level);
+        final List<Tile> rootTiles = new ArrayList<>(numXTiles * numYTiles);
+        for (int y = 0; y < numYTiles; y++) {
+            for (int x = 0; x < numXTiles; x++) {
+                rootTiles.add(getTile(level, x, y));
+            }
+        }
+        return rootTiles;
+    }
+
+    private List<Tile> getChildren(Tile tile) {
+        final int level = tile.level - 1;
+        final double scale = model.getScale(level) * TILE_SIZE;
+        final Rectangle sceneBounds = tile.getSceneBounds();
+        final int minX = (int) Math.floor(sceneBounds.x / scale);
+        final int minY = (int) Math.floor(sceneBounds.y / scale);
+        final int maxX = Math.min(getNumTiles(sceneWidth, level) - 1, (int) Math.floor((sceneBounds.getMaxX() - 1) / scale));
+        final int maxY = Math.min(getNumTiles(sceneHeight, level) - 1, (int) Math.floor((sceneBounds.getMaxY() - 1) / scale));
+        final List<Tile> children = new ArrayList<>(4);
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                children.add(getTile(level, x, y));
+            }
+        }
+        return children;
+    }
+
+    private Tile getParent(Tile tile) {
+        final int level = tile.level + 1;
+        if (level >= levelCount) {
+            return null;
+        }
+        final double scale = model.getScale(level) * TILE_SIZE;
+        final Rectangle sceneBounds = tile.getSceneBounds();
+        return getTile(level, (int) Math.floor(sceneBounds.x / scale), (int) Math.floor(sceneBounds.y / scale));
+    }
+
+    private Tile getTile(int level, int x, int y) {
+        final String key = productKey + "/" + level + "_" + x + "_" + y;
+        Tile tile = tiles.get(key);
+        if (tile == null) {
+            tile = new Tile(key, level, x, y);
+            tiles.put(key, tile);
+        }
+        return tile;
+    }
+
+    private int getNumTiles(int sceneSize, int level) {
+        final int levelSize = (int) Math.ceil(sceneSize / model.getScale(level));
+        return Math.max(1, (levelSize + TILE_SIZE - 1) / TILE_SIZE);
+    }
+
+    /**
+     * @return A key, which identifies the tiles of the raster and its colouring across sessions if the product has
+     * been read from a file.
+     */
+    private static String createProductKey(RasterDataNode raster, ImageInfo imageInfo, File fileLocation) {
+        final StringBuilder sb = new StringBuilder();
+        if (fileLocation != null) {
+            sb.append(fileLocation.getAbsolutePath()).append('|').append(fileLocation.lastModified());
+        } else {
+            sb.append(System.identityHashCode(raster.getProduct()));
+        }
+        sb.append('|').append(raster.getName());
+        final ColorPaletteDef paletteDef = imageInfo.getColorPaletteDef();
+        if (paletteDef != null) {
+            for (int i = 0; i < paletteDef.getNumPoints(); i++) {
+                final ColorPaletteDef.Point point = paletteDef.getPointAt(i);
+                sb.append('|').append(point.getSample()).append(':').append(point.getColor().getRGB());
+            }
+        }
+        sb.append('|').append(imageInfo.isLogScaled());
+        return UUID.nameUUIDFromBytes(sb.toString().getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * A tile of a resolution level. Its geographic corners are computed once, from the centres of its edge pixels.
+     */
+    private class Tile {
+
+        private final String key;
+        private final int level;
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
+        private final List<LatLon> corners;
+        private final Sector sector;
+
+        private Tile(String key, int level, int x, int y) {
+            this.key = key;
+            this.level = level;
+            this.x = x;
+            this.y = y;
+            final Rectangle sceneBounds = getSceneBounds();
+            final double scale = model.getScale(level);
+            this.width = Math.max(1, (int) Math.round(sceneBounds.width / scale));
+            this.height = Math.max(1, (int) Math.round(sceneBounds.height / scale));
+
+            final double x0 = sceneBounds.x + 0.5;
+            final double y0 = sceneBounds.y + 0.5;
+            final double x1 = sceneBounds.getMaxX() - 0.5;
+            final double y1 = sceneBounds.getMaxY() - 0.5;
+            // the order of the corners expected by SurfaceImage: lower left, lower right, upper right, upper left
+            final List<LatLon> locations = Arrays.asList(getLocation(x0, y1), getLocation(x1, y1),
+                                                         getLocation(x1, y0), getLocation(x0, y0));
+            if (locations.contains(null)) {
+                this.corners = null;
+                this.sector = null;
+            } else {
+                this.corners = locations;
+                this.sector = Sector.boundingLocations(locations);
+            }
+        }
+
+        /**
+         * @return The bounds of the tile in the image of its level.
+         */
+        private Rectangle getLevelBounds() {
+            return new Rectangle(x * TILE_SIZE, y * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+        }
+
+        /**
+         * @return The bounds of the tile in scene raster coordinates, clipped to the scene.
+         */
+        private Rectangle getSceneBounds() {
+            final double scale = model.getScale(level);
+            final int minX = (int) Math.floor(x * TILE_SIZE * scale);
+            final int minY = (int) Math.floor(y * TILE_SIZE * scale);
+            final int maxX = Math.min(sceneWidth, (int) Math.ceil((x + 1) * TILE_SIZE * scale));
+            final int maxY = Math.min(sceneHeight, (int) Math.ceil((y + 1) * TILE_SIZE * scale));
+            return new Rectangle(minX, minY, Math.max(1, maxX - minX), Math.max(1, maxY - minY));
+        }
+
+        private LatLon getLocation(double pixelX, double pixelY) {
+            final GeoPos geoPos = geoCoding.getGeoPos(new PixelPos(pixelX, pixelY), null);
+            if (geoPos == null || !geoPos.isValid()) {
+                return null;
+            }
+            return LatLon.fromDegrees(geoPos.getLat(), geoPos.getLon());
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.worldwind.layers;
+
+import org.esa.snap.util.SystemUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded cache of the image tiles of product surfaces, shared by all product layers.
+ * <p>
+ * Tiles are kept in memory up to a fixed number of bytes, least recently used tiles are evicted first. Tiles of
+ * products read from a file are also written to a disk cache, so that they are not computed again for the same
+ * product file. Tiles are computed by a pool of background threads; the most recently requested tiles are computed
+ * first, since the tiles requested before have often left the view again.
+ */
+class ProductTileCache {
+
+    private static final long MAX_MEMORY_BYTES = 128L * 1024 * 1024;
+    private static final long MAX_DISK_BYTES = 512L * 1024 * 1024;
+    private static final long TRIM_INTERVAL_BYTES = 32L * 1024 * 1024;
+
+    private static ProductTileCache instance;
+
+    private final File cacheDir;
+    private final Map<String, BufferedImage> memoryCache;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong diskBytesSinceTrim;
+    private long memoryBytes;
+
+    ProductTileCache(File cacheDir) {
+        this.cacheDir = cacheDir;
+        this.memoryCache = new LinkedHashMap<>(256, 0.75f, true);
+        this.diskBytesSinceTrim = new AtomicLong();
+        final int numThreads = Math.max(2, Runtime.getRuntime().availableProcessors() - 1);
+        executor = new ThreadPoolExecutor(numThreads, numThreads, 60L, TimeUnit.SECONDS,
+                                          new LifoBlockingDeque(),
+                                          runnable -> {
+                                              final Thread thread = new Thread(runnable, "ProductTileCache");
+                                              thread.setDaemon(true);
+                                              thread.setPriority(Thread.MIN_PRIORITY);
+                                              return thread;
+                                          });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    static synchronized ProductTileCache getDefault() {
+        if (instance == null) {
+            final File cacheDir = new File(SystemUtils.getApplicationDataDir(), "worldwind/tile_cache");
+            instance = new ProductTileCache(cacheDir);
+            instance.trimDiskCache();
+        }
+        return instance;
+    }
+
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    synchronized BufferedImage get(String key) {
+        return memoryCache.get(key);
+    }
+
+    synchronized void put(String key, BufferedImage image) {
+        final BufferedImage previous = memoryCache.put(key, image);
+        if (previous != null) {
+            memoryBytes -= getSizeInBytes(previous);
+        }
+        memoryBytes += getSizeInBytes(image);
+        final Iterator<BufferedImage> iterator = memoryCache.values().iterator();
+        while (memoryBytes > MAX_MEMORY_BYTES && iterator.hasNext()) {
+            memoryBytes -= getSizeInBytes(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Removes the tiles of a product from memory. The tile keys of a product start with the given prefix.
+     */
+    synchronized void removeAll(String keyPrefix) {
+        final Iterator<Map.Entry<String, BufferedImage>> iterator = memoryCache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<String, BufferedImage> entry = iterator.next();
+            if (entry.getKey().startsWith(keyPrefix)) {
+                memoryBytes -= getSizeInBytes(entry.getValue());
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * @return The tile stored in the disk cache, or {@code null} if it is not cached.
+     */
+    BufferedImage readFromDisk(String key) {
+        final File file = getCacheFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            return ImageIO.read(file);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Writes a tile to the disk cache. The disk cache is trimmed to its size limit whenever a certain number of bytes
+     * has been written since it has been trimmed last.
+     */
+    void writeToDisk(String key, BufferedImage image) {
+        final File file = getCacheFile(key);
+        final File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        try {
+            // write to a temporary file first, so that a partially written tile is never read
+            final File tempFile = File.createTempFile("tile", ".tmp", dir);
+            ImageIO.write(image, "png", tempFile);
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            if (diskBytesSinceTrim.addAndGet(file.length()) > TRIM_INTERVAL_BYTES) {
+                diskBytesSinceTrim.set(0);
+                // trimmed by the writing thread itself, without holding the lock of the memory cache
+                synchronized (diskBytesSinceTrim) {
+                    trimDiskCache();
+                }
+            }
+        } catch (IOException e) {
+            SystemUtils.LOG.fine("Unable to cache tile " + key + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Marks the disk cache of a product as recently used.
+     */
+    void touch(String productKey) {
+        final File productDir = new File(cacheDir, productKey);
+        if (productDir.isDirectory()) {
+            productDir.setLastModified(System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * @return The cache file of a tile; the product key and the tile name are separated by a slash.
+     */
+    private File getCacheFile(String key) {
+        return new File(cacheDir, key + ".png");
+    }
+
+    /**
+     * Deletes the least recently modified product directories until the disk cache fits its size limit.
+     */
+    private void trimDiskCache() {
+        final File[] productDirs = cacheDir.listFiles(File::isDirectory);
+        if (productDirs == null) {
+            return;
+        }
+        long totalBytes = 0;
+        final long[] dirBytes = new long[productDirs.length];
+        for (int i = 0; i < productDirs.length; i++) {
+            final File[] files = productDirs[i].listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    dirBytes[i] += file.length();
+                }
+            }
+            totalBytes += dirBytes[i];
+        }
+        final Integer[] order = new Integer[productDirs.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (i1, i2) -> Long.compare(productDirs[i1].lastModified(), productDirs[i2].lastModified()));
+        for (int i = 0; i < order.length && totalBytes > MAX_DISK_BYTES; i++) {
+            final File[] files = productDirs[order[i]].listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            productDirs[order[i]].delete();
+            totalBytes -= dirBytes[order[i]];
+        }
+    }
+
+    private static long getSizeInBytes(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+
+    private static class LifoBlockingDeque extends LinkedBlockingDeque<Runnable> {
+
+        @Override
+        public boolean offer(Runnable runnable) {
+            return super.offerFirst(runnable);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2015 by Array Systems Computing Inc. http://www.array.ca
+ *
+ * This program is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation; either version 3 of the License, or (at your option)
+ * any later version.
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program; if not, see http://www.gnu.org/licenses/
+ */
+package org.esa.snap.worldwind.layers;
+
+import gov.nasa.worldwind.util.BufferFactory;
+import gov.nasa.worldwind.util.BufferWrapper;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * The cell averages of an OWI wind field for several cell sizes.
+ * <p>
+ * The pixels are read only once: they are summed into cells of the base size, one row of cells per task in
+ * parallel. The cells of every cell size, which has to be a multiple of the base size, are then summed from the base
+ * cells. The averages are stored in direct buffers.
+ */
+class WindFieldCells {
+
+    static final int BASE_CELL_SIZE = 4;
+
+    private static final int LAT = 0;
+    private static final int LON = 1;
+    private static final int INC_ANGLE = 2;
+    private static final int WIND_SPEED = 3;
+    private static final int WIND_DIR = 4;
+    private static final int FIELD_COUNT = 5;
+
+    private final Level[] levels;
+
+    private WindFieldCells(Level[] levels) {
+        this.levels = levels;
+    }
+
+    Level[] getLevels() {
+        return levels;
+    }
+
+    static WindFieldCells aggregate(float[] latValues, float[] lonValues, double[] incAngleValues,
+                                    double[] windSpeedValues, double[] windDirValues,
+                                    int width, int height, int[] cellSizes) {
+        final int baseCols = (width + BASE_CELL_SIZE - 1) / BASE_CELL_SIZE;
+        final int baseRows = (height + BASE_CELL_SIZE - 1) / BASE_CELL_SIZE;
+        final double[][] baseSums = new double[FIELD_COUNT][baseCols * baseRows];
+        final int[] baseCounts = new int[baseCols * baseRows];
+
+        IntStream.range(0, baseRows).parallel().forEach(baseRow -> {
+            final int minRow = baseRow * BASE_CELL_SIZE;
+            final int maxRow = Math.min(minRow + BASE_CELL_SIZE, height);
+            for (int baseCol = 0; baseCol < baseCols; baseCol++) {
+                final int minCol = baseCol * BASE_CELL_SIZE;
+                final int maxCol = Math.min(minCol + BASE_CELL_SIZE, width);
+                double lat = 0, lon = 0, incAngle = 0, windSpeed = 0, windDir = 0;
+                for (int row = minRow; row < maxRow; row++) {
+                    for (int i = row * width + minCol, end = row * width + maxCol; i < end; i++) {
+                        lat += latValues[i];
+                        lon += lonValues[i];
+                        incAngle += incAngleValues[i];
+                        windSpeed += windSpeedValues[i];
+                        windDir += windDirValues[i];
+                    }
+                }
+                final int cell = baseRow * baseCols + baseCol;
+                baseSums[LAT][cell] = lat;
+                baseSums[LON][cell] = lon;
+                baseSums[INC_ANGLE][cell] = incAngle;
+                baseSums[WIND_SPEED][cell] = windSpeed;
+                baseSums[WIND_DIR][cell] = windDir;
+                baseCounts[cell] = (maxRow - minRow) * (maxCol - minCol);
+            }
+        });
+
+        final Level[] levels = new Level[cellSizes.length];
+        for (int i = 0; i < cellSizes.length; i++) {
+            levels[i] = createLevel(cellSizes[i], baseSums, baseCounts, baseCols, baseRows);
+        }
+        return new WindFieldCells(levels);
+    }
+
+    private static Level createLevel(int cellSize, double[][] baseSums, int[] baseCounts, int baseCols, int baseRows) {
+        if (cellSize % BASE_CELL_SIZE != 0) {
+            throw new IllegalArgumentException("cell size must be a multiple of " + BASE_CELL_SIZE + ": " + cellSize);
+        }
+        final int factor = cellSize / BASE_CELL_SIZE;
+        final int numCols = (baseCols + factor - 1) / factor;
+        final int numRows = (baseRows + factor - 1) / factor;
+        final Level level = new Level(cellSize, numCols, numRows);
+
+        IntStream.range(0, numRows).parallel().forEach(row -> {
+            final double[] sums = new double[FIELD_COUNT];
+            final int minBaseRow = row * factor;
+            final int maxBaseRow = Math.min(minBaseRow + factor, baseRows);
+            for (int col = 0; col < numCols; col++) {
+                final int minBaseCol = col * factor;
+                final int maxBaseCol = Math.min(minBaseCol + factor, baseCols);
+                Arrays.fill(sums, 0.0);
+                int count = 0;
+                for (int baseRow = minBaseRow; baseRow < maxBaseRow; baseRow++) {
+                    for (int baseCol = minBaseCol; baseCol < maxBaseCol; baseCol++) {
+                        final int baseCell = baseRow * baseCols + baseCol;
+                        for (int field = 0; field < FIELD_COUNT; field++) {
+                            sums[field] += baseSums[field][baseCell];
+                        }
+                        count += baseCounts[baseCell];
+                    }
+                }
+                final int cell = row * numCols + col;
+                for (int field = 0; field < FIELD_COUNT; field++) {
+                    level.values[field].putDouble(cell, sums[field] / count);
+                }
+            }
+        });
+        return level;
+    }
+
+    /**
+     * The cell averages of one cell size, stored row by row.
+     */
+    static class Level {
+
+        private final int cellSize;
+        private final int numCols;
+        private final int numRows;
+        private final BufferWrapper[] values;
+
+        private Level(int cellSize, int numCols, int numRows) {
+            this.cellSize = cellSize;
+            this.numCols = numCols;
+            this.numRows = numRows;
+            final BufferFactory bufferFactory = new BufferFactory.DoubleBufferFactory();
+            this.values = new BufferWrapper[FIELD_COUNT];
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                values[field] = bufferFactory.newBuffer(numCols * numRows);
+            }
+        }
+
+        int getCellSize() {
+            return cellSize;
+        }
+
+        int getCellCount() {
+            return numCols * numRows;
+        }
+
+        double getLat(int cell) {
+            return values[LAT].getDouble(cell);
+        }
+
+        double getLon(int cell) {
+            return values[LON].getDouble(cell);
+        }
+
+        double getIncAngle(int cell) {
+            return values[INC_ANGLE].getDouble(cell);
+        }
+
+        double getWindSpeed(int cell) {
+            return values[WIND_SPEED].getDouble(cell);
+        }
+
+        double getWindDir(int cell) {
+            return values[WIND_DIR].getDouble(cell);
+        }
+    }
+}